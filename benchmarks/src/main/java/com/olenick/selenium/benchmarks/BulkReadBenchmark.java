@@ -0,0 +1,71 @@
+package com.olenick.selenium.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.olenick.selenium.drivers.BulkRead;
+import com.olenick.selenium.drivers.BulkReadResult;
+import com.olenick.selenium.elements.ExtendedWebElement;
+
+/**
+ * Reading the text and an attribute of every row of a table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BulkReadBenchmark {
+    private static final String ATTRIBUTE = "data-id";
+
+    @Param({ "200" })
+    public int rowCount;
+
+    private List<ExtendedWebElement> rows;
+    private BulkRead read;
+
+    @Setup(Level.Trial)
+    public void setUp(StubSession session) {
+        StubPage page = new StubPage(session.driver, 0, false);
+        List<WebElement> found = session.underlyingDriver.findElements(By
+                .tagName("tr"));
+        this.rows = new ArrayList<>(this.rowCount);
+        for (WebElement row : found.subList(0,
+                Math.min(this.rowCount, found.size()))) {
+            this.rows.add(new ExtendedWebElement(page, row));
+        }
+        this.read = new BulkRead().text().attribute(ATTRIBUTE);
+    }
+
+    @Benchmark
+    public List<String> oneByOne(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        List<String> values = new ArrayList<>(this.rows.size() * 2);
+        for (ExtendedWebElement row : this.rows) {
+            values.add(row.getText());
+            values.add(row.getAttribute(ATTRIBUTE));
+        }
+        roundTrips.count(session, before);
+        return values;
+    }
+
+    @Benchmark
+    public BulkReadResult inBulk(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        BulkReadResult result = session.driver.readInBulk(this.rows,
+                this.read);
+        roundTrips.count(session, before);
+        return result;
+    }
+}
@@ -0,0 +1,58 @@
+package com.olenick.selenium.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.olenick.selenium.elements.ClickMode;
+import com.olenick.selenium.elements.ExtendedWebElement;
+
+/**
+ * Clicking an element that is ready to be clicked, per click mode.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClickBenchmark {
+    @Param({ "WAIT_FOR_CLICKABLE", "OPTIMISTIC" })
+    public ClickMode clickMode;
+
+    private WebElement underlyingElement;
+    private ExtendedWebElement element;
+
+    @Setup(Level.Trial)
+    public void setUp(StubSession session) {
+        session.driver.setClickMode(this.clickMode);
+        this.underlyingElement = session.underlyingDriver.findElement(By
+                .id("button"));
+        this.element = new ExtendedWebElement(new StubPage(session.driver, 0,
+                false), this.underlyingElement);
+    }
+
+    @Benchmark
+    public void click(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        this.element.click();
+        roundTrips.count(session, before);
+    }
+
+    /**
+     * Baseline: the plain RemoteWebElement click.
+     */
+    @Benchmark
+    public void unwrappedClick(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        this.underlyingElement.click();
+        roundTrips.count(session, before);
+    }
+}
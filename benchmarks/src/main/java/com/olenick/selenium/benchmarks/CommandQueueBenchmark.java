@@ -0,0 +1,50 @@
+package com.olenick.selenium.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.olenick.selenium.drivers.CommandQueue;
+import com.olenick.selenium.drivers.ExtendedRemoteWebDriver;
+
+/**
+ * Cost of sending commands through a command queue (handing them over to its
+ * consumer thread) instead of directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommandQueueBenchmark {
+    private ExtendedRemoteWebDriver queuedDriver;
+
+    @Setup(Level.Trial)
+    public void setUp(StubSession session) {
+        this.queuedDriver = new ExtendedRemoteWebDriver(new RemoteWebDriver(
+                new CommandQueue(session.executor), new DesiredCapabilities()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.queuedDriver.quit();
+    }
+
+    @Benchmark
+    public String direct(StubSession session) {
+        return session.driver.getTitle();
+    }
+
+    @Benchmark
+    public String queued() {
+        return this.queuedDriver.getTitle();
+    }
+}
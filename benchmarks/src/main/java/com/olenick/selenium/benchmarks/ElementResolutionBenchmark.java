@@ -0,0 +1,83 @@
+package com.olenick.selenium.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.olenick.selenium.containers.ElementResolution;
+
+/**
+ * Binding every field of a page: one lookup per field versus a single batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ElementResolutionBenchmark {
+    private static final int USED_FIELDS = 5;
+
+    @Param({ "40" })
+    public int fieldCount;
+
+    @Benchmark
+    public StubPage eager(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        StubPage page = new StubPage(session.driver, this.fieldCount, false)
+                .waitForElementsToLoad();
+        roundTrips.count(session, before);
+        return page;
+    }
+
+    @Benchmark
+    public StubPage batched(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        StubPage page = new StubPage(session.driver, this.fieldCount, true)
+                .waitForElementsToLoad();
+        roundTrips.count(session, before);
+        return page;
+    }
+
+    /**
+     * Lazy binding when only a few fields of the page are used.
+     */
+    @Benchmark
+    public StubPage lazyUsingFive(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        StubPage page = new StubPage(session.driver, this.fieldCount, false)
+                .withElementResolution(ElementResolution.LAZY)
+                .waitForElementsToLoad();
+        for (int index = 0; index < USED_FIELDS; ++index) {
+            page.getField(index).safeGetUnderlyingWebElement();
+        }
+        roundTrips.count(session, before);
+        return page;
+    }
+
+    /**
+     * Baseline: a single lookup through the plain RemoteWebDriver.
+     */
+    @Benchmark
+    public WebElement unwrappedFindElement(StubSession session,
+            RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        WebElement element = session.underlyingDriver.findElement(By
+                .id("field0"));
+        roundTrips.count(session, before);
+        return element;
+    }
+
+    @Benchmark
+    public WebElement findElement(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        WebElement element = session.driver.findElement(By.id("field0"));
+        roundTrips.count(session, before);
+        return element;
+    }
+}
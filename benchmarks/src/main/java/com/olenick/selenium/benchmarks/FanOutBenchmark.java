@@ -0,0 +1,85 @@
+package com.olenick.selenium.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.olenick.selenium.drivers.AsyncDriver;
+import com.olenick.selenium.drivers.ExtendedRemoteWebDriver;
+
+/**
+ * Sending a command to each of many sessions from a single thread, one after
+ * the other or through async facades sharing a few threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FanOutBenchmark {
+    @Param({ "20" })
+    public int sessionCount;
+
+    @Param({ "4" })
+    public int threads;
+
+    private List<ExtendedRemoteWebDriver> drivers;
+    private List<AsyncDriver> asyncDrivers;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp(StubSession session) {
+        this.executor = AsyncDriver.newSharedExecutor(this.threads);
+        this.drivers = new ArrayList<>(this.sessionCount);
+        this.asyncDrivers = new ArrayList<>(this.sessionCount);
+        for (int index = 0; index < this.sessionCount; ++index) {
+            ExtendedRemoteWebDriver driver = new ExtendedRemoteWebDriver(
+                    new RemoteWebDriver(session.executor,
+                            new DesiredCapabilities()));
+            this.drivers.add(driver);
+            this.asyncDrivers.add(new AsyncDriver(driver, this.executor));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.executor.shutdown();
+    }
+
+    @Benchmark
+    public List<String> sequential() {
+        List<String> titles = new ArrayList<>(this.sessionCount);
+        for (ExtendedRemoteWebDriver driver : this.drivers) {
+            titles.add(driver.getTitle());
+        }
+        return titles;
+    }
+
+    @Benchmark
+    public List<String> fannedOut() throws InterruptedException,
+            ExecutionException {
+        List<Future<String>> futures = new ArrayList<>(this.sessionCount);
+        for (AsyncDriver driver : this.asyncDrivers) {
+            futures.add(driver.getTitle());
+        }
+        List<String> titles = new ArrayList<>(this.sessionCount);
+        for (Future<String> future : futures) {
+            titles.add(future.get());
+        }
+        return titles;
+    }
+}
@@ -0,0 +1,56 @@
+package com.olenick.selenium.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.olenick.selenium.containers.FormFill;
+
+/**
+ * Filling every text field of a form.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FormFillBenchmark {
+    @Param({ "20" })
+    public int fieldCount;
+
+    private StubPage page;
+    private FormFill fill;
+
+    @Setup(Level.Trial)
+    public void setUp(StubSession session) {
+        this.page = new StubPage(session.driver, this.fieldCount, true)
+                .waitForElementsToLoad();
+        this.fill = new FormFill();
+        for (int index = 0; index < this.fieldCount; ++index) {
+            this.fill.set(this.page.getField(index), "Value " + index);
+        }
+    }
+
+    @Benchmark
+    public void oneByOne(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        for (int index = 0; index < this.fieldCount; ++index) {
+            this.page.getField(index).clear();
+            this.page.getField(index).sendKeys("Value " + index);
+        }
+        roundTrips.count(session, before);
+    }
+
+    @Benchmark
+    public void inOneCall(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        this.page.fill(this.fill);
+        roundTrips.count(session, before);
+    }
+}
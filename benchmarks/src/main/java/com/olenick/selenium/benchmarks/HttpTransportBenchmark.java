@@ -0,0 +1,111 @@
+package com.olenick.selenium.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.olenick.selenium.drivers.HttpTransport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Round trips over HTTP to a local stub server answering every command at
+ * once, so only the transport is measured: Selenium's default executor against
+ * the pooled {@link HttpTransport}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HttpTransportBenchmark {
+    private static final String SESSION = "{\"sessionId\":\"stub\",\"status\":0,\"value\":{\"browserName\":\"stub\"}}";
+    private static final String TITLE = "{\"sessionId\":\"stub\",\"status\":0,\"value\":\"stub\"}";
+
+    @Param({ "default", "pooled" })
+    public String transportType;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private HttpTransport transport;
+    private RemoteWebDriver driver;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.serverThreads = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(this.serverThreads);
+        this.server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                HttpTransportBenchmark.respond(exchange);
+            }
+        });
+        this.server.start();
+        URL url = new URL("http://localhost:"
+                + this.server.getAddress().getPort() + "/wd/hub");
+        CommandExecutor executor;
+        if ("pooled".equals(this.transportType)) {
+            this.transport = new HttpTransport();
+            executor = this.transport.newCommandExecutor(url);
+        } else {
+            executor = new HttpCommandExecutor(url);
+        }
+        this.driver = new RemoteWebDriver(executor, new DesiredCapabilities());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.driver.quit();
+        if (this.transport != null) {
+            this.transport.close();
+        }
+        this.server.stop(0);
+        this.serverThreads.shutdownNow();
+    }
+
+    @Benchmark
+    public String getTitle() {
+        return this.driver.getTitle();
+    }
+
+    private static void respond(HttpExchange exchange) throws IOException {
+        try (InputStream request = exchange.getRequestBody()) {
+            byte[] buffer = new byte[4096];
+            while (request.read(buffer) >= 0) {
+                // Drained, for the connection to be reused
+            }
+        }
+        byte[] response = ("POST".equals(exchange.getRequestMethod())
+                && exchange.getRequestURI().getPath().endsWith("/session") ? SESSION
+                : TITLE).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type",
+                "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(response);
+        }
+    }
+}
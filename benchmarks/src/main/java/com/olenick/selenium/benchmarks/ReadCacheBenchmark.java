@@ -0,0 +1,80 @@
+package com.olenick.selenium.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.olenick.selenium.drivers.ReadCache;
+import com.olenick.selenium.elements.ClickMode;
+import com.olenick.selenium.elements.ExtendedWebElement;
+
+/**
+ * A step of a page object: checking some rows (displayed, text, attribute),
+ * asserting on the same reads, then clicking; with and without a read cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadCacheBenchmark {
+    private static final String ATTRIBUTE = "data-id";
+
+    @Param({ "false", "true" })
+    public boolean cached;
+
+    @Param({ "10" })
+    public int rowCount;
+
+    private List<ExtendedWebElement> rows;
+    private ExtendedWebElement button;
+
+    @Setup(Level.Trial)
+    public void setUp(StubSession session) {
+        session.driver.setClickMode(ClickMode.OPTIMISTIC);
+        session.driver.setReadCache(this.cached ? new ReadCache() : null);
+        StubPage page = new StubPage(session.driver, 0, false);
+        List<WebElement> found = session.underlyingDriver.findElements(By
+                .tagName("tr"));
+        this.rows = new ArrayList<>(this.rowCount);
+        for (WebElement row : found.subList(0,
+                Math.min(this.rowCount, found.size()))) {
+            this.rows.add(new ExtendedWebElement(page, row));
+        }
+        this.button = new ExtendedWebElement(page,
+                session.underlyingDriver.findElement(By.id("button")));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(StubSession session) {
+        session.driver.setReadCache(null);
+    }
+
+    @Benchmark
+    public int step(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        int matches = 0;
+        for (int pass = 0; pass < 2; ++pass) {
+            for (ExtendedWebElement row : this.rows) {
+                if (row.isDisplayed() && !row.getText().isEmpty()
+                        && row.getAttribute(ATTRIBUTE) != null) {
+                    ++matches;
+                }
+            }
+        }
+        this.button.click();
+        roundTrips.count(session, before);
+        return matches;
+    }
+}
@@ -0,0 +1,55 @@
+package com.olenick.selenium.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary results: round trips to the (stub) browser, characters of script
+ * source sent and operations performed during each iteration, so their ratios
+ * give the round trips and script payload per operation.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class RoundTrips {
+    public long roundTrips;
+    public long scriptCharacters;
+    public long operations;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        this.roundTrips = 0;
+        this.scriptCharacters = 0;
+        this.operations = 0;
+    }
+
+    /**
+     * Accounts for one operation.
+     *
+     * @param session Session the operation ran on.
+     * @param roundTripsBefore Round trips of the session before the
+     *            operation.
+     */
+    public void count(StubSession session, long roundTripsBefore) {
+        this.roundTrips += session.executor.getRoundTrips() - roundTripsBefore;
+        this.operations++;
+    }
+
+    /**
+     * Accounts for one operation, along with the script source it sent.
+     *
+     * @param session Session the operation ran on.
+     * @param roundTripsBefore Round trips of the session before the
+     *            operation.
+     * @param scriptCharactersBefore Script characters received by the session
+     *            before the operation.
+     */
+    public void count(StubSession session, long roundTripsBefore,
+            long scriptCharactersBefore) {
+        this.scriptCharacters += session.executor.getScriptCharacters()
+                - scriptCharactersBefore;
+        this.count(session, roundTripsBefore);
+    }
+}
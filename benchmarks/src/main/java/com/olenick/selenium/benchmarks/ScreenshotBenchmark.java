@@ -0,0 +1,108 @@
+package com.olenick.selenium.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.OutputType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.olenick.selenium.screenshots.ScreenshotRing;
+import com.olenick.selenium.screenshots.ScreenshotWriter;
+
+/**
+ * Taking screenshots, in memory and to disk (synchronously, or handing them
+ * to a background writer; the stub always serves the same screenshot, so the
+ * writer stores most of them as links), or only into a ring kept in memory;
+ * and taking a full-page screenshot, stitched from ten viewports.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScreenshotBenchmark {
+    private static final int MAX_IN_FLIGHT_BYTES = 64 * 1024 * 1024;
+    private static final int RING_SLOTS = 10;
+    private static final int RING_SLOT_BYTES = 4 * 1024 * 1024;
+
+    private File file;
+    private File directory;
+    private ScreenshotWriter writer;
+    private ScreenshotRing ring;
+    private long count;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.ring = new ScreenshotRing(RING_SLOTS, RING_SLOT_BYTES, true);
+        this.file = File.createTempFile("screenshot-benchmark", ".png");
+        this.directory = Files.createTempDirectory("screenshot-benchmark")
+                .toFile();
+        this.writer = new ScreenshotWriter(MAX_IN_FLIGHT_BYTES);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.writer.close();
+        this.file.delete();
+        for (File written : this.directory.listFiles()) {
+            written.delete();
+        }
+        this.directory.delete();
+    }
+
+    @Benchmark
+    public byte[] getScreenshotAsBytes(StubSession session,
+            RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        byte[] screenshot = session.driver.getScreenshotAs(OutputType.BYTES);
+        roundTrips.count(session, before);
+        return screenshot;
+    }
+
+    @Benchmark
+    public File takeScreenshot(StubSession session, RoundTrips roundTrips)
+            throws IOException {
+        long before = session.executor.getRoundTrips();
+        File screenshot = session.driver.takeScreenshot(this.file);
+        roundTrips.count(session, before);
+        return screenshot;
+    }
+
+    @Benchmark
+    public File takeFullPageScreenshot(StubSession session,
+            RoundTrips roundTrips) throws IOException {
+        long before = session.executor.getRoundTrips();
+        File screenshot = session.driver.takeFullPageScreenshot(this.file);
+        roundTrips.count(session, before);
+        return screenshot;
+    }
+
+    @Benchmark
+    public Future<File> writeInBackground(StubSession session,
+            RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        Future<File> screenshot = this.writer.capture(session.driver,
+                new File(this.directory, "step" + this.count++ % 100 + ".png"));
+        roundTrips.count(session, before);
+        return screenshot;
+    }
+
+    @Benchmark
+    public boolean recordInRing(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        session.driver.setScreenshotRing(this.ring);
+        boolean kept = session.driver.recordScreenshot("step");
+        session.driver.setScreenshotRing(null);
+        roundTrips.count(session, before);
+        return kept;
+    }
+}
@@ -0,0 +1,84 @@
+package com.olenick.selenium.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.olenick.selenium.screenshots.DecodedImage;
+import com.olenick.selenium.screenshots.ScreenshotComparator;
+import com.olenick.selenium.screenshots.ScreenshotComparison;
+
+/**
+ * Comparing a full HD screenshot with its baseline: identical, with a small
+ * change, and changed all over (the tiles skipped by hash, or not).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScreenshotComparisonBenchmark {
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+
+    @Param({ "0", "8" })
+    public int tolerance;
+
+    private ScreenshotComparator comparator;
+    private DecodedImage baseline;
+    private DecodedImage identical;
+    private DecodedImage changed;
+    private DecodedImage shifted;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.comparator = new ScreenshotComparator().tolerance(this.tolerance);
+        this.baseline = DecodedImage.of(createImage(0, false));
+        this.identical = DecodedImage.of(createImage(0, false));
+        this.changed = DecodedImage.of(createImage(0, true));
+        this.shifted = DecodedImage.of(createImage(1, false));
+        // The baseline is hashed once, on its first comparison
+        this.comparator.compare(this.baseline, this.identical);
+    }
+
+    @Benchmark
+    public ScreenshotComparison identical() {
+        return this.comparator.compare(this.baseline, this.identical);
+    }
+
+    @Benchmark
+    public ScreenshotComparison smallChange() {
+        return this.comparator.compare(this.baseline, this.changed);
+    }
+
+    @Benchmark
+    public ScreenshotComparison changedAllOver() {
+        return this.comparator.compare(this.baseline, this.shifted);
+    }
+
+    private static BufferedImage createImage(int shift, boolean change) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+                BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < HEIGHT; ++y) {
+            for (int x = 0; x < WIDTH; ++x) {
+                image.setRGB(x, y, (x + shift) / 8 % 2 == 0 ? 0xffffff
+                        : (x * 31 + y * 17) & 0xffffff);
+            }
+        }
+        if (change) {
+            for (int y = 500; y < 520; ++y) {
+                for (int x = 900; x < 1000; ++x) {
+                    image.setRGB(x, y, 0);
+                }
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,43 @@
+package com.olenick.selenium.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.olenick.selenium.scripts.ScriptRegistry;
+import com.olenick.selenium.scripts.Scripts;
+
+/**
+ * Running a built-in script by sending its source every time, or by calling it
+ * as a helper of the (already installed) library.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScriptRegistryBenchmark {
+    @Benchmark
+    public Object sourceSent(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        long charactersBefore = session.executor.getScriptCharacters();
+        Object result = session.driver.executeScript(
+                Scripts.FIND_ELEMENTS_IN_BATCH, Collections.emptyList());
+        roundTrips.count(session, before, charactersBefore);
+        return result;
+    }
+
+    @Benchmark
+    public Object helperCalled(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        long charactersBefore = session.executor.getScriptCharacters();
+        Object result = session.driver.callScript(
+                ScriptRegistry.FIND_ELEMENTS_IN_BATCH, Collections.emptyList());
+        roundTrips.count(session, before, charactersBefore);
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package com.olenick.selenium.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.By;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.olenick.selenium.elements.ExtendedSelectWebElement;
+import com.olenick.selenium.elements.ExtendedWebElement;
+import com.olenick.selenium.elements.SelectMode;
+import com.olenick.selenium.model.OptionSnapshot;
+
+/**
+ * Selecting in, and reading, a dropdown with many options.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SelectBenchmark {
+    @Param({ "SELENIUM", "SCRIPTED" })
+    public SelectMode selectMode;
+
+    private ExtendedSelectWebElement select;
+
+    @Setup(Level.Trial)
+    public void setUp(StubSession session) {
+        session.driver.setSelectMode(this.selectMode);
+        this.select = new ExtendedSelectWebElement(new StubPage(
+                session.driver, 0, false), session.underlyingDriver
+                .findElement(By.id("select")));
+    }
+
+    @Benchmark
+    public void selectByValue(StubSession session, RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        this.select.selectByValue("0");
+        roundTrips.count(session, before);
+    }
+
+    @Benchmark
+    public List<ExtendedWebElement> getOptions(StubSession session,
+            RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        List<ExtendedWebElement> options = this.select.getOptions();
+        roundTrips.count(session, before);
+        return options;
+    }
+
+    @Benchmark
+    public List<OptionSnapshot> getOptionSnapshots(StubSession session,
+            RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        List<OptionSnapshot> options = this.select.getOptionSnapshots();
+        roundTrips.count(session, before);
+        return options;
+    }
+}
@@ -0,0 +1,270 @@
+package com.olenick.selenium.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.imageio.ImageIO;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.Response;
+
+import com.olenick.selenium.scripts.ScriptRegistry;
+import com.olenick.selenium.scripts.Scripts;
+
+/**
+ * In-process stand-in for a remote browser: answers every command with a
+ * canned, successful response after an injected latency, and counts the round
+ * trips it serves.
+ * <p>
+ * Every element lookup finds an element; looking up options (by tag name)
+ * finds as many as configured, all displayed and enabled. Pages are ten
+ * screenshots tall.
+ * </p>
+ */
+public class StubCommandExecutor implements CommandExecutor {
+    private static final String ELEMENT_KEY = "ELEMENT";
+    private static final String SESSION_ID = "stub-session";
+    // Pages are this many viewports (screenshots) tall
+    private static final int PAGE_VIEWPORTS = 10;
+
+    private final long latencyNanos;
+    private final int optionCount;
+    private final String screenshot;
+    private final int screenshotSize;
+    private final AtomicLong elementIds = new AtomicLong();
+    private final AtomicLong roundTrips = new AtomicLong();
+    private final AtomicLong scriptCharacters = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> commandCounts = new ConcurrentHashMap<>();
+
+    /**
+     * @param latencyMicros Latency injected in every round trip.
+     * @param optionCount Options found in select elements.
+     * @param screenshotSize Width and height of the screenshots served.
+     */
+    public StubCommandExecutor(long latencyMicros, int optionCount,
+            int screenshotSize) {
+        this.latencyNanos = latencyMicros * 1000;
+        this.optionCount = optionCount;
+        this.screenshotSize = screenshotSize;
+        this.screenshot = createScreenshot(screenshotSize);
+    }
+
+    public long getRoundTrips() {
+        return this.roundTrips.get();
+    }
+
+    /**
+     * @return Characters of script source received.
+     */
+    public long getScriptCharacters() {
+        return this.scriptCharacters.get();
+    }
+
+    /**
+     * @return Round trips served, per command name.
+     */
+    public Map<String, Long> getCommandCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : this.commandCounts
+                .entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    public void resetCounts() {
+        this.roundTrips.set(0);
+        this.scriptCharacters.set(0);
+        this.commandCounts.clear();
+    }
+
+    @Override
+    public Response execute(Command command) throws IOException {
+        this.roundTrips.incrementAndGet();
+        AtomicLong count = this.commandCounts.get(command.getName());
+        if (count == null) {
+            this.commandCounts.putIfAbsent(command.getName(), new AtomicLong());
+            count = this.commandCounts.get(command.getName());
+        }
+        count.incrementAndGet();
+        if (this.latencyNanos > 0) {
+            LockSupport.parkNanos(this.latencyNanos);
+        }
+        Response response = new Response(command.getSessionId());
+        response.setStatus(0);
+        response.setValue(this.valueOf(command));
+        if (DriverCommand.NEW_SESSION.equals(command.getName())) {
+            response.setSessionId(SESSION_ID);
+        }
+        return response;
+    }
+
+    private Object valueOf(Command command) {
+        Map<String, ?> parameters = command.getParameters();
+        switch (command.getName()) {
+        case DriverCommand.NEW_SESSION:
+            Map<String, Object> capabilities = new HashMap<>();
+            capabilities.put("browserName", "stub");
+            capabilities.put("javascriptEnabled", true);
+            capabilities.put("takesScreenshot", true);
+            return capabilities;
+        case DriverCommand.FIND_ELEMENT:
+        case DriverCommand.FIND_CHILD_ELEMENT:
+            return this.newElement();
+        case DriverCommand.FIND_ELEMENTS:
+        case DriverCommand.FIND_CHILD_ELEMENTS:
+            return this.newElements("tag name".equals(parameters.get("using")) ? this.optionCount
+                    : 1);
+        case DriverCommand.IS_ELEMENT_DISPLAYED:
+        case DriverCommand.IS_ELEMENT_ENABLED:
+            return true;
+        case DriverCommand.IS_ELEMENT_SELECTED:
+            return false;
+        case DriverCommand.GET_ELEMENT_TEXT:
+            return "text";
+        case DriverCommand.GET_ELEMENT_TAG_NAME:
+            return "select";
+        case DriverCommand.GET_ELEMENT_ATTRIBUTE:
+            return "multiple".equals(parameters.get("name")) ? null : "0";
+        case DriverCommand.GET_CURRENT_URL:
+            return "about:blank";
+        case DriverCommand.GET_TITLE:
+            return "stub";
+        case DriverCommand.GET_PAGE_SOURCE:
+            return "<html><head></head><body></body></html>";
+        case DriverCommand.SCREENSHOT:
+            return this.screenshot;
+        case DriverCommand.EXECUTE_SCRIPT:
+        case DriverCommand.EXECUTE_ASYNC_SCRIPT:
+            return this.scriptResultOf((String) parameters.get("script"),
+                    (List<?>) parameters.get("args"));
+        default:
+            return null;
+        }
+    }
+
+    private Object scriptResultOf(String script, List<?> args) {
+        this.scriptCharacters.addAndGet(script.length());
+        if (script.endsWith(Scripts.INVOKE_HELPER)
+                || script.endsWith(Scripts.INVOKE_HELPER_ASYNC)) {
+            // The library is assumed to stay installed
+            return this.helperResultOf((String) args.get(1),
+                    args.subList(2, args.size()));
+        } else if (Scripts.PING.equals(script)) {
+            return 1L;
+        }
+        return null;
+    }
+
+    private Object helperResultOf(String helper, List<?> args) {
+        switch (helper) {
+        case ScriptRegistry.FIND_ELEMENTS_IN_BATCH:
+            return this.newElements(((List<?>) args.get(0)).size());
+        case ScriptRegistry.FIND_ELEMENT_WHEN_READY:
+            return Boolean.TRUE.equals(args.get(2)) ? this.newElements(1)
+                    : this.newElement();
+        case ScriptRegistry.WAIT_FOR_READY_STATE:
+        case ScriptRegistry.WAIT_FOR_PAGE_SETTLED:
+            return true;
+        case ScriptRegistry.APPLY_SELECTION:
+            return Collections.singletonMap("missing", Collections.emptyList());
+        case ScriptRegistry.READ_OPTIONS:
+            return this.readOptions(((Number) args.get(1)).intValue(),
+                    ((Number) args.get(2)).intValue());
+        case ScriptRegistry.READ_IN_BULK:
+            return readInBulk(((List<?>) args.get(0)).size(),
+                    ((List<?>) args.get(1)).size());
+        case ScriptRegistry.PAGE_GEOMETRY:
+            return this.pageGeometry();
+        case ScriptRegistry.SCROLL_TO:
+            return Arrays.asList(0L, Math.min(
+                    ((Number) args.get(1)).longValue(),
+                    (long) (PAGE_VIEWPORTS - 1) * this.screenshotSize));
+        default:
+            return null;
+        }
+    }
+
+    private Map<String, Object> pageGeometry() {
+        Map<String, Object> geometry = new HashMap<>();
+        geometry.put("pageWidth", (long) this.screenshotSize);
+        geometry.put("pageHeight", (long) PAGE_VIEWPORTS * this.screenshotSize);
+        geometry.put("viewportWidth", (long) this.screenshotSize);
+        geometry.put("viewportHeight", (long) this.screenshotSize);
+        geometry.put("windowWidth", (long) this.screenshotSize);
+        geometry.put("scrollX", 0L);
+        geometry.put("scrollY", 0L);
+        return geometry;
+    }
+
+    private Map<String, Object> readOptions(int offset, int limit) {
+        List<List<Object>> rows = new ArrayList<>();
+        for (int index = offset; index < this.optionCount
+                && rows.size() < limit; ++index) {
+            rows.add(Arrays.<Object> asList((long) index,
+                    String.valueOf(index), "Option " + index, index == 0,
+                    false));
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("total", (long) this.optionCount);
+        result.put("options", rows);
+        return result;
+    }
+
+    private static List<List<Object>> readInBulk(int rowCount, int columnCount) {
+        List<List<Object>> rows = new ArrayList<>(rowCount);
+        for (int index = 0; index < rowCount; ++index) {
+            List<Object> row = new ArrayList<>(columnCount + 1);
+            for (int column = 0; column < columnCount; ++column) {
+                row.add("value");
+            }
+            row.add(true);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private Map<String, String> newElement() {
+        return Collections.singletonMap(ELEMENT_KEY,
+                String.valueOf(this.elementIds.incrementAndGet()));
+    }
+
+    private List<Map<String, String>> newElements(int count) {
+        List<Map<String, String>> elements = new ArrayList<>(count);
+        for (int index = 0; index < count; ++index) {
+            elements.add(this.newElement());
+        }
+        return elements;
+    }
+
+    private static String createScreenshot(int size) {
+        BufferedImage image = new BufferedImage(size, size,
+                BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < size; ++y) {
+            for (int x = 0; x < size; ++x) {
+                image.setRGB(x, y, (x * 31 + y * 17) & 0xFFFFFF);
+            }
+        }
+        try {
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", png);
+            return OutputType.BASE64.convertFromPngBytes(png.toByteArray());
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
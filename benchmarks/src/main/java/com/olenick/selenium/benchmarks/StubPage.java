@@ -0,0 +1,40 @@
+package com.olenick.selenium.benchmarks;
+
+import com.olenick.selenium.containers.WebContainer;
+import com.olenick.selenium.drivers.ExtendedRemoteWebDriver;
+import com.olenick.selenium.elements.ExtendedWebElement;
+
+/**
+ * Page with a configurable number of fields, located by id.
+ */
+public class StubPage extends WebContainer<StubPage> {
+    private final String[] ids;
+    private final ExtendedWebElement[] fields;
+    private final boolean batched;
+
+    public StubPage(ExtendedRemoteWebDriver driver, int fieldCount,
+            boolean batched) {
+        super(driver);
+        this.ids = new String[fieldCount];
+        this.fields = new ExtendedWebElement[fieldCount];
+        for (int index = 0; index < fieldCount; ++index) {
+            this.ids[index] = "field" + index;
+            this.fields[index] = new ExtendedWebElement(this);
+        }
+        this.batched = batched;
+    }
+
+    public ExtendedWebElement getField(int index) {
+        return this.fields[index];
+    }
+
+    @Override
+    public StubPage waitForElementsToLoad() {
+        if (this.batched) {
+            this.setElementsInBatch(this.fields).byId(this.ids).resolve();
+        } else {
+            this.setElements(this.fields).byId(this.ids);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,49 @@
+package com.olenick.selenium.benchmarks;
+
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.olenick.selenium.drivers.ExtendedRemoteWebDriver;
+
+/**
+ * A wrapped session per benchmark thread, backed by the stub executor.
+ */
+@State(Scope.Thread)
+public class StubSession {
+    /**
+     * Latency injected in every round trip: 0 measures the wrapper overhead
+     * alone; the others approximate a local browser and a grid.
+     */
+    @Param({ "0", "1000", "10000" })
+    public long latencyMicros;
+
+    @Param({ "2000" })
+    public int optionCount;
+
+    @Param({ "800" })
+    public int screenshotSize;
+
+    public StubCommandExecutor executor;
+    public RemoteWebDriver underlyingDriver;
+    public ExtendedRemoteWebDriver driver;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.executor = new StubCommandExecutor(this.latencyMicros,
+                this.optionCount, this.screenshotSize);
+        this.underlyingDriver = new RemoteWebDriver(this.executor,
+                new DesiredCapabilities());
+        this.driver = new ExtendedRemoteWebDriver(this.underlyingDriver);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.driver.quit();
+    }
+}
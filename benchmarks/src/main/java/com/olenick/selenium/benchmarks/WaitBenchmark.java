@@ -0,0 +1,64 @@
+package com.olenick.selenium.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.olenick.selenium.drivers.WaitStrategy;
+
+/**
+ * Waits that are satisfied right away, per wait strategy: what is left is the
+ * cost of the waiting machinery itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WaitBenchmark {
+    @Param({ "CLIENT_POLLING", "IN_BROWSER" })
+    public WaitStrategy waitStrategy;
+
+    private StubPage page;
+
+    @Setup(Level.Trial)
+    public void setUp(StubSession session) {
+        session.driver.setWaitStrategy(this.waitStrategy);
+        this.page = new StubPage(session.driver, 0, false);
+    }
+
+    @Benchmark
+    public WebElement findVisibleElement(StubSession session,
+            RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        WebElement element = session.driver.findVisibleElement(By.id("x"));
+        roundTrips.count(session, before);
+        return element;
+    }
+
+    @Benchmark
+    public StubPage waitForPageComplete(StubSession session,
+            RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        StubPage page = this.page.waitForPageComplete();
+        roundTrips.count(session, before);
+        return page;
+    }
+
+    @Benchmark
+    public StubPage waitForPageSettled(StubSession session,
+            RoundTrips roundTrips) {
+        long before = session.executor.getRoundTrips();
+        StubPage page = this.page.waitForPageSettled();
+        roundTrips.count(session, before);
+        return page;
+    }
+}
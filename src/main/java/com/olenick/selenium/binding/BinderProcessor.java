@@ -0,0 +1,275 @@
+package com.olenick.selenium.binding;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import org.openqa.selenium.support.How;
+
+import com.olenick.selenium.containers.ContainerBinder;
+
+/**
+ * Generates, for every class with {@link Locate} fields, the binder
+ * {@link com.olenick.selenium.containers.WebContainer#bindElements()} uses.
+ * <p>
+ * It is registered as a service, so it runs whenever this library is in the
+ * compilation classpath (unless annotation processing is disabled).
+ * </p>
+ */
+@SupportedAnnotationTypes("com.olenick.selenium.binding.Locate")
+public class BinderProcessor extends AbstractProcessor {
+    private static final String WEB_CONTAINER = "com.olenick.selenium.containers.WebContainer";
+    private static final String EXTENDED_WEB_ELEMENT = "com.olenick.selenium.elements.ExtendedWebElement";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations,
+            RoundEnvironment roundEnvironment) {
+        Map<TypeElement, List<VariableElement>> fieldsByType = new LinkedHashMap<>();
+        for (Element element : roundEnvironment
+                .getElementsAnnotatedWith(Locate.class)) {
+            if (element.getKind() != ElementKind.FIELD) {
+                continue;
+            }
+            TypeElement type = (TypeElement) element.getEnclosingElement();
+            List<VariableElement> fields = fieldsByType.get(type);
+            if (fields == null) {
+                fields = new ArrayList<>();
+                fieldsByType.put(type, fields);
+            }
+            fields.add((VariableElement) element);
+        }
+        for (Map.Entry<TypeElement, List<VariableElement>> entry : fieldsByType
+                .entrySet()) {
+            if (this.isValid(entry.getKey(), entry.getValue())) {
+                this.generate(entry.getKey(), entry.getValue());
+            }
+        }
+        return true;
+    }
+
+    private boolean isValid(TypeElement type, List<VariableElement> fields) {
+        TypeMirror container = this.erasureOf(WEB_CONTAINER);
+        TypeMirror element = this.erasureOf(EXTENDED_WEB_ELEMENT);
+        boolean valid = true;
+        if (type.getKind() != ElementKind.CLASS
+                || type.getModifiers().contains(Modifier.PRIVATE)
+                || !this.processingEnv.getTypeUtils().isAssignable(
+                        this.processingEnv.getTypeUtils().erasure(
+                                type.asType()), container)) {
+            this.error(type, "Located fields must belong to a non-private "
+                    + "WebContainer subclass");
+            return false;
+        }
+        for (VariableElement field : fields) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)
+                    || modifiers.contains(Modifier.STATIC)
+                    || modifiers.contains(Modifier.FINAL)) {
+                this.error(field, "Located fields must not be private, "
+                        + "static nor final");
+                valid = false;
+            } else if (!this.processingEnv.getTypeUtils().isAssignable(
+                    field.asType(), element)) {
+                this.error(field, "Located fields must be ExtendedWebElements");
+                valid = false;
+            } else if (!this.isInstantiable(field.asType(), type.asType())) {
+                this.error(field, "Located fields must be of a concrete type "
+                        + "with a (WebContainer) constructor");
+                valid = false;
+            } else if (field.getAnnotation(Locate.class).how() == How.UNSET) {
+                this.error(field, "Locator strategy must be set");
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    private boolean isInstantiable(TypeMirror fieldType, TypeMirror container) {
+        if (fieldType.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        TypeElement fieldTypeElement = (TypeElement) ((DeclaredType) fieldType)
+                .asElement();
+        if (fieldTypeElement.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter
+                .constructorsIn(fieldTypeElement.getEnclosedElements())) {
+            if (constructor.getParameters().size() == 1
+                    && !constructor.getModifiers().contains(Modifier.PRIVATE)
+                    && this.processingEnv.getTypeUtils().isAssignable(
+                            container,
+                            this.processingEnv.getTypeUtils().erasure(
+                                    constructor.getParameters().get(0)
+                                            .asType()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement type, List<VariableElement> fields) {
+        String packageName = this.processingEnv.getElementUtils()
+                .getPackageOf(type).getQualifiedName().toString();
+        String binaryName = this.processingEnv.getElementUtils()
+                .getBinaryName(type).toString();
+        String binderName = (packageName.isEmpty() ? binaryName : binaryName
+                .substring(packageName.length() + 1))
+                + ContainerBinder.BINDER_SUFFIX;
+        String typeName = this.processingEnv.getTypeUtils()
+                .erasure(type.asType()).toString();
+        try (PrintWriter out = new PrintWriter(this.processingEnv.getFiler()
+                .createSourceFile(
+                        packageName.isEmpty() ? binderName : packageName + '.'
+                                + binderName, type).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Binder of {@link " + typeName
+                    + "}, generated from its Locate annotations.");
+            out.println(" */");
+            out.println("public final class " + binderName
+                    + " extends com.olenick.selenium.containers.ContainerBinder<"
+                    + typeName + "> {");
+            out.println("    private static final org.openqa.selenium.By[] LOCATORS = {");
+            for (VariableElement field : fields) {
+                Locate locate = field.getAnnotation(Locate.class);
+                out.println("        " + byOf(locate.how(), locate.using())
+                        + ",");
+            }
+            out.println("    };");
+            out.print("    private static final boolean[] VISIBILITIES = {");
+            for (VariableElement field : fields) {
+                out.print(" " + field.getAnnotation(Locate.class).visible()
+                        + ",");
+            }
+            out.println(" };");
+            out.print("    private static final boolean[] HOT = {");
+            for (VariableElement field : fields) {
+                out.print(" " + field.getAnnotation(Locate.class).hot() + ",");
+            }
+            out.println(" };");
+            out.println();
+            out.println("    public " + binderName + "() {");
+            out.println("        super(LOCATORS, VISIBILITIES, HOT);");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    protected " + EXTENDED_WEB_ELEMENT
+                    + "[] elementsOf(" + typeName + " container) {");
+            for (VariableElement field : fields) {
+                String name = field.getSimpleName().toString();
+                out.println("        if (container." + name + " == null) {");
+                out.println("            container." + name + " = new "
+                        + this.processingEnv.getTypeUtils().erasure(
+                                field.asType()) + "(container);");
+                out.println("        }");
+            }
+            out.println("        return new " + EXTENDED_WEB_ELEMENT + "[] {");
+            for (VariableElement field : fields) {
+                out.println("            container." + field.getSimpleName()
+                        + ",");
+            }
+            out.println("        };");
+            out.println("    }");
+            out.println("}");
+        } catch (IOException exception) {
+            this.error(type, "Binder could not be generated: " + exception);
+        }
+    }
+
+    private TypeMirror erasureOf(String typeName) {
+        return this.processingEnv.getTypeUtils().erasure(
+                this.processingEnv.getElementUtils().getTypeElement(typeName)
+                        .asType());
+    }
+
+    private void error(Element element, String message) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                message, element);
+    }
+
+    private static String byOf(How how, String using) {
+        String argument = literalOf(using);
+        switch (how) {
+        case CLASS_NAME:
+            return "org.openqa.selenium.By.className(" + argument + ")";
+        case CSS:
+            return "org.openqa.selenium.By.cssSelector(" + argument + ")";
+        case ID_OR_NAME:
+            return "new org.openqa.selenium.support.pagefactory.ByIdOrName("
+                    + argument + ")";
+        case LINK_TEXT:
+            return "org.openqa.selenium.By.linkText(" + argument + ")";
+        case NAME:
+            return "org.openqa.selenium.By.name(" + argument + ")";
+        case PARTIAL_LINK_TEXT:
+            return "org.openqa.selenium.By.partialLinkText(" + argument + ")";
+        case TAG_NAME:
+            return "org.openqa.selenium.By.tagName(" + argument + ")";
+        case XPATH:
+            return "org.openqa.selenium.By.xpath(" + argument + ")";
+        default:
+            return "org.openqa.selenium.By.id(" + argument + ")";
+        }
+    }
+
+    private static String literalOf(String value) {
+        StringBuilder literal = new StringBuilder(value.length() + 2);
+        literal.append('"');
+        for (int index = 0; index < value.length(); ++index) {
+            char character = value.charAt(index);
+            switch (character) {
+            case '"':
+                literal.append("\\\"");
+                break;
+            case '\\':
+                literal.append("\\\\");
+                break;
+            case '\n':
+                literal.append("\\n");
+                break;
+            case '\r':
+                literal.append("\\r");
+                break;
+            case '\t':
+                literal.append("\\t");
+                break;
+            default:
+                if (character < 0x20 || character > 0x7e) {
+                    literal.append(String.format("\\u%04x", (int) character));
+                } else {
+                    literal.append(character);
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+}
@@ -0,0 +1,48 @@
+package com.olenick.selenium.binding;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.openqa.selenium.support.How;
+
+/**
+ * Locator of an ExtendedWebElement field of a WebContainer subclass.
+ * <p>
+ * For every class with annotated fields, {@link BinderProcessor} generates, at
+ * compile time, a binder (named after the class, plus "_Binder") holding the
+ * locators already built, which
+ * {@link com.olenick.selenium.containers.WebContainer#bindElements()} uses to
+ * bind the fields. Fields must not be private, static nor final; null fields
+ * are instantiated with their type's (WebContainer) constructor.
+ * </p>
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface Locate {
+    /**
+     * @return Locator strategy.
+     */
+    How how() default How.ID;
+
+    /**
+     * @return Value to locate the element with (its id, for the default
+     *         strategy).
+     */
+    String using();
+
+    /**
+     * @return Whether the element is required to be visible.
+     */
+    boolean visible() default false;
+
+    /**
+     * @return Whether the element is used often enough to be prefetched, in a
+     *         single batch along with the other hot elements, when the
+     *         container resolves its elements lazily.
+     */
+    boolean hot() default false;
+}
@@ -0,0 +1,87 @@
+package com.olenick.selenium.containers;
+
+import java.util.List;
+
+import com.olenick.selenium.elements.ExtendedWebElement;
+
+/**
+ * What changed in the page between two checkpoints of a
+ * {@link ChangeTracker}.
+ */
+public class ChangeSet {
+    private final boolean reset;
+    private final List<DomChange> changes;
+    private final int droppedChanges;
+    private final List<ExtendedWebElement> invalidated;
+    private final List<ExtendedWebElement> changed;
+
+    ChangeSet(boolean reset, List<DomChange> changes, int droppedChanges,
+            List<ExtendedWebElement> invalidated,
+            List<ExtendedWebElement> changed) {
+        this.reset = reset;
+        this.changes = changes;
+        this.droppedChanges = droppedChanges;
+        this.invalidated = invalidated;
+        this.changed = changed;
+    }
+
+    /**
+     * @return Whether the changes were lost, along with the tracking (e.g.:
+     *         the page was left), and tracking started over; every watched
+     *         element is then invalidated.
+     */
+    public boolean isReset() {
+        return this.reset;
+    }
+
+    /**
+     * @return Changes, per element changed.
+     */
+    public List<DomChange> getChanges() {
+        return this.changes;
+    }
+
+    /**
+     * @return Changes to more elements than the tracker logs (only counted);
+     *         every watched element is then reported as changed.
+     */
+    public int getDroppedChanges() {
+        return this.droppedChanges;
+    }
+
+    /**
+     * @return Watched elements no longer in the page (forgotten, so that
+     *         those with a locator are looked up again when next used).
+     */
+    public List<ExtendedWebElement> getInvalidated() {
+        return this.invalidated;
+    }
+
+    /**
+     * @return Watched elements still in the page, in (or under) which
+     *         something changed.
+     */
+    public List<ExtendedWebElement> getChanged() {
+        return this.changed;
+    }
+
+    /**
+     * @return Whether nothing changed.
+     */
+    public boolean isEmpty() {
+        return !this.reset && this.changes.isEmpty()
+                && this.droppedChanges == 0 && this.invalidated.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ChangeSet{");
+        sb.append("reset=").append(this.reset);
+        sb.append(", changes=").append(this.changes.size());
+        sb.append(", droppedChanges=").append(this.droppedChanges);
+        sb.append(", invalidated=").append(this.invalidated.size());
+        sb.append(", changed=").append(this.changed.size());
+        sb.append('}');
+        return sb.toString();
+    }
+}
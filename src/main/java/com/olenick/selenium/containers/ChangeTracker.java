@@ -0,0 +1,265 @@
+package com.olenick.selenium.containers;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.validation.constraints.NotNull;
+
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.olenick.selenium.drivers.ExtendedRemoteWebDriver;
+import com.olenick.selenium.elements.ExtendedWebElement;
+import com.olenick.selenium.scripts.ScriptRegistry;
+
+/**
+ * Tracks what changes in (part of) a page, through a MutationObserver that
+ * logs the changes in the page, per element changed: each
+ * {@link #checkpoint()} reads (in a single round trip) only what changed
+ * since the previous one.
+ * <p>
+ * Watched elements (see {@link #watch(ExtendedWebElement...)}) are checked at
+ * each checkpoint: those no longer in the page are reported as invalidated and
+ * forgotten, so that only they are looked up again when next used (those with
+ * a locator), and those in which something changed are reported as changed.
+ * </p>
+ * <p>
+ * Leaving the page loses the changes: the next checkpoint reports a reset
+ * (every watched element invalidated) and starts tracking the new page.
+ * </p>
+ * <p>
+ * Checkpoints that find changes also invalidate the read cache of the driver,
+ * if any, as they may have been made by the page itself.
+ * </p>
+ */
+public class ChangeTracker implements Closeable {
+    private static final Logger log = LoggerFactory
+            .getLogger(ChangeTracker.class);
+
+    /**
+     * Default maximum number of elements changes are logged for, between
+     * checkpoints (changes to more elements are only counted).
+     */
+    public static final int DEFAULT_MAX_TARGETS = 1000;
+    private static final AtomicLong TRACKER_COUNT = new AtomicLong();
+
+    private final ExtendedRemoteWebDriver driver;
+    private final String id;
+    private final List<ExtendedWebElement> roots;
+    private final int maxTargets;
+    private final List<Watched> watched = new ArrayList<>();
+
+    /**
+     * Starts tracking.
+     *
+     * @param driver Driver of the page.
+     * @param roots Elements whose subtrees to track (the whole document if
+     *            none).
+     * @param maxTargets Maximum number of elements to log changes for,
+     *            between checkpoints.
+     */
+    public ChangeTracker(@NotNull final ExtendedRemoteWebDriver driver,
+            @NotNull final List<ExtendedWebElement> roots, final int maxTargets) {
+        if (maxTargets <= 0) {
+            throw new IllegalArgumentException(
+                    "Maximum targets must be positive: " + maxTargets);
+        }
+        this.driver = driver;
+        this.id = "tracker" + TRACKER_COUNT.incrementAndGet();
+        this.roots = new ArrayList<>(roots);
+        this.maxTargets = maxTargets;
+        this.start();
+    }
+
+    /**
+     * Watches elements, to report them as invalidated or changed at the
+     * following checkpoints. Elements not resolved yet are watched once they
+     * are.
+     *
+     * @param elements Elements to watch.
+     * @return This tracker.
+     */
+    public ChangeTracker watch(@NotNull final ExtendedWebElement... elements) {
+        for (ExtendedWebElement element : elements) {
+            this.watched.add(new Watched(element));
+        }
+        return this;
+    }
+
+    /**
+     * @return What changed since the previous checkpoint (or since tracking
+     *         started).
+     */
+    public ChangeSet checkpoint() {
+        log.trace("checkpoint(): {}", this.id);
+        List<List<Object>> updates = new ArrayList<>();
+        List<WebElement> updatedElements = new ArrayList<>();
+        for (int index = 0; index < this.watched.size(); ++index) {
+            ExtendedWebElement element = this.watched.get(index).element;
+            WebElement underlying = element.getUnderlyingWebElement();
+            if (underlying != null
+                    && underlying != this.watched.get(index).registered) {
+                updates.add(Arrays.<Object> asList(index, underlying));
+                updatedElements.add(underlying);
+            }
+        }
+        Set<Integer> stale = new HashSet<>();
+        Map<?, ?> result;
+        try {
+            result = (Map<?, ?>) this.driver.callScript(
+                    ScriptRegistry.READ_CHANGES, this.id, updates);
+        } catch (StaleElementReferenceException exception) {
+            // Some elements left the page before being registered
+            for (List<Object> update : updates) {
+                try {
+                    this.driver.callScript(ScriptRegistry.WATCH_ELEMENTS,
+                            this.id, Collections.singletonList(update));
+                } catch (StaleElementReferenceException staleException) {
+                    stale.add((Integer) update.get(0));
+                }
+            }
+            result = (Map<?, ?>) this.driver.callScript(
+                    ScriptRegistry.READ_CHANGES, this.id,
+                    Collections.emptyList());
+        }
+        if (result == null) {
+            this.driver.invalidateReadCache();
+            return this.reset();
+        }
+        for (int index = 0; index < updates.size(); ++index) {
+            this.watched.get((Integer) updates.get(index).get(0)).registered = updatedElements
+                    .get(index);
+        }
+        Set<Integer> invalidatedIndexes = new LinkedHashSet<>(stale);
+        invalidatedIndexes.addAll(indexes(result.get("invalidated")));
+        List<ExtendedWebElement> invalidated = new ArrayList<>();
+        for (Integer index : invalidatedIndexes) {
+            invalidated.add(this.watched.get(index).forget());
+        }
+        List<ExtendedWebElement> changed = new ArrayList<>();
+        for (Integer index : indexes(result.get("changed"))) {
+            changed.add(this.watched.get(index).element);
+        }
+        ChangeSet changeSet = new ChangeSet(false, changesOf(result
+                .get("changes")), ((Number) result.get("dropped")).intValue(),
+                invalidated, changed);
+        if (!changeSet.isEmpty()) {
+            // Changes the driver may not know of (e.g.: made by the page)
+            this.driver.invalidateReadCache();
+        }
+        log.trace("{}: {}", this.id, changeSet);
+        return changeSet;
+    }
+
+    /**
+     * Stops tracking (the changes logged are discarded).
+     */
+    @Override
+    public void close() {
+        log.trace("close(): {}", this.id);
+        try {
+            this.driver.callScript(ScriptRegistry.UNWATCH_CHANGES, this.id);
+        } catch (WebDriverException exception) {
+            log.warn("Could not stop tracking changes: {}", exception.toString());
+        }
+    }
+
+    private void start() {
+        List<WebElement> rootElements = new ArrayList<>(this.roots.size());
+        for (ExtendedWebElement root : this.roots) {
+            rootElements.add(root.safeGetUnderlyingWebElement());
+        }
+        this.driver.callScript(ScriptRegistry.WATCH_CHANGES, this.id,
+                rootElements, this.maxTargets);
+    }
+
+    private ChangeSet reset() {
+        log.debug("{}: tracking lost (page left?), starting over", this.id);
+        List<ExtendedWebElement> invalidated = new ArrayList<>();
+        for (Watched watched : this.watched) {
+            if (watched.element.isResolved()) {
+                invalidated.add(watched.forget());
+            } else {
+                watched.registered = null;
+            }
+        }
+        for (ExtendedWebElement root : this.roots) {
+            if (root.getLocator() != null) {
+                root.setLocator(root.getLocator(), root.isVisibilityRequired());
+            }
+        }
+        this.start();
+        return new ChangeSet(true, Collections.<DomChange> emptyList(), 0,
+                invalidated, Collections.<ExtendedWebElement> emptyList());
+    }
+
+    private static List<Integer> indexes(Object values) {
+        List<Integer> indexes = new ArrayList<>();
+        for (Object value : (List<?>) values) {
+            indexes.add(((Number) value).intValue());
+        }
+        return indexes;
+    }
+
+    private static List<DomChange> changesOf(Object values) {
+        List<DomChange> changes = new ArrayList<>();
+        for (Object value : (List<?>) values) {
+            List<?> change = (List<?>) value;
+            Set<String> attributes = new LinkedHashSet<>();
+            for (Object attribute : (List<?>) change.get(3)) {
+                attributes.add((String) attribute);
+            }
+            changes.add(new DomChange((WebElement) change.get(0),
+                    ((Number) change.get(1)).intValue(), ((Number) change
+                            .get(2)).intValue(), Collections
+                            .unmodifiableSet(attributes), Boolean.TRUE
+                            .equals(change.get(4))));
+        }
+        return changes;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ChangeTracker{");
+        sb.append("id=").append(this.id);
+        sb.append(", roots=").append(this.roots.size());
+        sb.append(", watched=").append(this.watched.size());
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static class Watched {
+        private final ExtendedWebElement element;
+        // Underlying element registered in the page, if any
+        private WebElement registered;
+
+        private Watched(ExtendedWebElement element) {
+            this.element = element;
+        }
+
+        /**
+         * Forgets the underlying element, if it can be looked up again.
+         *
+         * @return The element.
+         */
+        private ExtendedWebElement forget() {
+            this.registered = null;
+            if (this.element.getLocator() != null) {
+                this.element.setLocator(this.element.getLocator(),
+                        this.element.isVisibilityRequired());
+            }
+            return this.element;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.olenick.selenium.containers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.validation.constraints.NotNull;
+
+import org.openqa.selenium.By;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.olenick.selenium.elements.ExtendedWebElement;
+
+/**
+ * Binds the located fields of a container class. Subclasses are generated at
+ * compile time, from the {@link com.olenick.selenium.binding.Locate}
+ * annotations of the class, with locator tables built once per class.
+ *
+ * @param <T> The container class.
+ */
+public abstract class ContainerBinder<T extends WebContainer> {
+    private static final Logger log = LoggerFactory
+            .getLogger(ContainerBinder.class);
+
+    /**
+     * Appended to the binary name of a container class to name its binder.
+     */
+    public static final String BINDER_SUFFIX = "_Binder";
+
+    private final By[] locators;
+    private final boolean[] visibilities;
+    private final boolean[] hot;
+
+    /**
+     * @param locators Locators of the fields, in declaration order.
+     * @param visibilities Whether each field is required to be visible.
+     * @param hot Whether each field is to be prefetched.
+     */
+    protected ContainerBinder(@NotNull final By[] locators,
+            @NotNull final boolean[] visibilities, @NotNull final boolean[] hot) {
+        this.locators = locators;
+        this.visibilities = visibilities;
+        this.hot = hot;
+    }
+
+    /**
+     * @param container Container.
+     * @return The located fields of the container, in declaration order,
+     *         instantiating those that are null.
+     */
+    protected abstract ExtendedWebElement[] elementsOf(T container);
+
+    /**
+     * Binds the located fields of a container.
+     *
+     * @param container Container.
+     * @param resolution How to resolve the fields.
+     */
+    public void bind(@NotNull final T container,
+            @NotNull final ElementResolution resolution) {
+        log.trace("bind({}, {})", container, resolution);
+        ExtendedWebElement[] elements = this.elementsOf(container);
+        WebContainer.ExtendedWebElementsSetter setter = new WebContainer.ExtendedWebElementsSetter(
+                container.getDriver(), resolution, elements);
+        List<ExtendedWebElement> hotElements = new ArrayList<>();
+        for (int index = 0; index < elements.length; ++index) {
+            setter.by(this.visibilities[index], this.locators[index]);
+            if (this.hot[index]) {
+                hotElements.add(elements[index]);
+            }
+        }
+        setter.resolve();
+        container.prefetch(hotElements
+                .toArray(new ExtendedWebElement[hotElements.size()]));
+    }
+}
@@ -0,0 +1,76 @@
+package com.olenick.selenium.containers;
+
+import java.util.Set;
+
+import javax.validation.constraints.Null;
+
+import org.openqa.selenium.WebElement;
+
+/**
+ * Changes made to an element since the last checkpoint of a
+ * {@link ChangeTracker}.
+ */
+public class DomChange {
+    @Null
+    private final WebElement target;
+    private final int addedNodes;
+    private final int removedNodes;
+    private final Set<String> attributes;
+    private final boolean textChanged;
+
+    DomChange(WebElement target, int addedNodes, int removedNodes,
+            Set<String> attributes, boolean textChanged) {
+        this.target = target;
+        this.addedNodes = addedNodes;
+        this.removedNodes = removedNodes;
+        this.attributes = attributes;
+        this.textChanged = textChanged;
+    }
+
+    /**
+     * @return Element changed, or null if it is no longer in the page.
+     */
+    public WebElement getTarget() {
+        return this.target;
+    }
+
+    /**
+     * @return Number of child nodes added.
+     */
+    public int getAddedNodes() {
+        return this.addedNodes;
+    }
+
+    /**
+     * @return Number of child nodes removed.
+     */
+    public int getRemovedNodes() {
+        return this.removedNodes;
+    }
+
+    /**
+     * @return Names of the attributes changed.
+     */
+    public Set<String> getAttributes() {
+        return this.attributes;
+    }
+
+    /**
+     * @return Whether the text of a child node changed.
+     */
+    public boolean isTextChanged() {
+        return this.textChanged;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("DomChange{");
+        sb.append("target=").append(this.target);
+        sb.append(", addedNodes=").append(this.addedNodes);
+        sb.append(", removedNodes=").append(this.removedNodes);
+        sb.append(", attributes=").append(this.attributes);
+        sb.append(", textChanged=").append(this.textChanged);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,25 @@
+package com.olenick.selenium.containers;
+
+/**
+ * How an ExtendedWebElementsSetter resolves the locators it is given.
+ */
+public enum ElementResolution {
+    /**
+     * Every locator is resolved as soon as it is set, each one waiting on its
+     * own.
+     */
+    EAGER,
+    /**
+     * Locators are queued until the setter is resolved, then sent to the
+     * browser all at once; only those missing (or not yet visible) are waited
+     * for one by one.
+     */
+    BATCHED,
+    /**
+     * Locators are only remembered by their elements, and each element is
+     * looked up the first time it is used.
+     *
+     * @see WebContainer#prefetch(com.olenick.selenium.elements.ExtendedWebElement...)
+     */
+    LAZY
+}
@@ -0,0 +1,472 @@
+package com.olenick.selenium.containers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Null;
+
+import org.openqa.selenium.InvalidElementStateException;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.olenick.selenium.drivers.ExtendedRemoteWebDriver;
+import com.olenick.selenium.elements.ExclusiveGroup;
+import com.olenick.selenium.elements.ExtendedSelectWebElement;
+import com.olenick.selenium.elements.ExtendedWebElement;
+import com.olenick.selenium.exceptions.ScriptInstallationException;
+import com.olenick.selenium.model.Valued;
+import com.olenick.selenium.scripts.ScriptRegistry;
+
+/**
+ * Values to fill a form with, applied in the order they were given.
+ * <p>
+ * Consecutive entries are applied within a single script: text fields get
+ * their value set (firing input, change and blur), checkboxes and radio
+ * buttons are clicked, and options selected, without a round trip per field.
+ * Fields that need real keystrokes (e.g.: with key handlers or input masks)
+ * can be given with {@link #type}, and they are cleared and typed into through
+ * Selenium, between the scripts. Null values are skipped, as in the safe*
+ * methods.
+ * </p>
+ *
+ * @see WebContainer#fill(FormFill)
+ */
+public class FormFill {
+    private static final Logger log = LoggerFactory.getLogger(FormFill.class);
+
+    private static final String COMMAND_FILL_FORM = "fillForm";
+    private static final String KEY_ELEMENT = "element";
+    private static final String KEY_KIND = "kind";
+    private static final String KEY_VALUE = "value";
+    private static final String KEY_MATCH = "match";
+    private static final String KEY_KEYS = "keys";
+    private static final String KEY_INDEX = "index";
+    private static final String KEY_ERROR = "error";
+    private static final String KEY_MISSING = "missing";
+    private static final String KEY_THROWN = "thrown";
+    private static final String KIND_TEXT = "text";
+    private static final String KIND_CHECK = "check";
+    private static final String KIND_CLICK = "click";
+    private static final String KIND_SELECT = "select";
+    private static final String MATCH_TEXT = "text";
+    private static final String MATCH_VALUE = "value";
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Sets the value of a text field (input, textarea or content editable).
+     *
+     * @param field Field.
+     * @param value Value (if null, the field is left as it is).
+     * @return This instance.
+     */
+    public FormFill set(@NotNull final ExtendedWebElement field,
+            @Null final String value) {
+        if (value != null) {
+            this.entries.add(new TextEntry(field, value, false));
+        }
+        return this;
+    }
+
+    /**
+     * Sets the value of a text field (input, textarea or content editable).
+     *
+     * @param field Field.
+     * @param valued Value (if null, the field is left as it is).
+     * @return This instance.
+     */
+    public FormFill set(@NotNull final ExtendedWebElement field,
+            @Null final Valued<?> valued) {
+        return valued == null ? this : this.set(field,
+                String.valueOf(valued.getValue()));
+    }
+
+    /**
+     * Clears a text field and types a value into it with real keystrokes.
+     *
+     * @param field Field.
+     * @param value Value (if null, the field is left as it is).
+     * @return This instance.
+     */
+    public FormFill type(@NotNull final ExtendedWebElement field,
+            @Null final String value) {
+        if (value != null) {
+            this.entries.add(new TextEntry(field, value, true));
+        }
+        return this;
+    }
+
+    /**
+     * Checks or unchecks a checkbox, clicking it only if needed.
+     *
+     * @param checkbox Checkbox.
+     * @param checked Whether it must be checked.
+     * @return This instance.
+     */
+    public FormFill check(@NotNull final ExtendedWebElement checkbox,
+            final boolean checked) {
+        this.entries.add(new CheckEntry(checkbox, checked));
+        return this;
+    }
+
+    /**
+     * Selects the options with the given values.
+     *
+     * @param select Select.
+     * @param values Values (nulls are skipped).
+     * @return This instance.
+     */
+    public FormFill selectByValue(
+            @NotNull final ExtendedSelectWebElement select,
+            @Null final String... values) {
+        return this.select(select, MATCH_VALUE, values == null ? null
+                : Arrays.asList(values));
+    }
+
+    /**
+     * Selects the options with the given values.
+     *
+     * @param select Select.
+     * @param valued Values (nulls are skipped).
+     * @return This instance.
+     */
+    public FormFill selectByValue(
+            @NotNull final ExtendedSelectWebElement select,
+            @Null final Valued<?>... valued) {
+        if (valued == null) {
+            return this;
+        }
+        List<String> values = new ArrayList<>(valued.length);
+        for (Valued<?> aValued : valued) {
+            if (aValued != null) {
+                values.add(String.valueOf(aValued.getValue()));
+            }
+        }
+        return this.select(select, MATCH_VALUE, values);
+    }
+
+    /**
+     * Selects the options that display the given texts.
+     *
+     * @param select Select.
+     * @param texts Visible texts (nulls are skipped).
+     * @return This instance.
+     */
+    public FormFill selectByVisibleText(
+            @NotNull final ExtendedSelectWebElement select,
+            @Null final String... texts) {
+        return this.select(select, MATCH_TEXT, texts == null ? null : Arrays
+                .asList(texts));
+    }
+
+    /**
+     * Clicks the radio button of a group that corresponds to a key.
+     *
+     * @param group Radio button group.
+     * @param key Key (if null, the group is left as it is).
+     * @return This instance.
+     * @throws NoSuchElementException if the key is not in the group.
+     */
+    public <E extends Enum<E>> FormFill choose(
+            @NotNull final ExclusiveGroup<E> group, @Null final E key) {
+        if (key != null) {
+            this.entries.add(new ClickEntry(group.get(key)));
+        }
+        return this;
+    }
+
+    /**
+     * Adds an entry per field, depending on its type and the type of its
+     * value: selects get their options selected by value (a String, Valued,
+     * or a collection or array of them), Booleans check or uncheck checkboxes,
+     * and any other value is set as text (Valued ones by their value). Null
+     * values are skipped.
+     *
+     * @param values Values by field, applied in iteration order.
+     * @return This instance.
+     */
+    public FormFill setAll(
+            @NotNull final Map<? extends ExtendedWebElement, ?> values) {
+        for (Map.Entry<? extends ExtendedWebElement, ?> entry : values
+                .entrySet()) {
+            ExtendedWebElement field = entry.getKey();
+            Object value = entry.getValue();
+            if (value == null) {
+                continue;
+            }
+            if (field instanceof ExtendedSelectWebElement) {
+                this.select((ExtendedSelectWebElement) field, MATCH_VALUE,
+                        textsOf(value));
+            } else if (value instanceof Boolean) {
+                this.check(field, (Boolean) value);
+            } else if (value instanceof Valued) {
+                this.set(field, (Valued<?>) value);
+            } else {
+                this.set(field, String.valueOf(value));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return Number of entries.
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Applies the entries, in order.
+     *
+     * @param driver Driver the fields belong to.
+     * @throws NoSuchElementException if options to select are missing.
+     * @throws InvalidElementStateException if a field cannot be filled.
+     */
+    void applyTo(@NotNull final ExtendedRemoteWebDriver driver) {
+        log.trace("applyTo({}): {} entries", driver, this.entries.size());
+        int index = 0;
+        while (index < this.entries.size()) {
+            if (this.entries.get(index).natively) {
+                this.entries.get(index++).applyNatively();
+                continue;
+            }
+            int end = index;
+            while (end < this.entries.size() && !this.entries.get(end).natively) {
+                ++end;
+            }
+            this.applyInBrowser(driver, this.entries.subList(index, end));
+            index = end;
+        }
+    }
+
+    private void applyInBrowser(ExtendedRemoteWebDriver driver,
+            List<Entry> segment) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            Object result;
+            try {
+                try {
+                    result = driver.callScript(ScriptRegistry.FILL_FORM,
+                            toScriptArgument(segment));
+                } catch (StaleElementReferenceException exception) {
+                    // Thrown before the script runs, so nothing is applied
+                    log.trace("applyInBrowser(): stale elements, relocating");
+                    for (Entry entry : segment) {
+                        entry.element.relocate();
+                    }
+                    result = driver.callScript(ScriptRegistry.FILL_FORM,
+                            toScriptArgument(segment));
+                }
+            } catch (ScriptInstallationException exception) {
+                // The script did not run, so nothing is applied
+                log.trace("applyInBrowser(): script not installed, applying "
+                        + "natively ({})", exception.getMessage());
+                applyNatively(segment);
+                succeeded = true;
+                return;
+            }
+            if (result instanceof Map) {
+                Map<?, ?> failure = (Map<?, ?>) result;
+                int index = ((Number) failure.get(KEY_INDEX)).intValue();
+                if (Boolean.TRUE.equals(failure.get(KEY_THROWN))) {
+                    // The entries before it were applied
+                    log.trace("applyInBrowser(): entry {} threw, applying "
+                            + "the rest natively ({})", index,
+                            failure.get(KEY_ERROR));
+                    applyNatively(segment.subList(index, segment.size()));
+                    succeeded = true;
+                    return;
+                }
+                Entry entry = segment.get(index);
+                List<?> missing = (List<?>) failure.get(KEY_MISSING);
+                if (missing != null) {
+                    List<Object> keys = new ArrayList<>(missing.size());
+                    for (Object position : missing) {
+                        keys.add(((SelectEntry) entry).keys
+                                .get(((Number) position).intValue()));
+                    }
+                    throw new NoSuchElementException("Cannot locate option with "
+                            + ((SelectEntry) entry).match + ": " + keys
+                            + " in " + entry.element);
+                }
+                throw new InvalidElementStateException(
+                        failure.get(KEY_ERROR) + ": " + entry.element);
+            }
+            succeeded = true;
+        } finally {
+            driver.recordCommand(COMMAND_FILL_FORM, start, succeeded);
+        }
+    }
+
+    private static void applyNatively(List<Entry> entries) {
+        for (Entry entry : entries) {
+            entry.applyNatively();
+        }
+    }
+
+    private FormFill select(ExtendedSelectWebElement select, String match,
+            List<String> keys) {
+        if (keys != null) {
+            List<String> nonNullKeys = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                if (key != null) {
+                    nonNullKeys.add(key);
+                }
+            }
+            if (!nonNullKeys.isEmpty()) {
+                this.entries.add(new SelectEntry(select, match, nonNullKeys));
+            }
+        }
+        return this;
+    }
+
+    private static List<Map<String, Object>> toScriptArgument(
+            List<Entry> segment) {
+        List<Map<String, Object>> argument = new ArrayList<>(segment.size());
+        for (Entry entry : segment) {
+            Map<String, Object> scriptEntry = new HashMap<>();
+            scriptEntry.put(KEY_ELEMENT,
+                    entry.element.safeGetUnderlyingWebElement());
+            entry.describe(scriptEntry);
+            argument.add(scriptEntry);
+        }
+        return argument;
+    }
+
+    private static List<String> textsOf(Object value) {
+        Collection<?> values;
+        if (value instanceof Collection) {
+            values = (Collection<?>) value;
+        } else if (value instanceof Object[]) {
+            values = Arrays.asList((Object[]) value);
+        } else {
+            values = Arrays.asList(value);
+        }
+        List<String> texts = new ArrayList<>(values.size());
+        for (Object aValue : values) {
+            if (aValue instanceof Valued) {
+                texts.add(String.valueOf(((Valued<?>) aValue).getValue()));
+            } else if (aValue != null) {
+                texts.add(String.valueOf(aValue));
+            }
+        }
+        return texts;
+    }
+
+    private abstract static class Entry {
+        protected final ExtendedWebElement element;
+        protected final boolean natively;
+
+        protected Entry(ExtendedWebElement element, boolean natively) {
+            this.element = element;
+            this.natively = natively;
+        }
+
+        /**
+         * Adds the kind of entry and its parameters to its script argument.
+         */
+        protected abstract void describe(Map<String, Object> scriptEntry);
+
+        /**
+         * Applies the entry through Selenium.
+         */
+        protected abstract void applyNatively();
+    }
+
+    private static class TextEntry extends Entry {
+        private final String value;
+
+        private TextEntry(ExtendedWebElement element, String value,
+                boolean natively) {
+            super(element, natively);
+            this.value = value;
+        }
+
+        @Override
+        protected void describe(Map<String, Object> scriptEntry) {
+            scriptEntry.put(KEY_KIND, KIND_TEXT);
+            scriptEntry.put(KEY_VALUE, this.value);
+        }
+
+        @Override
+        protected void applyNatively() {
+            this.element.clear();
+            this.element.sendKeys(this.value);
+        }
+    }
+
+    private static class CheckEntry extends Entry {
+        private final boolean checked;
+
+        private CheckEntry(ExtendedWebElement element, boolean checked) {
+            super(element, false);
+            this.checked = checked;
+        }
+
+        @Override
+        protected void describe(Map<String, Object> scriptEntry) {
+            scriptEntry.put(KEY_KIND, KIND_CHECK);
+            scriptEntry.put(KEY_VALUE, this.checked);
+        }
+
+        @Override
+        protected void applyNatively() {
+            if (this.element.isSelected() != this.checked) {
+                this.element.click();
+            }
+        }
+    }
+
+    private static class ClickEntry extends Entry {
+        private ClickEntry(ExtendedWebElement element) {
+            super(element, false);
+        }
+
+        @Override
+        protected void describe(Map<String, Object> scriptEntry) {
+            scriptEntry.put(KEY_KIND, KIND_CLICK);
+        }
+
+        @Override
+        protected void applyNatively() {
+            this.element.click();
+        }
+    }
+
+    private static class SelectEntry extends Entry {
+        private final String match;
+        private final List<String> keys;
+
+        private SelectEntry(ExtendedSelectWebElement select, String match,
+                List<String> keys) {
+            super(select, false);
+            this.match = match;
+            this.keys = keys;
+        }
+
+        @Override
+        protected void describe(Map<String, Object> scriptEntry) {
+            scriptEntry.put(KEY_KIND, KIND_SELECT);
+            scriptEntry.put(KEY_MATCH, this.match);
+            scriptEntry.put(KEY_KEYS, this.keys);
+        }
+
+        @Override
+        protected void applyNatively() {
+            ExtendedSelectWebElement select = (ExtendedSelectWebElement) this.element;
+            if (MATCH_TEXT.equals(this.match)) {
+                select.selectByVisibleText(this.keys);
+            } else {
+                select.selectByValue(this.keys);
+            }
+        }
+    }
+}
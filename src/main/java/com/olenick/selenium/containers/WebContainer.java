@@ -2,22 +2,26 @@ package com.olenick.selenium.containers;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.validation.constraints.NotNull;
 
 import org.openqa.selenium.By;
-import org.openqa.selenium.JavascriptExecutor;
-import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.ExpectedCondition;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.olenick.selenium.drivers.BulkRead;
+import com.olenick.selenium.drivers.BulkReadResult;
 import com.olenick.selenium.drivers.ExtendedRemoteWebDriver;
+import com.olenick.selenium.drivers.ReadinessCriteria;
 import com.olenick.selenium.elements.ExtendedWebElement;
 import com.olenick.selenium.exceptions.ElementDiscoveryException;
 
@@ -30,7 +34,16 @@ public abstract class WebContainer<T extends WebContainer> {
     private final static Logger log = LoggerFactory
             .getLogger(WebContainer.class);
 
+    private static final long PAGE_LOAD_TIMEOUT_IN_SECONDS = 30;
+
+    /**
+     * Binders of each container class (and its superclasses), looked up once
+     * per class.
+     */
+    private static final ConcurrentMap<Class<?>, List<ContainerBinder<?>>> BINDERS = new ConcurrentHashMap<>();
+
     protected ExtendedRemoteWebDriver driver;
+    private ElementResolution elementResolution = ElementResolution.EAGER;
 
     /**
      * Made it private so it cannot be used.
@@ -54,39 +67,231 @@ public abstract class WebContainer<T extends WebContainer> {
         return this.driver;
     }
 
-    public T waitForPageComplete() {
-        ExpectedCondition<Boolean> pageLoadCondition = new ExpectedCondition<Boolean>() {
-            public Boolean apply(WebDriver driver) {
-                return ((JavascriptExecutor) driver).executeScript(
-                        "return document.readyState").equals("complete");
-            }
-        };
-        WebDriverWait wait = new WebDriverWait(this.driver, 30);
-        wait.until(pageLoadCondition);
+    /**
+     * @return How the elements given to {@link #setElements} are resolved.
+     */
+    public ElementResolution getElementResolution() {
+        return this.elementResolution;
+    }
+
+    /**
+     * Sets how the elements given to {@link #setElements} are resolved from
+     * now on. E.g.: with {@link ElementResolution#LAZY}, only the elements
+     * used are looked up; switching back to {@link ElementResolution#EAGER}
+     * makes {@link #waitForElementsToLoad()} look up all of them again, which
+     * is what to time for the full page.
+     *
+     * @param elementResolution Element resolution.
+     * @return This instance.
+     */
+    public T withElementResolution(
+            @NotNull final ElementResolution elementResolution) {
+        this.elementResolution = elementResolution;
         return this.getCastedThis();
     }
 
+    public T waitForPageComplete() {
+        return this.waitForReadyState("complete");
+    }
+
     public T waitForReadyState(@NotNull final String readyState) {
-        ExpectedCondition<Boolean> pageLoadCondition = new ExpectedCondition<Boolean>() {
-            public Boolean apply(WebDriver driver) {
-                return ((JavascriptExecutor) driver).executeScript(
-                        "return document.readyState").equals(readyState);
+        this.driver.waitForReadyState(readyState, PAGE_LOAD_TIMEOUT_IN_SECONDS);
+        return this.getCastedThis();
+    }
+
+    /**
+     * Waits for the page to settle (loaded, no network activity and no DOM
+     * changes for a while), which, unlike the ready state, also works for pages
+     * that keep rendering after loading.
+     *
+     * @return This instance.
+     * @see ReadinessCriteria
+     */
+    public T waitForPageSettled() {
+        return this.waitForPageSettled(new ReadinessCriteria()
+                .withTimeoutInSeconds(PAGE_LOAD_TIMEOUT_IN_SECONDS));
+    }
+
+    public T waitForPageSettled(@NotNull final ReadinessCriteria criteria) {
+        this.driver.waitForPageSettled(criteria);
+        return this.getCastedThis();
+    }
+
+    /**
+     * Reads properties of many elements within a single browser round trip.
+     *
+     * @param read Properties to read.
+     * @param elements Elements to read.
+     * @return A row per element, a column per property.
+     * @see ExtendedRemoteWebDriver#readInBulk(List, BulkRead)
+     */
+    public BulkReadResult readInBulk(@NotNull final BulkRead read,
+            ExtendedWebElement... elements) {
+        return this.driver.readInBulk(Arrays.asList(elements), read);
+    }
+
+    /**
+     * Reads properties of many elements within a single browser round trip.
+     *
+     * @param read Properties to read.
+     * @param elements Elements to read.
+     * @return A row per element, a column per property.
+     * @see ExtendedRemoteWebDriver#readInBulk(List, BulkRead)
+     */
+    public BulkReadResult readInBulk(@NotNull final BulkRead read,
+            @NotNull final List<? extends WebElement> elements) {
+        return this.driver.readInBulk(elements, read);
+    }
+
+    /**
+     * Fills many fields within as few browser round trips as possible.
+     *
+     * @param fill Values to fill the fields with.
+     * @return This instance.
+     * @see FormFill
+     */
+    public T fill(@NotNull final FormFill fill) {
+        fill.applyTo(this.driver);
+        return this.getCastedThis();
+    }
+
+    /**
+     * Fills many fields within as few browser round trips as possible.
+     *
+     * @param values Values by field (see {@link FormFill#setAll(Map)}).
+     * @return This instance.
+     */
+    public T fill(@NotNull final Map<? extends ExtendedWebElement, ?> values) {
+        return this.fill(new FormFill().setAll(values));
+    }
+
+    /**
+     * Starts tracking what changes in the page (e.g.: after a click), to read
+     * only the changes at each checkpoint instead of reading elements again.
+     *
+     * @param roots Elements whose subtrees to track (the whole page if none).
+     * @return The tracker (to close when no longer needed).
+     * @see ChangeTracker
+     */
+    public ChangeTracker trackChanges(ExtendedWebElement... roots) {
+        return new ChangeTracker(this.driver, Arrays.asList(roots),
+                ChangeTracker.DEFAULT_MAX_TARGETS);
+    }
+
+    /**
+     * Looks up, in a single browser round trip, those of the given elements
+     * that have a locator but have not been found yet (e.g.: the elements of a
+     * lazily resolved container most tests use). Elements not found that way
+     * are waited for one by one.
+     *
+     * @param elements Elements to resolve.
+     * @return This instance.
+     */
+    public T prefetch(ExtendedWebElement... elements) {
+        List<ExtendedWebElement> pending = new ArrayList<>(elements.length);
+        List<By> bys = new ArrayList<>(elements.length);
+        List<Boolean> visibilities = new ArrayList<>(elements.length);
+        for (ExtendedWebElement element : elements) {
+            if (!element.isResolved() && element.getLocator() != null) {
+                pending.add(element);
+                bys.add(element.getLocator());
+                visibilities.add(element.isVisibilityRequired());
             }
-        };
-        WebDriverWait wait = new WebDriverWait(driver, 30);
-        wait.until(pageLoadCondition);
+        }
+        log.trace("prefetch(): {} elements", pending.size());
+        if (pending.isEmpty()) {
+            return this.getCastedThis();
+        }
+        List<WebElement> found = this.driver.findElementsInBatch(bys,
+                visibilities);
+        for (int index = 0; index < found.size(); ++index) {
+            if (found.get(index) == null) {
+                pending.get(index).relocate();
+            } else {
+                pending.get(index).setUnderlyingWebElement(found.get(index),
+                        bys.get(index), visibilities.get(index));
+            }
+        }
         return this.getCastedThis();
     }
 
     /**
-     * Convenience method.
+     * Binds the fields annotated with {@link com.olenick.selenium.binding.Locate}
+     * (of this class and its superclasses), as the element resolution of this
+     * container says, using the binders generated at compile time. Meant to be
+     * called from {@link #waitForElementsToLoad()}.
+     *
+     * @return This instance.
+     * @throws ElementDiscoveryException if no binder was generated.
+     */
+    @SuppressWarnings("unchecked")
+    protected T bindElements() {
+        List<ContainerBinder<?>> binders = bindersOf(this.getClass());
+        if (binders.isEmpty()) {
+            throw new ElementDiscoveryException("No binder generated for "
+                    + this.getClass().getName()
+                    + " (is annotation processing enabled?)");
+        }
+        for (ContainerBinder<?> binder : binders) {
+            ((ContainerBinder<WebContainer>) binder).bind(this,
+                    this.elementResolution);
+        }
+        return this.getCastedThis();
+    }
+
+    /**
+     * @return Binders of a container class and its superclasses, superclasses
+     *         first.
+     */
+    private static List<ContainerBinder<?>> bindersOf(Class<?> type) {
+        List<ContainerBinder<?>> binders = BINDERS.get(type);
+        if (binders == null) {
+            binders = new ArrayList<>();
+            for (Class<?> current = type; current != WebContainer.class; current = current
+                    .getSuperclass()) {
+                try {
+                    binders.add(0, (ContainerBinder<?>) Class.forName(
+                            current.getName() + ContainerBinder.BINDER_SUFFIX,
+                            true, current.getClassLoader()).newInstance());
+                } catch (ClassNotFoundException exception) {
+                    // No located fields in this class
+                } catch (InstantiationException | IllegalAccessException exception) {
+                    throw new ElementDiscoveryException(exception);
+                }
+            }
+            binders = Collections.unmodifiableList(binders);
+            BINDERS.putIfAbsent(type, binders);
+        }
+        return binders;
+    }
+
+    /**
+     * Convenience method. The locators given to the returned setter are
+     * resolved as the element resolution of this container says.
      *
      * @param elements Selenium Web Elements
      * @return ExtendedWebElementsSetter instance.
+     * @see #withElementResolution(ElementResolution)
      */
     protected ExtendedWebElementsSetter setElements(
             ExtendedWebElement... elements) {
-        return new ExtendedWebElementsSetter(this.driver, elements);
+        return new ExtendedWebElementsSetter(this.driver,
+                this.elementResolution, elements);
+    }
+
+    /**
+     * Convenience method. The locators given to the returned setter are not
+     * resolved until {@link ExtendedWebElementsSetter#resolve()} is called,
+     * and then they are all looked up in a single browser round trip (if it
+     * is not called, each element is looked up on its own on first use).
+     *
+     * @param elements Selenium Web Elements
+     * @return ExtendedWebElementsSetter instance.
+     */
+    protected ExtendedWebElementsSetter setElementsInBatch(
+            ExtendedWebElement... elements) {
+        return new ExtendedWebElementsSetter(this.driver,
+                ElementResolution.BATCHED, elements);
     }
 
     /**
@@ -104,90 +309,105 @@ public abstract class WebContainer<T extends WebContainer> {
         private ExtendedRemoteWebDriver driver;
         private ExtendedWebElement[] elements;
         private Iterator<ExtendedWebElement> iterator;
+        private ElementResolution resolution;
+        private List<ExtendedWebElement> pendingElements = new ArrayList<>();
+        private List<By> pendingBys = new ArrayList<>();
+        private List<Boolean> pendingVisibilities = new ArrayList<>();
 
         public ExtendedWebElementsSetter(ExtendedRemoteWebDriver driver,
                 ExtendedWebElement[] elements) {
+            this(driver, ElementResolution.EAGER, elements);
+        }
+
+        public ExtendedWebElementsSetter(ExtendedRemoteWebDriver driver,
+                ElementResolution resolution, ExtendedWebElement[] elements) {
             this.driver = driver;
+            this.resolution = resolution;
             this.elements = elements;
             this.iterator = Arrays.asList(this.elements).iterator();
         }
 
         public ExtendedWebElementsSetter byClassName(String... classNames) {
-            return this
-                    .by(DEFAULT_VISIBILITY, By.ByClassName.class, classNames);
+            return this.by(DEFAULT_VISIBILITY, LocatorFactory.CLASS_NAME,
+                    classNames);
         }
 
         public ExtendedWebElementsSetter byClassName(Boolean visible,
                 String... classNames) {
-            return this.by(visible, By.ByClassName.class, classNames);
+            return this.by(visible, LocatorFactory.CLASS_NAME, classNames);
         }
 
         public ExtendedWebElementsSetter byCssSelector(String... cssSelectors) {
-            return this.by(DEFAULT_VISIBILITY, By.ByCssSelector.class,
+            return this.by(DEFAULT_VISIBILITY, LocatorFactory.CSS_SELECTOR,
                     cssSelectors);
         }
 
         public ExtendedWebElementsSetter byCssSelector(Boolean visible,
                 String... cssSelectors) {
-            return this.by(visible, By.ByCssSelector.class, cssSelectors);
+            return this.by(visible, LocatorFactory.CSS_SELECTOR, cssSelectors);
         }
 
         public ExtendedWebElementsSetter byId(String... ids) {
-            return this.by(DEFAULT_VISIBILITY, By.ById.class, ids);
+            return this.by(DEFAULT_VISIBILITY, LocatorFactory.ID, ids);
         }
 
         public ExtendedWebElementsSetter byId(Boolean visible, String... ids) {
-            return this.by(visible, By.ById.class, ids);
+            return this.by(visible, LocatorFactory.ID, ids);
         }
 
         public ExtendedWebElementsSetter byLinkText(String... linkTexts) {
-            return this.by(DEFAULT_VISIBILITY, By.ByLinkText.class, linkTexts);
+            return this.by(DEFAULT_VISIBILITY, LocatorFactory.LINK_TEXT,
+                    linkTexts);
         }
 
         public ExtendedWebElementsSetter byLinkText(Boolean visible,
                 String... linkTexts) {
-            return this.by(visible, By.ByLinkText.class, linkTexts);
+            return this.by(visible, LocatorFactory.LINK_TEXT, linkTexts);
         }
 
         public ExtendedWebElementsSetter byName(String... names) {
-            return this.by(DEFAULT_VISIBILITY, By.ByName.class, names);
+            return this.by(DEFAULT_VISIBILITY, LocatorFactory.NAME, names);
         }
 
         public ExtendedWebElementsSetter byName(Boolean visible,
                 String... names) {
-            return this.by(visible, By.ByName.class, names);
+            return this.by(visible, LocatorFactory.NAME, names);
         }
 
         public ExtendedWebElementsSetter byPartialLinkText(
                 String... partialLinkTexts) {
-            return this.by(DEFAULT_VISIBILITY, By.ByPartialLinkText.class,
+            return this.by(DEFAULT_VISIBILITY, LocatorFactory.PARTIAL_LINK_TEXT,
                     partialLinkTexts);
         }
 
         public ExtendedWebElementsSetter byPartialLinkText(Boolean visible,
                 String... partialLinkTexts) {
-            return this.by(visible, By.ByPartialLinkText.class,
+            return this.by(visible, LocatorFactory.PARTIAL_LINK_TEXT,
                     partialLinkTexts);
         }
 
         public ExtendedWebElementsSetter byTagName(String... tagNames) {
-            return this.by(DEFAULT_VISIBILITY, By.ByTagName.class, tagNames);
+            return this.by(DEFAULT_VISIBILITY, LocatorFactory.TAG_NAME, tagNames);
         }
 
         public ExtendedWebElementsSetter byTagName(Boolean visible,
                 String... tagNames) {
-            return this.by(visible, By.ByTagName.class, tagNames);
+            return this.by(visible, LocatorFactory.TAG_NAME, tagNames);
         }
 
         public ExtendedWebElementsSetter byXPath(String... xpaths) {
-            return this.by(DEFAULT_VISIBILITY, By.ByXPath.class, xpaths);
+            return this.by(DEFAULT_VISIBILITY, LocatorFactory.XPATH, xpaths);
         }
 
         public ExtendedWebElementsSetter byXPath(Boolean visible,
                 String... xpaths) {
-            return this.by(visible, By.ByXPath.class, xpaths);
+            return this.by(visible, LocatorFactory.XPATH, xpaths);
         }
 
+        /**
+         * Builds the locators through the reflective constructor of a By
+         * class. The byXxx methods are cheaper for the standard strategies.
+         */
         public <T extends By> ExtendedWebElementsSetter by(Boolean visible,
                 Class<T> byClass, String... parameters) {
             By[] bys = new By[parameters.length];
@@ -209,26 +429,136 @@ public abstract class WebContainer<T extends WebContainer> {
             return this.by(visible, bys);
         }
 
+        private ExtendedWebElementsSetter by(Boolean visible,
+                LocatorFactory factory, String... parameters) {
+            By[] bys = new By[parameters.length];
+            for (int index = 0; index < parameters.length; ++index) {
+                bys[index] = factory.of(parameters[index]);
+            }
+            return this.by(visible, bys);
+        }
+
         public ExtendedWebElementsSetter by(Boolean visible, By... bys) {
             for (By by : bys) {
                 if (!this.iterator.hasNext()) {
                     throw new ElementDiscoveryException(
                             "Elements provided are less than locators.");
                 }
-                if (visible) {
-                    ExpectedCondition<WebElement> expectedCondition = ExpectedConditions
-                            .visibilityOfElementLocated(by);
-                    WebElement underlyingElement = this.driver
-                            .findElement(expectedCondition);
-                    this.iterator.next().setUnderlyingWebElement(
-                            underlyingElement);
-                    log.trace("Underlying element: {}", underlyingElement);
+                if (this.resolution == ElementResolution.BATCHED) {
+                    ExtendedWebElement element = this.iterator.next();
+                    // Looked up on first use if resolve() is never called
+                    element.setLocator(by, visible);
+                    this.pendingElements.add(element);
+                    this.pendingBys.add(by);
+                    this.pendingVisibilities.add(visible);
+                } else if (this.resolution == ElementResolution.LAZY) {
+                    this.iterator.next().setLocator(by, visible);
+                } else {
+                    this.resolve(this.iterator.next(), by, visible);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Resolves the locators queued so far (only meaningful for batched
+         * resolution; eager setters have nothing pending). All of them are
+         * looked up in a single script execution, and only those that were
+         * missing or not yet visible are waited for one by one.
+         *
+         * @return This instance.
+         */
+        public ExtendedWebElementsSetter resolve() {
+            if (this.pendingBys.isEmpty()) {
+                return this;
+            }
+            log.trace("resolve(): {} pending locators", this.pendingBys.size());
+            List<WebElement> found = this.driver.findElementsInBatch(
+                    this.pendingBys, this.pendingVisibilities);
+            for (int index = 0; index < found.size(); ++index) {
+                WebElement underlyingElement = found.get(index);
+                if (underlyingElement == null) {
+                    this.resolve(this.pendingElements.get(index),
+                            this.pendingBys.get(index),
+                            this.pendingVisibilities.get(index));
                 } else {
-                    this.iterator.next().setUnderlyingWebElement(
-                            this.driver.findElement(by));
+                    this.pendingElements.get(index).setUnderlyingWebElement(
+                            underlyingElement, this.pendingBys.get(index),
+                            this.pendingVisibilities.get(index));
                 }
             }
+            this.pendingElements.clear();
+            this.pendingBys.clear();
+            this.pendingVisibilities.clear();
             return this;
         }
+
+        private void resolve(ExtendedWebElement element, By by, Boolean visible) {
+            if (visible) {
+                WebElement underlyingElement = this.driver
+                        .findVisibleElement(by);
+                element.setUnderlyingWebElement(underlyingElement, by, true);
+                log.trace("Underlying element: {}", underlyingElement);
+            } else {
+                element.setUnderlyingWebElement(this.driver.findElement(by),
+                        by, false);
+            }
+        }
+
+        /**
+         * Non-reflective factories of the standard locators.
+         */
+        private enum LocatorFactory {
+            CLASS_NAME {
+                @Override
+                By of(String parameter) {
+                    return By.className(parameter);
+                }
+            },
+            CSS_SELECTOR {
+                @Override
+                By of(String parameter) {
+                    return By.cssSelector(parameter);
+                }
+            },
+            ID {
+                @Override
+                By of(String parameter) {
+                    return By.id(parameter);
+                }
+            },
+            LINK_TEXT {
+                @Override
+                By of(String parameter) {
+                    return By.linkText(parameter);
+                }
+            },
+            NAME {
+                @Override
+                By of(String parameter) {
+                    return By.name(parameter);
+                }
+            },
+            PARTIAL_LINK_TEXT {
+                @Override
+                By of(String parameter) {
+                    return By.partialLinkText(parameter);
+                }
+            },
+            TAG_NAME {
+                @Override
+                By of(String parameter) {
+                    return By.tagName(parameter);
+                }
+            },
+            XPATH {
+                @Override
+                By of(String parameter) {
+                    return By.xpath(parameter);
+                }
+            };
+
+            abstract By of(String parameter);
+        }
     }
 }
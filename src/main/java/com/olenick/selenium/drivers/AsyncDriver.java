@@ -0,0 +1,436 @@
+package com.olenick.selenium.drivers;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.validation.constraints.NotNull;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.WebElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+
+/**
+ * Non-blocking facade over a driver: every method submits the command and
+ * returns a future of its result right away.
+ * <p>
+ * Commands of a facade run one at a time, in the order they were submitted,
+ * on an executor that can be shared among many sessions (see
+ * {@link #newSharedExecutor(int)}), so a few threads can drive many browsers:
+ * a session only takes a thread while one of its commands runs, and sessions
+ * take turns after each command. The driver must not be used directly while
+ * commands are pending.
+ * </p>
+ * <p>
+ * Futures are Guava's ListenableFutures (Java 7 lacks CompletableFuture), so
+ * they can be chained with <code>Futures.transform</code> and the like.
+ * </p>
+ */
+public class AsyncDriver {
+    private static final Logger log = LoggerFactory.getLogger(AsyncDriver.class);
+
+    private final ExtendedRemoteWebDriver driver;
+    private final SerialExecutor executor;
+
+    /**
+     * @param driver Driver to run the commands on.
+     * @param executor Executor to run the commands on (possibly shared).
+     */
+    public AsyncDriver(@NotNull final ExtendedRemoteWebDriver driver,
+            @NotNull final Executor executor) {
+        this(driver, executor, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param driver Driver to run the commands on.
+     * @param executor Executor to run the commands on (possibly shared).
+     * @param maxPending Maximum number of commands waiting to run; further
+     *            submissions are rejected.
+     */
+    public AsyncDriver(@NotNull final ExtendedRemoteWebDriver driver,
+            @NotNull final Executor executor, final int maxPending) {
+        if (maxPending <= 0) {
+            throw new IllegalArgumentException(
+                    "Maximum pending commands must be positive: " + maxPending);
+        }
+        this.driver = driver;
+        this.executor = new SerialExecutor(executor, maxPending);
+    }
+
+    /**
+     * Creates an executor meant to be shared by the facades of many sessions.
+     * Its threads are daemons, and it should be shut down once done with.
+     *
+     * @param threads Number of threads (i.e.: of commands running at once,
+     *            across sessions).
+     * @return Executor.
+     */
+    public static ExecutorService newSharedExecutor(int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "async-driver-"
+                        + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public ExtendedRemoteWebDriver getDriver() {
+        return this.driver;
+    }
+
+    /**
+     * @return Number of commands waiting to run (not counting the running
+     *         one).
+     */
+    public int getPending() {
+        return this.executor.getPending();
+    }
+
+    /**
+     * Submits any work on the driver (e.g.: page object code), to run in order
+     * with the other commands of this facade.
+     *
+     * @param command Work to do.
+     * @return Future of its result.
+     * @throws RejectedExecutionException if too many commands are pending.
+     */
+    public <V> ListenableFuture<V> submit(@NotNull final Callable<V> command) {
+        ListenableFutureTask<V> task = ListenableFutureTask.create(command);
+        this.executor.execute(task);
+        return task;
+    }
+
+    public ListenableFuture<Void> get(@NotNull final String url) {
+        return this.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                AsyncDriver.this.driver.get(url);
+                return null;
+            }
+        });
+    }
+
+    public ListenableFuture<String> getCurrentUrl() {
+        return this.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return AsyncDriver.this.driver.getCurrentUrl();
+            }
+        });
+    }
+
+    public ListenableFuture<String> getTitle() {
+        return this.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return AsyncDriver.this.driver.getTitle();
+            }
+        });
+    }
+
+    public ListenableFuture<String> getPageSource() {
+        return this.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return AsyncDriver.this.driver.getPageSource();
+            }
+        });
+    }
+
+    public ListenableFuture<WebElement> findElement(@NotNull final By by) {
+        return this.submit(new Callable<WebElement>() {
+            @Override
+            public WebElement call() {
+                return AsyncDriver.this.driver.findElement(by);
+            }
+        });
+    }
+
+    public ListenableFuture<WebElement> findElement(@NotNull final By by,
+            final long timeoutInSeconds) {
+        return this.submit(new Callable<WebElement>() {
+            @Override
+            public WebElement call() {
+                return AsyncDriver.this.driver.findElement(by,
+                        timeoutInSeconds);
+            }
+        });
+    }
+
+    public ListenableFuture<List<WebElement>> findElements(
+            @NotNull final By by) {
+        return this.submit(new Callable<List<WebElement>>() {
+            @Override
+            public List<WebElement> call() {
+                return AsyncDriver.this.driver.findElements(by);
+            }
+        });
+    }
+
+    public ListenableFuture<List<WebElement>> findElements(
+            @NotNull final By by, final long timeoutInSeconds) {
+        return this.submit(new Callable<List<WebElement>>() {
+            @Override
+            public List<WebElement> call() {
+                return AsyncDriver.this.driver.findElements(by,
+                        timeoutInSeconds);
+            }
+        });
+    }
+
+    public ListenableFuture<WebElement> findVisibleElement(
+            @NotNull final By by, final long timeoutInSeconds) {
+        return this.submit(new Callable<WebElement>() {
+            @Override
+            public WebElement call() {
+                return AsyncDriver.this.driver.findVisibleElement(by,
+                        timeoutInSeconds);
+            }
+        });
+    }
+
+    public ListenableFuture<WebElement> findClickableElement(
+            @NotNull final By by, final long timeoutInSeconds) {
+        return this.submit(new Callable<WebElement>() {
+            @Override
+            public WebElement call() {
+                return AsyncDriver.this.driver.findClickableElement(by,
+                        timeoutInSeconds);
+            }
+        });
+    }
+
+    /**
+     * @see ExtendedRemoteWebDriver#findElementsInBatch(List, List)
+     */
+    public ListenableFuture<List<WebElement>> findElementsInBatch(
+            @NotNull final List<By> bys,
+            @NotNull final List<Boolean> visibilities) {
+        return this.submit(new Callable<List<WebElement>>() {
+            @Override
+            public List<WebElement> call() {
+                return AsyncDriver.this.driver.findElementsInBatch(bys,
+                        visibilities);
+            }
+        });
+    }
+
+    /**
+     * @see ExtendedRemoteWebDriver#readInBulk(List, BulkRead)
+     */
+    public ListenableFuture<BulkReadResult> readInBulk(
+            @NotNull final List<? extends WebElement> elements,
+            @NotNull final BulkRead read) {
+        return this.submit(new Callable<BulkReadResult>() {
+            @Override
+            public BulkReadResult call() {
+                return AsyncDriver.this.driver.readInBulk(elements, read);
+            }
+        });
+    }
+
+    public ListenableFuture<Void> waitForReadyState(
+            @NotNull final String readyState, final long timeoutInSeconds) {
+        return this.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                AsyncDriver.this.driver.waitForReadyState(readyState,
+                        timeoutInSeconds);
+                return null;
+            }
+        });
+    }
+
+    public ListenableFuture<Void> waitForPageSettled(
+            @NotNull final ReadinessCriteria criteria) {
+        return this.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                AsyncDriver.this.driver.waitForPageSettled(criteria);
+                return null;
+            }
+        });
+    }
+
+    public ListenableFuture<Object> executeScript(
+            @NotNull final String script, final Object... args) {
+        return this.submit(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return AsyncDriver.this.driver.executeScript(script, args);
+            }
+        });
+    }
+
+    public ListenableFuture<Object> executeAsyncScript(
+            @NotNull final String script, final Object... args) {
+        return this.submit(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return AsyncDriver.this.driver.executeAsyncScript(script, args);
+            }
+        });
+    }
+
+    /**
+     * @see ExtendedRemoteWebDriver#callScript(String, Object...)
+     */
+    public ListenableFuture<Object> callScript(@NotNull final String helper,
+            final Object... args) {
+        return this.submit(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return AsyncDriver.this.driver.callScript(helper, args);
+            }
+        });
+    }
+
+    /**
+     * @see ExtendedRemoteWebDriver#callAsyncScript(String, Object...)
+     */
+    public ListenableFuture<Object> callAsyncScript(
+            @NotNull final String helper, final Object... args) {
+        return this.submit(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return AsyncDriver.this.driver.callAsyncScript(helper, args);
+            }
+        });
+    }
+
+    public <X> ListenableFuture<X> getScreenshotAs(
+            @NotNull final OutputType<X> target) {
+        return this.submit(new Callable<X>() {
+            @Override
+            public X call() {
+                return AsyncDriver.this.driver.getScreenshotAs(target);
+            }
+        });
+    }
+
+    public ListenableFuture<File> takeScreenshot(
+            @NotNull final File outputScreenshot) {
+        return this.submit(new Callable<File>() {
+            @Override
+            public File call() throws Exception {
+                return AsyncDriver.this.driver.takeScreenshot(outputScreenshot);
+            }
+        });
+    }
+
+    public ListenableFuture<Void> quit() {
+        return this.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                AsyncDriver.this.driver.quit();
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("AsyncDriver{");
+        sb.append("driver=").append(this.driver);
+        sb.append(", pending=").append(this.getPending());
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Runs tasks one at a time, in order, each one as a separate task of the
+     * delegate, so that the sessions sharing it take turns.
+     */
+    private static class SerialExecutor implements Executor {
+        private final Executor delegate;
+        private final int maxPending;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean running = false;
+
+        private SerialExecutor(Executor delegate, int maxPending) {
+            this.delegate = delegate;
+            this.maxPending = maxPending;
+        }
+
+        @Override
+        public synchronized void execute(@NotNull final Runnable task) {
+            if (this.tasks.size() >= this.maxPending) {
+                throw new RejectedExecutionException("Too many commands pending: "
+                        + this.tasks.size());
+            }
+            this.tasks.add(task);
+            if (!this.running) {
+                this.running = true;
+                try {
+                    this.scheduleNext();
+                } catch (RejectedExecutionException exception) {
+                    this.tasks.remove(task);
+                    this.running = false;
+                    throw exception;
+                }
+            }
+        }
+
+        private synchronized int getPending() {
+            return this.tasks.size();
+        }
+
+        private void scheduleNext() {
+            this.delegate.execute(new Runnable() {
+                @Override
+                public void run() {
+                    SerialExecutor.this.runNext();
+                }
+            });
+        }
+
+        private void runNext() {
+            Runnable task;
+            synchronized (this) {
+                task = this.tasks.poll();
+            }
+            try {
+                task.run();
+            } finally {
+                synchronized (this) {
+                    if (this.tasks.isEmpty()) {
+                        this.running = false;
+                    } else {
+                        try {
+                            this.scheduleNext();
+                        } catch (RejectedExecutionException exception) {
+                            // The delegate was shut down: nothing else will run
+                            log.warn("Executor rejected commands, cancelling {}",
+                                    this.tasks.size());
+                            for (Runnable pending : this.tasks) {
+                                if (pending instanceof Future) {
+                                    ((Future<?>) pending).cancel(false);
+                                }
+                            }
+                            this.tasks.clear();
+                            this.running = false;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
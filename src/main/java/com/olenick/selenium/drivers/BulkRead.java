@@ -0,0 +1,120 @@
+package com.olenick.selenium.drivers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Properties to read from many elements at once: each property becomes a
+ * column of the {@link BulkReadResult}, in the order they were added.
+ * <p>
+ * Values follow WebElement's semantics: the text is the visible text (empty
+ * for hidden elements), attributes prefer the current property value over the
+ * attribute ("true" or null for boolean attributes), and CSS colors are
+ * reported as <code>rgba(...)</code>. Displayedness is computed by a simplified
+ * check; since it may report hidden an element Selenium considers displayed,
+ * elements reported hidden are checked again through Selenium unless disabled
+ * with {@link #withHiddenVerified(boolean)}.
+ * </p>
+ *
+ * @see ExtendedRemoteWebDriver#readInBulk(List, BulkRead)
+ */
+public class BulkRead {
+    public static final String TEXT = "text";
+    public static final String TAG_NAME = "tagName";
+    public static final String ATTRIBUTE = "attribute";
+    public static final String CSS_VALUE = "cssValue";
+    public static final String DISPLAYED = "displayed";
+    public static final String ENABLED = "enabled";
+    public static final String SELECTED = "selected";
+
+    private static final String KEY_KIND = "kind";
+    private static final String KEY_NAME = "name";
+
+    private final List<String> columns = new ArrayList<>();
+    private final List<Map<String, Object>> scriptColumns = new ArrayList<>();
+    private boolean hiddenVerified = true;
+
+    /**
+     * @param kind Property kind.
+     * @param name Attribute or CSS property name, or null.
+     * @return Label of the column holding the property.
+     */
+    public static String columnOf(@NotNull final String kind, final String name) {
+        return name == null ? kind : kind + ':' + name;
+    }
+
+    public BulkRead text() {
+        return this.add(TEXT, null);
+    }
+
+    public BulkRead tagName() {
+        return this.add(TAG_NAME, null);
+    }
+
+    public BulkRead attribute(@NotNull final String name) {
+        return this.add(ATTRIBUTE, name);
+    }
+
+    public BulkRead cssValue(@NotNull final String propertyName) {
+        return this.add(CSS_VALUE, propertyName);
+    }
+
+    public BulkRead displayed() {
+        return this.add(DISPLAYED, null);
+    }
+
+    public BulkRead enabled() {
+        return this.add(ENABLED, null);
+    }
+
+    public BulkRead selected() {
+        return this.add(SELECTED, null);
+    }
+
+    public boolean isHiddenVerified() {
+        return this.hiddenVerified;
+    }
+
+    /**
+     * @param hiddenVerified Whether to check again, through Selenium, the
+     *            displayedness (and text) of the elements reported hidden.
+     * @return This instance.
+     */
+    public BulkRead withHiddenVerified(boolean hiddenVerified) {
+        this.hiddenVerified = hiddenVerified;
+        return this;
+    }
+
+    /**
+     * @return Column labels, in order.
+     */
+    public List<String> getColumns() {
+        return Collections.unmodifiableList(this.columns);
+    }
+
+    List<Map<String, Object>> toScriptArgument() {
+        return this.scriptColumns;
+    }
+
+    private BulkRead add(String kind, String name) {
+        String column = columnOf(kind, name);
+        if (!this.columns.contains(column)) {
+            Map<String, Object> scriptColumn = new HashMap<>();
+            scriptColumn.put(KEY_KIND, kind);
+            scriptColumn.put(KEY_NAME, name);
+            this.columns.add(column);
+            this.scriptColumns.add(scriptColumn);
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkRead" + this.columns;
+    }
+}
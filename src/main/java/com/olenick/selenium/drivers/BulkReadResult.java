@@ -0,0 +1,116 @@
+package com.olenick.selenium.drivers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Values read by a {@link BulkRead}: a row per element, in the order the
+ * elements were given, and a column per property.
+ */
+public class BulkReadResult {
+    private final List<String> columns;
+    private final Map<String, Integer> columnIndexes;
+    private final List<List<Object>> rows;
+
+    BulkReadResult(List<String> columns, List<List<Object>> rows) {
+        this.columns = columns;
+        this.columnIndexes = new HashMap<>(columns.size() * 2);
+        for (int index = 0; index < columns.size(); ++index) {
+            this.columnIndexes.put(columns.get(index), index);
+        }
+        this.rows = rows;
+    }
+
+    /**
+     * @return Number of rows (elements read).
+     */
+    public int size() {
+        return this.rows.size();
+    }
+
+    public List<String> getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * @param row Row index.
+     * @return Values of the row, in column order.
+     */
+    public List<Object> getRow(int row) {
+        return Collections.unmodifiableList(this.rows.get(row));
+    }
+
+    /**
+     * @param column Column label (see {@link BulkRead#columnOf}).
+     * @return Values of the column, in row order.
+     */
+    public List<Object> getColumn(@NotNull final String column) {
+        int index = this.indexOf(column);
+        List<Object> values = new ArrayList<>(this.rows.size());
+        for (List<Object> row : this.rows) {
+            values.add(row.get(index));
+        }
+        return values;
+    }
+
+    /**
+     * @param row Row index.
+     * @param column Column label (see {@link BulkRead#columnOf}).
+     * @return Value read.
+     */
+    public Object get(int row, @NotNull final String column) {
+        return this.rows.get(row).get(this.indexOf(column));
+    }
+
+    public String getText(int row) {
+        return (String) this.get(row, BulkRead.TEXT);
+    }
+
+    public String getTagName(int row) {
+        return (String) this.get(row, BulkRead.TAG_NAME);
+    }
+
+    public String getAttribute(int row, @NotNull final String name) {
+        return (String) this.get(row,
+                BulkRead.columnOf(BulkRead.ATTRIBUTE, name));
+    }
+
+    public String getCssValue(int row, @NotNull final String propertyName) {
+        return (String) this.get(row,
+                BulkRead.columnOf(BulkRead.CSS_VALUE, propertyName));
+    }
+
+    public boolean isDisplayed(int row) {
+        return Boolean.TRUE.equals(this.get(row, BulkRead.DISPLAYED));
+    }
+
+    public boolean isEnabled(int row) {
+        return Boolean.TRUE.equals(this.get(row, BulkRead.ENABLED));
+    }
+
+    public boolean isSelected(int row) {
+        return Boolean.TRUE.equals(this.get(row, BulkRead.SELECTED));
+    }
+
+    private int indexOf(String column) {
+        Integer index = this.columnIndexes.get(column);
+        if (index == null) {
+            throw new IllegalArgumentException("Column not read: " + column);
+        }
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("BulkReadResult{");
+        sb.append("columns=").append(this.columns);
+        sb.append(", rows=").append(this.rows);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,20 @@
+package com.olenick.selenium.drivers;
+
+/**
+ * Priority of the commands sent through a {@link CommandQueue}: waiting
+ * commands run by priority, and in arrival order within the same priority.
+ */
+public enum CommandPriority {
+    /**
+     * E.g.: screenshots on failure.
+     */
+    HIGH,
+    /**
+     * The test itself.
+     */
+    NORMAL,
+    /**
+     * E.g.: periodic health checks and log capture.
+     */
+    LOW
+}
@@ -0,0 +1,330 @@
+package com.olenick.selenium.drivers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.validation.constraints.NotNull;
+
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.olenick.selenium.metrics.CommandMetrics;
+
+/**
+ * Command executor that lets many threads share a session: the commands sent
+ * from any thread (by the driver and by its elements) are queued and sent by a
+ * single consumer thread, one at a time, by {@link CommandPriority} and in
+ * arrival order within the same priority. No lock is held while a command
+ * runs, so a command waits only for the ones ahead of it.
+ * <p>
+ * Usage: create the RemoteWebDriver on top of it (e.g.:
+ * <code>new RemoteWebDriver(new CommandQueue(new HttpCommandExecutor(url)),
+ * capabilities)</code>), and have monitoring threads issue their commands
+ * within {@link #withPriority(CommandPriority, Callable)}; commands issued
+ * otherwise are {@link CommandPriority#NORMAL}.
+ * </p>
+ * <p>
+ * Only the wire commands are serialized: a thread's sequence of commands may
+ * be interleaved with other threads' ones, and containers and elements still
+ * belong to the thread that loaded them.
+ * </p>
+ * <p>
+ * Priorities only order the commands still waiting: a command already being
+ * sent is never preempted. In-browser waits (e.g.:
+ * {@link ExtendedRemoteWebDriver#waitForPageSettled()}, or finding elements
+ * with {@link WaitStrategy#IN_BROWSER}) are single asynchronous scripts that
+ * last as long as the wait, so a {@link CommandPriority#HIGH} command (e.g.: a
+ * failure screenshot from a monitoring thread) issued meanwhile is sent only
+ * once the wait is over.
+ * </p>
+ */
+public class CommandQueue implements CommandExecutor, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(CommandQueue.class);
+
+    private static final String COMMAND_QUEUE_WAIT = "queue.wait";
+    // The consumer thread ends after being idle this long
+    private static final long CONSUMER_KEEP_ALIVE_SECONDS = 60;
+    private static final AtomicInteger QUEUE_COUNT = new AtomicInteger();
+    private static final ThreadLocal<CommandPriority> PRIORITY = new ThreadLocal<>();
+
+    private final CommandExecutor delegate;
+    private final long keepAliveNanos;
+    private final String name;
+    private final PriorityBlockingQueue<QueuedCommand> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private volatile CommandMetrics commandMetrics;
+    private volatile Thread consumer;
+    private volatile boolean closed = false;
+
+    /**
+     * @param delegate Executor that actually sends the commands.
+     */
+    public CommandQueue(@NotNull final CommandExecutor delegate) {
+        this(delegate, CONSUMER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param delegate Executor that actually sends the commands.
+     * @param keepAlive Time after which an idle consumer thread ends.
+     * @param unit Unit of the keep-alive.
+     */
+    CommandQueue(CommandExecutor delegate, long keepAlive, TimeUnit unit) {
+        this.delegate = delegate;
+        this.keepAliveNanos = unit.toNanos(keepAlive);
+        this.name = "command-queue-" + QUEUE_COUNT.incrementAndGet();
+    }
+
+    /**
+     * Runs some work on the calling thread, sending the commands it issues
+     * (through any queue) with the given priority.
+     *
+     * @param priority Priority of the commands.
+     * @param work Work to do.
+     * @return What the work returned.
+     * @throws WebDriverException wrapping any checked exception thrown by the
+     *             work.
+     */
+    public static <V> V withPriority(@NotNull final CommandPriority priority,
+            @NotNull final Callable<V> work) {
+        CommandPriority previous = PRIORITY.get();
+        PRIORITY.set(priority);
+        try {
+            return work.call();
+        } catch (RuntimeException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new WebDriverException(exception);
+        } finally {
+            if (previous == null) {
+                PRIORITY.remove();
+            } else {
+                PRIORITY.set(previous);
+            }
+        }
+    }
+
+    /**
+     * @return Priority of the commands issued by the calling thread.
+     */
+    public static CommandPriority currentPriority() {
+        CommandPriority priority = PRIORITY.get();
+        return priority == null ? CommandPriority.NORMAL : priority;
+    }
+
+    /**
+     * @param commandMetrics Where to record the time commands wait in the
+     *            queue (per priority), or null not to record it.
+     */
+    public void setCommandMetrics(CommandMetrics commandMetrics) {
+        this.commandMetrics = commandMetrics;
+    }
+
+    /**
+     * @return Number of commands waiting to be sent.
+     */
+    public int getDepth() {
+        return this.queue.size();
+    }
+
+    /**
+     * @return Maximum number of commands that have been waiting at once.
+     */
+    public int getMaxDepth() {
+        return this.maxDepth.get();
+    }
+
+    @Override
+    public Response execute(Command command) throws IOException {
+        if (Thread.currentThread() == this.consumer) {
+            // Not expected, but it would deadlock otherwise
+            return this.delegate.execute(command);
+        }
+        QueuedCommand queued = new QueuedCommand(command, currentPriority(),
+                this.sequence.incrementAndGet());
+        synchronized (this) {
+            if (this.closed) {
+                throw new WebDriverException("Command queue closed: "
+                        + command.getName());
+            }
+            this.queue.add(queued);
+            if (this.consumer == null) {
+                this.consumer = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        CommandQueue.this.consume();
+                    }
+                }, this.name);
+                this.consumer.setDaemon(true);
+                this.consumer.start();
+            }
+        }
+        int depth = this.queue.size();
+        int max;
+        while (depth > (max = this.maxDepth.get())
+                && !this.maxDepth.compareAndSet(max, depth)) {
+            // Retry
+        }
+        return queued.await(this.queue);
+    }
+
+    /**
+     * Stops the consumer thread, failing the commands still waiting. Commands
+     * sent afterwards fail too.
+     */
+    @Override
+    public void close() {
+        List<QueuedCommand> pending = new ArrayList<>();
+        synchronized (this) {
+            this.closed = true;
+            // Before interrupting, as the command running may swallow it
+            this.queue.drainTo(pending);
+            if (this.consumer != null) {
+                this.consumer.interrupt();
+                this.consumer = null;
+            }
+        }
+        log.trace("close(): {} commands pending", pending.size());
+        for (QueuedCommand queued : pending) {
+            queued.fail(new WebDriverException("Command queue closed: "
+                    + queued.command.getName()));
+        }
+    }
+
+    private void consume() {
+        while (!this.closed) {
+            QueuedCommand queued;
+            try {
+                queued = this.queue.poll(this.keepAliveNanos,
+                        TimeUnit.NANOSECONDS);
+            } catch (InterruptedException exception) {
+                // Closed
+                return;
+            }
+            if (queued == null) {
+                synchronized (this) {
+                    // Commands are queued holding the lock, so none is missed
+                    if (this.queue.isEmpty()) {
+                        if (this.consumer == Thread.currentThread()) {
+                            this.consumer = null;
+                        }
+                        log.trace("{}: idle, consumer ending", this.name);
+                        return;
+                    }
+                }
+                continue;
+            }
+            if (this.closed) {
+                // Taken while being closed
+                queued.fail(new WebDriverException("Command queue closed: "
+                        + queued.command.getName()));
+                return;
+            }
+            CommandMetrics metrics = this.commandMetrics;
+            if (metrics != null) {
+                metrics.record(COMMAND_QUEUE_WAIT + '.'
+                        + queued.priority.name().toLowerCase(Locale.ENGLISH),
+                        queued.enqueuedNanos, true);
+            }
+            try {
+                queued.complete(this.delegate.execute(queued.command));
+            } catch (IOException | RuntimeException | Error exception) {
+                queued.fail(exception);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("CommandQueue{");
+        sb.append("name=").append(this.name);
+        sb.append(", depth=").append(this.getDepth());
+        sb.append(", maxDepth=").append(this.getMaxDepth());
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static class QueuedCommand implements Comparable<QueuedCommand> {
+        private final Command command;
+        private final CommandPriority priority;
+        private final long sequence;
+        private final long enqueuedNanos = System.nanoTime();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Response response;
+        private Throwable failure;
+
+        private QueuedCommand(Command command, CommandPriority priority,
+                long sequence) {
+            this.command = command;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(QueuedCommand other) {
+            int comparison = this.priority.compareTo(other.priority);
+            return comparison != 0 ? comparison : Long.compare(this.sequence,
+                    other.sequence);
+        }
+
+        private void complete(Response response) {
+            this.response = response;
+            this.done.countDown();
+        }
+
+        private void fail(Throwable failure) {
+            this.failure = failure;
+            this.done.countDown();
+        }
+
+        /**
+         * Waits for the command to be sent. If interrupted while it is still
+         * queued, it is withdrawn; once it has been taken, it is waited for
+         * anyway (so it never runs after the caller gave up on it).
+         */
+        private Response await(PriorityBlockingQueue<QueuedCommand> queue)
+                throws IOException {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        this.done.await();
+                        break;
+                    } catch (InterruptedException exception) {
+                        interrupted = true;
+                        if (queue.remove(this)) {
+                            throw new WebDriverException("Interrupted"
+                                    + " while waiting to send: "
+                                    + this.command.getName(), exception);
+                        }
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (this.failure instanceof IOException) {
+                throw (IOException) this.failure;
+            } else if (this.failure instanceof RuntimeException) {
+                throw (RuntimeException) this.failure;
+            } else if (this.failure instanceof Error) {
+                throw (Error) this.failure;
+            }
+            return this.response;
+        }
+    }
+}
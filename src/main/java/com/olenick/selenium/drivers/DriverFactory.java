@@ -0,0 +1,11 @@
+package com.olenick.selenium.drivers;
+
+/**
+ * Creates new browser sessions.
+ */
+public interface DriverFactory {
+    /**
+     * @return A new session, wrapped.
+     */
+    ExtendedRemoteWebDriver newDriver();
+}
@@ -0,0 +1,337 @@
+package com.olenick.selenium.drivers;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.validation.constraints.NotNull;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.olenick.selenium.scripts.Scripts;
+
+/**
+ * Pool of reusable browser sessions.
+ * <p>
+ * Sessions are leased to one thread at a time and, when released, they are
+ * reset (extra windows closed, cookies and storage cleared, about:blank loaded,
+ * wrapper settings restored) instead of quit, so the next lease does not pay
+ * for a new session. Sessions are health-checked before being leased, and they
+ * are recycled (quit and replaced) after a number of uses, or when released as
+ * failed or when the reset fails.
+ * </p>
+ * <p>
+ * Notice that cookies and storage can only be cleared for the page the
+ * session is on when released.
+ * </p>
+ */
+public class DriverPool implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(DriverPool.class);
+
+    private static final String BLANK_PAGE = "about:blank";
+    private static final long MAX_IDLE_POLL_NANOS = TimeUnit.SECONDS
+            .toNanos(1);
+
+    private final DriverFactory factory;
+    private final int size;
+    private final int maxUses;
+    private final BlockingQueue<PooledDriver> idle = new LinkedBlockingQueue<>();
+    private final Map<ExtendedRemoteWebDriver, PooledDriver> leased = new ConcurrentHashMap<>();
+    private final AtomicInteger sessions = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * @param factory Session factory.
+     * @param size Maximum number of sessions.
+     * @param maxUses Number of leases after which a session is recycled (0 for
+     *            no limit).
+     */
+    public DriverPool(@NotNull final DriverFactory factory, final int size,
+            final int maxUses) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: "
+                    + size);
+        }
+        this.factory = factory;
+        this.size = size;
+        this.maxUses = maxUses;
+    }
+
+    /**
+     * Creates, in parallel, as many sessions as needed to fill the pool.
+     *
+     * @return This instance.
+     * @throws WebDriverException if any session cannot be created (the ones
+     *             created are kept anyway).
+     */
+    public DriverPool prewarm() {
+        int missing = this.size - this.sessions.get();
+        log.trace("prewarm(): {} sessions", missing);
+        if (missing <= 0) {
+            return this;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(missing);
+        try {
+            List<Future<PooledDriver>> futures = new ArrayList<>(missing);
+            for (int index = 0; index < missing; ++index) {
+                futures.add(executor.submit(new Callable<PooledDriver>() {
+                    @Override
+                    public PooledDriver call() {
+                        return DriverPool.this.tryCreate();
+                    }
+                }));
+            }
+            // Every future is collected, so no session created is leaked
+            RuntimeException failure = null;
+            for (Future<PooledDriver> future : futures) {
+                try {
+                    PooledDriver pooled = future.get();
+                    if (pooled != null) {
+                        this.idle.add(pooled);
+                    }
+                } catch (ExecutionException exception) {
+                    if (failure == null) {
+                        Throwable cause = exception.getCause();
+                        if (cause instanceof RuntimeException) {
+                            failure = (RuntimeException) cause;
+                        } else {
+                            failure = new WebDriverException(cause);
+                        }
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while prewarming",
+                    exception);
+        } finally {
+            executor.shutdown();
+        }
+        return this;
+    }
+
+    /**
+     * Leases a session, waiting as long as needed for one to be available.
+     *
+     * @return Session, for the exclusive use of the caller until released.
+     */
+    public ExtendedRemoteWebDriver lease() {
+        return this.lease(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leases a session.
+     *
+     * @param timeout Maximum time to wait for a session to be available.
+     * @param unit Unit of the timeout.
+     * @return Session, for the exclusive use of the caller until released.
+     * @throws TimeoutException if no session becomes available in time.
+     */
+    public ExtendedRemoteWebDriver lease(final long timeout,
+            @NotNull final TimeUnit unit) {
+        long deadline = System.nanoTime()
+                + Math.min(unit.toNanos(timeout), Long.MAX_VALUE / 2);
+        while (true) {
+            this.checkOpen();
+            PooledDriver pooled = this.idle.poll();
+            if (pooled == null) {
+                pooled = this.tryCreate();
+            }
+            if (pooled == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException("No session available after "
+                            + timeout + " " + unit);
+                }
+                try {
+                    // Bounded, so sessions discarded meanwhile get replaced
+                    pooled = this.idle.poll(
+                            Math.min(remaining, MAX_IDLE_POLL_NANOS),
+                            TimeUnit.NANOSECONDS);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new WebDriverException(
+                            "Interrupted while waiting for a session",
+                            exception);
+                }
+                if (pooled == null) {
+                    continue;
+                }
+            }
+            if (this.isHealthy(pooled)) {
+                pooled.uses++;
+                this.leased.put(pooled.driver, pooled);
+                log.trace("lease(): {} (use {})", pooled.driver, pooled.uses);
+                return pooled.driver;
+            }
+            this.discard(pooled);
+        }
+    }
+
+    /**
+     * Gives a session back to the pool.
+     *
+     * @param driver Leased session.
+     */
+    public void release(@NotNull final ExtendedRemoteWebDriver driver) {
+        this.release(driver, false);
+    }
+
+    /**
+     * Gives a session back to the pool.
+     *
+     * @param driver Leased session.
+     * @param failed Whether the session was involved in a failure, in which
+     *            case it is recycled instead of being reused.
+     */
+    public void release(@NotNull final ExtendedRemoteWebDriver driver,
+            final boolean failed) {
+        PooledDriver pooled = this.leased.remove(driver);
+        if (pooled == null) {
+            throw new IllegalArgumentException("Session not leased from "
+                    + "this pool: " + driver);
+        }
+        log.trace("release({}, {})", driver, failed);
+        if (failed || this.closed
+                || (this.maxUses > 0 && pooled.uses >= this.maxUses)
+                || !this.reset(pooled)) {
+            this.discard(pooled);
+        } else {
+            this.idle.add(pooled);
+        }
+    }
+
+    /**
+     * @return Number of live sessions (idle or leased).
+     */
+    public int getSessionCount() {
+        return this.sessions.get();
+    }
+
+    /**
+     * @return Number of sessions ready to be leased.
+     */
+    public int getIdleCount() {
+        return this.idle.size();
+    }
+
+    /**
+     * Quits the idle sessions; leased ones are quit when released.
+     */
+    @Override
+    public void close() {
+        log.trace("close()");
+        this.closed = true;
+        PooledDriver pooled;
+        while ((pooled = this.idle.poll()) != null) {
+            this.discard(pooled);
+        }
+    }
+
+    private void checkOpen() {
+        if (this.closed) {
+            throw new IllegalStateException("Pool already closed.");
+        }
+    }
+
+    /**
+     * @return A new session, or null if the pool is full.
+     */
+    private PooledDriver tryCreate() {
+        int current;
+        do {
+            current = this.sessions.get();
+            if (current >= this.size) {
+                return null;
+            }
+        } while (!this.sessions.compareAndSet(current, current + 1));
+        try {
+            return new PooledDriver(this.factory.newDriver());
+        } catch (RuntimeException exception) {
+            this.sessions.decrementAndGet();
+            throw exception;
+        }
+    }
+
+    private boolean isHealthy(PooledDriver pooled) {
+        try {
+            // Not through the wrapper: neither recorded nor a page change
+            ((JavascriptExecutor) pooled.driver.getWrappedDriver())
+                    .executeScript(Scripts.PING);
+            return true;
+        } catch (WebDriverException exception) {
+            log.warn("Session failed health check: {}", exception.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Leaves a session as a fresh one: a single window on a blank page, without
+     * cookies nor storage for the page it was on, and the wrapper settings
+     * back to their defaults.
+     *
+     * @return Whether the reset succeeded.
+     */
+    private boolean reset(PooledDriver pooled) {
+        ExtendedRemoteWebDriver driver = pooled.driver;
+        try {
+            Set<String> handles = driver.getWindowHandles();
+            if (handles.size() > 1) {
+                String kept = handles.iterator().next();
+                for (String handle : handles) {
+                    if (!handle.equals(kept)) {
+                        driver.switchTo().window(handle);
+                        driver.close();
+                    }
+                }
+                driver.switchTo().window(kept);
+            }
+            driver.manage().deleteAllCookies();
+            driver.executeScript(Scripts.CLEAR_STORAGE);
+            driver.get(BLANK_PAGE);
+            driver.resetState();
+            return true;
+        } catch (WebDriverException exception) {
+            log.warn("Session failed to reset: {}", exception.getMessage());
+            return false;
+        }
+    }
+
+    private void discard(PooledDriver pooled) {
+        this.sessions.decrementAndGet();
+        try {
+            pooled.driver.quit();
+        } catch (WebDriverException exception) {
+            log.trace("Quitting discarded session failed: {}",
+                    exception.getMessage());
+        }
+    }
+
+    private static class PooledDriver {
+        private final ExtendedRemoteWebDriver driver;
+        private int uses;
+
+        private PooledDriver(ExtendedRemoteWebDriver driver) {
+            this.driver = driver;
+        }
+    }
+}
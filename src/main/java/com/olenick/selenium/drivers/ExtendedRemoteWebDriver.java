@@ -4,21 +4,35 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.openqa.selenium.By;
 import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.Cookie;
 import org.openqa.selenium.HasCapabilities;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.OutputType;
+import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.interactions.HasInputDevices;
 import org.openqa.selenium.interactions.Keyboard;
 import org.openqa.selenium.interactions.Mouse;
+import org.openqa.selenium.interactions.internal.Coordinates;
 import org.openqa.selenium.internal.FindsByClassName;
 import org.openqa.selenium.internal.FindsByCssSelector;
 import org.openqa.selenium.internal.FindsById;
@@ -27,6 +41,8 @@ import org.openqa.selenium.internal.FindsByName;
 import org.openqa.selenium.internal.FindsByTagName;
 import org.openqa.selenium.internal.FindsByXPath;
 import org.openqa.selenium.internal.WrapsDriver;
+import org.openqa.selenium.logging.Logs;
+import org.openqa.selenium.remote.CommandExecutor;
 import org.openqa.selenium.remote.RemoteWebDriver;
 import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
@@ -34,6 +50,18 @@ import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.olenick.selenium.elements.ClickMode;
+import com.olenick.selenium.elements.ExtendedWebElement;
+import com.olenick.selenium.elements.SelectMode;
+import com.olenick.selenium.exceptions.ScriptInstallationException;
+import com.olenick.selenium.metrics.CommandMetrics;
+import com.olenick.selenium.pagesource.PageSourceCapture;
+import com.olenick.selenium.screenshots.ScreenshotRing;
+import com.olenick.selenium.screenshots.ScreenshotWriter;
+import com.olenick.selenium.screenshots.StitchedScreenshot;
+import com.olenick.selenium.scripts.ScriptRegistry;
+import com.olenick.selenium.util.Locators;
+
 /**
  * Extension to the normal RemoteWebDrivers provided by Selenium.
  * <p>
@@ -51,29 +79,301 @@ public class ExtendedRemoteWebDriver implements WebDriver, WrapsDriver,
 
     // TODO: Move this to configuration
     private static final long DEFAULT_TIMEOUT_IN_SECONDS = 120;
+    // Leeway given to the driver over the deadlines async scripts enforce
+    private static final long SCRIPT_TIMEOUT_MARGIN_MILLIS = 5000;
+    // Script timeout of new sessions (see JavascriptExecutor)
+    private static final long DEFAULT_SCRIPT_TIMEOUT_MILLIS = 0;
+    private static final long UNKNOWN_SCRIPT_TIMEOUT = Long.MIN_VALUE;
+    // Waits interrupted by the document being unloaded are resumed this much
+    private static final int MAX_INTERRUPTED_WAITS = 5;
+    // How drivers report an asynchronous script cut short by an unload
+    private static final List<String> DOCUMENT_UNLOADED_MESSAGES = Arrays
+            .asList("document unloaded", // ChromeDriver
+                    "page unload", // FirefoxDriver
+                    "page reload detected"); // InternetExplorerDriver
+    private static final String CONDITION_PRESENT = "present";
+    private static final String CONDITION_VISIBLE = "visible";
+    private static final String CONDITION_CLICKABLE = "clickable";
+
+    private static final String COMMAND_GET = "get";
+    private static final String COMMAND_FIND_ELEMENT = "findElement";
+    private static final String COMMAND_FIND_ELEMENTS = "findElements";
+    private static final String COMMAND_FIND_VISIBLE_ELEMENT = "findVisibleElement";
+    private static final String COMMAND_FIND_CLICKABLE_ELEMENT = "findClickableElement";
+    private static final String COMMAND_FIND_ELEMENTS_IN_BATCH = "findElementsInBatch";
+    private static final String COMMAND_READ_IN_BULK = "readInBulk";
+    private static final String COMMAND_WAIT = "wait.condition";
+    private static final String COMMAND_WAIT_READY_STATE = "wait.readyState";
+    private static final String COMMAND_WAIT_PAGE_SETTLED = "wait.pageSettled";
+    private static final String COMMAND_GET_PAGE_SOURCE = "getPageSource";
+    private static final String COMMAND_SAVE_PAGE_SOURCE = "savePageSource";
+    private static final String COMMAND_EXECUTE_SCRIPT = "executeScript";
+    private static final String COMMAND_EXECUTE_ASYNC_SCRIPT = "executeAsyncScript";
+    private static final String COMMAND_CALL_SCRIPT = "callScript";
+    private static final String COMMAND_CALL_ASYNC_SCRIPT = "callAsyncScript";
+    private static final String COMMAND_SCREENSHOT = "screenshot";
+    private static final String COMMAND_SCREENSHOT_RING = "screenshot.ring";
+    private static final String COMMAND_SCREENSHOT_FULL_PAGE = "screenshot.fullPage";
+    private static final String COMMAND_SCREENSHOT_ELEMENT = "screenshot.element";
+    private static final String FAILURE_LABEL = "failure";
+    private static final String READ_TITLE = "title";
+    private static final String READ_CURRENT_URL = "currentUrl";
+    // Built-in helpers that do not change the page (others invalidate reads)
+    private static final Set<String> READ_ONLY_HELPERS = Collections
+            .unmodifiableSet(new HashSet<>(Arrays.asList(
+                    ScriptRegistry.FIND_ELEMENTS_IN_BATCH,
+                    ScriptRegistry.READ_OPTIONS, ScriptRegistry.READ_IN_BULK,
+                    ScriptRegistry.PAGE_GEOMETRY,
+                    ScriptRegistry.CAPTURE_PAGE_SOURCE,
+                    ScriptRegistry.READ_PAGE_SOURCE,
+                    ScriptRegistry.WATCH_CHANGES,
+                    ScriptRegistry.WATCH_ELEMENTS,
+                    ScriptRegistry.READ_CHANGES,
+                    ScriptRegistry.UNWATCH_CHANGES)));
 
     private RemoteWebDriver underlyingDriver;
+    private ClickMode clickMode = ClickMode.WAIT_FOR_CLICKABLE;
+    private SelectMode selectMode = SelectMode.SCRIPTED;
+    private WaitStrategy waitStrategy = WaitStrategy.CLIENT_POLLING;
+    // Script timeout of the session, as last sent (negative: none)
+    private volatile long scriptTimeoutMillis = UNKNOWN_SCRIPT_TIMEOUT;
+    // Script timeout set through manage(), restored after waits raise it
+    private volatile long userScriptTimeoutMillis = DEFAULT_SCRIPT_TIMEOUT_MILLIS;
+    private volatile CommandMetrics commandMetrics;
+    private volatile ScreenshotRing screenshotRing;
+    private volatile ScreenshotWriter screenshotWriter;
+    private volatile ReadCache readCache;
+    // Whether reads bypass the read cache, per thread (see uncached)
+    private final ThreadLocal<Boolean> uncachedReads = new ThreadLocal<>();
+    private final ScriptRegistry scriptRegistry;
 
     public ExtendedRemoteWebDriver(RemoteWebDriver driver) {
         this.underlyingDriver = driver;
+        this.scriptRegistry = new ScriptRegistry(driver);
+    }
+
+    /**
+     * @return How the elements of this driver perform clicks.
+     */
+    public ClickMode getClickMode() {
+        return this.clickMode;
+    }
+
+    public void setClickMode(ClickMode clickMode) {
+        this.clickMode = clickMode;
+    }
+
+    /**
+     * @return How the select elements of this driver (de)select options.
+     */
+    public SelectMode getSelectMode() {
+        return this.selectMode;
+    }
+
+    public void setSelectMode(SelectMode selectMode) {
+        this.selectMode = selectMode;
+    }
+
+    /**
+     * @return Where the waits of findElement(By, ...), findElements(By, ...)
+     *         and findVisibleElement(By, ...) poll.
+     */
+    public WaitStrategy getWaitStrategy() {
+        return this.waitStrategy;
+    }
+
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * @return Where the commands of this driver (and its elements) are
+     *         recorded, or null if they are not.
+     */
+    public CommandMetrics getCommandMetrics() {
+        return this.commandMetrics;
+    }
+
+    /**
+     * @param commandMetrics Where to record commands (e.g.:
+     *            {@link CommandMetrics#global()}), or null not to record them.
+     */
+    public void setCommandMetrics(CommandMetrics commandMetrics) {
+        this.commandMetrics = commandMetrics;
+        CommandQueue commandQueue = this.getCommandQueue();
+        if (commandQueue != null) {
+            commandQueue.setCommandMetrics(commandMetrics);
+        }
+    }
+
+    /**
+     * @return Queue the commands of this driver go through, if its underlying
+     *         driver was created on top of one (which makes it safe to use from
+     *         many threads), or null.
+     */
+    public CommandQueue getCommandQueue() {
+        CommandExecutor executor = this.underlyingDriver.getCommandExecutor();
+        return executor instanceof CommandQueue ? (CommandQueue) executor
+                : null;
+    }
+
+    /**
+     * @return Helpers installed in the pages of this driver, where custom ones
+     *         can be registered to be called with {@link #callScript}.
+     */
+    public ScriptRegistry getScriptRegistry() {
+        return this.scriptRegistry;
+    }
+
+    /**
+     * @return Where the reads of this driver (and its elements) are cached,
+     *         or null if they are not.
+     */
+    public ReadCache getReadCache() {
+        return this.readCache;
+    }
+
+    /**
+     * @param readCache Where to cache reads (e.g.: the text of an element),
+     *            until the next command that may change the page, or null not
+     *            to cache them.
+     */
+    public void setReadCache(ReadCache readCache) {
+        this.readCache = readCache;
+    }
+
+    /**
+     * Reads through the read cache, if any.
+     *
+     * @param target What is read (e.g.: an element), or null for the page.
+     * @param read What is read of it.
+     * @param loader Does the read, if not cached.
+     * @return The value read, or cached.
+     * @see ReadCache#read(Object, String, ReadCache.Loader)
+     */
+    public <R> R read(Object target, String read, ReadCache.Loader<R> loader) {
+        ReadCache cache = this.readCache;
+        if (cache == null) {
+            return loader.load();
+        }
+        return Boolean.TRUE.equals(this.uncachedReads.get()) ? cache.reload(
+                target, read, loader) : cache.read(target, read, loader);
+    }
+
+    /**
+     * Runs reads that must be fresh (e.g.: the conditions of a wait, which
+     * poll for changes the driver is not told about), bypassing the read
+     * cache on this thread. The waits of this driver already do.
+     *
+     * @param reads Reads to run.
+     * @return What the reads returned.
+     */
+    public <V> V uncached(final Callable<V> reads) {
+        Boolean previous = this.uncachedReads.get();
+        this.uncachedReads.set(Boolean.TRUE);
+        try {
+            return reads.call();
+        } catch (RuntimeException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new WebDriverException(exception);
+        } finally {
+            if (previous == null) {
+                this.uncachedReads.remove();
+            } else {
+                this.uncachedReads.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Forgets the reads cached, if any: to be called after anything that may
+     * change the page (commands of this driver and its elements already do).
+     */
+    public void invalidateReadCache() {
+        ReadCache cache = this.readCache;
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * Sets back what this wrapper keeps per session to its defaults (e.g.:
+     * before the session is reused by someone else): the click, select and
+     * wait modes, the script timeout, the read cache and the screenshot ring.
+     * Command metrics and the screenshot writer are kept.
+     */
+    public void resetState() {
+        log.trace("resetState()");
+        this.clickMode = ClickMode.WAIT_FOR_CLICKABLE;
+        this.selectMode = SelectMode.SCRIPTED;
+        this.waitStrategy = WaitStrategy.CLIENT_POLLING;
+        this.readCache = null;
+        this.screenshotRing = null;
+        this.userScriptTimeoutMillis = DEFAULT_SCRIPT_TIMEOUT_MILLIS;
+        this.scriptTimeoutMillis = UNKNOWN_SCRIPT_TIMEOUT;
+        this.sendScriptTimeout(DEFAULT_SCRIPT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Records a command, if metrics are enabled.
+     *
+     * @param command Command type.
+     * @param startNanos Value of System.nanoTime() when the command started.
+     * @param succeeded Whether the command succeeded.
+     */
+    public void recordCommand(String command, long startNanos,
+            boolean succeeded) {
+        if (this.commandMetrics != null) {
+            this.commandMetrics.record(command, startNanos, succeeded);
+        }
+    }
+
+    private void recordCommand(String command, By by, long startNanos,
+            boolean succeeded) {
+        if (this.commandMetrics != null) {
+            this.commandMetrics.record(
+                    command + '.' + Locators.strategyOf(by), startNanos,
+                    succeeded);
+        }
     }
 
     @Override
     public void get(String url) {
         log.trace("get({})", url);
-        this.underlyingDriver.get(url);
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            this.scriptRegistry.documentChanged();
+            this.underlyingDriver.get(url);
+            succeeded = true;
+        } finally {
+            this.invalidateReadCache();
+            this.recordCommand(COMMAND_GET, start, succeeded);
+        }
     }
 
     @Override
     public String getCurrentUrl() {
         log.trace("getCurrentUrl({})");
-        return this.underlyingDriver.getCurrentUrl();
+        return this.read(null, READ_CURRENT_URL, new ReadCache.Loader<String>() {
+            @Override
+            public String load() {
+                return ExtendedRemoteWebDriver.this.underlyingDriver
+                        .getCurrentUrl();
+            }
+        });
     }
 
     @Override
     public String getTitle() {
         log.trace("getTitle({})");
-        return this.underlyingDriver.getTitle();
+        return this.read(null, READ_TITLE, new ReadCache.Loader<String>() {
+            @Override
+            public String load() {
+                return ExtendedRemoteWebDriver.this.underlyingDriver.getTitle();
+            }
+        });
     }
 
     @Override
@@ -81,11 +381,11 @@ public class ExtendedRemoteWebDriver implements WebDriver, WrapsDriver,
         return this.findElements(by, DEFAULT_TIMEOUT_IN_SECONDS);
     }
 
+    @SuppressWarnings("unchecked")
     public List<WebElement> findElements(By by, long timeoutInSeconds) {
         log.trace("findElements({}, {})", by, timeoutInSeconds);
-        return this.findElements(
-                ExpectedConditions.presenceOfAllElementsLocatedBy(by),
-                timeoutInSeconds);
+        return (List<WebElement>) this.find(COMMAND_FIND_ELEMENTS, by,
+                CONDITION_PRESENT, true, timeoutInSeconds);
     }
 
     public List<WebElement> findElements(ExpectedCondition<?> expectedCondition) {
@@ -96,8 +396,16 @@ public class ExtendedRemoteWebDriver implements WebDriver, WrapsDriver,
     public List<WebElement> findElements(
             ExpectedCondition<?> expectedCondition, long timeoutInSeconds) {
         log.trace("findElements({}, {})", expectedCondition, timeoutInSeconds);
-        return (List<WebElement>) new WebDriverWait(this.underlyingDriver,
-                timeoutInSeconds).until(expectedCondition);
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            List<WebElement> elements = (List<WebElement>) this.waitUntil(
+                    expectedCondition, timeoutInSeconds);
+            succeeded = true;
+            return InvalidatingWebElement.wrap(this, elements);
+        } finally {
+            this.recordCommand(COMMAND_WAIT, start, succeeded);
+        }
     }
 
     @Override
@@ -106,9 +414,8 @@ public class ExtendedRemoteWebDriver implements WebDriver, WrapsDriver,
     }
 
     public WebElement findElement(By by, long timeoutInSeconds) {
-        return this.findElement(
-                ExpectedConditions.presenceOfElementLocated(by),
-                timeoutInSeconds);
+        return (WebElement) this.find(COMMAND_FIND_ELEMENT, by,
+                CONDITION_PRESENT, false, timeoutInSeconds);
     }
 
     public WebElement findElement(ExpectedCondition<?> expectedCondition) {
@@ -118,8 +425,16 @@ public class ExtendedRemoteWebDriver implements WebDriver, WrapsDriver,
     public WebElement findElement(ExpectedCondition<?> expectedCondition,
             long timeoutInSeconds) {
         log.trace("findElement({}, {})", expectedCondition, timeoutInSeconds);
-        return (WebElement) new WebDriverWait(this.underlyingDriver,
-                timeoutInSeconds).until(expectedCondition);
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            WebElement element = (WebElement) this.waitUntil(
+                    expectedCondition, timeoutInSeconds);
+            succeeded = true;
+            return InvalidatingWebElement.wrap(this, element);
+        } finally {
+            this.recordCommand(COMMAND_WAIT, start, succeeded);
+        }
     }
 
     public WebElement findVisibleElement(By by) {
@@ -127,27 +442,479 @@ public class ExtendedRemoteWebDriver implements WebDriver, WrapsDriver,
     }
 
     public WebElement findVisibleElement(By by, long timeoutInSeconds) {
-        return this.findElement(
-                ExpectedConditions.visibilityOfElementLocated(by),
-                timeoutInSeconds);
+        return (WebElement) this.find(COMMAND_FIND_VISIBLE_ELEMENT, by,
+                CONDITION_VISIBLE, false, timeoutInSeconds);
+    }
+
+    public WebElement findClickableElement(By by) {
+        return this.findClickableElement(by, DEFAULT_TIMEOUT_IN_SECONDS);
+    }
+
+    public WebElement findClickableElement(By by, long timeoutInSeconds) {
+        return (WebElement) this.find(COMMAND_FIND_CLICKABLE_ELEMENT, by,
+                CONDITION_CLICKABLE, false, timeoutInSeconds);
+    }
+
+    /**
+     * Waits for an element (or elements), following the wait strategy.
+     *
+     * @param command Command type, for metrics.
+     * @param by Locator.
+     * @param condition Condition the element has to satisfy.
+     * @param all Whether to find all elements matching the locator.
+     * @param timeoutInSeconds Timeout.
+     * @return The element (or non-empty list of elements), wrapped so that
+     *         its commands invalidate the read cache.
+     */
+    private Object find(String command, By by, String condition, boolean all,
+            long timeoutInSeconds) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            Object found = null;
+            if (this.waitStrategy == WaitStrategy.IN_BROWSER) {
+                found = this.findInBrowser(by, condition, all,
+                        timeoutInSeconds);
+            }
+            if (found == null) {
+                // Only for what is left of the timeout, if the browser waited
+                long remainingMillis = TimeUnit.SECONDS
+                        .toMillis(timeoutInSeconds)
+                        - TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                                - start);
+                found = this.waitUntil(
+                        expectedConditionOf(by, condition, all),
+                        Math.max(0, remainingMillis), TimeUnit.MILLISECONDS);
+            }
+            succeeded = true;
+            return InvalidatingWebElement.wrap(this, found);
+        } finally {
+            this.recordCommand(command, by, start, succeeded);
+        }
+    }
+
+    private Object waitUntil(ExpectedCondition<?> expectedCondition,
+            long timeoutInSeconds) {
+        return this.waitUntil(expectedCondition, timeoutInSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    private Object waitUntil(final ExpectedCondition<?> expectedCondition,
+            final long timeout, final TimeUnit unit) {
+        // Conditions may read through elements of this driver
+        return this.uncached(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return new WebDriverWait(
+                        ExtendedRemoteWebDriver.this.underlyingDriver, unit
+                                .toSeconds(timeout)).withTimeout(timeout, unit)
+                        .until(expectedCondition);
+            }
+        });
+    }
+
+    private static ExpectedCondition<?> expectedConditionOf(By by,
+            String condition, boolean all) {
+        if (all) {
+            return ExpectedConditions.presenceOfAllElementsLocatedBy(by);
+        }
+        switch (condition) {
+        case CONDITION_VISIBLE:
+            return ExpectedConditions.visibilityOfElementLocated(by);
+        case CONDITION_CLICKABLE:
+            return ExpectedConditions.elementToBeClickable(by);
+        default:
+            return ExpectedConditions.presenceOfElementLocated(by);
+        }
+    }
+
+    /**
+     * Waits for an element (or elements) inside the browser.
+     *
+     * @param by Locator.
+     * @param condition Condition the element has to satisfy.
+     * @param all Whether to find all elements matching the locator.
+     * @param timeoutInSeconds Timeout.
+     * @return The element (or non-empty list of elements), or null if the
+     *         locator cannot be waited for inside the browser, in which case
+     *         the caller should fall back to client polling.
+     * @throws TimeoutException if the element does not show up in time.
+     */
+    private Object findInBrowser(By by, String condition, boolean all,
+            long timeoutInSeconds) {
+        Map<String, Object> locator = Locators.toScriptLocator(by, false);
+        if (locator == null) {
+            return null;
+        }
+        long timeoutMillis = timeoutInSeconds * 1000;
+        this.ensureScriptTimeout(timeoutMillis + SCRIPT_TIMEOUT_MARGIN_MILLIS);
+        Object found;
+        try {
+            found = this.scriptRegistry.callAsync(
+                    ScriptRegistry.FIND_ELEMENT_WHEN_READY, locator, condition,
+                    all, timeoutMillis);
+        } catch (TimeoutException exception) {
+            throw exception;
+        } catch (WebDriverException exception) {
+            // E.g.: the document was unloaded while waiting
+            log.trace("findInBrowser({}) interrupted: {}", by,
+                    exception.getMessage());
+            return null;
+        }
+        if (found == null) {
+            throw new TimeoutException("Timed out after " + timeoutInSeconds
+                    + " seconds waiting for " + condition
+                    + " element located by: " + by);
+        }
+        if (found instanceof Map) {
+            log.trace("findInBrowser({}) not possible: {}", by, found);
+            return null;
+        }
+        return found;
+    }
+
+    /**
+     * Looks up several locators with a single script execution, without waiting
+     * for any of them.
+     *
+     * @param bys Locators.
+     * @param visibilities Whether each element is required to be visible
+     *            (aligned with the locators).
+     * @return List aligned with the locators, holding null for each locator
+     *         that did not match, matched an element that is not visible while
+     *         required to be, or cannot be resolved by script.
+     */
+    public List<WebElement> findElementsInBatch(List<By> bys,
+            List<Boolean> visibilities) {
+        log.trace("findElementsInBatch({}, {})", bys, visibilities);
+        List<Map<String, Object>> locators = new ArrayList<>(bys.size());
+        boolean anyResolvable = false;
+        for (int index = 0; index < bys.size(); ++index) {
+            Map<String, Object> locator = Locators.toScriptLocator(
+                    bys.get(index), Boolean.TRUE.equals(visibilities.get(index)));
+            anyResolvable |= locator != null;
+            locators.add(locator);
+        }
+        List<WebElement> result = new ArrayList<>(bys.size());
+        if (!anyResolvable) {
+            result.addAll(Collections.<WebElement> nCopies(bys.size(), null));
+            return result;
+        }
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            Object found = this.scriptRegistry.call(
+                    ScriptRegistry.FIND_ELEMENTS_IN_BATCH, locators);
+            for (Object element : (List<?>) found) {
+                result.add(element instanceof WebElement ? InvalidatingWebElement
+                        .wrap(this, (WebElement) element) : null);
+            }
+            succeeded = true;
+        } finally {
+            this.recordCommand(COMMAND_FIND_ELEMENTS_IN_BATCH, start,
+                    succeeded);
+        }
+        return result;
+    }
+
+    /**
+     * Reads properties of many elements within a single script execution.
+     * Elements the script reports hidden are checked again through Selenium
+     * (unless disabled in the read), and if any element is stale, the
+     * ExtendedWebElements among them are relocated and the read retried once.
+     *
+     * @param elements Elements to read (ExtendedWebElements are unwrapped).
+     * @param read Properties to read.
+     * @return A row per element, a column per property.
+     */
+    public BulkReadResult readInBulk(List<? extends WebElement> elements,
+            BulkRead read) {
+        log.trace("readInBulk({} elements, {})", elements.size(), read);
+        List<String> columns = read.getColumns();
+        if (elements.isEmpty()) {
+            return new BulkReadResult(columns,
+                    Collections.<List<Object>> emptyList());
+        }
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            List<?> rows;
+            try {
+                rows = (List<?>) this.scriptRegistry.call(
+                        ScriptRegistry.READ_IN_BULK, unwrap(elements),
+                        read.toScriptArgument());
+            } catch (StaleElementReferenceException exception) {
+                log.trace("readInBulk(): stale elements, relocating");
+                for (WebElement element : elements) {
+                    if (element instanceof ExtendedWebElement) {
+                        ((ExtendedWebElement) element).relocate();
+                    }
+                }
+                rows = (List<?>) this.scriptRegistry.call(
+                        ScriptRegistry.READ_IN_BULK, unwrap(elements),
+                        read.toScriptArgument());
+            }
+            int displayedIndex = columns.indexOf(BulkRead.DISPLAYED);
+            int textIndex = columns.indexOf(BulkRead.TEXT);
+            boolean verifyHidden = read.isHiddenVerified()
+                    && (displayedIndex >= 0 || textIndex >= 0);
+            List<List<Object>> table = new ArrayList<>(rows.size());
+            for (int index = 0; index < rows.size(); ++index) {
+                List<Object> row = new ArrayList<>((List<?>) rows.get(index));
+                boolean shown = Boolean.TRUE.equals(row.remove(row.size() - 1));
+                if (verifyHidden && !shown) {
+                    WebElement element = elements.get(index);
+                    if (element.isDisplayed()) {
+                        if (displayedIndex >= 0) {
+                            row.set(displayedIndex, true);
+                        }
+                        if (textIndex >= 0) {
+                            row.set(textIndex, element.getText());
+                        }
+                    }
+                }
+                table.add(Collections.unmodifiableList(row));
+            }
+            succeeded = true;
+            return new BulkReadResult(columns,
+                    Collections.unmodifiableList(table));
+        } finally {
+            this.recordCommand(COMMAND_READ_IN_BULK, start, succeeded);
+        }
+    }
+
+    private static List<WebElement> unwrap(List<? extends WebElement> elements) {
+        List<WebElement> unwrapped = new ArrayList<>(elements.size());
+        for (WebElement element : elements) {
+            unwrapped.add(element instanceof ExtendedWebElement ? ((ExtendedWebElement) element)
+                    .safeGetUnderlyingWebElement() : element);
+        }
+        return unwrapped;
+    }
+
+    /**
+     * Waits for the document to reach (or pass) the given ready state. The wait
+     * happens inside the browser, listening to readystatechange events, so it
+     * returns as soon as the state is reached.
+     *
+     * @param readyState Ready state ("loading", "interactive" or "complete").
+     * @param timeoutInSeconds Timeout.
+     * @throws TimeoutException if the ready state is not reached in time.
+     */
+    public void waitForReadyState(String readyState, long timeoutInSeconds) {
+        log.trace("waitForReadyState({}, {})", readyState, timeoutInSeconds);
+        this.awaitScript(COMMAND_WAIT_READY_STATE,
+                ScriptRegistry.WAIT_FOR_READY_STATE, readyState,
+                timeoutInSeconds, "ready state " + readyState);
+    }
+
+    public void waitForPageSettled() {
+        this.waitForPageSettled(new ReadinessCriteria());
+    }
+
+    /**
+     * Waits for the page to settle: loaded, with no network activity and no DOM
+     * changes during the windows given by the criteria. The wait happens inside
+     * the browser, driven by events, so it returns as soon as the page settles.
+     *
+     * @param criteria Readiness criteria.
+     * @throws TimeoutException if the page does not settle in time.
+     */
+    public void waitForPageSettled(ReadinessCriteria criteria) {
+        log.trace("waitForPageSettled({})", criteria);
+        this.awaitScript(COMMAND_WAIT_PAGE_SETTLED,
+                ScriptRegistry.WAIT_FOR_PAGE_SETTLED,
+                criteria.toScriptArgument(), criteria.getTimeoutInSeconds(),
+                "page to settle");
+    }
+
+    /**
+     * Runs an asynchronous waiting helper until it calls back with true. The
+     * helper receives the given argument and the remaining timeout in
+     * milliseconds, and it is expected to give up by itself once that timeout
+     * expires. If the document is unloaded while waiting (e.g.: navigation),
+     * the helper is run again on the new one; any other error is thrown right
+     * away.
+     *
+     * @param command Command type, for metrics.
+     * @param helper Asynchronous helper (see {@link ScriptRegistry}).
+     * @param argument First argument of the helper.
+     * @param timeoutInSeconds Timeout.
+     * @param description What is being waited for (for error messages).
+     * @throws TimeoutException if the helper never calls back with true.
+     */
+    private void awaitScript(String command, String helper, Object argument,
+            long timeoutInSeconds, String description) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            this.awaitScript(helper, argument, timeoutInSeconds, description);
+            succeeded = true;
+        } finally {
+            // Waited for the page to change
+            this.invalidateReadCache();
+            this.recordCommand(command, start, succeeded);
+        }
+    }
+
+    private void awaitScript(String helper, Object argument,
+            long timeoutInSeconds, String description) {
+        long deadline = System.currentTimeMillis() + timeoutInSeconds * 1000;
+        Object lastResult = null;
+        int interruptions = 0;
+        while (true) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new TimeoutException("Timed out after "
+                        + timeoutInSeconds + " seconds waiting for "
+                        + description + " (last state: " + lastResult + ")");
+            }
+            this.ensureScriptTimeout(remaining + SCRIPT_TIMEOUT_MARGIN_MILLIS);
+            try {
+                lastResult = this.scriptRegistry.callAsync(helper, argument,
+                        remaining);
+            } catch (WebDriverException exception) {
+                if (!isDocumentUnloaded(exception)
+                        || ++interruptions > MAX_INTERRUPTED_WAITS) {
+                    throw exception;
+                }
+                log.trace("Waiting for {} interrupted, resuming: {}",
+                        description, exception.getMessage());
+                continue;
+            }
+            if (Boolean.TRUE.equals(lastResult)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Whether the exception reports an asynchronous script interrupted
+     *         by the document being unloaded (so the wait can be resumed on
+     *         the new one), rather than a failure of the script or the session.
+     */
+    private static boolean isDocumentUnloaded(WebDriverException exception) {
+        if (exception instanceof ScriptInstallationException
+                || exception.getMessage() == null) {
+            return false;
+        }
+        String message = exception.getMessage().toLowerCase(Locale.ENGLISH);
+        for (String unloaded : DOCUMENT_UNLOADED_MESSAGES) {
+            if (message.contains(unloaded)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Makes sure the driver lets asynchronous scripts run for, at least, the
+     * given time. The timeout is only sent to the browser when it has to grow,
+     * and the caller's one is restored before the caller's own asynchronous
+     * scripts (see {@link #restoreScriptTimeout()}).
+     *
+     * @param timeoutMillis Minimum script timeout, in milliseconds.
+     */
+    private void ensureScriptTimeout(long timeoutMillis) {
+        long current = this.scriptTimeoutMillis;
+        if (current == UNKNOWN_SCRIPT_TIMEOUT
+                || (current >= 0 && current < timeoutMillis)) {
+            this.sendScriptTimeout(timeoutMillis);
+        }
+    }
+
+    /**
+     * Sets back the script timeout set through {@link #manage()} (or the
+     * default one), if a wait raised it.
+     */
+    private void restoreScriptTimeout() {
+        long userTimeout = this.userScriptTimeoutMillis;
+        if (this.scriptTimeoutMillis != userTimeout) {
+            this.sendScriptTimeout(userTimeout);
+        }
+    }
+
+    private void sendScriptTimeout(long timeoutMillis) {
+        this.underlyingDriver.manage().timeouts()
+                .setScriptTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        this.scriptTimeoutMillis = timeoutMillis;
     }
 
     @Override
     public String getPageSource() {
         log.trace("getPageSource()");
-        return this.underlyingDriver.getPageSource();
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            String pageSource = this.underlyingDriver.getPageSource();
+            succeeded = true;
+            return pageSource;
+        } finally {
+            this.recordCommand(COMMAND_GET_PAGE_SOURCE, start, succeeded);
+        }
+    }
+
+    /**
+     * Writes the page source to a gzip file, streaming it in chunks rather
+     * than holding all of it (see {@link PageSourceCapture}).
+     *
+     * @param target File to write.
+     * @return What was captured.
+     */
+    public PageSourceCapture savePageSource(File target) throws IOException {
+        return this.savePageSource(target, false);
+    }
+
+    /**
+     * Writes to a gzip file only what changed in the page source since it was
+     * last saved (or all of it, if it was not saved since the page loaded).
+     *
+     * @param target File to write.
+     * @return What was captured.
+     * @see PageSourceCapture#applyDelta(File, File, File)
+     */
+    public PageSourceCapture savePageSourceDelta(File target)
+            throws IOException {
+        return this.savePageSource(target, true);
+    }
+
+    private PageSourceCapture savePageSource(File target, boolean delta)
+            throws IOException {
+        log.trace("savePageSource({}, {})", target, delta);
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            PageSourceCapture capture = PageSourceCapture.capture(this, target,
+                    delta, PageSourceCapture.DEFAULT_CHUNK_CHARS);
+            succeeded = true;
+            return capture;
+        } finally {
+            this.recordCommand(COMMAND_SAVE_PAGE_SOURCE, start, succeeded);
+        }
     }
 
     @Override
     public void close() {
         log.trace("close()");
-        this.underlyingDriver.close();
+        try {
+            this.underlyingDriver.close();
+        } finally {
+            this.invalidateReadCache();
+        }
     }
 
     @Override
     public void quit() {
         log.trace("quit()");
-        this.underlyingDriver.quit();
+        try {
+            this.underlyingDriver.quit();
+        } finally {
+            this.invalidateReadCache();
+            CommandQueue commandQueue = this.getCommandQueue();
+            if (commandQueue != null) {
+                commandQueue.close();
+            }
+        }
     }
 
     @Override
@@ -165,19 +932,29 @@ public class ExtendedRemoteWebDriver implements WebDriver, WrapsDriver,
     @Override
     public TargetLocator switchTo() {
         log.trace("switchTo()");
+        this.scriptRegistry.documentChanged();
+        // Reads may be of another document once switched
+        this.invalidateReadCache();
         return this.underlyingDriver.switchTo();
     }
 
     @Override
     public Navigation navigate() {
         log.trace("navigate()");
+        this.scriptRegistry.documentChanged();
+        this.invalidateReadCache();
         return this.underlyingDriver.navigate();
     }
 
+    /**
+     * @return The options of the underlying driver, through which the script
+     *         timeout set is kept track of (so that waits can raise it, and set
+     *         it back afterwards).
+     */
     @Override
     public Options manage() {
         log.trace("manage()");
-        return this.underlyingDriver.manage();
+        return new TrackedOptions(this.underlyingDriver.manage());
     }
 
     @Override
@@ -266,56 +1043,301 @@ public class ExtendedRemoteWebDriver implements WebDriver, WrapsDriver,
         return this.underlyingDriver.getCapabilities();
     }
 
+    /**
+     * @return The keyboard of the underlying driver, invalidating the read
+     *         cache whenever it is used (e.g.: by Actions performed later).
+     */
     @Override
     public Keyboard getKeyboard() {
         log.trace("getKeyboard()");
-        return this.underlyingDriver.getKeyboard();
+        return new InvalidatingKeyboard(this.underlyingDriver.getKeyboard());
     }
 
+    /**
+     * @return The mouse of the underlying driver, invalidating the read cache
+     *         whenever it is used (e.g.: by Actions performed later).
+     */
     @Override
     public Mouse getMouse() {
         log.trace("getMouse()");
-        return this.underlyingDriver.getMouse();
+        return new InvalidatingMouse(this.underlyingDriver.getMouse());
     }
 
     @Override
     public Object executeScript(String script, Object... args) {
         log.trace("executeScript({}, {})", script, args);
-        return this.underlyingDriver.executeScript(script, args);
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            Object result = this.underlyingDriver.executeScript(script, args);
+            succeeded = true;
+            return result;
+        } finally {
+            this.invalidateReadCache();
+            this.recordCommand(COMMAND_EXECUTE_SCRIPT, start, succeeded);
+        }
     }
 
     @Override
     public Object executeAsyncScript(String script, Object... args) {
         log.trace("executeAsyncScript({}, {})", script, args);
-        return this.underlyingDriver.executeAsyncScript(script, args);
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            this.restoreScriptTimeout();
+            Object result = this.underlyingDriver.executeAsyncScript(script,
+                    args);
+            succeeded = true;
+            return result;
+        } finally {
+            this.invalidateReadCache();
+            this.recordCommand(COMMAND_EXECUTE_ASYNC_SCRIPT, start, succeeded);
+        }
+    }
+
+    /**
+     * Calls a helper of the script registry, which is installed in the page
+     * along with the call if needed.
+     *
+     * @param helper Helper name.
+     * @param args Arguments of the helper.
+     * @return What the helper returned, as executeScript would.
+     * @see ScriptRegistry#call(String, Object...)
+     */
+    public Object callScript(String helper, Object... args) {
+        log.trace("callScript({}, {})", helper, args);
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            Object result = this.scriptRegistry.call(helper, args);
+            succeeded = true;
+            return result;
+        } finally {
+            if (!READ_ONLY_HELPERS.contains(helper)) {
+                this.invalidateReadCache();
+            }
+            this.recordCommand(COMMAND_CALL_SCRIPT, start, succeeded);
+        }
+    }
+
+    /**
+     * Calls an asynchronous helper of the script registry, which is installed
+     * in the page along with the call if needed.
+     *
+     * @param helper Helper name.
+     * @param args Arguments of the helper (the callback goes after them).
+     * @return What the helper called back with, as executeAsyncScript would.
+     * @see ScriptRegistry#callAsync(String, Object...)
+     */
+    public Object callAsyncScript(String helper, Object... args) {
+        log.trace("callAsyncScript({}, {})", helper, args);
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            this.restoreScriptTimeout();
+            Object result = this.scriptRegistry.callAsync(helper, args);
+            succeeded = true;
+            return result;
+        } finally {
+            if (!READ_ONLY_HELPERS.contains(helper)) {
+                this.invalidateReadCache();
+            }
+            this.recordCommand(COMMAND_CALL_ASYNC_SCRIPT, start, succeeded);
+        }
     }
 
     @Override
     public <X> X getScreenshotAs(OutputType<X> target)
             throws WebDriverException {
         log.trace("getScreenshotAs({})", target);
-        return this.underlyingDriver.getScreenshotAs(target);
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            X screenshot = this.underlyingDriver.getScreenshotAs(target);
+            succeeded = true;
+            return screenshot;
+        } finally {
+            this.recordCommand(COMMAND_SCREENSHOT, start, succeeded);
+        }
     }
 
     public File takeScreenshot(String filename) throws IOException {
         return this.takeScreenshot(new File(filename));
     }
 
-    public File takeScreenshot(File outputScreenshot) throws IOException {
-        OutputStream stream = null;
+    /**
+     * @return Where {@link #recordScreenshot(String)} keeps screenshots, or
+     *         null if it does not.
+     */
+    public ScreenshotRing getScreenshotRing() {
+        return this.screenshotRing;
+    }
+
+    /**
+     * @param screenshotRing Where {@link #recordScreenshot(String)} keeps
+     *            screenshots (e.g.: one per step), or null not to take them.
+     */
+    public void setScreenshotRing(ScreenshotRing screenshotRing) {
+        this.screenshotRing = screenshotRing;
+    }
+
+    /**
+     * @return Writer {@link #takeScreenshot(File)} writes screenshots with,
+     *         or null if it writes them itself.
+     */
+    public ScreenshotWriter getScreenshotWriter() {
+        return this.screenshotWriter;
+    }
+
+    /**
+     * @param screenshotWriter Writer for {@link #takeScreenshot(File)} to
+     *            write screenshots with (closed by its owner), or null for it
+     *            to write them itself.
+     */
+    public void setScreenshotWriter(ScreenshotWriter screenshotWriter) {
+        this.screenshotWriter = screenshotWriter;
+    }
+
+    /**
+     * Takes a screenshot into the screenshot ring, if any, to be written only
+     * if {@link #flushScreenshots(File)} is called before it is overwritten.
+     *
+     * @param label What the screenshot shows (part of its file name).
+     * @return Whether the screenshot was kept.
+     */
+    public boolean recordScreenshot(String label) {
+        log.trace("recordScreenshot({})", label);
+        ScreenshotRing ring = this.screenshotRing;
+        if (ring == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        boolean succeeded = false;
         try {
-            stream = new FileOutputStream(outputScreenshot);
-            stream.write(this.getScreenshotAs(OutputType.BYTES));
+            boolean kept = ring.capture(this.underlyingDriver, label);
+            succeeded = true;
+            return kept;
         } finally {
-            if (stream != null) {
-                try {
-                    stream.close();
-                } catch (IOException exception) {
-                    // Nothing sane to do
-                }
+            this.recordCommand(COMMAND_SCREENSHOT_RING, start, succeeded);
+        }
+    }
+
+    /**
+     * Writes the screenshots of the screenshot ring, if any (e.g.: at a
+     * checkpoint), and empties it.
+     *
+     * @param directory Directory to write them to.
+     * @return Files written.
+     */
+    public List<File> flushScreenshots(File directory) throws IOException {
+        log.trace("flushScreenshots({})", directory);
+        ScreenshotRing ring = this.screenshotRing;
+        return ring == null ? Collections.<File> emptyList() : ring
+                .flush(directory);
+    }
+
+    /**
+     * Takes a last screenshot, if the session still can, and writes the
+     * screenshots of the screenshot ring, if any. Meant to be called when a
+     * test fails.
+     *
+     * @param directory Directory to write them to.
+     * @return Files written.
+     */
+    public List<File> flushScreenshotsOnFailure(File directory)
+            throws IOException {
+        try {
+            this.recordScreenshot(FAILURE_LABEL);
+        } catch (WebDriverException exception) {
+            log.warn("Could not take the failure screenshot", exception);
+        }
+        return this.flushScreenshots(directory);
+    }
+
+    /**
+     * Takes a screenshot and writes it, blocking until written: through the
+     * screenshot writer, if any (so it is deduplicated and decoded while
+     * written); otherwise, right away.
+     *
+     * @param outputScreenshot File to write.
+     * @return The file written.
+     * @see #setScreenshotWriter(ScreenshotWriter)
+     */
+    public File takeScreenshot(File outputScreenshot) throws IOException {
+        log.trace("takeScreenshot({})", outputScreenshot);
+        ScreenshotWriter writer = this.screenshotWriter;
+        if (writer == null) {
+            byte[] png = this.getScreenshotAs(OutputType.BYTES);
+            try (OutputStream stream = new FileOutputStream(outputScreenshot)) {
+                stream.write(png);
             }
+            return outputScreenshot;
+        }
+        Future<File> written = writer.writeBase64(
+                this.getScreenshotAs(OutputType.BASE64), outputScreenshot);
+        try {
+            return written.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException(
+                    "Interrupted while writing a screenshot", exception);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new WebDriverException(cause);
+        }
+    }
+
+    /**
+     * Takes a screenshot of the whole page, scrolling it one viewport at a
+     * time, and writes it as it is taken (so only one viewport is held in
+     * memory).
+     *
+     * @param outputScreenshot File to write (PNG).
+     * @return The file written.
+     * @see StitchedScreenshot
+     */
+    public File takeFullPageScreenshot(File outputScreenshot)
+            throws IOException {
+        log.trace("takeFullPageScreenshot({})", outputScreenshot);
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            File file = StitchedScreenshot.capturePage(this, outputScreenshot);
+            succeeded = true;
+            return file;
+        } finally {
+            this.recordCommand(COMMAND_SCREENSHOT_FULL_PAGE, start, succeeded);
+        }
+    }
+
+    /**
+     * Takes a screenshot of the region of an element, all of it (scrolling if
+     * it is taller than the viewport), and writes it as it is taken.
+     *
+     * @param element Element to capture.
+     * @param outputScreenshot File to write (PNG).
+     * @return The file written.
+     * @see StitchedScreenshot
+     */
+    public File takeScreenshot(WebElement element, File outputScreenshot)
+            throws IOException {
+        log.trace("takeScreenshot({}, {})", element, outputScreenshot);
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            File file = StitchedScreenshot.captureElement(this, element,
+                    outputScreenshot);
+            succeeded = true;
+            return file;
+        } finally {
+            this.recordCommand(COMMAND_SCREENSHOT_ELEMENT, start, succeeded);
         }
-        return outputScreenshot;
     }
 
     @Override
@@ -326,6 +1348,213 @@ public class ExtendedRemoteWebDriver implements WebDriver, WrapsDriver,
 
     public void scrollIntoView(WebElement element) {
         log.trace("scrollIntoView({})", element);
-        this.executeScript("arguments[0].scrollIntoView();", element);
+        this.callScript(ScriptRegistry.SCROLL_INTO_VIEW, element);
+    }
+
+    /**
+     * Options that keep track of the script timeout set.
+     */
+    private class TrackedOptions implements Options {
+        private final Options delegate;
+
+        private TrackedOptions(Options delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+            this.delegate.addCookie(cookie);
+        }
+
+        @Override
+        public void deleteCookieNamed(String name) {
+            this.delegate.deleteCookieNamed(name);
+        }
+
+        @Override
+        public void deleteCookie(Cookie cookie) {
+            this.delegate.deleteCookie(cookie);
+        }
+
+        @Override
+        public void deleteAllCookies() {
+            this.delegate.deleteAllCookies();
+        }
+
+        @Override
+        public Set<Cookie> getCookies() {
+            return this.delegate.getCookies();
+        }
+
+        @Override
+        public Cookie getCookieNamed(String name) {
+            return this.delegate.getCookieNamed(name);
+        }
+
+        @Override
+        public Timeouts timeouts() {
+            return new TrackedTimeouts(this.delegate.timeouts());
+        }
+
+        @Override
+        public ImeHandler ime() {
+            return this.delegate.ime();
+        }
+
+        @Override
+        public Window window() {
+            return this.delegate.window();
+        }
+
+        @Override
+        public Logs logs() {
+            return this.delegate.logs();
+        }
+    }
+
+    /**
+     * Timeouts that keep track of the script timeout set.
+     */
+    private class TrackedTimeouts implements Timeouts {
+        private final Timeouts delegate;
+
+        private TrackedTimeouts(Timeouts delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Timeouts implicitlyWait(long time, TimeUnit unit) {
+            this.delegate.implicitlyWait(time, unit);
+            return this;
+        }
+
+        @Override
+        public Timeouts setScriptTimeout(long time, TimeUnit unit) {
+            long timeoutMillis = time < 0 ? -1 : unit.toMillis(time);
+            ExtendedRemoteWebDriver.this.scriptTimeoutMillis = UNKNOWN_SCRIPT_TIMEOUT;
+            this.delegate.setScriptTimeout(time, unit);
+            ExtendedRemoteWebDriver.this.userScriptTimeoutMillis = timeoutMillis;
+            ExtendedRemoteWebDriver.this.scriptTimeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        @Override
+        public Timeouts pageLoadTimeout(long time, TimeUnit unit) {
+            this.delegate.pageLoadTimeout(time, unit);
+            return this;
+        }
+    }
+
+    /**
+     * Keyboard that invalidates the read cache after every use.
+     */
+    private class InvalidatingKeyboard implements Keyboard {
+        private final Keyboard delegate;
+
+        private InvalidatingKeyboard(Keyboard delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void sendKeys(CharSequence... keysToSend) {
+            try {
+                this.delegate.sendKeys(keysToSend);
+            } finally {
+                ExtendedRemoteWebDriver.this.invalidateReadCache();
+            }
+        }
+
+        @Override
+        public void pressKey(CharSequence keyToPress) {
+            try {
+                this.delegate.pressKey(keyToPress);
+            } finally {
+                ExtendedRemoteWebDriver.this.invalidateReadCache();
+            }
+        }
+
+        @Override
+        public void releaseKey(CharSequence keyToRelease) {
+            try {
+                this.delegate.releaseKey(keyToRelease);
+            } finally {
+                ExtendedRemoteWebDriver.this.invalidateReadCache();
+            }
+        }
+    }
+
+    /**
+     * Mouse that invalidates the read cache after every use (moves included,
+     * as hovering may change the page).
+     */
+    private class InvalidatingMouse implements Mouse {
+        private final Mouse delegate;
+
+        private InvalidatingMouse(Mouse delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void click(Coordinates where) {
+            try {
+                this.delegate.click(where);
+            } finally {
+                ExtendedRemoteWebDriver.this.invalidateReadCache();
+            }
+        }
+
+        @Override
+        public void doubleClick(Coordinates where) {
+            try {
+                this.delegate.doubleClick(where);
+            } finally {
+                ExtendedRemoteWebDriver.this.invalidateReadCache();
+            }
+        }
+
+        @Override
+        public void mouseDown(Coordinates where) {
+            try {
+                this.delegate.mouseDown(where);
+            } finally {
+                ExtendedRemoteWebDriver.this.invalidateReadCache();
+            }
+        }
+
+        @Override
+        public void mouseUp(Coordinates where) {
+            try {
+                this.delegate.mouseUp(where);
+            } finally {
+                ExtendedRemoteWebDriver.this.invalidateReadCache();
+            }
+        }
+
+        @Override
+        public void mouseMove(Coordinates where) {
+            try {
+                this.delegate.mouseMove(where);
+            } finally {
+                ExtendedRemoteWebDriver.this.invalidateReadCache();
+            }
+        }
+
+        @Override
+        public void mouseMove(Coordinates where, long xOffset, long yOffset) {
+            try {
+                this.delegate.mouseMove(where, xOffset, yOffset);
+            } finally {
+                ExtendedRemoteWebDriver.this.invalidateReadCache();
+            }
+        }
+
+        @Override
+        public void contextClick(Coordinates where) {
+            try {
+                this.delegate.contextClick(where);
+            } finally {
+                ExtendedRemoteWebDriver.this.invalidateReadCache();
+            }
+        }
     }
 }
@@ -0,0 +1,464 @@
+package com.olenick.selenium.drivers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.validation.constraints.NotNull;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.CommandInfo;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.olenick.selenium.metrics.CommandMetrics;
+
+/**
+ * HTTP transport for the commands of remote sessions (e.g.: to a grid hub):
+ * a pool of persistent (keep-alive) connections, with TCP_NODELAY, shared by
+ * every session created on it, and bounded connect and socket timeouts and
+ * response sizes.
+ * <p>
+ * Usage: <code>new RemoteWebDriver(transport.newCommandExecutor(url),
+ * capabilities)</code>, or through a {@link RemoteDriverFactory}. The round
+ * trip of each command is recorded, as "wire.&lt;command name&gt;", in the
+ * command metrics of the transport, if any.
+ * </p>
+ * <p>
+ * To be configured before the first session is created on it, and closed once
+ * its sessions are quit.
+ * </p>
+ */
+public class HttpTransport implements HttpClient.Factory, Closeable {
+    private static final Logger log = LoggerFactory
+            .getLogger(HttpTransport.class);
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 64;
+    public static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+    // Commands may block for long (e.g.: async scripts, page loads)
+    public static final long DEFAULT_SOCKET_TIMEOUT_MILLIS = 600000;
+    // Below the usual keep-alive timeouts of servers (e.g.: 30 s)
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 20000;
+    // Full-page screenshots are the largest responses
+    public static final int DEFAULT_MAX_RESPONSE_BYTES = 256 * 1024 * 1024;
+    private static final String COMMAND_PREFIX = "wire.";
+    private static final String CONTENT_LENGTH = "Content-Length";
+    private static final String LOCATION = "Location";
+    private static final int MAX_REDIRECTS = 10;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final long IDLE_CHECK_INTERVAL_NANOS = TimeUnit.SECONDS
+            .toNanos(1);
+
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private long connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+    private long socketTimeoutMillis = DEFAULT_SOCKET_TIMEOUT_MILLIS;
+    private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+    private int maxResponseBytes = DEFAULT_MAX_RESPONSE_BYTES;
+    private volatile CommandMetrics commandMetrics;
+    private final AtomicLong lastIdleCheck = new AtomicLong(System.nanoTime());
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient client;
+    private boolean closed = false;
+
+    /**
+     * @param maxConnections Maximum number of connections (default: 64), to
+     *            each server.
+     * @return This transport.
+     */
+    public HttpTransport maxConnections(final int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException(
+                    "Maximum connections must be positive: " + maxConnections);
+        }
+        this.checkNotStarted();
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * @param timeout Maximum time to connect, or to wait for a free
+     *            connection (default: 10 seconds).
+     * @param unit Unit of the timeout.
+     * @return This transport.
+     */
+    public HttpTransport connectTimeout(final long timeout,
+            @NotNull final TimeUnit unit) {
+        this.checkNotStarted();
+        this.connectTimeoutMillis = timeoutMillis(timeout, unit);
+        return this;
+    }
+
+    /**
+     * @param timeout Maximum time without receiving data, while waiting for a
+     *            response (default: 10 minutes).
+     * @param unit Unit of the timeout.
+     * @return This transport.
+     */
+    public HttpTransport socketTimeout(final long timeout,
+            @NotNull final TimeUnit unit) {
+        this.checkNotStarted();
+        this.socketTimeoutMillis = timeoutMillis(timeout, unit);
+        return this;
+    }
+
+    /**
+     * @param timeout Time after which idle connections are closed (default:
+     *            20 seconds), before the server closes them while they are
+     *            being reused.
+     * @param unit Unit of the timeout.
+     * @return This transport.
+     */
+    public HttpTransport idleTimeout(final long timeout,
+            @NotNull final TimeUnit unit) {
+        this.checkNotStarted();
+        this.idleTimeoutMillis = timeoutMillis(timeout, unit);
+        return this;
+    }
+
+    /**
+     * @param maxResponseBytes Maximum size of a response (default: 256 MB);
+     *            larger ones fail.
+     * @return This transport.
+     */
+    public HttpTransport maxResponseBytes(final int maxResponseBytes) {
+        if (maxResponseBytes <= 0) {
+            throw new IllegalArgumentException(
+                    "Maximum response size must be positive: "
+                            + maxResponseBytes);
+        }
+        this.checkNotStarted();
+        this.maxResponseBytes = maxResponseBytes;
+        return this;
+    }
+
+    /**
+     * @return Where the round trips of the commands are recorded, or null if
+     *         they are not.
+     */
+    public CommandMetrics getCommandMetrics() {
+        return this.commandMetrics;
+    }
+
+    /**
+     * @param commandMetrics Where to record the round trips of the commands
+     *            (e.g.: {@link CommandMetrics#global()}), or null not to
+     *            record them.
+     */
+    public void setCommandMetrics(CommandMetrics commandMetrics) {
+        this.commandMetrics = commandMetrics;
+    }
+
+    /**
+     * @param remoteAddress Address of the server (e.g.:
+     *            http://hub:4444/wd/hub).
+     * @return An executor sending commands to it through this transport.
+     */
+    public CommandExecutor newCommandExecutor(@NotNull final URL remoteAddress) {
+        return new TimedCommandExecutor(new HttpCommandExecutor(
+                Collections.<String, CommandInfo> emptyMap(), remoteAddress,
+                this));
+    }
+
+    @Override
+    public HttpClient createClient(@NotNull final URL url) {
+        log.trace("createClient({})", url);
+        this.client();
+        return new Client(url);
+    }
+
+    /**
+     * Closes the connections that have been idle for longer than the idle
+     * timeout (also done, at most once a second, before each request).
+     */
+    public void cleanupIdleClients() {
+        PoolingHttpClientConnectionManager connectionManager;
+        synchronized (this) {
+            connectionManager = this.connectionManager;
+        }
+        if (connectionManager != null) {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(this.idleTimeoutMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Closes the connections: requests made afterwards fail.
+     */
+    @Override
+    public void close() throws IOException {
+        CloseableHttpClient client;
+        synchronized (this) {
+            this.closed = true;
+            client = this.client;
+            this.client = null;
+            this.connectionManager = null;
+        }
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    private synchronized void checkNotStarted() {
+        if (this.client != null || this.closed) {
+            throw new IllegalStateException(
+                    "Transport already in use: configure it before creating sessions");
+        }
+    }
+
+    /**
+     * @return The client, created on first use.
+     */
+    private synchronized CloseableHttpClient client() {
+        if (this.closed) {
+            throw new IllegalStateException("Transport closed");
+        }
+        if (this.client == null) {
+            this.connectionManager = new PoolingHttpClientConnectionManager();
+            this.connectionManager.setMaxTotal(this.maxConnections);
+            this.connectionManager.setDefaultMaxPerRoute(this.maxConnections);
+            this.connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+                    .setTcpNoDelay(true).setSoKeepAlive(true)
+                    .setSoTimeout((int) this.socketTimeoutMillis).build());
+            this.client = HttpClients
+                    .custom()
+                    .setConnectionManager(this.connectionManager)
+                    .setDefaultRequestConfig(
+                            RequestConfig
+                                    .custom()
+                                    .setConnectTimeout(
+                                            (int) this.connectTimeoutMillis)
+                                    .setConnectionRequestTimeout(
+                                            (int) this.connectTimeoutMillis)
+                                    .setSocketTimeout(
+                                            (int) this.socketTimeoutMillis)
+                                    .build())
+                    // Followed by the client, when asked to
+                    .disableRedirectHandling().disableCookieManagement()
+                    .build();
+        }
+        return this.client;
+    }
+
+    private void checkIdleConnections() {
+        long now = System.nanoTime();
+        long last = this.lastIdleCheck.get();
+        if (now - last >= IDLE_CHECK_INTERVAL_NANOS
+                && this.lastIdleCheck.compareAndSet(last, now)) {
+            this.cleanupIdleClients();
+        }
+    }
+
+    private static long timeoutMillis(long timeout, TimeUnit unit) {
+        long millis = unit.toMillis(timeout);
+        if (millis <= 0 || millis > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid timeout: " + timeout
+                    + " " + unit);
+        }
+        return millis;
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == 301 || status == 302 || status == 303
+                || keepsMethod(status);
+    }
+
+    /**
+     * @return Whether the redirected request is to be re-sent with the same
+     *         method and body (307 and 308), rather than as a GET.
+     */
+    private static boolean keepsMethod(int status) {
+        return status == 307 || status == 308;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("HttpTransport{");
+        sb.append("maxConnections=").append(this.maxConnections);
+        sb.append(", connectTimeoutMillis=").append(this.connectTimeoutMillis);
+        sb.append(", socketTimeoutMillis=").append(this.socketTimeoutMillis);
+        sb.append(", idleTimeoutMillis=").append(this.idleTimeoutMillis);
+        sb.append(", maxResponseBytes=").append(this.maxResponseBytes);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Client of a server, on the connections of the transport.
+     */
+    private class Client implements HttpClient {
+        private final String baseUrl;
+
+        private Client(URL url) {
+            this.baseUrl = url.toExternalForm().replaceAll("/$", "");
+        }
+
+        @Override
+        public HttpResponse execute(@NotNull final HttpRequest request,
+                final boolean followRedirects) throws IOException {
+            HttpTransport.this.checkIdleConnections();
+            HttpRequestBase httpRequest = this.toHttpRequest(request,
+                    URI.create(this.baseUrl + request.getUri()));
+            // Request re-sent as is on a 307/308, null once switched to GET
+            HttpRequest resent = request;
+            for (int redirects = 0;; ++redirects) {
+                HttpResponse response = this.send(httpRequest);
+                int status = response.getStatus();
+                String location = response.getHeader(LOCATION);
+                if (!followRedirects || location == null
+                        || !isRedirect(status)) {
+                    return response;
+                }
+                if (redirects >= MAX_REDIRECTS) {
+                    throw new IOException("Too many redirects, last to "
+                            + location);
+                }
+                log.trace("Redirected ({}) to {}", status, location);
+                URI target = httpRequest.getURI().resolve(location);
+                if (resent != null && keepsMethod(status)) {
+                    httpRequest = this.toHttpRequest(resent, target);
+                } else {
+                    resent = null;
+                    httpRequest = new HttpGet(target);
+                }
+            }
+        }
+
+        /**
+         * Does nothing: the connections belong to the transport.
+         */
+        public void close() throws IOException {
+            // Closed along with the transport
+        }
+
+        private HttpRequestBase toHttpRequest(HttpRequest request, URI uri) {
+            HttpRequestBase httpRequest;
+            if (request.getMethod() == HttpMethod.GET) {
+                httpRequest = new HttpGet(uri);
+            } else if (request.getMethod() == HttpMethod.DELETE) {
+                httpRequest = new HttpDelete(uri);
+            } else {
+                HttpPost post = new HttpPost(uri);
+                byte[] content = request.getContent();
+                if (content != null) {
+                    post.setEntity(new ByteArrayEntity(content));
+                }
+                httpRequest = post;
+            }
+            for (String name : request.getHeaderNames()) {
+                // Set along with the content
+                if (!CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                    for (String value : request.getHeaders(name)) {
+                        httpRequest.addHeader(name, value);
+                    }
+                }
+            }
+            return httpRequest;
+        }
+
+        private HttpResponse send(HttpRequestBase httpRequest)
+                throws IOException {
+            try (CloseableHttpResponse httpResponse = HttpTransport.this
+                    .client().execute(httpRequest)) {
+                HttpResponse response = new HttpResponse();
+                response.setStatus(httpResponse.getStatusLine()
+                        .getStatusCode());
+                for (Header header : httpResponse.getAllHeaders()) {
+                    response.addHeader(header.getName(), header.getValue());
+                }
+                response.setContent(this.readContent(httpRequest,
+                        httpResponse.getEntity()));
+                return response;
+            }
+        }
+
+        private byte[] readContent(HttpRequestBase httpRequest,
+                HttpEntity entity) throws IOException {
+            if (entity == null) {
+                return new byte[0];
+            }
+            int maxBytes = HttpTransport.this.maxResponseBytes;
+            long length = entity.getContentLength();
+            if (length > maxBytes) {
+                httpRequest.abort();
+                throw new IOException("Response too large: " + length
+                        + " bytes (maximum: " + maxBytes + ")");
+            }
+            ByteArrayOutputStream content = new ByteArrayOutputStream(
+                    length > 0 ? (int) length : BUFFER_SIZE);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            InputStream input = entity.getContent();
+            try {
+                int read;
+                while ((read = input.read(buffer)) >= 0) {
+                    if (content.size() + read > maxBytes) {
+                        // Not worth reading the rest to reuse the connection
+                        httpRequest.abort();
+                        throw new IOException(
+                                "Response too large: over " + maxBytes
+                                        + " bytes");
+                    }
+                    content.write(buffer, 0, read);
+                }
+            } finally {
+                input.close();
+            }
+            return content.toByteArray();
+        }
+    }
+
+    /**
+     * Executor recording the round trip of each command.
+     */
+    private class TimedCommandExecutor implements CommandExecutor {
+        private final CommandExecutor delegate;
+
+        private TimedCommandExecutor(CommandExecutor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Response execute(Command command) throws IOException {
+            CommandMetrics commandMetrics = HttpTransport.this.commandMetrics;
+            if (commandMetrics == null) {
+                return this.delegate.execute(command);
+            }
+            long start = System.nanoTime();
+            boolean succeeded = false;
+            try {
+                Response response = this.delegate.execute(command);
+                succeeded = true;
+                return response;
+            } finally {
+                commandMetrics.record(COMMAND_PREFIX + command.getName(),
+                        start, succeeded);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.olenick.selenium.drivers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.RemoteWebElement;
+
+/**
+ * Element handed out as is by an {@link ExtendedRemoteWebDriver} (e.g.: by
+ * findElement): the same remote element (same id, so equal to it, and sent to
+ * scripts as it), whose commands that may change the page (click, submit,
+ * sendKeys, clear) invalidate the read cache of the driver, as those of
+ * ExtendedWebElement do. Elements found from it are wrapped as well.
+ * <p>
+ * Only plain RemoteWebElements are wrapped: subclasses (e.g.: of other
+ * drivers) are handed out unchanged.
+ * </p>
+ */
+class InvalidatingWebElement extends RemoteWebElement {
+    private final ExtendedRemoteWebDriver driver;
+    private final String description;
+
+    private InvalidatingWebElement(ExtendedRemoteWebDriver driver,
+            RemoteWebElement element) {
+        RemoteWebDriver parent = (RemoteWebDriver) element.getWrappedDriver();
+        this.driver = driver;
+        this.description = element.toString();
+        this.setParent(parent);
+        this.setId(element.getId());
+        this.setFileDetector(parent.getFileDetector());
+    }
+
+    /**
+     * @param driver Driver whose read cache is to be invalidated.
+     * @param found Element, list of elements, or anything else found.
+     * @return What was found, with its remote elements wrapped.
+     */
+    static Object wrap(ExtendedRemoteWebDriver driver, Object found) {
+        if (found instanceof WebElement) {
+            return wrap(driver, (WebElement) found);
+        }
+        if (found instanceof List) {
+            List<Object> wrapped = new ArrayList<>(((List<?>) found).size());
+            for (Object element : (List<?>) found) {
+                wrapped.add(wrap(driver, element));
+            }
+            return wrapped;
+        }
+        return found;
+    }
+
+    static WebElement wrap(ExtendedRemoteWebDriver driver, WebElement element) {
+        if (element == null || element.getClass() != RemoteWebElement.class) {
+            return element;
+        }
+        return new InvalidatingWebElement(driver, (RemoteWebElement) element);
+    }
+
+    static List<WebElement> wrap(ExtendedRemoteWebDriver driver,
+            List<WebElement> elements) {
+        List<WebElement> wrapped = new ArrayList<>(elements.size());
+        for (WebElement element : elements) {
+            wrapped.add(wrap(driver, element));
+        }
+        return wrapped;
+    }
+
+    @Override
+    public void click() {
+        try {
+            super.click();
+        } finally {
+            this.driver.invalidateReadCache();
+        }
+    }
+
+    @Override
+    public void submit() {
+        try {
+            super.submit();
+        } finally {
+            this.driver.invalidateReadCache();
+        }
+    }
+
+    @Override
+    public void sendKeys(CharSequence... keysToSend) {
+        try {
+            super.sendKeys(keysToSend);
+        } finally {
+            this.driver.invalidateReadCache();
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            super.clear();
+        } finally {
+            this.driver.invalidateReadCache();
+        }
+    }
+
+    @Override
+    protected WebElement findElement(String using, String value) {
+        return wrap(this.driver, super.findElement(using, value));
+    }
+
+    @Override
+    protected List<WebElement> findElements(String using, String value) {
+        return wrap(this.driver, super.findElements(using, value));
+    }
+
+    @Override
+    public String toString() {
+        return this.description;
+    }
+}
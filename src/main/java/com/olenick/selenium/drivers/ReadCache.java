@@ -0,0 +1,219 @@
+package com.olenick.selenium.drivers;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Null;
+
+import com.olenick.selenium.metrics.StripedCounter;
+
+/**
+ * Cache of the reads of a session (e.g.: the text or an attribute of an
+ * element), kept until the next command that may change the page (a click,
+ * typing, navigating, running a script...) or, optionally, until they are too
+ * old. Enabled per driver, with
+ * {@link ExtendedRemoteWebDriver#setReadCache(ReadCache)}.
+ * <p>
+ * Invalidation bumps an epoch: a read that started before a change is not
+ * cached after it. Changes the driver is not told about (e.g.: made by the
+ * page itself, or through the underlying driver) are only caught by the
+ * maximum age (elements and input devices handed out by the driver, though,
+ * tell it when they click or type), or by the checkpoints of a
+ * {@link com.olenick.selenium.containers.ChangeTracker}; reads that must be
+ * fresh (e.g.: polled by a wait) are made within
+ * {@link ExtendedRemoteWebDriver#uncached(java.util.concurrent.Callable)},
+ * as the waits of the driver already are.
+ * </p>
+ */
+public class ReadCache {
+    // Entries are dropped beyond this many (reads of a step are far fewer)
+    private static final int MAX_ENTRIES = 10000;
+
+    private final long maxAgeNanos;
+    private final AtomicLong epoch = new AtomicLong();
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final StripedCounter hits = new StripedCounter();
+    private final StripedCounter misses = new StripedCounter();
+    private final StripedCounter invalidations = new StripedCounter();
+
+    /**
+     * Keeps reads until the next change.
+     */
+    public ReadCache() {
+        this(0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param maxAge Maximum age of the reads kept (0 for no maximum).
+     * @param unit Unit of the maximum age.
+     */
+    public ReadCache(final long maxAge, @NotNull final TimeUnit unit) {
+        if (maxAge < 0) {
+            throw new IllegalArgumentException("Negative maximum age: "
+                    + maxAge);
+        }
+        this.maxAgeNanos = unit.toNanos(maxAge);
+    }
+
+    /**
+     * Reads through the cache.
+     *
+     * @param target What is read (e.g.: an element), or null for the page.
+     * @param read What is read of it (e.g.: "attribute:href").
+     * @param loader Does the read, if not cached.
+     * @return The value read, or cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R read(@Null final Object target, @NotNull final String read,
+            @NotNull final Loader<R> loader) {
+        Key key = new Key(target, read);
+        long epoch = this.epoch.get();
+        Entry entry = this.entries.get(key);
+        if (entry != null && entry.epoch == epoch
+                && (this.maxAgeNanos == 0 || System.nanoTime()
+                        - entry.loadedNanos < this.maxAgeNanos)) {
+            this.hits.increment();
+            return (R) entry.value;
+        }
+        return this.load(key, epoch, loader);
+    }
+
+    /**
+     * Reads, bypassing the cache, and caches the value read.
+     *
+     * @param target What is read (e.g.: an element), or null for the page.
+     * @param read What is read of it (e.g.: "attribute:href").
+     * @param loader Does the read.
+     * @return The value read.
+     */
+    public <R> R reload(@Null final Object target, @NotNull final String read,
+            @NotNull final Loader<R> loader) {
+        return this.load(new Key(target, read), this.epoch.get(), loader);
+    }
+
+    /**
+     * Forgets every read kept (e.g.: the page may have changed).
+     */
+    public void invalidate() {
+        this.epoch.incrementAndGet();
+        this.entries.clear();
+        this.invalidations.increment();
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return Fraction of the reads served from the cache.
+     */
+    public double getHitRatio() {
+        long hits = this.getHits();
+        long total = hits + this.getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return Number of times the cache was invalidated.
+     */
+    public long getInvalidations() {
+        return this.invalidations.sum();
+    }
+
+    /**
+     * @return Number of reads kept (some may be stale).
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    public void resetCounts() {
+        this.hits.reset();
+        this.misses.reset();
+        this.invalidations.reset();
+    }
+
+    private <R> R load(Key key, long epoch, Loader<R> loader) {
+        this.misses.increment();
+        long loadedNanos = System.nanoTime();
+        R value = loader.load();
+        if (this.epoch.get() == epoch) {
+            if (this.entries.size() >= MAX_ENTRIES) {
+                this.entries.clear();
+            }
+            // Rejected on lookup if invalidated meanwhile
+            this.entries.put(key, new Entry(value, epoch, loadedNanos));
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ReadCache{");
+        sb.append("maxAgeNanos=").append(this.maxAgeNanos);
+        sb.append(", size=").append(this.size());
+        sb.append(", hits=").append(this.getHits());
+        sb.append(", misses=").append(this.getMisses());
+        sb.append(", invalidations=").append(this.getInvalidations());
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Read to do on a cache miss.
+     *
+     * @param <R> Type of the value read.
+     */
+    public interface Loader<R> {
+        R load();
+    }
+
+    private static class Key {
+        private final Object target;
+        private final String read;
+
+        private Key(Object target, String read) {
+            this.target = target;
+            this.read = read;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return this.read.equals(key.read)
+                    && (this.target == null ? key.target == null : this.target
+                            .equals(key.target));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (this.target == null ? 0 : this.target.hashCode())
+                    + this.read.hashCode();
+        }
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long epoch;
+        private final long loadedNanos;
+
+        private Entry(Object value, long epoch, long loadedNanos) {
+            this.value = value;
+            this.epoch = epoch;
+            this.loadedNanos = loadedNanos;
+        }
+    }
+}
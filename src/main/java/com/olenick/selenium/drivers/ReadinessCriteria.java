@@ -0,0 +1,86 @@
+package com.olenick.selenium.drivers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Conditions under which a page is considered settled.
+ * <p>
+ * A page is settled once the load event has fired (if required), there are no
+ * XHR/fetch requests in flight and none has finished during the network idle
+ * window, and the DOM has not changed during the DOM quiet window.
+ * </p>
+ *
+ * @see ExtendedRemoteWebDriver#waitForPageSettled(ReadinessCriteria)
+ */
+public class ReadinessCriteria {
+    public static final long DEFAULT_NETWORK_IDLE_MILLIS = 500;
+    public static final long DEFAULT_DOM_QUIET_MILLIS = 200;
+    public static final long DEFAULT_TIMEOUT_IN_SECONDS = 30;
+
+    private long networkIdleMillis = DEFAULT_NETWORK_IDLE_MILLIS;
+    private long domQuietMillis = DEFAULT_DOM_QUIET_MILLIS;
+    private boolean loadEventRequired = true;
+    private long timeoutInSeconds = DEFAULT_TIMEOUT_IN_SECONDS;
+
+    public long getNetworkIdleMillis() {
+        return this.networkIdleMillis;
+    }
+
+    public ReadinessCriteria withNetworkIdleMillis(long networkIdleMillis) {
+        this.networkIdleMillis = networkIdleMillis;
+        return this;
+    }
+
+    public long getDomQuietMillis() {
+        return this.domQuietMillis;
+    }
+
+    public ReadinessCriteria withDomQuietMillis(long domQuietMillis) {
+        this.domQuietMillis = domQuietMillis;
+        return this;
+    }
+
+    public boolean isLoadEventRequired() {
+        return this.loadEventRequired;
+    }
+
+    /**
+     * @param loadEventRequired Whether to wait for the load event. SPA pages
+     *            usually fire it long before they render, so the network and
+     *            DOM windows are what matter for them.
+     * @return This instance.
+     */
+    public ReadinessCriteria withLoadEventRequired(boolean loadEventRequired) {
+        this.loadEventRequired = loadEventRequired;
+        return this;
+    }
+
+    public long getTimeoutInSeconds() {
+        return this.timeoutInSeconds;
+    }
+
+    public ReadinessCriteria withTimeoutInSeconds(long timeoutInSeconds) {
+        this.timeoutInSeconds = timeoutInSeconds;
+        return this;
+    }
+
+    Map<String, Object> toScriptArgument() {
+        Map<String, Object> argument = new HashMap<>(4);
+        argument.put("networkIdle", this.networkIdleMillis);
+        argument.put("domQuiet", this.domQuietMillis);
+        argument.put("requireLoad", this.loadEventRequired);
+        return argument;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ReadinessCriteria{");
+        sb.append("networkIdleMillis=").append(networkIdleMillis);
+        sb.append(", domQuietMillis=").append(domQuietMillis);
+        sb.append(", loadEventRequired=").append(loadEventRequired);
+        sb.append(", timeoutInSeconds=").append(timeoutInSeconds);
+        sb.append('}');
+        return sb.toString();
+    }
+}
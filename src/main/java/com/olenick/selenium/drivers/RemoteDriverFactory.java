@@ -0,0 +1,99 @@
+package com.olenick.selenium.drivers;
+
+import java.net.URL;
+
+import javax.validation.constraints.NotNull;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.olenick.selenium.metrics.CommandMetrics;
+
+/**
+ * Creates sessions on a remote server (e.g.: a grid hub), sending their
+ * commands through an {@link HttpTransport}, optionally through a
+ * {@link CommandQueue} too (to share each session among threads).
+ */
+public class RemoteDriverFactory implements DriverFactory {
+    private static final Logger log = LoggerFactory
+            .getLogger(RemoteDriverFactory.class);
+
+    private final URL remoteAddress;
+    private final Capabilities capabilities;
+    private final HttpTransport transport;
+    private boolean queued = false;
+    private CommandMetrics commandMetrics;
+
+    /**
+     * @param remoteAddress Address of the server (e.g.:
+     *            http://hub:4444/wd/hub).
+     * @param capabilities Desired capabilities of the sessions.
+     * @param transport Transport of the commands (closed by its owner, once
+     *            the sessions are quit).
+     */
+    public RemoteDriverFactory(@NotNull final URL remoteAddress,
+            @NotNull final Capabilities capabilities,
+            @NotNull final HttpTransport transport) {
+        this.remoteAddress = remoteAddress;
+        this.capabilities = capabilities;
+        this.transport = transport;
+    }
+
+    /**
+     * @param queued Whether to send the commands of each session through a
+     *            command queue (default: false).
+     * @return This factory.
+     */
+    public RemoteDriverFactory queued(final boolean queued) {
+        this.queued = queued;
+        return this;
+    }
+
+    /**
+     * @param commandMetrics Where the sessions record their commands, or null
+     *            not to record them (default).
+     * @return This factory.
+     */
+    public RemoteDriverFactory commandMetrics(final CommandMetrics commandMetrics) {
+        this.commandMetrics = commandMetrics;
+        return this;
+    }
+
+    @Override
+    public ExtendedRemoteWebDriver newDriver() {
+        log.trace("newDriver(): {}", this.remoteAddress);
+        CommandExecutor executor = this.transport
+                .newCommandExecutor(this.remoteAddress);
+        CommandQueue commandQueue = null;
+        if (this.queued) {
+            executor = commandQueue = new CommandQueue(executor);
+        }
+        RemoteWebDriver driver;
+        try {
+            driver = new RemoteWebDriver(executor, this.capabilities);
+        } catch (RuntimeException exception) {
+            if (commandQueue != null) {
+                commandQueue.close();
+            }
+            throw exception;
+        }
+        ExtendedRemoteWebDriver extendedDriver = new ExtendedRemoteWebDriver(
+                driver);
+        extendedDriver.setCommandMetrics(this.commandMetrics);
+        return extendedDriver;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("RemoteDriverFactory{");
+        sb.append("remoteAddress=").append(this.remoteAddress);
+        sb.append(", capabilities=").append(this.capabilities);
+        sb.append(", transport=").append(this.transport);
+        sb.append(", queued=").append(this.queued);
+        sb.append('}');
+        return sb.toString();
+    }
+}
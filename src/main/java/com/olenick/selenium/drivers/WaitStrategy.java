@@ -0,0 +1,18 @@
+package com.olenick.selenium.drivers;
+
+/**
+ * Where ExtendedRemoteWebDriver polls while waiting for elements located by
+ * standard locators.
+ */
+public enum WaitStrategy {
+    /**
+     * Selenium's WebDriverWait: the JVM asks the browser every 500 ms.
+     */
+    CLIENT_POLLING,
+    /**
+     * The locator is pushed into the browser, which watches the DOM and calls
+     * back with the element the moment it satisfies the condition. Locators
+     * that cannot be evaluated by script fall back to client polling.
+     */
+    IN_BROWSER
+}
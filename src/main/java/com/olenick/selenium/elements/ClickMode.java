@@ -0,0 +1,28 @@
+package com.olenick.selenium.elements;
+
+/**
+ * How ExtendedWebElement performs clicks.
+ */
+public enum ClickMode {
+    /**
+     * Waits for the element to be clickable (displayed and enabled) before
+     * every click.
+     */
+    WAIT_FOR_CLICKABLE,
+    /**
+     * Clicks right away, and only waits for the element to be clickable (and
+     * retries) if the driver reports that it was not clickable, not visible or
+     * stale.
+     */
+    OPTIMISTIC,
+    /**
+     * Like {@link #OPTIMISTIC}, but when the element was reported not
+     * clickable (e.g.: out of view) or stale, the retry first scrolls it into
+     * view and clicks it within a single script. The script only clicks if the
+     * element is displayed, enabled and would receive the click at its centre
+     * (not covered by an overlay); otherwise, and when the element was
+     * reported not visible, it waits for the element to be clickable as
+     * {@link #OPTIMISTIC} does.
+     */
+    OPTIMISTIC_SCRIPTED
+}
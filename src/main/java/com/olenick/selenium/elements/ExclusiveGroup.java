@@ -22,6 +22,21 @@ public class ExclusiveGroup<E extends Enum<E>> {
         return this;
     }
 
+    /**
+     * @param key Key.
+     * @return The radio button that corresponds to the enum key.
+     * @throws NoSuchElementException if the radio button is not added to the
+     *             group.
+     */
+    public ExtendedWebElement get(@NotNull final E key) {
+        ExtendedWebElement clickable = this.clickables.get(key);
+        if (clickable == null) {
+            throw new NoSuchElementException("Group element for key " + key
+                    + " not found.");
+        }
+        return clickable;
+    }
+
     /**
      * Clicks on the radio button that corresponds to the enum key.
      * 
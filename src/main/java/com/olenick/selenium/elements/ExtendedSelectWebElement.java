@@ -1,29 +1,60 @@
 package com.olenick.selenium.elements;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Null;
 
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.Select;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.olenick.selenium.containers.WebContainer;
+import com.olenick.selenium.model.OptionSnapshot;
 import com.olenick.selenium.model.Valued;
+import com.olenick.selenium.scripts.ScriptRegistry;
 import com.olenick.selenium.util.SafeArrays;
 
 /**
  * Extended Web Element that has Select capabilities.
+ * <p>
+ * Unless the driver's select mode is {@link SelectMode#SELENIUM}, options are
+ * matched and (de)selected within a single script, instead of inspecting every
+ * option remotely. In that case, when some keys match no option, the options
+ * matching the other keys are (de)selected anyway before the
+ * NoSuchElementException is thrown.
+ * </p>
  * 
  * @see Select
+ * @see SelectMode
  */
 public class ExtendedSelectWebElement extends ExtendedWebElement {
     private static final Logger log = LoggerFactory
             .getLogger(ExtendedSelectWebElement.class);
 
+    private static final String COMMAND_SELECT = "element.select";
+    private static final String COMMAND_READ_OPTIONS = "element.readOptions";
+    private static final String MATCH_TEXT = "text";
+    private static final String MATCH_VALUE = "value";
+    private static final String MATCH_INDEX = "index";
+    private static final String MATCH_ALL = "all";
+    private static final String RESULT_MISSING = "missing";
+    private static final String RESULT_NOT_SELECT = "notSelect";
+    private static final String RESULT_NOT_MULTIPLE = "notMultiple";
+    private static final String RESULT_TOTAL = "total";
+    private static final String RESULT_OPTIONS = "options";
+    private static final String ATTRIBUTE_INDEX = "index";
+    private static final String ATTRIBUTE_VALUE = "value";
+
     protected Select select;
 
     public ExtendedSelectWebElement(@Null final WebContainer container) {
@@ -35,6 +66,11 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
         super(container, element);
     }
 
+    public ExtendedSelectWebElement(@NotNull final WebContainer container,
+            @NotNull final By locator, final boolean visible) {
+        super(container, locator, visible);
+    }
+
     /**
      * @return Whether this select element support selecting multiple options at
      *         the same time? This is done by checking the value of the
@@ -88,6 +124,70 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
                 .getFirstSelectedOption());
     }
 
+    /**
+     * @return Snapshots of all options belonging to this select tag, read
+     *         within a single call.
+     */
+    public List<OptionSnapshot> getOptionSnapshots() {
+        log.trace("getOptionSnapshots()");
+        return this.readOptions(0, Integer.MAX_VALUE, false).snapshots;
+    }
+
+    /**
+     * @param offset Position of the first option to read.
+     * @param limit Maximum number of options to read.
+     * @return Snapshots of a page of the options belonging to this select tag,
+     *         read within a single call.
+     */
+    public List<OptionSnapshot> getOptionSnapshots(final int offset,
+            final int limit) {
+        log.trace("getOptionSnapshots({}, {})", offset, limit);
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Invalid page: offset "
+                    + offset + ", limit " + limit);
+        }
+        return this.readOptions(offset, limit, false).snapshots;
+    }
+
+    /**
+     * Iterates over the options belonging to this select tag, reading them in
+     * pages, so that only a page of snapshots is held at a time. Options added
+     * or removed while iterating may be skipped or repeated.
+     *
+     * @param pageSize Number of options read per call.
+     * @return Snapshots of the options, read as the iteration goes.
+     */
+    public Iterable<OptionSnapshot> iterateOptionSnapshots(final int pageSize) {
+        log.trace("iterateOptionSnapshots({})", pageSize);
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: "
+                    + pageSize);
+        }
+        return new Iterable<OptionSnapshot>() {
+            @Override
+            public Iterator<OptionSnapshot> iterator() {
+                return new OptionSnapshotIterator(pageSize);
+            }
+        };
+    }
+
+    /**
+     * @return Snapshots of the selected options belonging to this select tag,
+     *         read within a single call.
+     */
+    public List<OptionSnapshot> getSelectedOptionSnapshots() {
+        log.trace("getSelectedOptionSnapshots()");
+        return this.readOptions(0, Integer.MAX_VALUE, true).snapshots;
+    }
+
+    /**
+     * @return Number of options belonging to this select tag.
+     */
+    public int getOptionCount() {
+        log.trace("getOptionCount()");
+        return this.readOptions(0, 0, false).total;
+    }
+
     /**
      * Select all options that display text matching the individual arguments.
      * That is, when given "Bar" this would select an option like: &lt;option
@@ -108,9 +208,11 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
      */
     public void selectByVisibleText(List<String> texts) {
         log.trace("selectByVisibleText({})", texts);
-        Select select = this.safeGetSelect();
-        for (String text : texts) {
-            select.selectByVisibleText(text);
+        if (!this.applyInBrowser(MATCH_TEXT, true, texts)) {
+            Select select = this.safeGetSelect();
+            for (String text : texts) {
+                select.selectByVisibleText(text);
+            }
         }
     }
 
@@ -132,9 +234,11 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
      */
     public void selectByIndex(List<Integer> indexes) {
         log.trace("selectByIndex({})", indexes);
-        Select select = this.safeGetSelect();
-        for (int index : indexes) {
-            select.selectByIndex(index);
+        if (!this.applyInBrowser(MATCH_INDEX, true, indexes)) {
+            Select select = this.safeGetSelect();
+            for (int index : indexes) {
+                select.selectByIndex(index);
+            }
         }
     }
 
@@ -158,9 +262,11 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
      */
     public void selectByValue(List<String> values) {
         log.trace("selectByValue({})", values);
-        Select select = this.safeGetSelect();
-        for (String value : values) {
-            select.selectByValue(value);
+        if (!this.applyInBrowser(MATCH_VALUE, true, values)) {
+            Select select = this.safeGetSelect();
+            for (String value : values) {
+                select.selectByValue(value);
+            }
         }
     }
 
@@ -173,9 +279,15 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
      */
     public void selectByValue(Valued<String>... valued) {
         log.trace("selectByValue({})", valued);
-        Select select = this.safeGetSelect();
+        List<String> values = new ArrayList<>(valued.length);
         for (Valued<String> aValued : valued) {
-            select.selectByValue(aValued.getValue());
+            values.add(aValued.getValue());
+        }
+        if (!this.applyInBrowser(MATCH_VALUE, true, values)) {
+            Select select = this.safeGetSelect();
+            for (String value : values) {
+                select.selectByValue(value);
+            }
         }
     }
 
@@ -199,7 +311,8 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
      */
     public void safeSelectByVisibleText(List<String> texts) {
         log.trace("safeSelectByVisibleText({})", texts);
-        if (texts != null) {
+        if (texts != null
+                && !this.applyInBrowser(MATCH_TEXT, true, withoutNulls(texts))) {
             Select select = this.safeGetSelect();
             for (String text : texts) {
                 if (text != null) {
@@ -227,7 +340,8 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
      */
     public void safeSelectByIndex(List<Integer> indexes) {
         log.trace("safeSelectByIndex({})", indexes);
-        if (indexes != null) {
+        if (indexes != null
+                && !this.applyInBrowser(MATCH_INDEX, true, withoutNulls(indexes))) {
             Select select = this.safeGetSelect();
             for (Integer index : indexes) {
                 if (index != null) {
@@ -257,7 +371,8 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
      */
     public void safeSelectByValue(List<String> values) {
         log.trace("safeSelectByValue({})", values);
-        if (values != null) {
+        if (values != null
+                && !this.applyInBrowser(MATCH_VALUE, true, withoutNulls(values))) {
             Select select = this.safeGetSelect();
             for (String value : values) {
                 if (value != null) {
@@ -277,10 +392,16 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
     public void safeSelectByValue(Valued<String>... valued) {
         log.trace("safeSelectByValue({})", valued);
         if (valued != null) {
-            Select select = this.safeGetSelect();
+            List<String> values = new ArrayList<>(valued.length);
             for (Valued<String> aValued : valued) {
                 if (aValued != null) {
-                    select.selectByValue(aValued.getValue());
+                    values.add(aValued.getValue());
+                }
+            }
+            if (!this.applyInBrowser(MATCH_VALUE, true, values)) {
+                Select select = this.safeGetSelect();
+                for (String value : values) {
+                    select.selectByValue(value);
                 }
             }
         }
@@ -295,7 +416,10 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
      */
     public void deselectAll() {
         log.trace("deselectAll()");
-        this.safeGetSelect().deselectAll();
+        if (!this.applyInBrowser(MATCH_ALL, false,
+                Collections.<Object> emptyList())) {
+            this.safeGetSelect().deselectAll();
+        }
     }
 
     /**
@@ -318,9 +442,11 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
      */
     public void deselectByValue(List<String> values) {
         log.trace("deselectByValue({})", values);
-        Select select = this.safeGetSelect();
-        for (String value : values) {
-            select.deselectByValue(value);
+        if (!this.applyInBrowser(MATCH_VALUE, false, values)) {
+            Select select = this.safeGetSelect();
+            for (String value : values) {
+                select.deselectByValue(value);
+            }
         }
     }
 
@@ -342,9 +468,11 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
      */
     public void deselectByIndex(List<Integer> indexes) {
         log.trace("deselectByIndex({})", indexes);
-        Select select = this.safeGetSelect();
-        for (int index : indexes) {
-            select.deselectByIndex(index);
+        if (!this.applyInBrowser(MATCH_INDEX, false, indexes)) {
+            Select select = this.safeGetSelect();
+            for (int index : indexes) {
+                select.deselectByIndex(index);
+            }
         }
     }
 
@@ -368,9 +496,11 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
      */
     public void deselectByVisibleText(List<String> texts) {
         log.trace("deselectByVisibleText({})", texts);
-        Select select = this.safeGetSelect();
-        for (String text : texts) {
-            select.deselectByVisibleText(text);
+        if (!this.applyInBrowser(MATCH_TEXT, false, texts)) {
+            Select select = this.safeGetSelect();
+            for (String text : texts) {
+                select.deselectByVisibleText(text);
+            }
         }
     }
 
@@ -394,7 +524,8 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
      */
     public void safeDeselectByValue(List<String> values) {
         log.trace("safeDeselectByValue({})", values);
-        if (values != null) {
+        if (values != null
+                && !this.applyInBrowser(MATCH_VALUE, false, withoutNulls(values))) {
             Select select = this.safeGetSelect();
             for (String value : values) {
                 if (value != null) {
@@ -422,7 +553,8 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
      */
     public void safeDeselectByIndex(List<Integer> indexes) {
         log.trace("safeDeselectByIndex({})", indexes);
-        if (indexes != null) {
+        if (indexes != null
+                && !this.applyInBrowser(MATCH_INDEX, false, withoutNulls(indexes))) {
             Select select = this.safeGetSelect();
             for (Integer index : indexes) {
                 if (index != null) {
@@ -452,7 +584,8 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
      */
     public void safeDeselectByVisibleText(List<String> texts) {
         log.trace("safeDeselectByVisibleText({})", texts);
-        if (texts != null) {
+        if (texts != null
+                && !this.applyInBrowser(MATCH_TEXT, false, withoutNulls(texts))) {
             Select select = this.safeGetSelect();
             for (String text : texts) {
                 if (text != null) {
@@ -462,6 +595,121 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
         }
     }
 
+    /**
+     * (De)selects, within a single script, the options matching the given
+     * keys.
+     *
+     * @param match What the keys are matched against.
+     * @param selected Whether to select (or deselect) the options.
+     * @param keys Keys to match.
+     * @return Whether it was done; false if the driver's select mode is
+     *         {@link SelectMode#SELENIUM}, or if the script could not do it, in
+     *         which case the caller must fall back to Select.
+     * @throws NoSuchElementException if some keys match no option.
+     * @throws UnsupportedOperationException if deselecting options of a single
+     *             select.
+     */
+    private boolean applyInBrowser(final String match, final boolean selected,
+            final List<?> keys) {
+        if (this.container == null) {
+            return false;
+        }
+        // Selected next, here or by the caller (through Select, which the
+        // driver is not told about)
+        this.container.getDriver().invalidateReadCache();
+        if (this.container.getDriver().getSelectMode() != SelectMode.SCRIPTED) {
+            return false;
+        }
+        WebElement element = this.safeGetUnderlyingWebElement();
+        if (keys.isEmpty() && !MATCH_ALL.equals(match)) {
+            return true;
+        }
+        Object result;
+        try {
+            result = new ElementCommand<Object>(COMMAND_SELECT) {
+                @Override
+                protected Object run(WebElement element) {
+                    return ExtendedSelectWebElement.this.container.getDriver()
+                            .callScript(ScriptRegistry.APPLY_SELECTION,
+                                    element, match, selected, keys);
+                }
+            }.execute(element);
+        } catch (StaleElementReferenceException exception) {
+            throw exception;
+        } catch (WebDriverException exception) {
+            log.trace("{}: scripted selection failed, using Select ({})",
+                    element, exception.getMessage());
+            return false;
+        }
+        if (!(result instanceof Map)) {
+            return false;
+        }
+        Map<?, ?> outcome = (Map<?, ?>) result;
+        if (Boolean.TRUE.equals(outcome.get(RESULT_NOT_SELECT))) {
+            return false;
+        }
+        if (Boolean.TRUE.equals(outcome.get(RESULT_NOT_MULTIPLE))) {
+            throw new UnsupportedOperationException(
+                    "You may only deselect options of a multi-select");
+        }
+        List<?> positions = (List<?>) outcome.get(RESULT_MISSING);
+        if (positions != null && !positions.isEmpty()) {
+            List<Object> missing = new ArrayList<>(positions.size());
+            for (Object position : positions) {
+                missing.add(keys.get(((Number) position).intValue()));
+            }
+            throw new NoSuchElementException("Cannot locate option with "
+                    + match + ": " + missing);
+        }
+        return true;
+    }
+
+    /**
+     * Reads a page of options within a single script or, without a driver,
+     * through Select.
+     */
+    private OptionPage readOptions(final int offset, final int limit,
+            final boolean selectedOnly) {
+        WebElement element = this.safeGetUnderlyingWebElement();
+        if (this.container != null) {
+            Object result = new ElementCommand<Object>(COMMAND_READ_OPTIONS) {
+                @Override
+                protected Object run(WebElement element) {
+                    return ExtendedSelectWebElement.this.container.getDriver()
+                            .callScript(ScriptRegistry.READ_OPTIONS, element,
+                                    offset, limit, selectedOnly);
+                }
+            }.execute(element);
+            if (result instanceof Map) {
+                return OptionPage.of((Map<?, ?>) result);
+            }
+        }
+        // Not a select (Select throws), or no driver to run scripts with
+        Select select = this.safeGetSelect();
+        List<WebElement> options = selectedOnly ? select
+                .getAllSelectedOptions() : select.getOptions();
+        List<OptionSnapshot> snapshots = new ArrayList<>();
+        for (int index = offset; index < options.size()
+                && snapshots.size() < limit; ++index) {
+            WebElement option = options.get(index);
+            snapshots.add(new OptionSnapshot(Integer.parseInt(option
+                    .getAttribute(ATTRIBUTE_INDEX)), option
+                    .getAttribute(ATTRIBUTE_VALUE), option.getText(), option
+                    .isSelected(), !option.isEnabled()));
+        }
+        return new OptionPage(options.size(), snapshots);
+    }
+
+    private static <T> List<T> withoutNulls(List<T> list) {
+        List<T> result = new ArrayList<>(list.size());
+        for (T element : list) {
+            if (element != null) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
     /**
      * Convenience method.
      * 
@@ -474,6 +722,76 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
         return this.select;
     }
 
+    /**
+     * Page of option snapshots, along with the total number of options.
+     */
+    private static class OptionPage {
+        private final int total;
+        private final List<OptionSnapshot> snapshots;
+
+        private OptionPage(int total, List<OptionSnapshot> snapshots) {
+            this.total = total;
+            this.snapshots = snapshots;
+        }
+
+        private static OptionPage of(Map<?, ?> result) {
+            List<?> rows = (List<?>) result.get(RESULT_OPTIONS);
+            List<OptionSnapshot> snapshots = new ArrayList<>(rows.size());
+            for (Object row : rows) {
+                List<?> fields = (List<?>) row;
+                snapshots.add(new OptionSnapshot(((Number) fields.get(0))
+                        .intValue(), (String) fields.get(1), (String) fields
+                        .get(2), Boolean.TRUE.equals(fields.get(3)),
+                        Boolean.TRUE.equals(fields.get(4))));
+            }
+            return new OptionPage(((Number) result.get(RESULT_TOTAL))
+                    .intValue(), Collections.unmodifiableList(snapshots));
+        }
+    }
+
+    /**
+     * Iterates over the options of this select, a page at a time.
+     */
+    private class OptionSnapshotIterator implements Iterator<OptionSnapshot> {
+        private final int pageSize;
+        private List<OptionSnapshot> page = Collections.emptyList();
+        private int offset;
+        private int position;
+        private boolean lastPage;
+
+        private OptionSnapshotIterator(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (this.position >= this.page.size()) {
+                if (this.lastPage) {
+                    return false;
+                }
+                this.page = ExtendedSelectWebElement.this.readOptions(
+                        this.offset, this.pageSize, false).snapshots;
+                this.offset += this.page.size();
+                this.position = 0;
+                this.lastPage = this.page.size() < this.pageSize;
+            }
+            return true;
+        }
+
+        @Override
+        public OptionSnapshot next() {
+            if (!this.hasNext()) {
+                throw new java.util.NoSuchElementException();
+            }
+            return this.page.get(this.position++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     /**
      * Sets the underlying web element and resets the Selenium Select helper.
      * 
@@ -484,4 +802,16 @@ public class ExtendedSelectWebElement extends ExtendedWebElement {
         super.setUnderlyingWebElement(element);
         this.select = null;
     }
+
+    /**
+     * Sets the locator and resets the Selenium Select helper.
+     *
+     * @param locator Locator of the element.
+     * @param visible Whether the element is required to be visible.
+     */
+    @Override
+    public void setLocator(@NotNull final By locator, final boolean visible) {
+        super.setLocator(locator, visible);
+        this.select = null;
+    }
 }
@@ -1,29 +1,33 @@
 package com.olenick.selenium.elements;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Null;
 
-import com.olenick.selenium.model.Event;
-import com.olenick.selenium.model.Reaction;
-import com.olenick.selenium.model.Command;
 import org.openqa.selenium.By;
 import org.openqa.selenium.Dimension;
-import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.InvalidElementStateException;
+import org.openqa.selenium.NotFoundException;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.Point;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.remote.RemoteWebDriver;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.olenick.selenium.containers.WebContainer;
+import com.olenick.selenium.drivers.ExtendedRemoteWebDriver;
+import com.olenick.selenium.drivers.ReadCache;
 import com.olenick.selenium.exceptions.ElementNotLoadedException;
+import com.olenick.selenium.scripts.ScriptRegistry;
 
 /**
  * This is a home-made extension to WebElement. It has a mechanism to load the
@@ -39,11 +43,33 @@ public class ExtendedWebElement implements WebElement {
     private static final Logger log = LoggerFactory.getLogger(ExtendedWebElement.class);
 
     private static final int EXPLICIT_WAIT_SECS = 10;
+    private static final int MAX_STALE_RETRIES = 2;
+    private static final String NOT_CLICKABLE_MESSAGE = "not clickable";
+
+    private static final String COMMAND_CLICK = "element.click";
+    private static final String COMMAND_SUBMIT = "element.submit";
+    private static final String COMMAND_SEND_KEYS = "element.sendKeys";
+    private static final String COMMAND_CLEAR = "element.clear";
+    private static final String COMMAND_GET_ATTRIBUTE = "element.getAttribute";
+    private static final String COMMAND_IS_ENABLED = "element.isEnabled";
+    private static final String COMMAND_GET_TEXT = "element.getText";
+    private static final String COMMAND_IS_DISPLAYED = "element.isDisplayed";
+    private static final String COMMAND_SCREENSHOT = "element.screenshot";
+    private static final String COMMAND_GET_TAG_NAME = "element.getTagName";
+    private static final String COMMAND_IS_SELECTED = "element.isSelected";
+    private static final String COMMAND_GET_LOCATION = "element.getLocation";
+    private static final String COMMAND_GET_SIZE = "element.getSize";
+    private static final String COMMAND_GET_CSS_VALUE = "element.getCssValue";
+    private static final String COMMAND_FIND_ELEMENT = "element.findElement";
+    private static final String COMMAND_FIND_ELEMENTS = "element.findElements";
 
     @Null
     protected final WebContainer container;
     @Null
     protected WebElement underlyingWebElement;
+    @Null
+    protected By locator;
+    protected boolean visible;
 
     public ExtendedWebElement(@Null final WebContainer container) {
         this.container = container;
@@ -55,6 +81,20 @@ public class ExtendedWebElement implements WebElement {
         this.underlyingWebElement = element;
     }
 
+    /**
+     * Declares an element that is looked up the first time it is used.
+     *
+     * @param container Container of the element.
+     * @param locator Locator of the element.
+     * @param visible Whether the element is required to be visible.
+     */
+    public ExtendedWebElement(@NotNull final WebContainer container,
+            @NotNull final By locator, final boolean visible) {
+        this.container = container;
+        this.locator = locator;
+        this.visible = visible;
+    }
+
     public WebElement getUnderlyingWebElement() {
         return this.underlyingWebElement;
     }
@@ -67,10 +107,72 @@ public class ExtendedWebElement implements WebElement {
         this.underlyingWebElement = element;
     }
 
+    /**
+     * Sets the underlying web element, along with the locator it was found
+     * with, so that only this element is relocated if it goes stale.
+     *
+     * @param element Underlying web element.
+     * @param locator Locator the element was found with.
+     * @param visible Whether the element was required to be visible.
+     */
+    public void setUnderlyingWebElement(@NotNull final WebElement element,
+            @NotNull final By locator, final boolean visible) {
+        this.setUnderlyingWebElement(element);
+        this.locator = locator;
+        this.visible = visible;
+    }
+
+    /**
+     * Sets the locator of the element and forgets the underlying web element,
+     * so the element is looked up again the next time it is used.
+     *
+     * @param locator Locator of the element.
+     * @param visible Whether the element is required to be visible.
+     */
+    public void setLocator(@NotNull final By locator, final boolean visible) {
+        log.trace("setLocator({}, {})", locator, visible);
+        this.underlyingWebElement = null;
+        this.locator = locator;
+        this.visible = visible;
+    }
+
+    /**
+     * @return Locator the underlying element was (or is to be) found with, if
+     *         known.
+     */
+    public By getLocator() {
+        return this.locator;
+    }
+
+    /**
+     * @return Whether the element is required to be visible when located.
+     */
+    public boolean isVisibilityRequired() {
+        return this.visible;
+    }
+
+    /**
+     * @return Whether the underlying web element has been found already.
+     */
+    public boolean isResolved() {
+        return this.underlyingWebElement != null;
+    }
+
+    /**
+     * Gets the underlying web element, finding it first if needed: only this
+     * element if its locator is known; otherwise, by loading every element of
+     * the container (which, if it declares its elements lazily, just makes the
+     * locator known).
+     *
+     * @return Underlying web element.
+     */
     public WebElement safeGetUnderlyingWebElement() {
-        if (this.underlyingWebElement == null) {
+        if (this.underlyingWebElement == null && this.locator == null) {
             this.container.waitForElementsToLoad();
         }
+        if (this.underlyingWebElement == null && this.locator != null) {
+            this.relocate();
+        }
         if (this.underlyingWebElement == null) {
             throw new ElementNotLoadedException();
         }
@@ -85,6 +187,73 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.click()", element);
         }
+        new MutatingCommand<Void>(COMMAND_CLICK) {
+            @Override
+            protected Void run(WebElement element) {
+                ExtendedWebElement.this.click(element);
+                return null;
+            }
+        }.execute(element);
+    }
+
+    private void click(WebElement element) {
+        ClickMode clickMode = this.container == null ? ClickMode.WAIT_FOR_CLICKABLE
+                : this.container.getDriver().getClickMode();
+        if (clickMode == ClickMode.WAIT_FOR_CLICKABLE) {
+            this.clickWhenClickable(element, false);
+            return;
+        }
+        try {
+            element.click();
+        } catch (StaleElementReferenceException exception) {
+            if (this.locator != null) {
+                // Relocated and retried by the command
+                throw exception;
+            }
+            log.trace("{}.click() failed on stale element, reloading",
+                    element);
+            this.refreshAllElementsInContainer();
+            this.clickWhenClickable(this.safeGetUnderlyingWebElement(),
+                    clickMode == ClickMode.OPTIMISTIC_SCRIPTED);
+        } catch (InvalidElementStateException exception) {
+            log.trace("{}.click() failed on invisible element, retrying",
+                    element);
+            // Never scripted: a script would click it even though hidden
+            this.clickWhenClickable(element, false);
+        } catch (WebDriverException exception) {
+            if (exception.getMessage() == null
+                    || !exception.getMessage().contains(NOT_CLICKABLE_MESSAGE)) {
+                throw exception;
+            }
+            log.trace("{}.click() failed on non-clickable element, retrying",
+                    element);
+            this.clickWhenClickable(element,
+                    clickMode == ClickMode.OPTIMISTIC_SCRIPTED);
+        }
+    }
+
+    /**
+     * Clicks the element once it is clickable.
+     *
+     * @param element Underlying element.
+     * @param scripted Whether to first try scrolling into view and clicking
+     *            within a single script (which only clicks if the element is
+     *            displayed, enabled and not covered).
+     */
+    private void clickWhenClickable(WebElement element, boolean scripted) {
+        if (scripted) {
+            try {
+                if (Boolean.TRUE.equals(this.container.getDriver().callScript(
+                        ScriptRegistry.SCROLL_INTO_VIEW_AND_CLICK, element))) {
+                    return;
+                }
+                log.trace("{}: not clickable by script, waiting for it",
+                        element);
+            } catch (WebDriverException exception) {
+                log.trace("{}: scripted click failed, waiting for it ({})",
+                        element, exception.getMessage());
+            }
+        }
 
         //Adding a wait for the click to avoid "Element is not clickable at point"
         WebDriverWait wait = new WebDriverWait(this.container.getDriver(), EXPLICIT_WAIT_SECS);
@@ -102,7 +271,13 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.submit()", element);
         }
-        element.submit();
+        new MutatingCommand<Void>(COMMAND_SUBMIT) {
+            @Override
+            protected Void run(WebElement element) {
+                element.submit();
+                return null;
+            }
+        }.execute(element);
     }
 
     @Override
@@ -113,7 +288,13 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.sendKeys({})", element, keysToSend);
         }
-        this.safeGetUnderlyingWebElement().sendKeys(keysToSend);
+        new MutatingCommand<Void>(COMMAND_SEND_KEYS) {
+            @Override
+            protected Void run(WebElement element) {
+                element.sendKeys(keysToSend);
+                return null;
+            }
+        }.execute(element);
     }
 
     @Override
@@ -124,7 +305,13 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.clear()", element);
         }
-        element.clear();
+        new MutatingCommand<Void>(COMMAND_CLEAR) {
+            @Override
+            protected Void run(WebElement element) {
+                element.clear();
+                return null;
+            }
+        }.execute(element);
     }
 
     @Override
@@ -135,7 +322,12 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.getTagName()", element);
         }
-        return element.getTagName();
+        return new ReadCommand<String>(COMMAND_GET_TAG_NAME, "tagName") {
+            @Override
+            protected String run(WebElement element) {
+                return element.getTagName();
+            }
+        }.execute(element);
     }
 
     @Override
@@ -146,7 +338,13 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.getAttribute({})", element, name);
         }
-        return element.getAttribute(name);
+        return new ReadCommand<String>(COMMAND_GET_ATTRIBUTE,
+                "attribute:" + name) {
+            @Override
+            protected String run(WebElement element) {
+                return element.getAttribute(name);
+            }
+        }.execute(element);
     }
 
     @Override
@@ -157,7 +355,12 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.isSelected()", element);
         }
-        return element.isSelected();
+        return new ReadCommand<Boolean>(COMMAND_IS_SELECTED, "selected") {
+            @Override
+            protected Boolean run(WebElement element) {
+                return element.isSelected();
+            }
+        }.execute(element);
     }
 
     @Override
@@ -168,7 +371,12 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.isEnabled()", element);
         }
-        return element.isEnabled();
+        return new ReadCommand<Boolean>(COMMAND_IS_ENABLED, "enabled") {
+            @Override
+            protected Boolean run(WebElement element) {
+                return element.isEnabled();
+            }
+        }.execute(element);
     }
 
     @Override
@@ -179,7 +387,12 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.getText()", element);
         }
-        return element.getText();
+        return new ReadCommand<String>(COMMAND_GET_TEXT, "text") {
+            @Override
+            protected String run(WebElement element) {
+                return element.getText();
+            }
+        }.execute(element);
     }
 
     @Override
@@ -190,7 +403,13 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.findElements({})", element, by);
         }
-        List<WebElement> originalElements = element.findElements(by);
+        List<WebElement> originalElements = new ElementCommand<List<WebElement>>(
+                COMMAND_FIND_ELEMENTS) {
+            @Override
+            protected List<WebElement> run(WebElement element) {
+                return element.findElements(by);
+            }
+        }.execute(element);
         List<WebElement> elementsToReturn = new ArrayList<>(
                 originalElements.size());
         for (WebElement originalElement : originalElements) {
@@ -208,7 +427,13 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.findElement({})", element, by);
         }
-        return new ExtendedWebElement(this.container, element.findElement(by));
+        return new ExtendedWebElement(this.container,
+                new ElementCommand<WebElement>(COMMAND_FIND_ELEMENT) {
+                    @Override
+                    protected WebElement run(WebElement element) {
+                        return element.findElement(by);
+                    }
+                }.execute(element));
     }
 
     @Override
@@ -219,7 +444,12 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.isDisplayed()", element);
         }
-        return element.isDisplayed();
+        return new ReadCommand<Boolean>(COMMAND_IS_DISPLAYED, "displayed") {
+            @Override
+            protected Boolean run(WebElement element) {
+                return element.isDisplayed();
+            }
+        }.execute(element);
     }
 
     @Override
@@ -230,7 +460,12 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.getLocation()", element);
         }
-        return element.getLocation();
+        return new ReadCommand<Point>(COMMAND_GET_LOCATION, "location") {
+            @Override
+            protected Point run(WebElement element) {
+                return element.getLocation();
+            }
+        }.execute(element);
     }
 
     @Override
@@ -241,7 +476,12 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.getSize()", element);
         }
-        return element.getSize();
+        return new ReadCommand<Dimension>(COMMAND_GET_SIZE, "size") {
+            @Override
+            protected Dimension run(WebElement element) {
+                return element.getSize();
+            }
+        }.execute(element);
     }
 
     @Override
@@ -252,7 +492,13 @@ public class ExtendedWebElement implements WebElement {
         } finally {
             log.trace("{}.getCssValue()", element);
         }
-        return element.getCssValue(propertyName);
+        return new ReadCommand<String>(COMMAND_GET_CSS_VALUE,
+                "cssValue:" + propertyName) {
+            @Override
+            protected String run(WebElement element) {
+                return element.getCssValue(propertyName);
+            }
+        }.execute(element);
     }
 
     public void tryScrollIntoView() {
@@ -268,20 +514,227 @@ public class ExtendedWebElement implements WebElement {
         }
     }
 
+    /**
+     * Records a command in the metrics of the driver, if any.
+     */
+    protected void recordCommand(String command, long startNanos,
+            boolean succeeded) {
+        if (this.container != null) {
+            this.container.getDriver().recordCommand(command, startNanos,
+                    succeeded);
+        }
+    }
+
     public void refreshAllElementsInContainer() {
         this.container.waitForElementsToLoad();
     }
 
+    /**
+     * Locates the underlying element again, with the locator it was bound
+     * with, leaving the other elements of the container as they are.
+     *
+     * @return Whether it was done; false if the element was not bound with a
+     *         locator.
+     */
+    public boolean relocate() {
+        log.trace("relocate(): {}", this.locator);
+        if (this.locator == null || this.container == null) {
+            return false;
+        }
+        ExtendedRemoteWebDriver driver = this.container.getDriver();
+        this.setUnderlyingWebElement(this.visible ? driver
+                .findVisibleElement(this.locator) : driver
+                .findElement(this.locator));
+        return true;
+    }
+
+    /**
+     * Locates the underlying element again, like {@link #relocate()}, but
+     * waiting for it at most the given time.
+     *
+     * @param timeoutInSeconds Timeout.
+     * @return Whether it was done; false if the element was not bound with a
+     *         locator.
+     * @throws TimeoutException If it is not found in time.
+     */
+    public boolean relocate(final long timeoutInSeconds) {
+        log.trace("relocate({}): {}", timeoutInSeconds, this.locator);
+        if (this.locator == null || this.container == null) {
+            return false;
+        }
+        ExtendedRemoteWebDriver driver = this.container.getDriver();
+        this.setUnderlyingWebElement(this.visible ? driver.findVisibleElement(
+                this.locator, timeoutInSeconds) : driver.findElement(
+                this.locator, timeoutInSeconds));
+        return true;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("ExtendedWebElement{");
         sb.append("container=").append(container);
         sb.append(", underlyingWebElement=").append(underlyingWebElement);
+        sb.append(", locator=").append(locator);
         sb.append('}');
         return sb.toString();
     }
 
-    public <X> X getScreenshotAs(OutputType<X> outputType) throws WebDriverException {
-        return this.safeGetUnderlyingWebElement().getScreenshotAs(outputType);
+    public <X> X getScreenshotAs(final OutputType<X> outputType)
+            throws WebDriverException {
+        return new ElementCommand<X>(COMMAND_SCREENSHOT) {
+            @Override
+            protected X run(WebElement element) {
+                return element.getScreenshotAs(outputType);
+            }
+        }.execute(this.safeGetUnderlyingWebElement());
+    }
+
+    /**
+     * Takes a screenshot of the region of this element, all of it (scrolling
+     * if it is taller than the viewport), and writes it.
+     *
+     * @param outputScreenshot File to write (PNG).
+     * @return The file written.
+     * @see ExtendedRemoteWebDriver#takeScreenshot(WebElement, File)
+     */
+    public File takeScreenshot(@NotNull final File outputScreenshot)
+            throws IOException {
+        return this.container.getDriver().takeScreenshot(
+                this.safeGetUnderlyingWebElement(), outputScreenshot);
+    }
+
+    /**
+     * Command on the underlying element: it is recorded in the metrics of the
+     * driver (if named) and, if the element goes stale and it was bound with a
+     * locator, the element is relocated and the command retried.
+     *
+     * @param <R> Type of the result.
+     */
+    protected abstract class ElementCommand<R> {
+        @Null
+        private final String name;
+
+        /**
+         * @param name Name the command is recorded with, or null not to record
+         *            it.
+         */
+        protected ElementCommand(@Null final String name) {
+            this.name = name;
+        }
+
+        protected abstract R run(WebElement element);
+
+        /**
+         * @param element Current underlying element.
+         * @return Result of the command.
+         */
+        public R execute(@NotNull WebElement element) {
+            long start = System.nanoTime();
+            boolean succeeded = false;
+            try {
+                for (int retries = 0;; ++retries) {
+                    try {
+                        R result = this.run(element);
+                        succeeded = true;
+                        return result;
+                    } catch (StaleElementReferenceException exception) {
+                        if (retries >= MAX_STALE_RETRIES
+                                || !this.relocate(exception)) {
+                            throw exception;
+                        }
+                        log.trace("{}: stale element, relocated", this.name);
+                        element = ExtendedWebElement.this.underlyingWebElement;
+                    }
+                }
+            } finally {
+                if (this.name != null) {
+                    ExtendedWebElement.this.recordCommand(this.name, start,
+                            succeeded);
+                }
+            }
+        }
+
+        /**
+         * Relocates the element after it went stale, waiting a short time
+         * only (it is expected to be there already, re-rendered).
+         *
+         * @param staleException Why the element is relocated, where the
+         *            failure to relocate it is added.
+         * @return Whether it was relocated.
+         */
+        private boolean relocate(StaleElementReferenceException staleException) {
+            try {
+                return ExtendedWebElement.this.relocate(EXPLICIT_WAIT_SECS);
+            } catch (TimeoutException | NotFoundException exception) {
+                log.trace("{}: stale element, not found again", this.name);
+                staleException.addSuppressed(exception);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Command that only reads from the underlying element: served from the
+     * read cache of the driver, if any, until the page may have changed.
+     *
+     * @param <R> Type of the result.
+     */
+    protected abstract class ReadCommand<R> extends ElementCommand<R> {
+        @NotNull
+        private final String read;
+
+        /**
+         * @param name Name the command is recorded with (when not served from
+         *            the cache), or null not to record it.
+         * @param read What is read, to tell it from the other reads of the
+         *            element (e.g.: "attribute:href").
+         */
+        protected ReadCommand(@Null final String name,
+                @NotNull final String read) {
+            super(name);
+            this.read = read;
+        }
+
+        @Override
+        public R execute(@NotNull final WebElement element) {
+            if (ExtendedWebElement.this.container == null) {
+                return super.execute(element);
+            }
+            return ExtendedWebElement.this.container.getDriver().read(element,
+                    this.read, new ReadCache.Loader<R>() {
+                        @Override
+                        public R load() {
+                            return ReadCommand.super.execute(element);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Command that may change the page: the read cache of the driver, if any,
+     * is invalidated once it runs (even if it fails).
+     *
+     * @param <R> Type of the result.
+     */
+    protected abstract class MutatingCommand<R> extends ElementCommand<R> {
+        /**
+         * @param name Name the command is recorded with, or null not to record
+         *            it.
+         */
+        protected MutatingCommand(@Null final String name) {
+            super(name);
+        }
+
+        @Override
+        public R execute(@NotNull final WebElement element) {
+            try {
+                return super.execute(element);
+            } finally {
+                if (ExtendedWebElement.this.container != null) {
+                    ExtendedWebElement.this.container.getDriver()
+                            .invalidateReadCache();
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,17 @@
+package com.olenick.selenium.elements;
+
+/**
+ * How ExtendedSelectWebElement selects and deselects options.
+ */
+public enum SelectMode {
+    /**
+     * Matches and (de)selects the options within a single script, firing the
+     * input and change events once; falls back to {@link #SELENIUM} if the
+     * script cannot run.
+     */
+    SCRIPTED,
+    /**
+     * Uses Selenium's Select, which inspects every option remotely.
+     */
+    SELENIUM
+}
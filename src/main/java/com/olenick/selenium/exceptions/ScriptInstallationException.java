@@ -0,0 +1,24 @@
+package com.olenick.selenium.exceptions;
+
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * An exception occurring when the library of helper scripts cannot be
+ * installed in the page, so the helper called did not run.
+ */
+public class ScriptInstallationException extends WebDriverException {
+    public ScriptInstallationException() {}
+
+    public ScriptInstallationException(final String message) {
+        super(message);
+    }
+
+    public ScriptInstallationException(final String message,
+            final Throwable cause) {
+        super(message, cause);
+    }
+
+    public ScriptInstallationException(final Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,112 @@
+package com.olenick.selenium.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Per-command-type counters and latency histograms.
+ * <p>
+ * Recording is lock-free and safe from any number of threads, so a single
+ * instance can be shared by many sessions (see {@link #global()}).
+ * </p>
+ */
+public class CommandMetrics implements CommandMetricsMXBean {
+    private static final CommandMetrics GLOBAL = new CommandMetrics();
+    private static final String HEADER = String.format(
+            "%-40s %10s %8s %10s %10s %10s %10s %10s", "command", "count",
+            "errors", "mean(ms)", "p50(ms)", "p95(ms)", "p99(ms)", "max(ms)");
+
+    private final ConcurrentMap<String, CommandStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * @return Instance shared by the whole JVM.
+     */
+    public static CommandMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @param command Command type.
+     * @param startNanos Value of System.nanoTime() when the command started.
+     * @param succeeded Whether the command succeeded.
+     */
+    public void record(@NotNull final String command, final long startNanos,
+            final boolean succeeded) {
+        this.getStats(command).record(System.nanoTime() - startNanos,
+                succeeded);
+    }
+
+    public CommandStats getStats(@NotNull final String command) {
+        CommandStats commandStats = this.stats.get(command);
+        if (commandStats == null) {
+            CommandStats newStats = new CommandStats(command);
+            commandStats = this.stats.putIfAbsent(command, newStats);
+            if (commandStats == null) {
+                commandStats = newStats;
+            }
+        }
+        return commandStats;
+    }
+
+    /**
+     * @return Stats of every command type recorded, sorted by command.
+     */
+    @Override
+    public List<CommandStatsSnapshot> getCommandStats() {
+        List<CommandStatsSnapshot> snapshots = new ArrayList<>(
+                this.stats.size());
+        for (CommandStats commandStats : this.stats.values()) {
+            snapshots.add(commandStats.snapshot());
+        }
+        Collections.sort(snapshots, new Comparator<CommandStatsSnapshot>() {
+            @Override
+            public int compare(CommandStatsSnapshot first,
+                    CommandStatsSnapshot second) {
+                return first.getCommand().compareTo(second.getCommand());
+            }
+        });
+        return snapshots;
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder sb = new StringBuilder(HEADER).append('\n');
+        for (CommandStatsSnapshot snapshot : this.getCommandStats()) {
+            sb.append(snapshot).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (CommandStats commandStats : this.stats.values()) {
+            commandStats.reset();
+        }
+    }
+
+    /**
+     * Registers this instance in the platform MBean server.
+     *
+     * @param name Value of the "name" key of the object name.
+     * @return Object name it got registered with.
+     * @throws JMException if the registration fails.
+     */
+    public ObjectName registerMBean(@NotNull final String name)
+            throws JMException {
+        ObjectName objectName = new ObjectName(
+                "com.olenick.selenium:type=CommandMetrics,name="
+                        + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                objectName);
+        return objectName;
+    }
+}
@@ -0,0 +1,17 @@
+package com.olenick.selenium.metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of the command metrics.
+ */
+public interface CommandMetricsMXBean {
+    List<CommandStatsSnapshot> getCommandStats();
+
+    /**
+     * @return The stats, as a text table.
+     */
+    String dump();
+
+    void reset();
+}
@@ -0,0 +1,51 @@
+package com.olenick.selenium.metrics;
+
+/**
+ * Counters and latency histogram of a single command type.
+ */
+public class CommandStats {
+    private final String command;
+    private final StripedCounter count = new StripedCounter();
+    private final StripedCounter errors = new StripedCounter();
+    private final StripedCounter totalNanos = new StripedCounter();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    public CommandStats(String command) {
+        this.command = command;
+    }
+
+    public String getCommand() {
+        return this.command;
+    }
+
+    /**
+     * @param nanos Time the command took, in nanoseconds.
+     * @param succeeded Whether the command succeeded.
+     */
+    public void record(long nanos, boolean succeeded) {
+        this.count.increment();
+        if (!succeeded) {
+            this.errors.increment();
+        }
+        this.totalNanos.add(nanos);
+        this.latencies.record(nanos);
+    }
+
+    public CommandStatsSnapshot snapshot() {
+        long count = this.count.sum();
+        return new CommandStatsSnapshot(this.command, count,
+                this.errors.sum(), count == 0 ? 0
+                        : this.totalNanos.sum() / count / 1e6,
+                this.latencies.getQuantileMicros(0.5) / 1e3,
+                this.latencies.getQuantileMicros(0.95) / 1e3,
+                this.latencies.getQuantileMicros(0.99) / 1e3,
+                this.latencies.getMaxMicros() / 1e3);
+    }
+
+    public void reset() {
+        this.count.reset();
+        this.errors.reset();
+        this.totalNanos.reset();
+        this.latencies.reset();
+    }
+}
@@ -0,0 +1,73 @@
+package com.olenick.selenium.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Immutable view of the stats of a command type at a given moment. Times are
+ * in milliseconds.
+ */
+public class CommandStatsSnapshot {
+    private final String command;
+    private final long count;
+    private final long errors;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p95Millis;
+    private final double p99Millis;
+    private final double maxMillis;
+
+    @ConstructorProperties({ "command", "count", "errors", "meanMillis",
+            "p50Millis", "p95Millis", "p99Millis", "maxMillis" })
+    public CommandStatsSnapshot(String command, long count, long errors,
+            double meanMillis, double p50Millis, double p95Millis,
+            double p99Millis, double maxMillis) {
+        this.command = command;
+        this.count = count;
+        this.errors = errors;
+        this.meanMillis = meanMillis;
+        this.p50Millis = p50Millis;
+        this.p95Millis = p95Millis;
+        this.p99Millis = p99Millis;
+        this.maxMillis = maxMillis;
+    }
+
+    public String getCommand() {
+        return this.command;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public long getErrors() {
+        return this.errors;
+    }
+
+    public double getMeanMillis() {
+        return this.meanMillis;
+    }
+
+    public double getP50Millis() {
+        return this.p50Millis;
+    }
+
+    public double getP95Millis() {
+        return this.p95Millis;
+    }
+
+    public double getP99Millis() {
+        return this.p99Millis;
+    }
+
+    public double getMaxMillis() {
+        return this.maxMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-40s %10d %8d %10.2f %10.2f %10.2f %10.2f %10.2f",
+                this.command, this.count, this.errors, this.meanMillis,
+                this.p50Millis, this.p95Millis, this.p99Millis,
+                this.maxMillis);
+    }
+}
@@ -0,0 +1,100 @@
+package com.olenick.selenium.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies, with microsecond resolution.
+ * <p>
+ * Values below 16 us get a bucket each; above that, every power of two is
+ * split in 8 buckets, so quantiles are estimated within ~6% of the actual
+ * value.
+ * </p>
+ */
+public class LatencyHistogram {
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int FIRST_MAGNITUDE = 4;
+    private static final int BUCKETS = LINEAR_BUCKETS
+            + (63 - FIRST_MAGNITUDE) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos Latency, in nanoseconds.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        this.buckets.incrementAndGet(bucketOf(micros));
+        long currentMax;
+        while (micros > (currentMax = this.max.get())) {
+            if (this.max.compareAndSet(currentMax, micros)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @param quantile Quantile, between 0 and 1.
+     * @return Estimated latency at the given quantile, in microseconds (0 if
+     *         nothing was recorded).
+     */
+    public long getQuantileMicros(double quantile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int index = 0; index < BUCKETS; ++index) {
+            counts[index] = this.buckets.get(index);
+            total += counts[index];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int index = 0; index < BUCKETS; ++index) {
+            seen += counts[index];
+            if (seen >= rank) {
+                return Math.min(middleOf(index), this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    /**
+     * @return Maximum latency recorded, in microseconds.
+     */
+    public long getMaxMicros() {
+        return this.max.get();
+    }
+
+    public void reset() {
+        for (int index = 0; index < BUCKETS; ++index) {
+            this.buckets.set(index, 0);
+        }
+        this.max.set(0);
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (magnitude - SUB_BUCKET_BITS))
+                & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (magnitude - FIRST_MAGNITUDE) * SUB_BUCKETS
+                + subBucket;
+    }
+
+    private static long middleOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS
+                + FIRST_MAGNITUDE;
+        int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (magnitude - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + subBucket) * width + width / 2;
+    }
+}
@@ -0,0 +1,104 @@
+package com.olenick.selenium.metrics;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically dumps command metrics to a file. Each dump replaces the file
+ * atomically, so readers never see a partial one.
+ */
+public class MetricsFileReporter implements Closeable {
+    private static final Logger log = LoggerFactory
+            .getLogger(MetricsFileReporter.class);
+
+    private final CommandMetrics metrics;
+    private final Path target;
+    private final long period;
+    private final TimeUnit unit;
+    private ScheduledExecutorService scheduler;
+
+    public MetricsFileReporter(@NotNull final CommandMetrics metrics,
+            @NotNull final File file, final long period,
+            @NotNull final TimeUnit unit) {
+        this.metrics = metrics;
+        this.target = file.toPath();
+        this.period = period;
+        this.unit = unit;
+    }
+
+    public synchronized MetricsFileReporter start() {
+        if (this.scheduler == null) {
+            this.scheduler = Executors
+                    .newSingleThreadScheduledExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable,
+                                    "metrics-file-reporter");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            this.scheduler.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        MetricsFileReporter.this.report();
+                    } catch (IOException exception) {
+                        log.warn("Could not dump metrics to {}",
+                                MetricsFileReporter.this.target, exception);
+                    }
+                }
+            }, this.period, this.period, this.unit);
+        }
+        return this;
+    }
+
+    /**
+     * Dumps the metrics right away.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public void report() throws IOException {
+        String content = "# " + new Date() + '\n' + this.metrics.dump();
+        Path parent = this.target.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(parent, this.target
+                .getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, content.getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, this.target,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Stops the periodic dumps and makes a last one.
+     *
+     * @throws IOException if the last dump cannot be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.scheduler != null) {
+            this.scheduler.shutdown();
+            this.scheduler = null;
+        }
+        this.report();
+    }
+}
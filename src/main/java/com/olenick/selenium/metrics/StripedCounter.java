@@ -0,0 +1,47 @@
+package com.olenick.selenium.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counter spread over several cells, so threads updating it
+ * concurrently seldom contend on the same cache line. Reading it sums every
+ * cell, so it is meant for counters written much more often than read.
+ */
+public class StripedCounter {
+    // Longs per cell, so each one sits on its own 64-byte cache line
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    public StripedCounter() {
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime()
+                .availableProcessors()) * 2 - 1);
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        this.mask = stripes - 1;
+    }
+
+    public void increment() {
+        this.add(1);
+    }
+
+    public void add(long delta) {
+        this.cells.getAndAdd(
+                ((int) Thread.currentThread().getId() & this.mask) * PADDING,
+                delta);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int index = 0; index < this.cells.length(); index += PADDING) {
+            sum += this.cells.get(index);
+        }
+        return sum;
+    }
+
+    public void reset() {
+        for (int index = 0; index < this.cells.length(); index += PADDING) {
+            this.cells.set(index, 0);
+        }
+    }
+}
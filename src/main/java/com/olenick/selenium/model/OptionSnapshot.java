@@ -0,0 +1,87 @@
+package com.olenick.selenium.model;
+
+/**
+ * Immutable copy of the state of a select option at a given moment.
+ */
+public class OptionSnapshot {
+    private final int index;
+    private final String value;
+    private final String text;
+    private final boolean selected;
+    private final boolean disabled;
+
+    /**
+     * @param index Position among the options of the select.
+     * @param value Value of the option.
+     * @param text Text of the option, with its whitespace normalized.
+     * @param selected Whether the option is selected.
+     * @param disabled Whether the option (or its group) is disabled.
+     */
+    public OptionSnapshot(int index, String value, String text,
+            boolean selected, boolean disabled) {
+        this.index = index;
+        this.value = value;
+        this.text = text;
+        this.selected = selected;
+        this.disabled = disabled;
+    }
+
+    public int getIndex() {
+        return this.index;
+    }
+
+    public String getValue() {
+        return this.value;
+    }
+
+    public String getText() {
+        return this.text;
+    }
+
+    public boolean isSelected() {
+        return this.selected;
+    }
+
+    public boolean isDisabled() {
+        return this.disabled;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || this.getClass() != o.getClass()) {
+            return false;
+        }
+        OptionSnapshot that = (OptionSnapshot) o;
+        return this.index == that.index && this.selected == that.selected
+                && this.disabled == that.disabled
+                && (this.value == null ? that.value == null : this.value
+                        .equals(that.value))
+                && (this.text == null ? that.text == null : this.text
+                        .equals(that.text));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = this.index;
+        result = 31 * result + (this.value == null ? 0 : this.value.hashCode());
+        result = 31 * result + (this.text == null ? 0 : this.text.hashCode());
+        result = 31 * result + (this.selected ? 1 : 0);
+        result = 31 * result + (this.disabled ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("OptionSnapshot{");
+        sb.append("index=").append(this.index);
+        sb.append(", value='").append(this.value).append('\'');
+        sb.append(", text='").append(this.text).append('\'');
+        sb.append(", selected=").append(this.selected);
+        sb.append(", disabled=").append(this.disabled);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,346 @@
+package com.olenick.selenium.pagesource;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.validation.constraints.NotNull;
+
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.olenick.selenium.drivers.ExtendedRemoteWebDriver;
+import com.olenick.selenium.scripts.ScriptRegistry;
+
+/**
+ * Capture of the page source to a gzip file, streamed: the page is serialized
+ * in the browser and read in chunks, each written (compressed) as soon as it
+ * arrives, so the whole page source is never held in memory.
+ * <p>
+ * In delta mode, only what changed since the last capture of the same page is
+ * written: the part between the start and the end both captures share,
+ * preceded by a header line (<code>&lt;!-- page source delta: base=&lt;length
+ * of the last capture&gt; hash=&lt;hash of the last capture&gt;
+ * prefix=&lt;length of the start&gt; suffix=&lt;length of the end&gt;
+ * --&gt;</code>). The whole page source is written instead if there was no
+ * such capture (e.g.: after navigating); {@link #applyDelta(File, File, File)}
+ * rebuilds it otherwise. A capture only becomes the base of the next delta
+ * once it has been read completely.
+ * </p>
+ */
+public class PageSourceCapture {
+    private static final Logger log = LoggerFactory
+            .getLogger(PageSourceCapture.class);
+
+    public static final int DEFAULT_CHUNK_CHARS = 512 * 1024;
+    private static final String DELTA_HEADER = "<!-- page source delta: base=%d hash=%s prefix=%d suffix=%d -->\n";
+    private static final Pattern DELTA_HEADER_PATTERN = Pattern
+            .compile("<!-- page source delta: base=(\\d+) hash=([0-9a-f]{8}) prefix=(\\d+) suffix=(\\d+) -->");
+    private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+    private static final int FNV_PRIME = 16777619;
+    private static final int MAX_HEADER_CHARS = 128;
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    private final File file;
+    private final long length;
+    private final long prefix;
+    private final long suffix;
+    private final long baseLength;
+    private final int chunks;
+
+    private PageSourceCapture(File file, long length, long prefix,
+            long suffix, long baseLength, int chunks) {
+        this.file = file;
+        this.length = length;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.baseLength = baseLength;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Captures the page source.
+     *
+     * @param driver Driver to capture it with.
+     * @param target File to write (gzip).
+     * @param delta Whether to write only what changed since the last capture.
+     * @param chunkChars Maximum characters read at once.
+     * @return What was captured.
+     */
+    public static PageSourceCapture capture(
+            @NotNull final ExtendedRemoteWebDriver driver,
+            @NotNull final File target, final boolean delta,
+            final int chunkChars) throws IOException {
+        log.trace("capture({}, {}, {})", target, delta, chunkChars);
+        if (chunkChars <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: "
+                    + chunkChars);
+        }
+        Map<?, ?> capture = (Map<?, ?>) driver.callScript(
+                ScriptRegistry.CAPTURE_PAGE_SOURCE, delta);
+        long length = number(capture, "length");
+        long prefix = number(capture, "prefix");
+        long suffix = number(capture, "suffix");
+        long baseLength = number(capture, "baseLength");
+        Object baseHash = capture.get("baseHash");
+        if (baseLength >= 0 && !(baseHash instanceof String)) {
+            throw new WebDriverException("Unexpected page source capture "
+                    + "(baseHash): " + capture);
+        }
+        int chunks = 0;
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory: " + parent);
+        }
+        boolean completed = false;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(target.toPath())),
+                StandardCharsets.UTF_8))) {
+            if (baseLength >= 0) {
+                writer.write(String.format(DELTA_HEADER, baseLength,
+                        baseHash, prefix, suffix));
+            }
+            for (long offset = 0; offset < length; ++chunks) {
+                Object chunk = driver.callScript(
+                        ScriptRegistry.READ_PAGE_SOURCE, offset, chunkChars);
+                if (!(chunk instanceof String) || ((String) chunk).isEmpty()) {
+                    throw new WebDriverException(
+                            "Page source no longer available (the page changed?) at "
+                                    + offset + " of " + length);
+                }
+                writer.write((String) chunk);
+                offset += ((String) chunk).length();
+            }
+            completed = true;
+        } finally {
+            if (!completed && !target.delete()) {
+                log.warn("Could not delete the incomplete {}", target);
+            }
+        }
+        return new PageSourceCapture(target, length, prefix, suffix,
+                baseLength, chunks);
+    }
+
+    /**
+     * Rebuilds a page source from a delta.
+     *
+     * @param base Capture the delta was taken after (whole, or rebuilt).
+     * @param delta Delta (or whole capture, then just copied).
+     * @param target File to write (gzip).
+     * @return The file written.
+     * @throws IOException if the base is not the one the delta was taken
+     *             after (its length or hash differ).
+     */
+    public static File applyDelta(@NotNull final File base,
+            @NotNull final File delta, @NotNull final File target)
+            throws IOException {
+        log.trace("applyDelta({}, {}, {})", base, delta, target);
+        try (BufferedReader deltaReader = open(delta);
+                Writer writer = new BufferedWriter(new OutputStreamWriter(
+                        new GZIPOutputStream(Files.newOutputStream(target
+                                .toPath())), StandardCharsets.UTF_8))) {
+            Matcher header = readHeader(deltaReader);
+            if (header == null) {
+                copy(deltaReader, writer, Long.MAX_VALUE);
+                return target;
+            }
+            long baseLength = Long.parseLong(header.group(1));
+            String baseHash = header.group(2);
+            long prefix = Long.parseLong(header.group(3));
+            long suffix = Long.parseLong(header.group(4));
+            try (BufferedReader baseReader = open(base)) {
+                if (readHeader(baseReader) != null) {
+                    throw new IOException("Base is a delta itself: " + base);
+                }
+                HashingReader hashedBase = new HashingReader(baseReader);
+                long read = copy(hashedBase, writer, prefix);
+                copy(deltaReader, writer, Long.MAX_VALUE);
+                read += skip(hashedBase, baseLength - prefix - suffix);
+                read += copy(hashedBase, writer, Long.MAX_VALUE);
+                if (read != baseLength
+                        || !baseHash.equals(hashedBase.getHash())) {
+                    throw new IOException("Not the base of " + delta + ": "
+                            + base + " (" + read + " characters, hash "
+                            + hashedBase.getHash() + ", not " + baseLength
+                            + " characters, hash " + baseHash + ")");
+                }
+            }
+        }
+        return target;
+    }
+
+    /**
+     * @return File written.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * @return Whether only what changed since the last capture was written.
+     */
+    public boolean isDelta() {
+        return this.baseLength >= 0;
+    }
+
+    /**
+     * @return Characters written (besides the delta header).
+     */
+    public long getLength() {
+        return this.length;
+    }
+
+    /**
+     * @return Characters of the page source shared with the last capture, at
+     *         its start (delta only).
+     */
+    public long getPrefix() {
+        return this.prefix;
+    }
+
+    /**
+     * @return Characters of the page source shared with the last capture, at
+     *         its end (delta only).
+     */
+    public long getSuffix() {
+        return this.suffix;
+    }
+
+    /**
+     * @return Number of chunks read.
+     */
+    public int getChunks() {
+        return this.chunks;
+    }
+
+    private static long number(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        if (!(value instanceof Number)) {
+            throw new WebDriverException("Unexpected page source capture ("
+                    + key + "): " + map);
+        }
+        return ((Number) value).longValue();
+    }
+
+    private static BufferedReader open(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new GZIPInputStream(
+                Files.newInputStream(file.toPath())), StandardCharsets.UTF_8),
+                BUFFER_CHARS);
+    }
+
+    /**
+     * Reads the delta header, if any (and only then).
+     *
+     * @return The header matched, or null if there is none.
+     */
+    private static Matcher readHeader(BufferedReader reader)
+            throws IOException {
+        reader.mark(MAX_HEADER_CHARS);
+        StringBuilder line = new StringBuilder();
+        int character;
+        while (line.length() < MAX_HEADER_CHARS - 1
+                && (character = reader.read()) >= 0 && character != '\n') {
+            line.append((char) character);
+        }
+        Matcher header = DELTA_HEADER_PATTERN.matcher(line);
+        if (header.matches()) {
+            return header;
+        }
+        reader.reset();
+        return null;
+    }
+
+    /**
+     * @return Characters copied.
+     */
+    private static long copy(Reader reader, Writer writer, long maxChars)
+            throws IOException {
+        char[] buffer = new char[BUFFER_CHARS];
+        long copied = 0;
+        int read;
+        while (copied < maxChars
+                && (read = reader.read(buffer, 0,
+                        (int) Math.min(buffer.length, maxChars - copied))) >= 0) {
+            writer.write(buffer, 0, read);
+            copied += read;
+        }
+        return copied;
+    }
+
+    /**
+     * @return Characters skipped (fewer only at the end).
+     */
+    private static long skip(Reader reader, long chars) throws IOException {
+        long skipped = 0;
+        while (skipped < chars) {
+            long count = reader.skip(chars - skipped);
+            if (count == 0 && reader.read() < 0) {
+                break;
+            }
+            skipped += count == 0 ? 1 : count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("PageSourceCapture{");
+        sb.append("file=").append(this.file);
+        sb.append(", length=").append(this.length);
+        sb.append(", delta=").append(this.isDelta());
+        sb.append(", prefix=").append(this.prefix);
+        sb.append(", suffix=").append(this.suffix);
+        sb.append(", chunks=").append(this.chunks);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Reader that hashes what is read (or skipped) through it, as
+     * {@link com.olenick.selenium.scripts.Scripts#CAPTURE_PAGE_SOURCE} hashes
+     * captures: FNV-1a of the UTF-16 code units.
+     */
+    private static class HashingReader extends Reader {
+        private final Reader reader;
+        private int hash = FNV_OFFSET_BASIS;
+
+        private HashingReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length)
+                throws IOException {
+            int read = this.reader.read(buffer, offset, length);
+            for (int index = offset; index < offset + read; ++index) {
+                this.hash = (this.hash ^ buffer[index]) * FNV_PRIME;
+            }
+            return read;
+        }
+
+        /**
+         * @return Hash of what was read, as 8 hex digits.
+         */
+        private String getHash() {
+            return String.format("%08x", this.hash);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.reader.close();
+        }
+    }
+}
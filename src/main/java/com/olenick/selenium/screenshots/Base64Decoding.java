@@ -0,0 +1,112 @@
+package com.olenick.selenium.screenshots;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Decoding of the base64 screenshots drivers send, without building the whole
+ * decoded array. Characters outside the alphabet (line breaks, padding) are
+ * skipped.
+ */
+final class Base64Decoding {
+    private static final int BUFFER_BYTES = 48 * 1024;
+    private static final int[] VALUES = new int[128];
+
+    static {
+        Arrays.fill(VALUES, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int index = 0; index < alphabet.length(); ++index) {
+            VALUES[alphabet.charAt(index)] = index;
+        }
+    }
+
+    private Base64Decoding() {}
+
+    /**
+     * @param base64 Base64 text.
+     * @return Number of bytes it decodes to.
+     */
+    static int decodedLength(String base64) {
+        long sextets = 0;
+        for (int index = 0; index < base64.length(); ++index) {
+            if (valueOf(base64.charAt(index)) >= 0) {
+                ++sextets;
+            }
+        }
+        return (int) (sextets * 6 / 8);
+    }
+
+    /**
+     * Decodes into a channel, in chunks.
+     *
+     * @param base64 Base64 text.
+     * @param channel Where to write the bytes.
+     */
+    static void decode(String base64, WritableByteChannel channel)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        decode(base64, buffer, channel);
+        flush(buffer, channel);
+    }
+
+    /**
+     * Decodes into a buffer, which must have room for
+     * {@link #decodedLength(String)} bytes.
+     *
+     * @param base64 Base64 text.
+     * @param target Where to put the bytes.
+     */
+    static void decode(String base64, ByteBuffer target) {
+        try {
+            decode(base64, target, null);
+        } catch (IOException exception) {
+            // Not thrown without a channel
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static void decode(String base64, ByteBuffer buffer,
+            WritableByteChannel channel) throws IOException {
+        int bits = 0;
+        int sextets = 0;
+        for (int index = 0; index < base64.length(); ++index) {
+            int value = valueOf(base64.charAt(index));
+            if (value < 0) {
+                continue;
+            }
+            bits = bits << 6 | value;
+            if (++sextets == 4) {
+                if (channel != null && buffer.remaining() < 3) {
+                    flush(buffer, channel);
+                }
+                buffer.put((byte) (bits >> 16)).put((byte) (bits >> 8))
+                        .put((byte) bits);
+                bits = 0;
+                sextets = 0;
+            }
+        }
+        if (channel != null && buffer.remaining() < 2) {
+            flush(buffer, channel);
+        }
+        if (sextets == 2) {
+            buffer.put((byte) (bits >> 4));
+        } else if (sextets == 3) {
+            buffer.put((byte) (bits >> 10)).put((byte) (bits >> 2));
+        }
+    }
+
+    private static int valueOf(char character) {
+        return character < VALUES.length ? VALUES[character] : -1;
+    }
+
+    private static void flush(ByteBuffer buffer, WritableByteChannel channel)
+            throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
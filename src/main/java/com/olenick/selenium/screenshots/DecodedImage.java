@@ -0,0 +1,171 @@
+package com.olenick.selenium.screenshots;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.imageio.ImageIO;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Screenshot decoded once into its pixels (packed ARGB, row by row), to be
+ * compared any number of times (e.g.: a baseline). The hashes of its tiles are
+ * computed on the first comparison, and kept for the next ones.
+ */
+public final class DecodedImage {
+    // Tiles hashed per task
+    private static final int TILES_PER_TASK = 16;
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    private TileHashes tileHashes;
+
+    private DecodedImage(int width, int height, int[] pixels) {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    /**
+     * @param png Image (PNG, or any format ImageIO reads).
+     * @return The image, decoded.
+     */
+    public static DecodedImage decode(@NotNull final byte[] png)
+            throws IOException {
+        return of(read(ImageIO.read(new ByteArrayInputStream(png))));
+    }
+
+    /**
+     * @param file Image file (PNG, or any format ImageIO reads).
+     * @return The image, decoded.
+     */
+    public static DecodedImage decode(@NotNull final File file)
+            throws IOException {
+        return of(read(ImageIO.read(file)));
+    }
+
+    /**
+     * @param image Image.
+     * @return Its pixels.
+     */
+    public static DecodedImage of(@NotNull final BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        return new DecodedImage(width, height, image.getRGB(0, 0, width,
+                height, null, 0, width));
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * @return Pixels, as packed ARGB, row by row. Not a copy: not to be
+     *         modified.
+     */
+    int[] getPixels() {
+        return this.pixels;
+    }
+
+    /**
+     * @param tileSize Width and height of the tiles.
+     * @param pool Pool to hash them in, if not hashed yet.
+     * @return Hash of each tile, row by row.
+     */
+    long[] getTileHashes(final int tileSize, ForkJoinPool pool) {
+        synchronized (this) {
+            if (this.tileHashes != null && this.tileHashes.tileSize == tileSize) {
+                return this.tileHashes.hashes;
+            }
+        }
+        final TileGrid grid = new TileGrid(this.width, this.height, tileSize);
+        final long[] hashes = new long[grid.getTileCount()];
+        pool.invoke(new Hashing(grid, hashes, 0, hashes.length));
+        synchronized (this) {
+            this.tileHashes = new TileHashes(tileSize, hashes);
+        }
+        return hashes;
+    }
+
+    /**
+     * @param tile Index of the tile (row by row).
+     * @param grid Tiles, of an image of the same size.
+     * @return Hash of the pixels of the tile.
+     */
+    long hashTile(TileGrid grid, int tile) {
+        int left = grid.getLeft(tile);
+        int right = grid.getRight(tile);
+        long hash = 0xcbf29ce484222325L;
+        for (int y = grid.getTop(tile), bottom = grid.getBottom(tile); y < bottom; ++y) {
+            for (int index = y * this.width + left, end = y * this.width
+                    + right; index < end; ++index) {
+                hash = (hash ^ this.pixels[index]) * 0x100000001b3L;
+            }
+        }
+        return hash ^ hash >>> 29;
+    }
+
+    private static BufferedImage read(BufferedImage image) throws IOException {
+        if (image == null) {
+            throw new IOException("Unreadable image");
+        }
+        return image;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("DecodedImage{");
+        sb.append("width=").append(this.width);
+        sb.append(", height=").append(this.height);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static class TileHashes {
+        private final int tileSize;
+        private final long[] hashes;
+
+        private TileHashes(int tileSize, long[] hashes) {
+            this.tileSize = tileSize;
+            this.hashes = hashes;
+        }
+    }
+
+    private class Hashing extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final TileGrid grid;
+        private final long[] hashes;
+        private final int from;
+        private final int to;
+
+        private Hashing(TileGrid grid, long[] hashes, int from, int to) {
+            this.grid = grid;
+            this.hashes = hashes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= TILES_PER_TASK) {
+                for (int tile = this.from; tile < this.to; ++tile) {
+                    this.hashes[tile] = DecodedImage.this.hashTile(this.grid,
+                            tile);
+                }
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new Hashing(this.grid, this.hashes, this.from, middle),
+                    new Hashing(this.grid, this.hashes, middle, this.to));
+        }
+    }
+}
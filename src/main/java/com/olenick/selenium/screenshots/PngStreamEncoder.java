@@ -0,0 +1,168 @@
+package com.olenick.selenium.screenshots;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * PNG encoder (8-bit RGB) that takes the image one row at a time and writes it
+ * as it goes: only the current and previous rows, and a chunk of compressed
+ * data, are held in memory.
+ * <p>
+ * Rows are filtered with the "up" filter (difference with the row above),
+ * which suits screenshots well and needs nothing else from the image.
+ * </p>
+ */
+final class PngStreamEncoder {
+    private static final byte[] SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10,
+            26, 10 };
+    private static final int CHUNK_BYTES = 64 * 1024;
+    private static final byte FILTER_UP = 2;
+    private static final int BYTES_PER_PIXEL = 3;
+
+    private final WritableByteChannel channel;
+    private final int width;
+    private final int height;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final byte[] compressed = new byte[CHUNK_BYTES];
+    private final ByteBuffer header = ByteBuffer.allocate(8);
+    private final ByteBuffer footer = ByteBuffer.allocate(4);
+    private final CRC32 crc = new CRC32();
+    private final byte[] filtered;
+    private byte[] row;
+    private byte[] previousRow;
+    private int rows = 0;
+
+    /**
+     * Writes the PNG header.
+     *
+     * @param channel Where to write the image.
+     * @param width Width, in pixels.
+     * @param height Height, in pixels.
+     */
+    PngStreamEncoder(WritableByteChannel channel, int width, int height)
+            throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid image size: " + width
+                    + "x" + height);
+        }
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+        this.row = new byte[width * BYTES_PER_PIXEL];
+        this.previousRow = new byte[width * BYTES_PER_PIXEL];
+        this.filtered = new byte[1 + width * BYTES_PER_PIXEL];
+        this.filtered[0] = FILTER_UP;
+        this.writeFully(ByteBuffer.wrap(SIGNATURE));
+        ByteBuffer ihdr = ByteBuffer.allocate(13);
+        // Bit depth 8, color type 2 (RGB), default compression and filtering,
+        // no interlacing
+        ihdr.putInt(width).putInt(height).put((byte) 8).put((byte) 2)
+                .put((byte) 0).put((byte) 0).put((byte) 0);
+        this.writeChunk("IHDR", ihdr.array(), 13);
+    }
+
+    int getWidth() {
+        return this.width;
+    }
+
+    int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * @return Number of rows written so far.
+     */
+    int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * @param pixels Row of pixels, as packed RGB (alpha ignored); at least
+     *            {@link #getWidth()} of them.
+     */
+    void writeRow(int[] pixels) throws IOException {
+        if (this.rows == this.height) {
+            throw new IllegalStateException("Image already has " + this.height
+                    + " rows");
+        }
+        int offset = 0;
+        for (int x = 0; x < this.width; ++x) {
+            int pixel = pixels[x];
+            this.row[offset] = (byte) (pixel >> 16);
+            this.row[offset + 1] = (byte) (pixel >> 8);
+            this.row[offset + 2] = (byte) pixel;
+            offset += BYTES_PER_PIXEL;
+        }
+        for (int index = 0; index < this.row.length; ++index) {
+            this.filtered[index + 1] = (byte) (this.row[index] - this.previousRow[index]);
+        }
+        byte[] swap = this.previousRow;
+        this.previousRow = this.row;
+        this.row = swap;
+        this.deflater.setInput(this.filtered);
+        while (!this.deflater.needsInput()) {
+            this.writeCompressed();
+        }
+        ++this.rows;
+    }
+
+    /**
+     * Writes the rest of the image. Does not close the channel.
+     *
+     * @throws IllegalStateException if not all rows were written.
+     */
+    void finish() throws IOException {
+        if (this.rows != this.height) {
+            throw new IllegalStateException("Image has " + this.rows + " of "
+                    + this.height + " rows");
+        }
+        try {
+            this.deflater.finish();
+            while (!this.deflater.finished()) {
+                this.writeCompressed();
+            }
+            this.writeChunk("IEND", this.compressed, 0);
+        } finally {
+            this.deflater.end();
+        }
+    }
+
+    /**
+     * Releases the compressor, if the image is abandoned.
+     */
+    void abandon() {
+        this.deflater.end();
+    }
+
+    private void writeCompressed() throws IOException {
+        int length = this.deflater.deflate(this.compressed);
+        if (length > 0) {
+            this.writeChunk("IDAT", this.compressed, length);
+        }
+    }
+
+    private void writeChunk(String type, byte[] data, int length)
+            throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        this.crc.reset();
+        this.crc.update(typeBytes);
+        this.crc.update(data, 0, length);
+        this.header.clear();
+        this.header.putInt(length).put(typeBytes).flip();
+        this.writeFully(this.header);
+        this.writeFully(ByteBuffer.wrap(data, 0, length));
+        this.footer.clear();
+        this.footer.putInt((int) this.crc.getValue()).flip();
+        this.writeFully(this.footer);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+    }
+}
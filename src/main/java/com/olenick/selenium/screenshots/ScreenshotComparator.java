@@ -0,0 +1,325 @@
+package com.olenick.selenium.screenshots;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.validation.constraints.NotNull;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares screenshots (e.g.: against baselines, for visual regression).
+ * <p>
+ * Images are divided in tiles: tiles whose hashes match are skipped as
+ * identical (the baseline's hashes being computed once, and kept), and the
+ * rest are compared pixel by pixel, in parallel on a fork-join pool. Pixels
+ * differ when any of their color channels differs by more than the tolerance,
+ * and pixels within the ignored regions never do. The diff image is only
+ * rendered if asked for (see {@link ScreenshotComparison}).
+ * </p>
+ * <p>
+ * To be configured before being shared: comparisons are thread-safe, and
+ * unaffected by later changes of configuration.
+ * </p>
+ */
+public class ScreenshotComparator {
+    private static final Logger log = LoggerFactory
+            .getLogger(ScreenshotComparator.class);
+
+    public static final int DEFAULT_TILE_SIZE = 32;
+    // Tiles compared per task
+    private static final int TILES_PER_TASK = 8;
+
+    private final ForkJoinPool pool;
+    private int tileSize = DEFAULT_TILE_SIZE;
+    private int tolerance = 0;
+    private double maxScore = 0;
+    private final List<Rectangle> ignoredRegions = new ArrayList<>();
+
+    /**
+     * Compares on a pool shared by all the comparators created this way, with
+     * as many threads as processors.
+     */
+    public ScreenshotComparator() {
+        this(SharedPool.POOL);
+    }
+
+    /**
+     * @param pool Pool to compare on.
+     */
+    public ScreenshotComparator(@NotNull final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @param tileSize Width and height of the tiles (default: 32 pixels).
+     * @return This comparator.
+     */
+    public ScreenshotComparator tileSize(final int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive: "
+                    + tileSize);
+        }
+        this.tileSize = tileSize;
+        return this;
+    }
+
+    /**
+     * @param tolerance Largest difference of a color channel (0-255) for
+     *            pixels to be considered the same (default: 0).
+     * @return This comparator.
+     */
+    public ScreenshotComparator tolerance(final int tolerance) {
+        if (tolerance < 0 || tolerance > 255) {
+            throw new IllegalArgumentException("Tolerance must be 0-255: "
+                    + tolerance);
+        }
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * @param maxScore Largest score (fraction of pixels that differ) for
+     *            images to match (default: 0).
+     * @return This comparator.
+     */
+    public ScreenshotComparator maxScore(final double maxScore) {
+        if (maxScore < 0 || maxScore > 1) {
+            throw new IllegalArgumentException("Maximum score must be 0-1: "
+                    + maxScore);
+        }
+        this.maxScore = maxScore;
+        return this;
+    }
+
+    /**
+     * @param region Region (in pixels) whose differences are ignored (e.g.:
+     *            a clock, or an animation).
+     * @return This comparator.
+     */
+    public ScreenshotComparator ignore(@NotNull final Rectangle region) {
+        this.ignoredRegions.add(new Rectangle(region));
+        return this;
+    }
+
+    /**
+     * Takes a screenshot and compares it.
+     *
+     * @param baseline Expected image.
+     * @param source Driver or element to take the screenshot with.
+     * @return Result of the comparison.
+     */
+    public ScreenshotComparison compare(@NotNull final DecodedImage baseline,
+            @NotNull final TakesScreenshot source) {
+        try {
+            return this.compare(baseline, DecodedImage.decode(source
+                    .getScreenshotAs(OutputType.BYTES)));
+        } catch (IOException exception) {
+            throw new WebDriverException("Unreadable screenshot", exception);
+        }
+    }
+
+    /**
+     * @param baseline Expected image (keep it decoded, to compare it again).
+     * @param actual Image to compare.
+     * @return Result of the comparison.
+     */
+    public ScreenshotComparison compare(@NotNull final DecodedImage baseline,
+            @NotNull final DecodedImage actual) {
+        log.trace("compare({}, {})", baseline, actual);
+        Criteria criteria = new Criteria(this.tileSize, this.tolerance,
+                this.maxScore, this.ignoredRegions);
+        int width = Math.min(baseline.getWidth(), actual.getWidth());
+        int height = Math.min(baseline.getHeight(), actual.getHeight());
+        TileGrid grid = new TileGrid(width, height, criteria.tileSize);
+        boolean sameSize = baseline.getWidth() == actual.getWidth()
+                && baseline.getHeight() == actual.getHeight();
+        // Hashes are only comparable if the tiles are cut alike
+        long[] baselineHashes = sameSize ? baseline.getTileHashes(
+                criteria.tileSize, this.pool) : null;
+        boolean[] differentTiles = new boolean[grid.getTileCount()];
+        long differentPixels = this.pool.invoke(new Comparison(criteria,
+                grid, baseline, actual, baselineHashes, differentTiles, 0,
+                differentTiles.length));
+        // Pixels of only one of the images differ, too
+        long totalPixels = (long) Math.max(baseline.getWidth(),
+                actual.getWidth())
+                * Math.max(baseline.getHeight(), actual.getHeight());
+        differentPixels += totalPixels - (long) width * height;
+        return new ScreenshotComparison(criteria, grid, baseline, actual,
+                differentTiles, differentPixels, totalPixels);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ScreenshotComparator{");
+        sb.append("tileSize=").append(this.tileSize);
+        sb.append(", tolerance=").append(this.tolerance);
+        sb.append(", maxScore=").append(this.maxScore);
+        sb.append(", ignoredRegions=").append(this.ignoredRegions);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Configuration a comparison was made with.
+     */
+    static final class Criteria {
+        final int tileSize;
+        final int tolerance;
+        final double maxScore;
+        final List<Rectangle> ignoredRegions;
+
+        private Criteria(int tileSize, int tolerance, double maxScore,
+                List<Rectangle> ignoredRegions) {
+            this.tileSize = tileSize;
+            this.tolerance = tolerance;
+            this.maxScore = maxScore;
+            List<Rectangle> regions = new ArrayList<>(ignoredRegions.size());
+            for (Rectangle region : ignoredRegions) {
+                regions.add(new Rectangle(region));
+            }
+            this.ignoredRegions = Collections.unmodifiableList(regions);
+        }
+
+        boolean differ(int expected, int actual) {
+            int tolerance = this.tolerance;
+            return Math.abs((expected >> 16 & 0xff) - (actual >> 16 & 0xff)) > tolerance
+                    || Math.abs((expected >> 8 & 0xff) - (actual >> 8 & 0xff)) > tolerance
+                    || Math.abs((expected & 0xff) - (actual & 0xff)) > tolerance;
+        }
+
+        /**
+         * @return Ignored regions overlapping a tile, or null if one covers
+         *         it all.
+         */
+        List<Rectangle> ignoredRegionsIn(TileGrid grid, int tile) {
+            if (this.ignoredRegions.isEmpty()) {
+                return this.ignoredRegions;
+            }
+            Rectangle bounds = new Rectangle(grid.getLeft(tile),
+                    grid.getTop(tile), grid.getRight(tile) - grid.getLeft(tile),
+                    grid.getBottom(tile) - grid.getTop(tile));
+            List<Rectangle> overlapping = new ArrayList<>();
+            for (Rectangle region : this.ignoredRegions) {
+                if (region.contains(bounds)) {
+                    return null;
+                } else if (region.intersects(bounds)) {
+                    overlapping.add(region);
+                }
+            }
+            return overlapping;
+        }
+
+        static boolean ignored(List<Rectangle> regions, int x, int y) {
+            for (int index = 0; index < regions.size(); ++index) {
+                if (regions.get(index).contains(x, y)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Counts the pixels that differ in a range of tiles, splitting it among
+     * the threads of the pool.
+     */
+    private static class Comparison extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Criteria criteria;
+        private final TileGrid grid;
+        private final DecodedImage baseline;
+        private final DecodedImage actual;
+        private final long[] baselineHashes;
+        private final boolean[] differentTiles;
+        private final int from;
+        private final int to;
+
+        private Comparison(Criteria criteria, TileGrid grid,
+                DecodedImage baseline, DecodedImage actual,
+                long[] baselineHashes, boolean[] differentTiles, int from,
+                int to) {
+            this.criteria = criteria;
+            this.grid = grid;
+            this.baseline = baseline;
+            this.actual = actual;
+            this.baselineHashes = baselineHashes;
+            this.differentTiles = differentTiles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (this.to - this.from > TILES_PER_TASK) {
+                int middle = (this.from + this.to) >>> 1;
+                Comparison left = this.split(this.from, middle);
+                left.fork();
+                long right = this.split(middle, this.to).compute();
+                return right + left.join();
+            }
+            long differentPixels = 0;
+            for (int tile = this.from; tile < this.to; ++tile) {
+                if (this.baselineHashes != null
+                        && this.baselineHashes[tile] == this.actual.hashTile(
+                                this.grid, tile)) {
+                    continue;
+                }
+                long count = this.countDifferentPixels(tile);
+                this.differentTiles[tile] = count > 0;
+                differentPixels += count;
+            }
+            return differentPixels;
+        }
+
+        private Comparison split(int from, int to) {
+            return new Comparison(this.criteria, this.grid, this.baseline,
+                    this.actual, this.baselineHashes, this.differentTiles,
+                    from, to);
+        }
+
+        private long countDifferentPixels(int tile) {
+            List<Rectangle> ignored = this.criteria.ignoredRegionsIn(
+                    this.grid, tile);
+            if (ignored == null) {
+                return 0;
+            }
+            int[] expectedPixels = this.baseline.getPixels();
+            int[] actualPixels = this.actual.getPixels();
+            int expectedWidth = this.baseline.getWidth();
+            int actualWidth = this.actual.getWidth();
+            int left = this.grid.getLeft(tile);
+            int right = this.grid.getRight(tile);
+            long count = 0;
+            for (int y = this.grid.getTop(tile), bottom = this.grid
+                    .getBottom(tile); y < bottom; ++y) {
+                int expectedRow = y * expectedWidth;
+                int actualRow = y * actualWidth;
+                for (int x = left; x < right; ++x) {
+                    if (this.criteria.differ(expectedPixels[expectedRow + x],
+                            actualPixels[actualRow + x])
+                            && (ignored.isEmpty() || !Criteria.ignored(
+                                    ignored, x, y))) {
+                        ++count;
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    private static class SharedPool {
+        private static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+}
@@ -0,0 +1,177 @@
+package com.olenick.selenium.screenshots;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import javax.validation.constraints.NotNull;
+
+import com.olenick.selenium.screenshots.ScreenshotComparator.Criteria;
+
+/**
+ * Result of comparing a screenshot with a baseline.
+ * <p>
+ * The diff image shows the image compared, faded, with the pixels that differ
+ * (including those only one of the images has) in red. It is rendered only
+ * when asked for, rechecking only the tiles that differ.
+ * </p>
+ */
+public class ScreenshotComparison {
+    private static final int DIFFERENT = 0xffff0000;
+
+    private final Criteria criteria;
+    private final TileGrid grid;
+    private final DecodedImage baseline;
+    private final DecodedImage actual;
+    private final boolean[] differentTiles;
+    private final long differentPixels;
+    private final long totalPixels;
+
+    ScreenshotComparison(Criteria criteria, TileGrid grid,
+            DecodedImage baseline, DecodedImage actual,
+            boolean[] differentTiles, long differentPixels, long totalPixels) {
+        this.criteria = criteria;
+        this.grid = grid;
+        this.baseline = baseline;
+        this.actual = actual;
+        this.differentTiles = differentTiles;
+        this.differentPixels = differentPixels;
+        this.totalPixels = totalPixels;
+    }
+
+    /**
+     * @return Whether the score is within the comparator's maximum.
+     */
+    public boolean isMatch() {
+        return this.getScore() <= this.criteria.maxScore;
+    }
+
+    /**
+     * @return Fraction of the pixels that differ (0: identical, 1: all of
+     *         them).
+     */
+    public double getScore() {
+        return (double) this.differentPixels / this.totalPixels;
+    }
+
+    public long getDifferentPixels() {
+        return this.differentPixels;
+    }
+
+    /**
+     * @return Pixels compared: those of the larger width and height of the
+     *         two images.
+     */
+    public long getTotalPixels() {
+        return this.totalPixels;
+    }
+
+    /**
+     * @return Number of tiles with pixels that differ.
+     */
+    public int getDifferentTiles() {
+        int count = 0;
+        for (boolean different : this.differentTiles) {
+            if (different) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    public int getWidth() {
+        return Math.max(this.baseline.getWidth(), this.actual.getWidth());
+    }
+
+    public int getHeight() {
+        return Math.max(this.baseline.getHeight(), this.actual.getHeight());
+    }
+
+    /**
+     * @return The diff image.
+     */
+    public BufferedImage getDiffImage() {
+        int width = this.getWidth();
+        BufferedImage image = new BufferedImage(width, this.getHeight(),
+                BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[width];
+        for (int y = 0; y < image.getHeight(); ++y) {
+            this.renderDiffRow(y, row);
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+    /**
+     * Writes the diff image, row by row.
+     *
+     * @param target File to write (PNG).
+     * @return The file written.
+     */
+    public File writeDiffImage(@NotNull final File target) throws IOException {
+        int[] row = new int[this.getWidth()];
+        try (FileChannel channel = FileChannel.open(target.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            PngStreamEncoder encoder = new PngStreamEncoder(channel,
+                    row.length, this.getHeight());
+            try {
+                for (int y = 0; y < encoder.getHeight(); ++y) {
+                    this.renderDiffRow(y, row);
+                    encoder.writeRow(row);
+                }
+                encoder.finish();
+            } catch (IOException | RuntimeException exception) {
+                encoder.abandon();
+                throw exception;
+            }
+        }
+        return target;
+    }
+
+    private void renderDiffRow(int y, int[] row) {
+        int[] expectedPixels = this.baseline.getPixels();
+        int[] actualPixels = this.actual.getPixels();
+        int width = Math.min(this.baseline.getWidth(), this.actual.getWidth());
+        int height = Math.min(this.baseline.getHeight(),
+                this.actual.getHeight());
+        for (int x = 0; x < row.length; ++x) {
+            if (x >= width || y >= height) {
+                row[x] = DIFFERENT;
+                continue;
+            }
+            int expected = expectedPixels[y * this.baseline.getWidth() + x];
+            int actual = actualPixels[y * this.actual.getWidth() + x];
+            row[x] = this.differentTiles[this.grid.tileAt(x, y)]
+                    && this.criteria.differ(expected, actual)
+                    && !this.ignored(x, y) ? DIFFERENT : fade(actual);
+        }
+    }
+
+    private boolean ignored(int x, int y) {
+        List<Rectangle> regions = this.criteria.ignoredRegions;
+        return !regions.isEmpty() && Criteria.ignored(regions, x, y);
+    }
+
+    private static int fade(int pixel) {
+        int luminance = ((pixel >> 16 & 0xff) * 3 + (pixel >> 8 & 0xff) * 6
+                + (pixel & 0xff)) / 10;
+        int faded = 0xc0 + luminance / 4;
+        return 0xff000000 | faded << 16 | faded << 8 | faded;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ScreenshotComparison{");
+        sb.append("score=").append(this.getScore());
+        sb.append(", differentPixels=").append(this.differentPixels);
+        sb.append(", totalPixels=").append(this.totalPixels);
+        sb.append(", match=").append(this.isMatch());
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,207 @@
+package com.olenick.selenium.screenshots;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.validation.constraints.NotNull;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The last few screenshots of a session, kept in memory and written to disk
+ * only when asked to (e.g.: when a test fails).
+ * <p>
+ * The memory is allocated once, as fixed-size slots (optionally off-heap):
+ * each screenshot is decoded straight into the slot of the oldest one.
+ * Screenshots larger than a slot are dropped.
+ * </p>
+ */
+public class ScreenshotRing {
+    private static final Logger log = LoggerFactory
+            .getLogger(ScreenshotRing.class);
+
+    private final int slotBytes;
+    private final Slot[] slots;
+    private long sequence = 0;
+    private int next = 0;
+    private int size = 0;
+    private long dropped = 0;
+
+    /**
+     * @param slotCount Number of screenshots kept.
+     * @param slotBytes Maximum size of a screenshot.
+     * @param offHeap Whether to allocate the slots outside the heap.
+     */
+    public ScreenshotRing(final int slotCount, final int slotBytes,
+            final boolean offHeap) {
+        if (slotCount <= 0 || slotBytes <= 0) {
+            throw new IllegalArgumentException(
+                    "Slot count and size must be positive: " + slotCount + ", "
+                            + slotBytes);
+        }
+        long totalBytes = (long) slotCount * slotBytes;
+        if (totalBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Ring too large: " + totalBytes
+                    + " bytes");
+        }
+        ByteBuffer storage = offHeap ? ByteBuffer
+                .allocateDirect((int) totalBytes) : ByteBuffer
+                .allocate((int) totalBytes);
+        this.slotBytes = slotBytes;
+        this.slots = new Slot[slotCount];
+        for (int index = 0; index < slotCount; ++index) {
+            storage.limit((index + 1) * slotBytes).position(index * slotBytes);
+            this.slots[index] = new Slot(storage.slice());
+        }
+    }
+
+    /**
+     * Takes a screenshot into the ring.
+     *
+     * @param driver Driver to take the screenshot with.
+     * @param label What the screenshot shows (part of its file name).
+     * @return Whether it was kept (false if larger than a slot).
+     */
+    public boolean capture(@NotNull final TakesScreenshot driver,
+            @NotNull final String label) {
+        return this.addBase64(driver.getScreenshotAs(OutputType.BASE64), label);
+    }
+
+    /**
+     * @param base64 Image, base64 encoded (as drivers send it).
+     * @param label What the screenshot shows (part of its file name).
+     * @return Whether it was kept (false if larger than a slot).
+     */
+    public synchronized boolean addBase64(@NotNull final String base64,
+            @NotNull final String label) {
+        int length = Base64Decoding.decodedLength(base64);
+        if (length > this.slotBytes) {
+            return this.drop(label, length);
+        }
+        Slot slot = this.nextSlot(label);
+        Base64Decoding.decode(base64, slot.buffer);
+        slot.buffer.flip();
+        return true;
+    }
+
+    /**
+     * @param png Image.
+     * @param label What the screenshot shows (part of its file name).
+     * @return Whether it was kept (false if larger than a slot).
+     */
+    public synchronized boolean add(@NotNull final byte[] png,
+            @NotNull final String label) {
+        if (png.length > this.slotBytes) {
+            return this.drop(label, png.length);
+        }
+        Slot slot = this.nextSlot(label);
+        slot.buffer.put(png).flip();
+        return true;
+    }
+
+    /**
+     * Writes the screenshots kept, oldest first, as
+     * <code>&lt;sequence&gt;-&lt;label&gt;.png</code>, and empties the ring.
+     *
+     * @param directory Directory to write them to (created if needed).
+     * @return Files written.
+     */
+    public synchronized List<File> flush(@NotNull final File directory)
+            throws IOException {
+        log.trace("flush({}): {} screenshots", directory, this.size);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory: " + directory);
+        }
+        List<File> files = new ArrayList<>(this.size);
+        int first = (this.next - this.size + this.slots.length)
+                % this.slots.length;
+        for (int offset = 0; offset < this.size; ++offset) {
+            Slot slot = this.slots[(first + offset) % this.slots.length];
+            File file = new File(directory, String.format("%06d-%s.png",
+                    slot.sequence, slot.label.replaceAll("[^A-Za-z0-9._-]",
+                            "_")));
+            try (FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer content = slot.buffer.duplicate();
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+            }
+            files.add(file);
+        }
+        this.clear();
+        return files;
+    }
+
+    /**
+     * Forgets the screenshots kept.
+     */
+    public synchronized void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * @return Number of screenshots kept.
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    public int getCapacity() {
+        return this.slots.length;
+    }
+
+    /**
+     * @return Number of screenshots dropped for being larger than a slot.
+     */
+    public synchronized long getDropped() {
+        return this.dropped;
+    }
+
+    private Slot nextSlot(String label) {
+        Slot slot = this.slots[this.next];
+        slot.buffer.clear();
+        slot.sequence = ++this.sequence;
+        slot.label = label;
+        this.next = (this.next + 1) % this.slots.length;
+        this.size = Math.min(this.size + 1, this.slots.length);
+        return slot;
+    }
+
+    private boolean drop(String label, int length) {
+        log.warn("Screenshot {} dropped: {} bytes, slots hold {}", label,
+                length, this.slotBytes);
+        ++this.dropped;
+        return false;
+    }
+
+    @Override
+    public synchronized String toString() {
+        final StringBuilder sb = new StringBuilder("ScreenshotRing{");
+        sb.append("capacity=").append(this.slots.length);
+        sb.append(", slotBytes=").append(this.slotBytes);
+        sb.append(", size=").append(this.size);
+        sb.append(", dropped=").append(this.dropped);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static class Slot {
+        private final ByteBuffer buffer;
+        private long sequence;
+        private String label;
+
+        private Slot(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.olenick.selenium.screenshots;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.validation.constraints.NotNull;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+
+/**
+ * Writes screenshots to disk on a background thread, so taking one only
+ * blocks for the capture itself.
+ * <p>
+ * Screenshots are written in order, through file channels; those captured
+ * here are kept as the base64 text the driver sends, and decoded while being
+ * written, so no decoded copy of the image is held in memory. A screenshot
+ * identical to the previous one written is stored as a hard link to it
+ * (falling back to writing it where links are not supported).
+ * </p>
+ * <p>
+ * The memory held by the screenshots waiting to be written is bounded: once
+ * the bound is reached, capturing blocks until enough of them are written.
+ * </p>
+ */
+public class ScreenshotWriter implements Closeable {
+    private static final Logger log = LoggerFactory
+            .getLogger(ScreenshotWriter.class);
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final ExecutorService executor;
+    private final int maxInFlightBytes;
+    private final Semaphore inFlight;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    // Only accessed by the writer thread
+    private byte[] lastDigest;
+    private Path lastPath;
+
+    /**
+     * @param maxInFlightBytes Maximum memory held by the screenshots waiting
+     *            to be written.
+     */
+    public ScreenshotWriter(final int maxInFlightBytes) {
+        if (maxInFlightBytes <= 0) {
+            throw new IllegalArgumentException(
+                    "Maximum in-flight bytes must be positive: "
+                            + maxInFlightBytes);
+        }
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.inFlight = new Semaphore(maxInFlightBytes);
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "screenshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Takes a screenshot and writes it in the background.
+     *
+     * @param driver Driver to take the screenshot with.
+     * @param target File to write.
+     * @return Future of the file, once written.
+     */
+    public ListenableFuture<File> capture(@NotNull final TakesScreenshot driver,
+            @NotNull final File target) {
+        return this.writeBase64(driver.getScreenshotAs(OutputType.BASE64),
+                target);
+    }
+
+    /**
+     * Writes a screenshot in the background.
+     *
+     * @param png Image.
+     * @param target File to write.
+     * @return Future of the file, once written.
+     */
+    public ListenableFuture<File> write(@NotNull final byte[] png,
+            @NotNull final File target) {
+        return this.submit(new BytesScreenshot(png), target);
+    }
+
+    /**
+     * Writes a screenshot in the background.
+     *
+     * @param base64 Image, base64 encoded (as drivers send it).
+     * @param target File to write.
+     * @return Future of the file, once written.
+     */
+    public ListenableFuture<File> writeBase64(@NotNull final String base64,
+            @NotNull final File target) {
+        return this.submit(new Base64Screenshot(base64), target);
+    }
+
+    /**
+     * @return Number of screenshots written.
+     */
+    public long getWritten() {
+        return this.written.get();
+    }
+
+    /**
+     * @return Number of screenshots stored as links to the previous one.
+     */
+    public long getDeduplicated() {
+        return this.deduplicated.get();
+    }
+
+    /**
+     * @return Memory held by the screenshots waiting to be written.
+     */
+    public int getInFlightBytes() {
+        return this.maxInFlightBytes - this.inFlight.availablePermits();
+    }
+
+    /**
+     * Waits for the screenshots pending to be written, and stops the writer.
+     */
+    @Override
+    public void close() {
+        log.trace("close()");
+        this.executor.shutdown();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (this.executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+                log.warn("Still writing screenshots ({} bytes pending)",
+                        this.getInFlightBytes());
+            } catch (InterruptedException exception) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ListenableFuture<File> submit(final Screenshot screenshot,
+            final File target) {
+        final int permits = Math.min(screenshot.footprint(),
+                this.maxInFlightBytes);
+        try {
+            this.inFlight.acquire(permits);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException(
+                    "Interrupted while waiting to write a screenshot",
+                    exception);
+        }
+        ListenableFutureTask<File> task = ListenableFutureTask
+                .create(new Callable<File>() {
+                    @Override
+                    public File call() throws IOException {
+                        try {
+                            ScreenshotWriter.this.store(screenshot,
+                                    target.toPath());
+                            return target;
+                        } finally {
+                            ScreenshotWriter.this.inFlight.release(permits);
+                        }
+                    }
+                });
+        try {
+            this.executor.execute(task);
+        } catch (RejectedExecutionException exception) {
+            this.inFlight.release(permits);
+            throw exception;
+        }
+        return task;
+    }
+
+    private void store(Screenshot screenshot, Path target) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+        // Hashing decodes base64 once more, which is cheaper than writing
+        screenshot.writeTo(new DigestChannel(digest));
+        byte[] hash = digest.digest();
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        if (Arrays.equals(hash, this.lastDigest) && this.link(target)) {
+            this.deduplicated.incrementAndGet();
+            return;
+        }
+        // The target may be a link to an earlier screenshot: not written into
+        Files.deleteIfExists(target);
+        try (FileChannel channel = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            screenshot.writeTo(channel);
+        }
+        this.lastDigest = hash;
+        this.lastPath = target;
+        this.written.incrementAndGet();
+    }
+
+    /**
+     * Stores the target as a hard link to the last screenshot written.
+     *
+     * @return Whether it could be stored that way.
+     */
+    private boolean link(Path target) {
+        try {
+            if (Files.isSameFile(target, this.lastPath)) {
+                return true;
+            }
+        } catch (IOException exception) {
+            // The target does not exist yet (or the last one was deleted)
+        }
+        try {
+            Files.deleteIfExists(target);
+            Files.createLink(target, this.lastPath);
+            return true;
+        } catch (UnsupportedOperationException | IOException exception) {
+            log.trace("Could not link {} to {}: {}", target, this.lastPath,
+                    exception.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Channel that only digests what is written to it.
+     */
+    private static class DigestChannel implements WritableByteChannel {
+        private final MessageDigest digest;
+
+        private DigestChannel(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            int length = source.remaining();
+            this.digest.update(source);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+    }
+
+    private interface Screenshot {
+        /**
+         * @return Memory held, in bytes.
+         */
+        int footprint();
+
+        void writeTo(WritableByteChannel channel) throws IOException;
+    }
+
+    private static class BytesScreenshot implements Screenshot {
+        private final byte[] png;
+
+        private BytesScreenshot(byte[] png) {
+            this.png = png;
+        }
+
+        @Override
+        public int footprint() {
+            return this.png.length;
+        }
+
+        @Override
+        public void writeTo(WritableByteChannel channel) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(this.png);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Screenshot kept as base64 text, decoded in chunks while written.
+     */
+    private static class Base64Screenshot implements Screenshot {
+        private final String base64;
+
+        private Base64Screenshot(String base64) {
+            this.base64 = base64;
+        }
+
+        @Override
+        public int footprint() {
+            return (int) Math.min(Integer.MAX_VALUE,
+                    2L * this.base64.length());
+        }
+
+        @Override
+        public void writeTo(WritableByteChannel channel) throws IOException {
+            Base64Decoding.decode(this.base64, channel);
+        }
+    }
+}
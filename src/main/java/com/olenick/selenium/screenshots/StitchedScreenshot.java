@@ -0,0 +1,263 @@
+package com.olenick.selenium.screenshots;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Null;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.olenick.selenium.drivers.ExtendedRemoteWebDriver;
+import com.olenick.selenium.scripts.ScriptRegistry;
+
+/**
+ * Screenshot of a whole page (or of an element), taller than the viewport: the
+ * page is scrolled one viewport at a time, and each viewport screenshot (a
+ * tile) is decoded and its rows appended to a PNG written as it goes. Only one
+ * tile is held in memory, however tall the page.
+ * <p>
+ * The width is that of the viewport (horizontally scrolled content is
+ * clipped). Elements fixed to the viewport (e.g.: sticky headers) appear once
+ * per tile, and content that changes size while scrolling (e.g.: lazily
+ * loaded) is captured as laid out on each tile. The scroll position is
+ * restored afterwards.
+ * </p>
+ * <p>
+ * Drivers whose screenshots already show the whole page (e.g.: FirefoxDriver)
+ * are told apart by the first screenshot being taller than the viewport: the
+ * region is then cropped out of it, without scrolling.
+ * </p>
+ */
+public final class StitchedScreenshot {
+    private static final Logger log = LoggerFactory
+            .getLogger(StitchedScreenshot.class);
+
+    // Fill of the rows the page could not be scrolled to (white)
+    private static final int BLANK = 0xffffff;
+
+    private StitchedScreenshot() {}
+
+    /**
+     * Captures the whole page.
+     *
+     * @param driver Driver to capture with.
+     * @param target File to write (PNG).
+     * @return The file written.
+     */
+    public static File capturePage(@NotNull final ExtendedRemoteWebDriver driver,
+            @NotNull final File target) throws IOException {
+        return capture(driver, null, target);
+    }
+
+    /**
+     * Captures the region of an element (all of it, even if taller than the
+     * viewport).
+     *
+     * @param driver Driver to capture with.
+     * @param element Element to capture.
+     * @param target File to write (PNG).
+     * @return The file written.
+     */
+    public static File captureElement(
+            @NotNull final ExtendedRemoteWebDriver driver,
+            @NotNull final WebElement element, @NotNull final File target)
+            throws IOException {
+        return capture(driver, element, target);
+    }
+
+    private static File capture(ExtendedRemoteWebDriver driver,
+            @Null WebElement element, File target) throws IOException {
+        log.trace("capture({}, {})", element, target);
+        Map<?, ?> geometry = (Map<?, ?>) driver.callScript(
+                ScriptRegistry.PAGE_GEOMETRY, element);
+        double viewportWidth = number(geometry, "viewportWidth");
+        double viewportHeight = number(geometry, "viewportHeight");
+        double regionX = 0;
+        double regionY = 0;
+        double regionWidth = Math.min(number(geometry, "pageWidth"),
+                viewportWidth);
+        double regionHeight = number(geometry, "pageHeight");
+        if (element != null) {
+            Map<?, ?> region = (Map<?, ?>) geometry.get("region");
+            regionX = number(region, "x");
+            regionY = number(region, "y");
+            regionWidth = Math.min(number(region, "width"), viewportWidth);
+            regionHeight = number(region, "height");
+        }
+        if (regionWidth <= 0 || regionHeight <= 0 || viewportHeight <= 0) {
+            throw new WebDriverException("Nothing to capture: " + geometry);
+        }
+        File absoluteTarget = target.getAbsoluteFile();
+        File parent = absoluteTarget.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory: " + parent);
+        }
+        boolean completed = false;
+        try (FileChannel channel = FileChannel.open(absoluteTarget.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            new Stitching(driver, geometry, regionX, regionY, regionWidth,
+                    regionHeight, viewportHeight).run(channel);
+            completed = true;
+        } finally {
+            try {
+                driver.callScript(ScriptRegistry.SCROLL_TO,
+                        number(geometry, "scrollX"), number(geometry, "scrollY"));
+            } catch (WebDriverException exception) {
+                log.warn("Could not restore the scroll position", exception);
+            }
+            if (!completed && !absoluteTarget.delete()) {
+                log.warn("Could not delete the incomplete {}", absoluteTarget);
+            }
+        }
+        return target;
+    }
+
+    private static double number(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        if (!(value instanceof Number)) {
+            throw new WebDriverException("Unexpected page geometry (" + key
+                    + "): " + map);
+        }
+        return ((Number) value).doubleValue();
+    }
+
+    /**
+     * One capture: regions in CSS pixels, rows in image pixels (their ratio
+     * being known from the first tile).
+     */
+    private static class Stitching {
+        private final ExtendedRemoteWebDriver driver;
+        private final double windowWidth;
+        private final double pageWidth;
+        private final double regionX;
+        private final double regionY;
+        private final double regionWidth;
+        private final double regionHeight;
+        private final double viewportHeight;
+        private PngStreamEncoder encoder;
+        private double ratio;
+        private boolean fullPage;
+        private int[] row;
+
+        private Stitching(ExtendedRemoteWebDriver driver, Map<?, ?> geometry,
+                double regionX, double regionY, double regionWidth,
+                double regionHeight, double viewportHeight) {
+            this.driver = driver;
+            this.windowWidth = number(geometry, "windowWidth");
+            this.pageWidth = number(geometry, "pageWidth");
+            this.regionX = regionX;
+            this.regionY = regionY;
+            this.regionWidth = regionWidth;
+            this.regionHeight = regionHeight;
+            this.viewportHeight = viewportHeight;
+        }
+
+        private void run(FileChannel channel) throws IOException {
+            try {
+                int tiles = 0;
+                do {
+                    ++tiles;
+                    if (!this.captureTile(channel)) {
+                        log.warn("Nothing captured past row {} of {}:"
+                                + " rest left blank", this.encoder.getRows(),
+                                this.encoder.getHeight());
+                        Arrays.fill(this.row, BLANK);
+                        while (this.encoder.getRows() < this.encoder.getHeight()) {
+                            this.encoder.writeRow(this.row);
+                        }
+                    }
+                } while (this.encoder.getRows() < this.encoder.getHeight());
+                this.encoder.finish();
+                log.trace("Stitched {} tiles into {}x{}", tiles,
+                        this.encoder.getWidth(), this.encoder.getHeight());
+            } catch (IOException | RuntimeException exception) {
+                if (this.encoder != null) {
+                    this.encoder.abandon();
+                }
+                throw exception;
+            }
+        }
+
+        /**
+         * Scrolls to the next row to write, and writes the rows of the tile
+         * captured there.
+         *
+         * @return Whether any row was written.
+         */
+        private boolean captureTile(FileChannel channel) throws IOException {
+            if (this.fullPage) {
+                // All there was to write came with the first screenshot
+                return false;
+            }
+            int written = this.encoder == null ? 0 : this.encoder.getRows();
+            double nextY = this.regionY
+                    + (this.encoder == null ? 0 : written / this.ratio);
+            List<?> scroll = (List<?>) this.driver.callScript(
+                    ScriptRegistry.SCROLL_TO, this.regionX, nextY);
+            double scrollX = ((Number) scroll.get(0)).doubleValue();
+            double scrollY = ((Number) scroll.get(1)).doubleValue();
+            BufferedImage tile = ImageIO.read(new ByteArrayInputStream(
+                    this.driver.getScreenshotAs(OutputType.BYTES)));
+            if (tile == null) {
+                throw new WebDriverException("Unreadable screenshot");
+            }
+            if (this.encoder == null) {
+                // Screenshots include the vertical scrollbar, if any
+                this.ratio = tile.getWidth() / this.windowWidth;
+                this.fullPage = tile.getHeight() > Math
+                        .round(this.viewportHeight * this.ratio);
+                if (this.fullPage) {
+                    // As wide as the page, scrollbar excluded
+                    this.ratio = tile.getWidth() / this.pageWidth;
+                    log.trace("Whole page captured at once: {}x{}",
+                            tile.getWidth(), tile.getHeight());
+                }
+            }
+            // Page coordinates of the top left corner of the tile
+            double tileX = this.fullPage ? 0 : scrollX;
+            double tileY = this.fullPage ? 0 : scrollY;
+            int left = Math.max(0,
+                    (int) Math.round((this.regionX - tileX) * this.ratio));
+            if (this.encoder == null) {
+                int width = Math.min(
+                        (int) Math.round(this.regionWidth * this.ratio),
+                        tile.getWidth() - left);
+                int height = Math.max(1,
+                        (int) Math.round(this.regionHeight * this.ratio));
+                this.encoder = new PngStreamEncoder(channel, Math.max(1, width),
+                        height);
+                this.row = new int[this.encoder.getWidth()];
+            }
+            int width = Math.min(this.encoder.getWidth(), tile.getWidth() - left);
+            int top = (int) Math.round(this.regionY * this.ratio) + written
+                    - (int) Math.round(tileY * this.ratio);
+            int bottom = this.fullPage ? tile.getHeight() : Math.min(
+                    tile.getHeight(),
+                    (int) Math.round(this.viewportHeight * this.ratio));
+            int rows = Math.min(this.encoder.getHeight() - written, bottom - top);
+            if (top < 0 || rows <= 0 || width <= 0) {
+                return false;
+            }
+            Arrays.fill(this.row, BLANK);
+            for (int y = top; y < top + rows; ++y) {
+                tile.getRGB(left, y, width, 1, this.row, 0, width);
+                this.encoder.writeRow(this.row);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.olenick.selenium.screenshots;
+
+/**
+ * Division of an image into square tiles (smaller on the right and bottom
+ * edges), indexed row by row.
+ */
+final class TileGrid {
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int columns;
+    private final int rows;
+
+    TileGrid(int width, int height, int tileSize) {
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.columns = (width + tileSize - 1) / tileSize;
+        this.rows = (height + tileSize - 1) / tileSize;
+    }
+
+    int getTileCount() {
+        return this.columns * this.rows;
+    }
+
+    int getLeft(int tile) {
+        return tile % this.columns * this.tileSize;
+    }
+
+    int getRight(int tile) {
+        return Math.min(this.getLeft(tile) + this.tileSize, this.width);
+    }
+
+    int getTop(int tile) {
+        return tile / this.columns * this.tileSize;
+    }
+
+    int getBottom(int tile) {
+        return Math.min(this.getTop(tile) + this.tileSize, this.height);
+    }
+
+    /**
+     * @return Index of the tile holding a pixel.
+     */
+    int tileAt(int x, int y) {
+        return y / this.tileSize * this.columns + x / this.tileSize;
+    }
+}
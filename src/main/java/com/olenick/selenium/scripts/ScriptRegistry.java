@@ -0,0 +1,256 @@
+package com.olenick.selenium.scripts;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.validation.constraints.NotNull;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.olenick.selenium.exceptions.ScriptInstallationException;
+
+/**
+ * Library of named helper functions, installed in the browser once per
+ * document, so that calling one of them only sends its name and arguments
+ * (and the browser does not parse its source again).
+ * <p>
+ * The registry remembers whether the library is installed in the current
+ * document: if so, helpers are invoked right away, and if the document turns
+ * out to have changed (e.g.: after a click that navigated), the library is
+ * installed again along with the call; otherwise (e.g.: after
+ * {@link #documentChanged()}), it is installed along with the next call. Either
+ * way, calls take a single round trip, except when the document changed
+ * unnoticed, which takes two.
+ * </p>
+ * <p>
+ * Helpers are function expressions; the built-in ones are the scripts in
+ * {@link Scripts}, wrapped as functions, so they read their parameters from
+ * <code>arguments</code> (and asynchronous ones get the callback last).
+ * </p>
+ */
+public class ScriptRegistry {
+    private static final Logger log = LoggerFactory
+            .getLogger(ScriptRegistry.class);
+
+    public static final String FIND_ELEMENTS_IN_BATCH = "findElementsInBatch";
+    public static final String FIND_ELEMENT_WHEN_READY = "findElementWhenReady";
+    public static final String SCROLL_INTO_VIEW = "scrollIntoView";
+    public static final String SCROLL_INTO_VIEW_AND_CLICK = "scrollIntoViewAndClick";
+    public static final String APPLY_SELECTION = "applySelection";
+    public static final String FILL_FORM = "fillForm";
+    public static final String READ_OPTIONS = "readOptions";
+    public static final String READ_IN_BULK = "readInBulk";
+    public static final String WAIT_FOR_READY_STATE = "waitForReadyState";
+    public static final String WAIT_FOR_PAGE_SETTLED = "waitForPageSettled";
+    public static final String PAGE_GEOMETRY = "pageGeometry";
+    public static final String SCROLL_TO = "scrollTo";
+    public static final String CAPTURE_PAGE_SOURCE = "capturePageSource";
+    public static final String READ_PAGE_SOURCE = "readPageSource";
+    public static final String WATCH_CHANGES = "watchChanges";
+    public static final String WATCH_ELEMENTS = "watchElements";
+    public static final String READ_CHANGES = "readChanges";
+    public static final String UNWATCH_CHANGES = "unwatchChanges";
+
+    private static final String MISSING_KEY = "__oswScriptsMissing";
+    private static final String NOT_INSTALLED_KEY = "__oswScriptsNotInstalled";
+    private static final Pattern HELPER_NAME = Pattern
+            .compile("[A-Za-z_$][A-Za-z0-9_$]*");
+    private static final Map<String, String> BUILT_IN_HELPERS;
+
+    static {
+        Map<String, String> helpers = new LinkedHashMap<>();
+        helpers.put(FIND_ELEMENTS_IN_BATCH, Scripts.FIND_ELEMENTS_IN_BATCH);
+        helpers.put(FIND_ELEMENT_WHEN_READY, Scripts.FIND_ELEMENT_WHEN_READY);
+        helpers.put(SCROLL_INTO_VIEW, Scripts.SCROLL_INTO_VIEW);
+        helpers.put(SCROLL_INTO_VIEW_AND_CLICK,
+                Scripts.SCROLL_INTO_VIEW_AND_CLICK);
+        helpers.put(APPLY_SELECTION, Scripts.APPLY_SELECTION);
+        helpers.put(FILL_FORM, Scripts.FILL_FORM);
+        helpers.put(READ_OPTIONS, Scripts.READ_OPTIONS);
+        helpers.put(READ_IN_BULK, Scripts.READ_IN_BULK);
+        helpers.put(WAIT_FOR_READY_STATE, Scripts.WAIT_FOR_READY_STATE);
+        helpers.put(WAIT_FOR_PAGE_SETTLED, Scripts.WAIT_FOR_PAGE_SETTLED);
+        helpers.put(PAGE_GEOMETRY, Scripts.PAGE_GEOMETRY);
+        helpers.put(SCROLL_TO, Scripts.SCROLL_TO);
+        helpers.put(CAPTURE_PAGE_SOURCE, Scripts.CAPTURE_PAGE_SOURCE);
+        helpers.put(READ_PAGE_SOURCE, Scripts.READ_PAGE_SOURCE);
+        helpers.put(WATCH_CHANGES, Scripts.WATCH_CHANGES);
+        helpers.put(WATCH_ELEMENTS, Scripts.WATCH_ELEMENTS);
+        helpers.put(READ_CHANGES, Scripts.READ_CHANGES);
+        helpers.put(UNWATCH_CHANGES, Scripts.UNWATCH_CHANGES);
+        BUILT_IN_HELPERS = Collections.unmodifiableMap(helpers);
+    }
+
+    private final JavascriptExecutor executor;
+    private final Map<String, String> helpers = new LinkedHashMap<>();
+    private String version;
+    private String library;
+    private boolean installed = false;
+    private long installations = 0;
+
+    /**
+     * @param executor Where to run the scripts (the underlying driver, so
+     *            that calls are not recorded as scripts of the wrapper).
+     */
+    public ScriptRegistry(@NotNull final JavascriptExecutor executor) {
+        this.executor = executor;
+        for (Map.Entry<String, String> helper : BUILT_IN_HELPERS.entrySet()) {
+            this.helpers.put(helper.getKey(), "function () {"
+                    + helper.getValue() + "}");
+        }
+        this.rebuild();
+    }
+
+    /**
+     * Registers a helper (or replaces the one with the same name). The library
+     * is installed again, with the next call, on the documents that have the
+     * previous version of it.
+     *
+     * @param name Helper name (a JavaScript identifier).
+     * @param function Function expression, e.g.:
+     *            <code>function (element) { return element.value; }</code>.
+     * @return This instance.
+     */
+    public synchronized ScriptRegistry register(@NotNull final String name,
+            @NotNull final String function) {
+        log.trace("register({}, {})", name, function);
+        if (!HELPER_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid helper name: " + name);
+        }
+        this.helpers.put(name, function);
+        this.rebuild();
+        return this;
+    }
+
+    public synchronized boolean isRegistered(@NotNull final String name) {
+        return this.helpers.containsKey(name);
+    }
+
+    /**
+     * Forgets that the library is installed, so that it is sent along with the
+     * next call. Meant to be called when the document is known to change
+     * (navigation, switching windows or frames).
+     */
+    public synchronized void documentChanged() {
+        this.installed = false;
+    }
+
+    /**
+     * @return Times the library has been sent to the browser.
+     */
+    public synchronized long getInstallations() {
+        return this.installations;
+    }
+
+    /**
+     * Invokes a helper.
+     *
+     * @param name Helper name.
+     * @param args Arguments of the helper.
+     * @return What the helper returned, as executeScript would.
+     * @throws ScriptInstallationException If the library could not be
+     *             installed (so the helper did not run).
+     */
+    public Object call(@NotNull final String name, Object... args) {
+        return this.invoke(name, false, args);
+    }
+
+    /**
+     * Invokes an asynchronous helper, which receives a callback after the
+     * given arguments.
+     *
+     * @param name Helper name.
+     * @param args Arguments of the helper.
+     * @return What the helper called back with, as executeAsyncScript would.
+     * @throws ScriptInstallationException If the library could not be
+     *             installed (so the helper did not run).
+     */
+    public Object callAsync(@NotNull final String name, Object... args) {
+        return this.invoke(name, true, args);
+    }
+
+    private Object invoke(String name, boolean async, Object[] args) {
+        String currentVersion;
+        String currentLibrary;
+        boolean currentlyInstalled;
+        synchronized (this) {
+            if (!this.helpers.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown helper: " + name);
+            }
+            currentVersion = this.version;
+            currentLibrary = this.library;
+            currentlyInstalled = this.installed;
+        }
+        Object[] arguments = new Object[args.length + 2];
+        arguments[0] = currentVersion;
+        arguments[1] = name;
+        System.arraycopy(args, 0, arguments, 2, args.length);
+        String invoker = async ? Scripts.INVOKE_HELPER_ASYNC
+                : Scripts.INVOKE_HELPER;
+        if (currentlyInstalled) {
+            Object result = this.execute(invoker, async, arguments);
+            if (!isMissing(result)) {
+                return result;
+            }
+            log.trace("invoke({}): library missing, installing it", name);
+        }
+        Object result = this.execute("try { " + currentLibrary
+                + " } catch (e) { "
+                + (async ? Scripts.REPORT_NOT_INSTALLED_ASYNC
+                        : Scripts.REPORT_NOT_INSTALLED) + " }" + invoker,
+                async, arguments);
+        if (result instanceof Map
+                && ((Map<?, ?>) result).containsKey(NOT_INSTALLED_KEY)) {
+            throw new ScriptInstallationException("Could not install the "
+                    + "helpers to call " + name + ": "
+                    + ((Map<?, ?>) result).get(NOT_INSTALLED_KEY));
+        }
+        synchronized (this) {
+            ++this.installations;
+            if (currentVersion.equals(this.version)) {
+                this.installed = true;
+            }
+        }
+        return result;
+    }
+
+    private Object execute(String script, boolean async, Object[] arguments) {
+        return async ? this.executor.executeAsyncScript(script, arguments)
+                : this.executor.executeScript(script, arguments);
+    }
+
+    private void rebuild() {
+        StringBuilder helpersSource = new StringBuilder();
+        for (Map.Entry<String, String> helper : this.helpers.entrySet()) {
+            if (helpersSource.length() > 0) {
+                helpersSource.append(", ");
+            }
+            helpersSource.append(helper.getKey()).append(": ")
+                    .append(helper.getValue());
+        }
+        this.version = Integer.toHexString(helpersSource.toString()
+                .hashCode());
+        this.library = "window.__oswScripts = { version: arguments[0], helpers: { "
+                + helpersSource + " } };";
+        this.installed = false;
+    }
+
+    private static boolean isMissing(Object result) {
+        return result instanceof Map
+                && Boolean.TRUE.equals(((Map<?, ?>) result).get(MISSING_KEY));
+    }
+
+    @Override
+    public synchronized String toString() {
+        final StringBuilder sb = new StringBuilder("ScriptRegistry{");
+        sb.append("helpers=").append(this.helpers.keySet());
+        sb.append(", version=").append(this.version);
+        sb.append(", installed=").append(this.installed);
+        sb.append('}');
+        return sb.toString();
+    }
+}
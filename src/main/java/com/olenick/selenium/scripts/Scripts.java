@@ -0,0 +1,683 @@
+package com.olenick.selenium.scripts;
+
+/**
+ * Sources of the scripts this library runs inside the browser.
+ * <p>
+ * Scripts are written as function bodies that read their parameters from
+ * <code>arguments</code>, so they can be sent as they are through
+ * <code>executeScript</code>. The function expressions (named
+ * <code>*_FUNCTION</code>) are building blocks shared among scripts.
+ * </p>
+ * <p>
+ * Most of them are not sent as they are, though, but installed once per
+ * document as helpers of a {@link ScriptRegistry}, and invoked through
+ * {@link #INVOKE_HELPER} or {@link #INVOKE_HELPER_ASYNC}.
+ * </p>
+ */
+public class Scripts {
+    /**
+     * Function expression <code>(locator, all)</code>: finds the first (or
+     * every, if <code>all</code>) element matching a descriptor built by
+     * {@link com.olenick.selenium.util.Locators#toScriptLocator}. Throws if the
+     * strategy is unknown or the selector is invalid.
+     */
+    public static final String LOCATE_FUNCTION = "function (locator, all) {"
+            + " var value = locator.value, found = [], i, nodes, text;"
+            + " var first = function (list) {"
+            + "  return all ? Array.prototype.slice.call(list) : (list.length ? [list[0]] : []);"
+            + " };"
+            + " switch (locator.using) {"
+            + " case 'id':"
+            + "  if (!all) { nodes = document.getElementById(value); found = nodes ? [nodes] : []; break; }"
+            + "  nodes = document.getElementsByTagName('*');"
+            + "  for (i = 0; i < nodes.length; i++) { if (nodes[i].id === value) { found.push(nodes[i]); } }"
+            + "  break;"
+            + " case 'css': found = first(document.querySelectorAll(value)); break;"
+            + " case 'xpath':"
+            + "  nodes = document.evaluate(value, document, null, 7, null);"
+            + "  for (i = 0; i < nodes.snapshotLength && (all || !found.length); i++) {"
+            + "   if (nodes.snapshotItem(i).nodeType === 1) { found.push(nodes.snapshotItem(i)); }"
+            + "  }"
+            + "  break;"
+            + " case 'name': found = first(document.getElementsByName(value)); break;"
+            + " case 'className': found = first(document.getElementsByClassName(value)); break;"
+            + " case 'tagName': found = first(document.getElementsByTagName(value)); break;"
+            + " case 'linkText': case 'partialLinkText':"
+            + "  nodes = document.getElementsByTagName('a');"
+            + "  for (i = 0; i < nodes.length && (all || !found.length); i++) {"
+            + "   text = (nodes[i].innerText || nodes[i].textContent || '').replace(/^\\s+|\\s+$/g, '');"
+            + "   if (locator.using === 'linkText' ? text === value : text.indexOf(value) >= 0) { found.push(nodes[i]); }"
+            + "  }"
+            + "  break;"
+            + " default: throw new Error('Unsupported locator: ' + locator.using);"
+            + " }"
+            + " return all ? found : (found.length ? found[0] : null);"
+            + "}";
+
+    /**
+     * Function expression <code>(element)</code>: approximation of Selenium's
+     * displayedness check. It may report false negatives for exotic layouts,
+     * so callers should treat a negative result as "ask Selenium".
+     */
+    public static final String IS_DISPLAYED_FUNCTION = "function (element) {"
+            + " var style = window.getComputedStyle(element), node, rect;"
+            + " if (style.visibility === 'hidden' || style.visibility === 'collapse') { return false; }"
+            + " for (node = element; node && node.nodeType === 1; node = node.parentNode) {"
+            + "  style = window.getComputedStyle(node);"
+            + "  if (style.display === 'none' || style.opacity === '0') { return false; }"
+            + " }"
+            + " rect = element.getBoundingClientRect();"
+            + " return rect.width > 0 && rect.height > 0;"
+            + "}";
+
+    /**
+     * Arguments: list of locator descriptors. Returns a list aligned with the
+     * descriptors, holding the first matching element for each one, or null
+     * when nothing matched, the element is not visible while required to be,
+     * or the locator could not be evaluated.
+     */
+    public static final String FIND_ELEMENTS_IN_BATCH = "var locate = "
+            + LOCATE_FUNCTION + ", displayed = " + IS_DISPLAYED_FUNCTION + ";"
+            + " var locators = arguments[0], result = [], element, i;"
+            + " for (i = 0; i < locators.length; i++) {"
+            + "  try { element = locate(locators[i], false); } catch (e) { element = null; }"
+            + "  if (element && locators[i].visible && !displayed(element)) { element = null; }"
+            + "  result.push(element || null);"
+            + " }"
+            + " return result;";
+
+    /**
+     * Arguments: element. Scrolls the element into view.
+     */
+    public static final String SCROLL_INTO_VIEW = "arguments[0].scrollIntoView();";
+
+    /**
+     * Arguments: element. Scrolls the element into view and clicks it, only
+     * if it is displayed, enabled and would receive a click at its centre (it
+     * or one of its descendants is the topmost element there), as a native
+     * click would require.
+     * <p>
+     * Returns whether the element was clicked.
+     * </p>
+     */
+    public static final String SCROLL_INTO_VIEW_AND_CLICK = "var element = arguments[0];"
+            + " element.scrollIntoView();"
+            + " if (element.disabled) { return false; }"
+            + " var rect = element.getBoundingClientRect();"
+            + " if (rect.width <= 0 || rect.height <= 0) { return false; }"
+            + " var style = window.getComputedStyle(element);"
+            + " if (style.visibility !== 'visible' || style.opacity === '0') {"
+            + "  return false;"
+            + " }"
+            + " var hit = document.elementFromPoint(rect.left + rect.width / 2,"
+            + "  rect.top + rect.height / 2);"
+            + " if (!hit || (hit !== element && !element.contains(hit))) {"
+            + "  return false;"
+            + " }"
+            + " element.click();"
+            + " return true;";
+
+    /**
+     * Function expression <code>(select, match, selected, keys)</code>, match
+     * being "text", "value", "index" or "all": (de)selects the enabled options
+     * of the select matching each key (only the first one per key on a single
+     * select), as Selenium's Select would, and fires the input and change
+     * events once if anything changed. Texts are compared with their whitespace
+     * normalized.
+     * <p>
+     * Returns <code>{missing: [positions of the keys that matched no
+     * option]}</code>, <code>{notSelect: true}</code> if the element is not a
+     * select, or <code>{notMultiple: true}</code> when asked to deselect on a
+     * single select (in which case nothing is done).
+     * </p>
+     */
+    public static final String APPLY_SELECTION_FUNCTION = "function (select, match, selected, keys) {"
+            + " var missing = [], changed = false, options, byKey = {}, matches, i, k, key, event;"
+            + " if (!select.tagName || select.tagName.toLowerCase() !== 'select') { return { notSelect: true }; }"
+            + " if (!selected && !select.multiple) { return { notMultiple: true }; }"
+            + " var normalize = function (text) { return String(text).replace(/\\s+/g, ' ').replace(/^ | $/g, ''); };"
+            + " var set = function (option) {"
+            + "  if (!option.disabled && option.selected !== selected) { option.selected = selected; changed = true; }"
+            + " };"
+            + " options = select.options;"
+            + " if (match === 'all') {"
+            + "  for (i = 0; i < options.length; i++) { set(options[i]); }"
+            + " } else if (match === 'index') {"
+            + "  for (k = 0; k < keys.length; k++) {"
+            + "   if (typeof keys[k] === 'number' && keys[k] >= 0 && keys[k] < options.length) { set(options[keys[k]]); }"
+            + "   else { missing.push(k); }"
+            + "  }"
+            + " } else {"
+            + "  for (i = 0; i < options.length; i++) {"
+            + "   key = '$' + (match === 'text' ? normalize(options[i].text) : options[i].value);"
+            + "   (byKey[key] = byKey[key] || []).push(options[i]);"
+            + "  }"
+            + "  for (k = 0; k < keys.length; k++) {"
+            + "   matches = keys[k] === null ? null : byKey['$' + (match === 'text' ? normalize(keys[k]) : keys[k])];"
+            + "   if (!matches) { missing.push(k); continue; }"
+            + "   for (i = 0; i < (select.multiple ? matches.length : 1); i++) { set(matches[i]); }"
+            + "  }"
+            + " }"
+            + " if (changed) {"
+            + "  event = document.createEvent('HTMLEvents'); event.initEvent('input', true, false); select.dispatchEvent(event);"
+            + "  event = document.createEvent('HTMLEvents'); event.initEvent('change', true, false); select.dispatchEvent(event);"
+            + " }"
+            + " return { missing: missing };"
+            + "}";
+
+    /**
+     * Arguments: select element, match, whether to select (or deselect), list
+     * of keys to match. See {@link #APPLY_SELECTION_FUNCTION}.
+     */
+    public static final String APPLY_SELECTION = "return (" + APPLY_SELECTION_FUNCTION
+            + ").apply(null, arguments);";
+
+    /**
+     * Arguments: list of entries <code>{element, kind, ...}</code>, applied in
+     * order:
+     * <ul>
+     * <li>"text" (<code>value</code>): focuses the field, sets its value through
+     * the native setter (so frameworks tracking it notice), fires input and
+     * change, and blurs it.</li>
+     * <li>"check" (<code>value</code>): clicks the checkbox if its checked state
+     * differs.</li>
+     * <li>"click": clicks the element.</li>
+     * <li>"select" (<code>match</code>, <code>keys</code>): selects options, as
+     * {@link #APPLY_SELECTION_FUNCTION} does.</li>
+     * </ul>
+     * Stops at the first entry that cannot be applied and returns
+     * <code>{index, error}</code> or <code>{index, missing: [positions of the
+     * keys that matched no option]}</code>, or <code>{index, error, thrown:
+     * true}</code> if applying it threw (so it and the following ones were not
+     * applied, or not completely); returns null if all of them were applied.
+     */
+    public static final String FILL_FORM = "var applySelection = " + APPLY_SELECTION_FUNCTION + ";"
+            + " var entries = arguments[0], entry, element, result, descriptor, prototype, i;"
+            + " var fire = function (element, type, bubbles) {"
+            + "  var event = document.createEvent('HTMLEvents'); event.initEvent(type, bubbles, false); element.dispatchEvent(event);"
+            + " };"
+            + " for (i = 0; i < entries.length; i++) {"
+            + "  entry = entries[i]; element = entry.element;"
+            + "  try {"
+            + "  switch (entry.kind) {"
+            + "  case 'text':"
+            + "   if (element.disabled || element.readOnly) { return { index: i, error: 'Element is disabled or read-only' }; }"
+            + "   if (typeof element.focus === 'function') { element.focus(); }"
+            + "   if (element.isContentEditable) {"
+            + "    element.textContent = entry.value;"
+            + "   } else {"
+            + "    for (prototype = Object.getPrototypeOf(element), descriptor = null; prototype && !descriptor;"
+            + "     prototype = Object.getPrototypeOf(prototype)) {"
+            + "     descriptor = Object.getOwnPropertyDescriptor(prototype, 'value');"
+            + "    }"
+            + "    if (descriptor && descriptor.set) { descriptor.set.call(element, entry.value); } else { element.value = entry.value; }"
+            + "   }"
+            + "   fire(element, 'input', true); fire(element, 'change', true);"
+            + "   if (document.activeElement === element) { element.blur(); } else { fire(element, 'blur', false); }"
+            + "   break;"
+            + "  case 'check':"
+            + "   if (element.disabled) { return { index: i, error: 'Element is disabled' }; }"
+            + "   if (element.checked !== entry.value) { element.click(); }"
+            + "   break;"
+            + "  case 'click': element.click(); break;"
+            + "  case 'select':"
+            + "   result = applySelection(element, entry.match, true, entry.keys);"
+            + "   if (result.notSelect) { return { index: i, error: 'Element is not a select' }; }"
+            + "   if (result.missing.length) { return { index: i, missing: result.missing }; }"
+            + "   break;"
+            + "  default: return { index: i, error: 'Unknown entry kind: ' + entry.kind };"
+            + "  }"
+            + "  } catch (e) { return { index: i, error: String(e), thrown: true }; }"
+            + " }"
+            + " return null;";
+
+    /**
+     * Arguments: select element, offset, limit, whether to read only the
+     * selected options. Returns <code>{total: number of (selected) options,
+     * options: [[index, value, text, selected, disabled], ...]}</code> for the
+     * (selected) options from the offset on, at most limit of them; or null if
+     * the element is not a select.
+     */
+    public static final String READ_OPTIONS = "var select = arguments[0], offset = arguments[1],"
+            + " limit = arguments[2], selectedOnly = arguments[3], rows = [], total = 0, options, option, i;"
+            + " if (!select.tagName || select.tagName.toLowerCase() !== 'select') { return null; }"
+            + " var row = function (option) {"
+            + "  var group = option.parentNode;"
+            + "  return [option.index, option.value, option.text, option.selected,"
+            + "   option.disabled || (group.tagName === 'OPTGROUP' && group.disabled)];"
+            + " };"
+            + " options = select.options;"
+            + " if (!selectedOnly) {"
+            + "  for (i = offset; i < options.length && rows.length < limit; i++) { rows.push(row(options[i])); }"
+            + "  return { total: options.length, options: rows };"
+            + " }"
+            + " for (i = 0; i < options.length; i++) {"
+            + "  option = options[i];"
+            + "  if (option.selected) {"
+            + "   if (total >= offset && rows.length < limit) { rows.push(row(option)); }"
+            + "   total++;"
+            + "  }"
+            + " }"
+            + " return { total: total, options: rows };";
+
+    /**
+     * Arguments: list of elements, list of columns (<code>{kind, name}</code>,
+     * kinds being "text", "tagName", "attribute", "cssValue", "displayed",
+     * "enabled" and "selected"). Returns a row per element, with a value per
+     * column followed by whether the element is displayed (as judged by
+     * {@link #IS_DISPLAYED_FUNCTION}).
+     */
+    public static final String READ_IN_BULK = "var displayed = " + IS_DISPLAYED_FUNCTION + ";"
+            + " var elements = arguments[0], columns = arguments[1], rows = [], row, element, shown, i, j;"
+            + " var booleans = /^(async|autofocus|autoplay|checked|compact|complete|controls|declare|defaultchecked"
+            + "|defaultselected|defer|disabled|draggable|ended|formnovalidate|hidden|indeterminate|iscontenteditable"
+            + "|ismap|itemscope|loop|multiple|muted|nohref|noresize|noshade|novalidate|nowrap|open|paused|pubdate"
+            + "|readonly|required|reversed|scoped|seamless|seeking|selected|spellcheck|truespeed|willvalidate)$/;"
+            + " var attribute = function (element, name) {"
+            + "  var lower = name.toLowerCase(), value;"
+            + "  if (lower === 'style' || lower === 'class') { return element.getAttribute(lower); }"
+            + "  if (booleans.test(lower)) {"
+            + "   value = lower === 'readonly' ? element.readOnly : element[lower];"
+            + "   return value === true || (value !== false && element.hasAttribute(name)) ? 'true' : null;"
+            + "  }"
+            + "  value = element[name];"
+            + "  if (value !== undefined && value !== null && typeof value !== 'object' && typeof value !== 'function') {"
+            + "   return String(value);"
+            + "  }"
+            + "  return element.getAttribute(name);"
+            + " };"
+            + " var text = function (element) {"
+            + "  return (element.innerText || element.textContent || '').replace(/\\u00a0/g, ' ')"
+            + "   .replace(/[ \\t\\f\\v]+/g, ' ').replace(/ ?\\r?\\n ?/g, '\\n').replace(/\\n+/g, '\\n')"
+            + "   .replace(/^\\s+|\\s+$/g, '');"
+            + " };"
+            + " var color = function (value) {"
+            + "  var rgb = /^rgb\\((\\d+), ?(\\d+), ?(\\d+)\\)$/.exec(value);"
+            + "  return rgb ? 'rgba(' + rgb[1] + ', ' + rgb[2] + ', ' + rgb[3] + ', 1)' : value;"
+            + " };"
+            + " for (i = 0; i < elements.length; i++) {"
+            + "  element = elements[i]; shown = displayed(element); row = [];"
+            + "  for (j = 0; j < columns.length; j++) {"
+            + "   switch (columns[j].kind) {"
+            + "   case 'text': row.push(shown ? text(element) : ''); break;"
+            + "   case 'tagName': row.push(element.tagName.toLowerCase()); break;"
+            + "   case 'attribute': row.push(attribute(element, columns[j].name)); break;"
+            + "   case 'cssValue': row.push(color(window.getComputedStyle(element).getPropertyValue(columns[j].name))); break;"
+            + "   case 'displayed': row.push(shown); break;"
+            + "   case 'enabled':"
+            + "    row.push(typeof element.matches === 'function' ? !element.matches(':disabled') : !element.disabled); break;"
+            + "   case 'selected':"
+            + "    row.push(element.tagName.toLowerCase() === 'option' ? element.selected"
+            + "     : (element.type === 'checkbox' || element.type === 'radio') && element.checked); break;"
+            + "   default: row.push(null);"
+            + "   }"
+            + "  }"
+            + "  row.push(shown); rows.push(row);"
+            + " }"
+            + " return rows;";
+
+    /**
+     * Asynchronous. Arguments: ready state, timeout in milliseconds. Calls back
+     * with true as soon as the document reaches (or has passed) the given ready
+     * state, listening to readystatechange instead of polling, or with false
+     * once the timeout expires.
+     */
+    public static final String WAIT_FOR_READY_STATE = "var wanted = arguments[0], timeout = arguments[1],"
+            + " done = arguments[arguments.length - 1], timer, listener;"
+            + " var order = { loading: 0, interactive: 1, complete: 2 };"
+            + " var reached = function () {"
+            + "  return document.readyState === wanted || order[document.readyState] > order[wanted];"
+            + " };"
+            + " if (reached()) { done(true); return; }"
+            + " listener = function () {"
+            + "  if (reached()) { clearTimeout(timer); document.removeEventListener('readystatechange', listener); done(true); }"
+            + " };"
+            + " timer = setTimeout(function () {"
+            + "  document.removeEventListener('readystatechange', listener); done(false);"
+            + " }, timeout);"
+            + " document.addEventListener('readystatechange', listener);";
+
+    /**
+     * Asynchronous. Arguments: criteria ("networkIdle", "domQuiet" and
+     * "requireLoad", times in milliseconds), timeout in milliseconds. Installs,
+     * once per document, listeners for the load event, a counter of pending
+     * XHR/fetch requests and a MutationObserver; then calls back with true as
+     * soon as the page is settled, or with a description of its current state
+     * once the timeout expires.
+     * <p>
+     * Requests started before the first installation on a document are not
+     * tracked, and the DOM is assumed to have just changed at that moment.
+     * </p>
+     */
+    public static final String WAIT_FOR_PAGE_SETTLED = "var options = arguments[0], timeout = arguments[1],"
+            + " done = arguments[arguments.length - 1], state = window.__oswReadiness;"
+            + " if (!state) {"
+            + "  state = window.__oswReadiness = { pending: 0, lastNetwork: 0, lastMutation: new Date().getTime(),"
+            + "   loaded: document.readyState === 'complete' };"
+            + "  (function () {"
+            + "   var entries = window.performance && performance.getEntriesByType"
+            + "    ? performance.getEntriesByType('resource') : [], i, send = XMLHttpRequest.prototype.send, fetch = window.fetch;"
+            + "   for (i = 0; i < entries.length; i++) {"
+            + "    state.lastNetwork = Math.max(state.lastNetwork, performance.timing.navigationStart + entries[i].responseEnd);"
+            + "   }"
+            + "   var started = function () { state.pending++; state.lastNetwork = new Date().getTime(); };"
+            + "   var finished = function () { state.pending = Math.max(0, state.pending - 1); state.lastNetwork = new Date().getTime(); };"
+            + "   window.addEventListener('load', function () { state.loaded = true; });"
+            + "   XMLHttpRequest.prototype.send = function () {"
+            + "    started(); this.addEventListener('loadend', finished); return send.apply(this, arguments);"
+            + "   };"
+            + "   if (fetch) {"
+            + "    window.fetch = function () {"
+            + "     started();"
+            + "     return fetch.apply(this, arguments).then(function (response) { finished(); return response; },"
+            + "      function (error) { finished(); throw error; });"
+            + "    };"
+            + "   }"
+            + "   if (window.MutationObserver) {"
+            + "    new MutationObserver(function () { state.lastMutation = new Date().getTime(); }).observe(document,"
+            + "     { childList: true, subtree: true, attributes: true, characterData: true });"
+            + "   }"
+            + "  })();"
+            + " }"
+            + " var deadline = new Date().getTime() + timeout;"
+            + " var check = function () {"
+            + "  var now = new Date().getTime(), loaded = state.loaded || document.readyState === 'complete';"
+            + "  var networkLeft = options.networkIdle - (now - state.lastNetwork);"
+            + "  var domLeft = options.domQuiet - (now - state.lastMutation);"
+            + "  if ((loaded || !options.requireLoad) && state.pending === 0 && networkLeft <= 0 && domLeft <= 0) {"
+            + "   done(true); return;"
+            + "  }"
+            + "  if (now >= deadline) {"
+            + "   done({ loaded: loaded, pending: state.pending,"
+            + "    networkIdle: now - state.lastNetwork, domQuiet: now - state.lastMutation });"
+            + "   return;"
+            + "  }"
+            + "  var next = state.pending || (!loaded && options.requireLoad) ? 50 : Math.max(networkLeft, domLeft);"
+            + "  setTimeout(check, Math.max(10, Math.min(next, deadline - now)));"
+            + " };"
+            + " check();";
+
+    /**
+     * Asynchronous. Arguments: locator descriptor, condition ("present",
+     * "visible" or "clickable"), whether to find all matching elements, timeout
+     * in milliseconds. Watches the DOM (MutationObserver, throttled to
+     * animation frames, plus a slow timer for changes that do not mutate it)
+     * and calls back with the element (or non-empty list of elements) as soon
+     * as it satisfies the condition, with null once the timeout expires, or
+     * with <code>{error: message}</code> if the locator cannot be evaluated.
+     */
+    public static final String FIND_ELEMENT_WHEN_READY = "var locate = "
+            + LOCATE_FUNCTION + ", displayed = " + IS_DISPLAYED_FUNCTION + ";"
+            + " var locator = arguments[0], condition = arguments[1], all = arguments[2],"
+            + "  deadline = new Date().getTime() + arguments[3], done = arguments[arguments.length - 1];"
+            + " var observer = null, timer = null, scheduled = false, finished = false;"
+            + " var nextFrame = window.requestAnimationFrame || function (callback) { setTimeout(callback, 16); };"
+            + " var satisfies = function (element) {"
+            + "  return condition === 'present' || (displayed(element) && (condition !== 'clickable' || !element.disabled));"
+            + " };"
+            + " var finish = function (result) {"
+            + "  finished = true; clearTimeout(timer); if (observer) { observer.disconnect(); } done(result);"
+            + " };"
+            + " var check = function () {"
+            + "  var found;"
+            + "  if (finished) { return; }"
+            + "  try { found = locate(locator, all); } catch (e) { finish({ error: String(e && e.message || e) }); return; }"
+            + "  if (all ? found.length > 0 : found !== null && satisfies(found)) { finish(found); return; }"
+            + "  if (new Date().getTime() >= deadline) { finish(null); return; }"
+            + "  clearTimeout(timer);"
+            + "  timer = setTimeout(check, Math.max(0, Math.min(250, deadline - new Date().getTime())));"
+            + " };"
+            + " if (window.MutationObserver) {"
+            + "  observer = new MutationObserver(function () {"
+            + "   if (!scheduled) { scheduled = true; nextFrame(function () { scheduled = false; check(); }); }"
+            + "  });"
+            + "  observer.observe(document, { childList: true, subtree: true, attributes: true, characterData: true });"
+            + " }"
+            + " check();";
+
+    /**
+     * Arguments: element, or null. Returns the geometry of the page, in CSS
+     * pixels: <code>{pageWidth, pageHeight, viewportWidth, viewportHeight
+     * (excluding scrollbars), windowWidth (including them), scrollX, scrollY,
+     * region}</code>, region being the rectangle of the element in page
+     * coordinates (<code>{x, y, width, height}</code>), if given.
+     */
+    public static final String PAGE_GEOMETRY = "var element = arguments[0], root = document.documentElement,"
+            + " body = document.body || root;"
+            + " var geometry = {"
+            + "  pageWidth: Math.max(root.scrollWidth, body.scrollWidth),"
+            + "  pageHeight: Math.max(root.scrollHeight, body.scrollHeight),"
+            + "  viewportWidth: root.clientWidth, viewportHeight: root.clientHeight,"
+            + "  windowWidth: window.innerWidth, scrollX: window.pageXOffset, scrollY: window.pageYOffset"
+            + " };"
+            + " if (element) {"
+            + "  var rect = element.getBoundingClientRect();"
+            + "  geometry.region = { x: rect.left + window.pageXOffset, y: rect.top + window.pageYOffset,"
+            + "   width: rect.width, height: rect.height };"
+            + " }"
+            + " return geometry;";
+
+    /**
+     * Arguments: x, y (CSS pixels). Scrolls the window there, and returns
+     * where it actually scrolled to, as <code>[x, y]</code>.
+     */
+    public static final String SCROLL_TO = "window.scrollTo(arguments[0], arguments[1]);"
+            + " return [window.pageXOffset, window.pageYOffset];";
+
+    /**
+     * Arguments: delta (whether to keep only what changed since the last
+     * capture). Serializes the page (doctype and document element), and keeps
+     * the part to capture, to be read with {@link #READ_PAGE_SOURCE}; the page
+     * becomes the base of the next delta once that part is read. Returns
+     * <code>{length, prefix, suffix, baseLength, baseHash}</code>: the length
+     * of the part to capture and, in delta mode, the lengths of the start and
+     * end it shares with the last capture, and the length (-1 if there was
+     * none) and FNV-1a hash (of the UTF-16 code units, 8 hex digits) of that
+     * capture.
+     */
+    public static final String CAPTURE_PAGE_SOURCE = "var delta = arguments[0], root = document.documentElement,"
+            + " doctype = document.doctype, html = root ? root.outerHTML : '', hash = 0x811c9dc5, i;"
+            + " if (doctype) {"
+            + "  html = '<!DOCTYPE ' + doctype.name"
+            + "   + (doctype.publicId ? ' PUBLIC \"' + doctype.publicId + '\"' : doctype.systemId ? ' SYSTEM' : '')"
+            + "   + (doctype.systemId ? ' \"' + doctype.systemId + '\"' : '') + '>\\n' + html;"
+            + " }"
+            + " var state = window.__oswPageSource || (window.__oswPageSource = {}),"
+            + "  last = delta && typeof state.last === 'string' ? state.last : null, prefix = 0, suffix = 0;"
+            + " if (last !== null) {"
+            + "  var limit = Math.min(last.length, html.length);"
+            + "  while (prefix < limit && last.charCodeAt(prefix) === html.charCodeAt(prefix)) { prefix++; }"
+            + "  while (suffix < limit - prefix"
+            + "   && last.charCodeAt(last.length - 1 - suffix) === html.charCodeAt(html.length - 1 - suffix)) { suffix++; }"
+            // Never split surrogate pairs
+            + "  var code = html.charCodeAt(prefix - 1);"
+            + "  if (code >= 0xD800 && code <= 0xDBFF) { prefix--; }"
+            + "  code = html.charCodeAt(html.length - suffix);"
+            + "  if (code >= 0xDC00 && code <= 0xDFFF) { suffix--; }"
+            + " }"
+            // FNV-1a, multiplying by its prime with shifts (no Math.imul in ES5)
+            + " for (i = 0; i < html.length; i++) {"
+            + "  hash ^= html.charCodeAt(i);"
+            + "  hash = (hash + (hash << 1) + (hash << 4) + (hash << 7) + (hash << 8) + (hash << 24)) >>> 0;"
+            + " }"
+            + " var result = { length: html.length - prefix - suffix, prefix: prefix, suffix: suffix,"
+            + "  baseLength: last !== null ? last.length : -1, baseHash: last !== null ? state.lastHash : null };"
+            + " state.next = html; state.nextHash = ('0000000' + hash.toString(16)).slice(-8);"
+            + " state.pending = html.substring(prefix, html.length - suffix);"
+            // Nothing to read: the capture is complete already
+            + " if (!state.pending.length) {"
+            + "  state.last = state.next; state.lastHash = state.nextHash;"
+            + "  delete state.next; delete state.nextHash; delete state.pending;"
+            + " }"
+            + " return result;";
+
+    /**
+     * Arguments: offset, maximum length. Returns a chunk of the page source
+     * kept by {@link #CAPTURE_PAGE_SOURCE} (shorter than asked rather than
+     * splitting a surrogate pair), or null if there is none (e.g.: the page
+     * changed). Once its last chunk is read, the page source is released and
+     * the page becomes the base of the next delta.
+     */
+    public static final String READ_PAGE_SOURCE = "var state = window.__oswPageSource,"
+            + " pending = state && state.pending, offset = arguments[0];"
+            + " if (typeof pending !== 'string') { return null; }"
+            + " var end = Math.min(offset + arguments[1], pending.length);"
+            + " var code = pending.charCodeAt(end - 1);"
+            + " if (end < pending.length && end > offset + 1 && code >= 0xD800 && code <= 0xDBFF) { end--; }"
+            + " if (end >= pending.length) {"
+            + "  state.last = state.next; state.lastHash = state.nextHash;"
+            + "  delete state.next; delete state.nextHash; delete state.pending;"
+            + " }"
+            + " return pending.substring(offset, end);";
+
+    /**
+     * Arguments: tracker id, root elements (the whole document if none),
+     * maximum elements to log changes for. Starts logging the changes of the
+     * subtrees of the roots, per element changed (nodes added and removed,
+     * attributes and text changed), to be read with {@link #READ_CHANGES}.
+     * Changes to more elements than the maximum are only counted. Each element
+     * changed holds its log entry in an expando property, until read. Returns
+     * false, tracking nothing, if the browser has no MutationObserver.
+     */
+    public static final String WATCH_CHANGES = "var id = arguments[0], roots = arguments[1], maxTargets = arguments[2],"
+            + " trackers = window.__oswChanges || (window.__oswChanges = {});"
+            + " if (trackers[id]) { trackers[id].forget(); trackers[id].observer.disconnect(); delete trackers[id]; }"
+            + " if (typeof MutationObserver === 'undefined') { return false; }"
+            + " var key = '__oswChange_' + id;"
+            + " var tracker = { targets: [], entries: [], dropped: 0, watched: [] };"
+            + " tracker.record = function (records) {"
+            + "  for (var i = 0; i < records.length; i++) {"
+            + "   var record = records[i], target = record.target;"
+            + "   if (target.nodeType !== 1) { target = target.parentNode; }"
+            + "   if (!target || target.nodeType !== 1) { continue; }"
+            + "   var entry = target[key];"
+            + "   if (!entry) {"
+            + "    if (tracker.targets.length >= maxTargets) { tracker.dropped++; continue; }"
+            + "    entry = target[key] = { added: 0, removed: 0, attributes: {}, text: false };"
+            + "    tracker.targets.push(target); tracker.entries.push(entry);"
+            + "   }"
+            + "   if (record.type === 'childList') {"
+            + "    entry.added += record.addedNodes.length; entry.removed += record.removedNodes.length;"
+            + "   } else if (record.type === 'attributes') {"
+            + "    entry.attributes[record.attributeName] = true;"
+            + "   } else { entry.text = true; }"
+            + "  }"
+            + " };"
+            + " tracker.forget = function () {"
+            + "  for (var i = 0; i < tracker.targets.length; i++) {"
+            + "   try { delete tracker.targets[i][key]; } catch (e) { tracker.targets[i][key] = undefined; }"
+            + "  }"
+            + "  tracker.targets = []; tracker.entries = []; tracker.dropped = 0;"
+            + " };"
+            + " tracker.observer = new MutationObserver(tracker.record);"
+            + " if (!roots || !roots.length) { roots = [document.documentElement]; }"
+            + " for (var i = 0; i < roots.length; i++) {"
+            + "  tracker.observer.observe(roots[i],"
+            + "   { childList: true, subtree: true, attributes: true, characterData: true });"
+            + " }"
+            + " trackers[id] = tracker;"
+            + " return true;";
+
+    /**
+     * Arguments: tracker id, elements to watch (as <code>[index,
+     * element]</code> pairs). Registers the elements, for
+     * {@link #READ_CHANGES} to tell whether they changed.
+     */
+    public static final String WATCH_ELEMENTS = "var tracker = window.__oswChanges && window.__oswChanges[arguments[0]],"
+            + " updates = arguments[1];"
+            + " if (!tracker) { return false; }"
+            + " for (var i = 0; i < updates.length; i++) { tracker.watched[updates[i][0]] = updates[i][1]; }"
+            + " return true;";
+
+    /**
+     * Arguments: tracker id, elements to watch (as for
+     * {@link #WATCH_ELEMENTS}). Returns the changes logged since the last
+     * call, and forgets them: <code>{changes: [[element (null if no longer
+     * in the page), nodes added, nodes removed, attributes changed, whether
+     * its text changed]], dropped, invalidated, changed}</code>; dropped being
+     * the changes only counted, invalidated the indexes of the watched
+     * elements no longer in the page (no longer watched), and changed those of
+     * the ones in (or under) which something changed. Returns null if the
+     * tracker is gone (e.g.: the page was left).
+     */
+    public static final String READ_CHANGES = "var tracker = window.__oswChanges && window.__oswChanges[arguments[0]],"
+            + " updates = arguments[1], root = document.documentElement;"
+            + " if (!tracker) { return null; }"
+            + " for (var i = 0; i < updates.length; i++) { tracker.watched[updates[i][0]] = updates[i][1]; }"
+            + " tracker.record(tracker.observer.takeRecords());"
+            + " var changes = [], targets = tracker.targets, invalidated = [], changed = [], entry, attributes, name;"
+            + " for (i = 0; i < targets.length; i++) {"
+            + "  entry = tracker.entries[i]; attributes = [];"
+            + "  for (name in entry.attributes) {"
+            + "   if (Object.prototype.hasOwnProperty.call(entry.attributes, name)) { attributes.push(name); }"
+            + "  }"
+            + "  changes.push([root && root.contains(targets[i]) ? targets[i] : null, entry.added, entry.removed,"
+            + "   attributes, entry.text]);"
+            + " }"
+            + " for (i = 0; i < tracker.watched.length; i++) {"
+            + "  var element = tracker.watched[i];"
+            + "  if (!element) { continue; }"
+            + "  if (!root || !root.contains(element)) { invalidated.push(i); tracker.watched[i] = null; continue; }"
+            + "  for (var j = 0; j < targets.length; j++) {"
+            + "   if (tracker.dropped || element === targets[j] || element.contains(targets[j])) {"
+            + "    changed.push(i); break;"
+            + "   }"
+            + "  }"
+            + " }"
+            + " var result = { changes: changes, dropped: tracker.dropped, invalidated: invalidated, changed: changed };"
+            + " tracker.forget();"
+            + " return result;";
+
+    /**
+     * Arguments: tracker id. Stops logging changes.
+     */
+    public static final String UNWATCH_CHANGES = "var trackers = window.__oswChanges, id = arguments[0];"
+            + " if (trackers && trackers[id]) { trackers[id].forget(); trackers[id].observer.disconnect(); delete trackers[id]; }"
+            + " return true;";
+
+    /**
+     * Arguments: library version, helper name, helper arguments. Invokes a
+     * helper of the library installed in the document by
+     * {@link ScriptRegistry}, returning what it returns, or returns
+     * <code>{__oswScriptsMissing: true}</code> if no library (or another
+     * version of it) is installed.
+     */
+    public static final String INVOKE_HELPER = "var library = window.__oswScripts;"
+            + " if (!library || library.version !== arguments[0]) { return { __oswScriptsMissing: true }; }"
+            + " return library.helpers[arguments[1]].apply(null, Array.prototype.slice.call(arguments, 2));";
+
+    /**
+     * Asynchronous version of {@link #INVOKE_HELPER}: the helper receives the
+     * callback as its last argument, and the missing library is reported
+     * through it.
+     */
+    public static final String INVOKE_HELPER_ASYNC = "var library = window.__oswScripts;"
+            + " if (!library || library.version !== arguments[0]) {"
+            + "  arguments[arguments.length - 1]({ __oswScriptsMissing: true }); return;"
+            + " }"
+            + " library.helpers[arguments[1]].apply(null, Array.prototype.slice.call(arguments, 2));";
+
+    /**
+     * Reports, instead of the result of a helper, that installing the library
+     * threw the error <code>e</code>: returns <code>{__oswScriptsNotInstalled:
+     * message}</code>. To be used in the catch clause around the library.
+     */
+    public static final String REPORT_NOT_INSTALLED = "return { __oswScriptsNotInstalled: String(e) };";
+
+    /**
+     * Asynchronous version of {@link #REPORT_NOT_INSTALLED}, reporting it
+     * through the callback.
+     */
+    public static final String REPORT_NOT_INSTALLED_ASYNC = "arguments[arguments.length - 1]({ __oswScriptsNotInstalled: String(e) }); return;";
+
+    /**
+     * Clears the local and session storage of the current page, if available.
+     */
+    public static final String CLEAR_STORAGE = "try { window.localStorage.clear(); } catch (e) {}"
+            + " try { window.sessionStorage.clear(); } catch (e) {}";
+
+    /**
+     * Returns 1; used to check that a session is alive.
+     */
+    public static final String PING = "return 1;";
+}
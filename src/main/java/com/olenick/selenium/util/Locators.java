@@ -0,0 +1,90 @@
+package com.olenick.selenium.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+import org.openqa.selenium.By;
+
+/**
+ * Translates Selenium locators into plain descriptors, so they can be handed
+ * over to the scripts that run inside the browser.
+ * <p>
+ * Only the standard locators created through the {@link By} factory methods
+ * are translated; anything else (chained locators, custom subclasses, ...) is
+ * reported as unsupported and must be resolved through Selenium.
+ * </p>
+ */
+public class Locators {
+    public static final String STRATEGY_ID = "id";
+    public static final String STRATEGY_CSS = "css";
+    public static final String STRATEGY_XPATH = "xpath";
+    public static final String STRATEGY_NAME = "name";
+    public static final String STRATEGY_CLASS_NAME = "className";
+    public static final String STRATEGY_TAG_NAME = "tagName";
+    public static final String STRATEGY_LINK_TEXT = "linkText";
+    public static final String STRATEGY_PARTIAL_LINK_TEXT = "partialLinkText";
+    public static final String STRATEGY_OTHER = "other";
+
+    public static final String KEY_USING = "using";
+    public static final String KEY_VALUE = "value";
+    public static final String KEY_VISIBLE = "visible";
+
+    private static final Map<Class<? extends By>, String[]> STRATEGIES = new HashMap<>();
+
+    static {
+        STRATEGIES.put(By.ById.class, new String[] { STRATEGY_ID, "By.id: " });
+        STRATEGIES.put(By.ByCssSelector.class, new String[] { STRATEGY_CSS,
+                "By.cssSelector: " });
+        STRATEGIES.put(By.ByXPath.class, new String[] { STRATEGY_XPATH,
+                "By.xpath: " });
+        STRATEGIES.put(By.ByName.class, new String[] { STRATEGY_NAME,
+                "By.name: " });
+        STRATEGIES.put(By.ByClassName.class, new String[] {
+                STRATEGY_CLASS_NAME, "By.className: " });
+        STRATEGIES.put(By.ByTagName.class, new String[] { STRATEGY_TAG_NAME,
+                "By.tagName: " });
+        STRATEGIES.put(By.ByLinkText.class, new String[] { STRATEGY_LINK_TEXT,
+                "By.linkText: " });
+        STRATEGIES.put(By.ByPartialLinkText.class, new String[] {
+                STRATEGY_PARTIAL_LINK_TEXT, "By.partialLinkText: " });
+    }
+
+    /**
+     * @param by Locator.
+     * @return The strategy name of the locator, or {@link #STRATEGY_OTHER} if
+     *         it is not one of the standard ones.
+     */
+    public static String strategyOf(@NotNull final By by) {
+        String[] strategy = STRATEGIES.get(by.getClass());
+        return strategy == null ? STRATEGY_OTHER : strategy[0];
+    }
+
+    /**
+     * Builds the descriptor used by the in-browser scripts to find an element.
+     *
+     * @param by Locator.
+     * @param visible Whether the element is required to be visible.
+     * @return Descriptor ("using", "value" and "visible" keys), or null if the
+     *         locator cannot be translated.
+     */
+    public static Map<String, Object> toScriptLocator(@NotNull final By by,
+            final boolean visible) {
+        String[] strategy = STRATEGIES.get(by.getClass());
+        if (strategy == null) {
+            return null;
+        }
+        // The standard locators do not expose their values other than through
+        // toString(), which has been stable across Selenium versions.
+        String description = by.toString();
+        if (description == null || !description.startsWith(strategy[1])) {
+            return null;
+        }
+        Map<String, Object> locator = new HashMap<>(4);
+        locator.put(KEY_USING, strategy[0]);
+        locator.put(KEY_VALUE, description.substring(strategy[1].length()));
+        locator.put(KEY_VISIBLE, visible);
+        return locator;
+    }
+}
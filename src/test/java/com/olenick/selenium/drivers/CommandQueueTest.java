@@ -0,0 +1,270 @@
+package com.olenick.selenium.drivers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.SessionId;
+
+public class CommandQueueTest {
+    // Sent by the stub only once released
+    private static final String BLOCKING = "blocking";
+    private static final String FAILING = "failing";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private StubExecutor executor;
+    private CommandQueue queue;
+    private ExecutorService callers;
+
+    @Before
+    public void setUp() {
+        this.executor = new StubExecutor();
+        this.queue = new CommandQueue(this.executor);
+        this.callers = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        this.executor.release.countDown();
+        this.queue.close();
+        this.callers.shutdownNow();
+    }
+
+    @Test
+    public void returnsTheResponses() throws IOException {
+        Response response = this.queue.execute(command("title"));
+        assertEquals("title", response.getValue());
+    }
+
+    @Test
+    public void failuresReachTheCaller() {
+        try {
+            this.queue.execute(command(FAILING));
+            fail("Failure not thrown");
+        } catch (IOException expected) {
+            assertEquals(FAILING, expected.getMessage());
+        }
+    }
+
+    @Test
+    public void waitingCommandsRunByPriorityThenInOrder() throws Exception {
+        Future<Response> blocking = this.callers.submit(this.sending(
+                CommandPriority.NORMAL, BLOCKING));
+        this.executor.blocked.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        List<Future<Response>> sent = new ArrayList<>();
+        int depth = 0;
+        for (String name : Arrays.asList("low 1", "normal 1", "high 1",
+                "normal 2", "high 2", "low 2")) {
+            CommandPriority priority = CommandPriority.valueOf(name.substring(
+                    0, name.indexOf(' ')).toUpperCase(Locale.ENGLISH));
+            sent.add(this.callers.submit(this.sending(priority, name)));
+            // Queued one at a time, for their order to be known
+            this.awaitDepth(++depth);
+        }
+        this.executor.release.countDown();
+        blocking.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        for (Future<Response> response : sent) {
+            response.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        assertEquals(Arrays.asList(BLOCKING, "high 1", "high 2", "normal 1",
+                "normal 2", "low 1", "low 2"), this.executor.sent);
+        assertEquals(6, this.queue.getMaxDepth());
+    }
+
+    @Test
+    public void interruptedCallersWithdrawTheirCommands() throws Exception {
+        Future<Response> blocking = this.callers.submit(this.sending(
+                CommandPriority.NORMAL, BLOCKING));
+        this.executor.blocked.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+        final AtomicReference<Boolean> stillInterrupted;
+        stillInterrupted = new AtomicReference<>();
+        Thread caller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    CommandQueueTest.this.queue.execute(command("withdrawn"));
+                } catch (IOException | RuntimeException exception) {
+                    thrown.set(exception);
+                }
+                stillInterrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        caller.start();
+        this.awaitDepth(1);
+        caller.interrupt();
+        caller.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertTrue(String.valueOf(thrown.get()),
+                thrown.get() instanceof WebDriverException);
+        assertEquals(Boolean.TRUE, stillInterrupted.get());
+        assertEquals(0, this.queue.getDepth());
+        this.executor.release.countDown();
+        blocking.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        this.queue.execute(command("after"));
+        assertEquals(Arrays.asList(BLOCKING, "after"), this.executor.sent);
+    }
+
+    @Test
+    public void idleConsumersEndAndNewOnesStart() throws Exception {
+        this.queue.close();
+        // Consumers end and start all along
+        this.queue = new CommandQueue(this.executor, 1, TimeUnit.MILLISECONDS);
+        List<Future<Response>> sent = new ArrayList<>();
+        for (int caller = 0; caller < 4; ++caller) {
+            sent.add(this.callers.submit(new Callable<Response>() {
+                @Override
+                public Response call() throws Exception {
+                    Response response = null;
+                    for (int count = 0; count < 50; ++count) {
+                        response = CommandQueueTest.this.queue
+                                .execute(command("command"));
+                        Thread.sleep(count % 3);
+                    }
+                    return response;
+                }
+            }));
+        }
+        for (Future<Response> response : sent) {
+            // A command missed by an ending consumer would never complete
+            assertNotNull(response.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        assertEquals(200, this.executor.sent.size());
+        assertTrue(String.valueOf(this.executor.consumers.size()),
+                this.executor.consumers.size() > 1);
+    }
+
+    @Test
+    public void closingFailsWaitingAndLaterCommands() throws Exception {
+        this.callers.submit(this.sending(CommandPriority.NORMAL, BLOCKING));
+        this.executor.blocked.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Future<Response> pending = this.callers.submit(this.sending(
+                CommandPriority.NORMAL, "pending"));
+        this.awaitDepth(1);
+        this.queue.close();
+        try {
+            pending.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("Waiting command sent after closing");
+        } catch (ExecutionException expected) {
+            assertTrue(String.valueOf(expected.getCause()),
+                    expected.getCause() instanceof WebDriverException);
+        }
+        try {
+            this.queue.execute(command("later"));
+            fail("Command sent after closing");
+        } catch (WebDriverException expected) {
+            // Closed
+        }
+        assertEquals(0, this.queue.getDepth());
+        assertEquals(Arrays.asList(BLOCKING), this.executor.sent);
+    }
+
+    @Test
+    public void priorityIsRestoredAfterTheWork() {
+        CommandPriority inner = CommandQueue.withPriority(CommandPriority.HIGH,
+                new Callable<CommandPriority>() {
+                    @Override
+                    public CommandPriority call() {
+                        return CommandQueue.withPriority(CommandPriority.LOW,
+                                new Callable<CommandPriority>() {
+                                    @Override
+                                    public CommandPriority call() {
+                                        return CommandQueue.currentPriority();
+                                    }
+                                });
+                    }
+                });
+        assertSame(CommandPriority.LOW, inner);
+        assertSame(CommandPriority.NORMAL, CommandQueue.currentPriority());
+    }
+
+    private Callable<Response> sending(final CommandPriority priority,
+            final String name) {
+        return new Callable<Response>() {
+            @Override
+            public Response call() {
+                return CommandQueue.withPriority(priority,
+                        new Callable<Response>() {
+                            @Override
+                            public Response call() throws IOException {
+                                return CommandQueueTest.this.queue
+                                        .execute(command(name));
+                            }
+                        });
+            }
+        };
+    }
+
+    private void awaitDepth(int depth) throws InterruptedException {
+        long deadline = System.nanoTime()
+                + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (this.queue.getDepth() != depth) {
+            if (System.nanoTime() > deadline) {
+                fail("Depth " + this.queue.getDepth() + " instead of " + depth);
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static Command command(String name) {
+        return new Command(new SessionId("session"), name);
+    }
+
+    /**
+     * Records the commands sent, and the threads that sent them; blocks on
+     * {@link #BLOCKING} until released.
+     */
+    private static class StubExecutor implements CommandExecutor {
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private final Set<Thread> consumers = Collections
+                .synchronizedSet(new HashSet<Thread>());
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public Response execute(Command command) throws IOException {
+            this.sent.add(command.getName());
+            this.consumers.add(Thread.currentThread());
+            if (FAILING.equals(command.getName())) {
+                throw new IOException(FAILING);
+            }
+            if (BLOCKING.equals(command.getName())) {
+                this.blocked.countDown();
+                try {
+                    this.release.await();
+                } catch (InterruptedException exception) {
+                    throw new IOException("Interrupted", exception);
+                }
+            }
+            Response response = new Response();
+            response.setValue(command.getName());
+            return response;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.olenick.selenium.drivers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchWindowException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.Keyboard;
+import org.openqa.selenium.interactions.Mouse;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.Response;
+
+public class ExtendedRemoteWebDriverTest {
+    private static final List<String> PAGE_CHANGES = Arrays.asList(
+            DriverCommand.CLICK_ELEMENT, DriverCommand.SUBMIT_ELEMENT,
+            DriverCommand.SEND_KEYS_TO_ELEMENT, DriverCommand.CLEAR_ELEMENT,
+            DriverCommand.CLICK, DriverCommand.SEND_KEYS_TO_ACTIVE_ELEMENT);
+
+    private PageExecutor executor;
+    private ExtendedRemoteWebDriver driver;
+
+    @Before
+    public void setUp() {
+        this.executor = new PageExecutor();
+        this.driver = new ExtendedRemoteWebDriver(new RemoteWebDriver(
+                this.executor, new DesiredCapabilities()));
+        this.driver.setReadCache(new ReadCache());
+    }
+
+    @Test
+    public void readsAreCachedUntilThePageChanges() {
+        assertEquals("page 0", this.driver.getTitle());
+        assertEquals("page 0", this.driver.getTitle());
+        assertEquals(1, this.executor.titleReads.get());
+    }
+
+    @Test
+    public void foundElementsInvalidateReads() {
+        WebElement element = this.driver.findElement(By.id("field"));
+        assertEquals("page 0", this.driver.getTitle());
+        element.click();
+        assertEquals("page 1", this.driver.getTitle());
+        element.sendKeys("text");
+        assertEquals("page 2", this.driver.getTitle());
+        element.clear();
+        assertEquals("page 3", this.driver.getTitle());
+        element.submit();
+        assertEquals("page 4", this.driver.getTitle());
+    }
+
+    @Test
+    public void elementsFoundFromFoundElementsInvalidateReads() {
+        WebElement form = this.driver.findElement(By.id("form"));
+        WebElement button = form.findElements(By.id("button")).get(0);
+        assertEquals("page 0", this.driver.getTitle());
+        button.click();
+        assertEquals("page 1", this.driver.getTitle());
+        form.findElement(By.id("button")).click();
+        assertEquals("page 2", this.driver.getTitle());
+    }
+
+    @Test
+    public void allFoundElementsInvalidateReads() {
+        List<WebElement> elements = this.driver.findElements(By.id("row"));
+        assertEquals("page 0", this.driver.getTitle());
+        elements.get(0).click();
+        assertEquals("page 1", this.driver.getTitle());
+    }
+
+    @Test
+    public void foundElementsAreTheRemoteOnes() {
+        WebElement element = this.driver.findElement(By.id("field"));
+        WebElement underlying = ((RemoteWebDriver) this.driver
+                .getWrappedDriver()).findElement(By.id("field"));
+        assertTrue(element instanceof InvalidatingWebElement);
+        assertEquals(underlying, element);
+        assertEquals(element, underlying);
+        assertEquals(underlying.hashCode(), element.hashCode());
+    }
+
+    @Test
+    public void inputDevicesInvalidateReadsWhenUsed() {
+        // Handed out before the reads, as to Actions built beforehand
+        Mouse mouse = this.driver.getMouse();
+        Keyboard keyboard = this.driver.getKeyboard();
+        assertEquals("page 0", this.driver.getTitle());
+        mouse.click(null);
+        assertEquals("page 1", this.driver.getTitle());
+        keyboard.sendKeys("text");
+        assertEquals("page 2", this.driver.getTitle());
+    }
+
+    @Test
+    public void waitsResumeOnceTheDocumentIsUnloaded() {
+        ScriptedDriver scripted = new ScriptedDriver(this.executor,
+                new WebDriverException("javascript error:"
+                        + " document unloaded while waiting for result"),
+                Boolean.TRUE);
+        new ExtendedRemoteWebDriver(scripted).waitForReadyState("complete",
+                10);
+        assertEquals(2, scripted.asyncScripts.get());
+    }
+
+    @Test
+    public void waitsFailRightAwayOnOtherErrors() {
+        NoSuchWindowException closed = new NoSuchWindowException(
+                "window closed");
+        ScriptedDriver scripted = new ScriptedDriver(this.executor, closed,
+                Boolean.TRUE);
+        try {
+            new ExtendedRemoteWebDriver(scripted).waitForReadyState(
+                    "complete", 10);
+            fail("Wait resumed after the window was closed");
+        } catch (NoSuchWindowException expected) {
+            assertEquals(closed, expected);
+        }
+        assertEquals(1, scripted.asyncScripts.get());
+    }
+
+    /**
+     * Driver whose asynchronous scripts have the given outcomes, in order:
+     * exceptions are thrown, anything else returned.
+     */
+    private static class ScriptedDriver extends RemoteWebDriver {
+        private final LinkedList<Object> outcomes;
+        private final AtomicInteger asyncScripts = new AtomicInteger();
+
+        private ScriptedDriver(CommandExecutor executor, Object... outcomes) {
+            super(executor, new DesiredCapabilities());
+            this.outcomes = new LinkedList<>(Arrays.asList(outcomes));
+        }
+
+        @Override
+        public Object executeAsyncScript(String script, Object... args) {
+            this.asyncScripts.incrementAndGet();
+            Object outcome = this.outcomes.removeFirst();
+            if (outcome instanceof WebDriverException) {
+                throw (WebDriverException) outcome;
+            }
+            return outcome;
+        }
+    }
+
+    /**
+     * Finds the same element for any locator, and serves a title that
+     * changes with every command that changes the page.
+     */
+    private static class PageExecutor implements CommandExecutor {
+        private final AtomicInteger changes = new AtomicInteger();
+        private final AtomicInteger titleReads = new AtomicInteger();
+
+        @Override
+        public Response execute(Command command) throws IOException {
+            Response response = new Response(command.getSessionId());
+            response.setStatus(0);
+            String name = command.getName();
+            if (DriverCommand.NEW_SESSION.equals(name)) {
+                response.setSessionId("session");
+                Map<String, Object> capabilities = new HashMap<>();
+                capabilities.put("browserName", "stub");
+                response.setValue(capabilities);
+            } else if (DriverCommand.FIND_ELEMENT.equals(name)
+                    || DriverCommand.FIND_CHILD_ELEMENT.equals(name)) {
+                response.setValue(Collections.singletonMap("ELEMENT", "1"));
+            } else if (DriverCommand.FIND_ELEMENTS.equals(name)
+                    || DriverCommand.FIND_CHILD_ELEMENTS.equals(name)) {
+                response.setValue(Collections.singletonList(Collections
+                        .singletonMap("ELEMENT", "1")));
+            } else if (DriverCommand.GET_TITLE.equals(name)) {
+                this.titleReads.incrementAndGet();
+                response.setValue("page " + this.changes.get());
+            } else if (PAGE_CHANGES.contains(name)) {
+                this.changes.incrementAndGet();
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.olenick.selenium.drivers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpTransportTest {
+    private static final byte[] LARGE = new byte[1000];
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<Integer> remotePorts = new CopyOnWriteArrayList<>();
+    private final CountDownLatch released = new CountDownLatch(1);
+    private ExecutorService serverThreads;
+    private HttpServer server;
+    private HttpTransport transport;
+
+    @Before
+    public void setUp() throws IOException {
+        this.serverThreads = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(this.serverThreads);
+        this.server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                HttpTransportTest.this.respond(exchange);
+            }
+        });
+        this.server.start();
+        this.transport = new HttpTransport();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.released.countDown();
+        this.transport.close();
+        this.server.stop(0);
+        this.serverThreads.shutdownNow();
+    }
+
+    @Test
+    public void connectionsAreReused() throws IOException {
+        HttpClient client = this.client();
+        for (int count = 0; count < 3; ++count) {
+            HttpResponse response = client.execute(new HttpRequest(
+                    HttpMethod.GET, "/ok"), true);
+            assertEquals(200, response.getStatus());
+            assertEquals("ok", response.getContentString());
+        }
+        assertEquals(3, this.remotePorts.size());
+        assertEquals(this.remotePorts.get(0), this.remotePorts.get(1));
+        assertEquals(this.remotePorts.get(0), this.remotePorts.get(2));
+    }
+
+    @Test
+    public void tooLargeResponseFailsAndDropsTheConnection()
+            throws IOException {
+        this.transport.maxResponseBytes(100);
+        this.checkTooLarge("/large");
+    }
+
+    @Test
+    public void tooLargeChunkedResponseFailsAndDropsTheConnection()
+            throws IOException {
+        this.transport.maxResponseBytes(100);
+        this.checkTooLarge("/large-chunked");
+    }
+
+    @Test
+    public void slowResponseTimesOut() throws IOException {
+        this.transport.socketTimeout(200, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        try {
+            this.client().execute(new HttpRequest(HttpMethod.GET, "/slow"),
+                    true);
+            fail("Response received despite the timeout");
+        } catch (IOException expected) {
+            // Timed out
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                - start);
+        assertTrue("Timed out after " + elapsedMillis + " ms",
+                elapsedMillis < 5000);
+    }
+
+    @Test
+    public void seeOtherSwitchesToGet() throws IOException {
+        HttpResponse response = this.client().execute(
+                post("/redirect/303", "body"), true);
+        assertEquals(200, response.getStatus());
+        assertEquals(2, this.requests.size());
+        assertEquals("POST /redirect/303 body", this.requests.get(0));
+        assertEquals("GET /ok ", this.requests.get(1));
+    }
+
+    @Test
+    public void foundSwitchesToGet() throws IOException {
+        this.client().execute(post("/redirect/302", "body"), true);
+        assertEquals("GET /ok ", this.requests.get(1));
+    }
+
+    @Test
+    public void temporaryRedirectKeepsMethodAndBody() throws IOException {
+        HttpResponse response = this.client().execute(
+                post("/redirect/307", "body"), true);
+        assertEquals(200, response.getStatus());
+        assertEquals(2, this.requests.size());
+        assertEquals("POST /redirect/307 body", this.requests.get(0));
+        assertEquals("POST /ok body", this.requests.get(1));
+    }
+
+    @Test
+    public void permanentRedirectKeepsMethodAndBody() throws IOException {
+        this.client().execute(post("/redirect/308", "body"), true);
+        assertEquals("POST /ok body", this.requests.get(1));
+    }
+
+    @Test
+    public void redirectsAreNotFollowedUnlessAsked() throws IOException {
+        HttpResponse response = this.client().execute(
+                post("/redirect/307", "body"), false);
+        assertEquals(307, response.getStatus());
+        assertEquals(1, this.requests.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void redirectLoopsFail() throws IOException {
+        this.client().execute(new HttpRequest(HttpMethod.GET, "/loop"), true);
+    }
+
+    private void checkTooLarge(String path) throws IOException {
+        HttpClient client = this.client();
+        client.execute(new HttpRequest(HttpMethod.GET, "/ok"), true);
+        try {
+            client.execute(new HttpRequest(HttpMethod.GET, path), true);
+            fail("Response larger than the maximum received");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage()
+                    .startsWith("Response too large"));
+        }
+        HttpResponse response = client.execute(new HttpRequest(
+                HttpMethod.GET, "/ok"), true);
+        assertEquals("ok", response.getContentString());
+        assertEquals(3, this.remotePorts.size());
+        // Same connection up to the failure, a new one afterwards
+        assertEquals(this.remotePorts.get(0), this.remotePorts.get(1));
+        assertNotEquals(this.remotePorts.get(1), this.remotePorts.get(2));
+    }
+
+    private HttpClient client() throws IOException {
+        return this.transport.createClient(new URL("http://localhost:"
+                + this.server.getAddress().getPort()));
+    }
+
+    private static HttpRequest post(String uri, String content) {
+        HttpRequest request = new HttpRequest(HttpMethod.POST, uri);
+        request.setHeader("Content-Type", "text/plain;charset=UTF-8");
+        request.setContent(content.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        this.requests.add(exchange.getRequestMethod() + " " + path + " "
+                + new String(read(exchange.getRequestBody()),
+                        StandardCharsets.UTF_8));
+        this.remotePorts.add(exchange.getRemoteAddress().getPort());
+        if (path.startsWith("/redirect/")) {
+            exchange.getResponseHeaders().add("Location", "/ok");
+            exchange.sendResponseHeaders(
+                    Integer.parseInt(path.substring("/redirect/".length())),
+                    -1);
+            exchange.close();
+        } else if ("/loop".equals(path)) {
+            exchange.getResponseHeaders().add("Location", "/loop");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        } else if ("/slow".equals(path)) {
+            try {
+                this.released.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        } else if (path.startsWith("/large")) {
+            exchange.sendResponseHeaders(200,
+                    path.endsWith("-chunked") ? 0 : LARGE.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(LARGE);
+            } catch (IOException e) {
+                // Dropped by the client
+            }
+        } else {
+            byte[] content = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(content);
+            }
+        }
+    }
+
+    private static byte[] read(InputStream input) throws IOException {
+        try (InputStream in = input) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                content.write(buffer, 0, read);
+            }
+            return content.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.olenick.selenium.drivers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ReadCacheTest {
+    private static final Object ELEMENT = new Object();
+
+    @Test
+    public void keepsReadsUntilInvalidated() {
+        ReadCache cache = new ReadCache();
+        CountingLoader loader = new CountingLoader();
+        assertEquals("1", cache.read(ELEMENT, "text", loader));
+        assertEquals("1", cache.read(ELEMENT, "text", loader));
+        cache.invalidate();
+        assertEquals("2", cache.read(ELEMENT, "text", loader));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getInvalidations());
+        assertEquals(1.0 / 3, cache.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    public void tellsReadsAndTargetsApart() {
+        ReadCache cache = new ReadCache();
+        CountingLoader loader = new CountingLoader();
+        assertEquals("1", cache.read(ELEMENT, "text", loader));
+        assertEquals("2", cache.read(ELEMENT, "attribute:href", loader));
+        assertEquals("3", cache.read(new Object(), "text", loader));
+        assertEquals("4", cache.read(null, "text", loader));
+        assertEquals("4", cache.read(null, "text", loader));
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void cachesNullValues() {
+        ReadCache cache = new ReadCache();
+        final AtomicInteger loads = new AtomicInteger();
+        ReadCache.Loader<String> loader = new ReadCache.Loader<String>() {
+            @Override
+            public String load() {
+                loads.incrementAndGet();
+                return null;
+            }
+        };
+        cache.read(ELEMENT, "attribute:id", loader);
+        cache.read(ELEMENT, "attribute:id", loader);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void doesNotKeepReadsThatStartedBeforeAChange() {
+        final ReadCache cache = new ReadCache();
+        ReadCache.Loader<String> racing = new ReadCache.Loader<String>() {
+            @Override
+            public String load() {
+                // The page changes while reading
+                cache.invalidate();
+                return "old";
+            }
+        };
+        assertEquals("old", cache.read(ELEMENT, "text", racing));
+        assertEquals("1", cache.read(ELEMENT, "text", new CountingLoader()));
+    }
+
+    @Test
+    public void expiresReadsAfterTheMaximumAge() throws InterruptedException {
+        ReadCache cache = new ReadCache(20, TimeUnit.MILLISECONDS);
+        CountingLoader loader = new CountingLoader();
+        assertEquals("1", cache.read(ELEMENT, "text", loader));
+        Thread.sleep(40);
+        assertEquals("2", cache.read(ELEMENT, "text", loader));
+    }
+
+    @Test
+    public void reloadRefreshesTheCachedRead() {
+        ReadCache cache = new ReadCache();
+        CountingLoader loader = new CountingLoader();
+        assertEquals("1", cache.read(ELEMENT, "text", loader));
+        assertEquals("2", cache.reload(ELEMENT, "text", loader));
+        assertEquals("2", cache.read(ELEMENT, "text", loader));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void staysBounded() {
+        ReadCache cache = new ReadCache();
+        CountingLoader loader = new CountingLoader();
+        for (int index = 0; index < 25000; ++index) {
+            cache.read(ELEMENT, "attribute:" + index, loader);
+        }
+        assertTrue(cache.size() <= 10000);
+    }
+
+    @Test
+    public void resetsCounts() {
+        ReadCache cache = new ReadCache();
+        cache.read(ELEMENT, "text", new CountingLoader());
+        cache.invalidate();
+        cache.resetCounts();
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        assertEquals(0, cache.getInvalidations());
+        assertEquals(0, cache.getHitRatio(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeMaximumAges() {
+        new ReadCache(-1, TimeUnit.SECONDS);
+    }
+
+    private static class CountingLoader implements ReadCache.Loader<String> {
+        private int loads = 0;
+
+        @Override
+        public String load() {
+            return String.valueOf(++this.loads);
+        }
+    }
+}
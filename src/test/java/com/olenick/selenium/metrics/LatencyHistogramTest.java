@@ -0,0 +1,93 @@
+package com.olenick.selenium.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getQuantileMicros(0.5));
+        assertEquals(0, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10; ++micros) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+        assertEquals(5, histogram.getQuantileMicros(0.5));
+        assertEquals(9, histogram.getQuantileMicros(0.9));
+        assertEquals(10, histogram.getQuantileMicros(1));
+        assertEquals(10, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void largeValuesAreWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 100000; ++micros) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+        for (double quantile : new double[] { 0.5, 0.9, 0.99, 0.999 }) {
+            double expected = quantile * 100000;
+            long estimated = histogram.getQuantileMicros(quantile);
+            assertTrue("p" + quantile + ": " + estimated,
+                    Math.abs(estimated - expected) <= 0.07 * expected);
+        }
+    }
+
+    @Test
+    public void quantilesNeverExceedTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(960));
+        assertEquals(960, histogram.getQuantileMicros(0.99));
+        assertEquals(960, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void negativeLatenciesCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5000);
+        assertEquals(0, histogram.getQuantileMicros(1));
+        assertEquals(0, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        histogram.reset();
+        assertEquals(0, histogram.getQuantileMicros(0.5));
+        assertEquals(0, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int index = 0; index < threads.length; ++index) {
+            final long micros = index + 1;
+            threads[index] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int count = 0; count < 10000; ++count) {
+                        histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+                    }
+                }
+            });
+            threads[index].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, histogram.getQuantileMicros(0.25));
+        assertEquals(2, histogram.getQuantileMicros(0.5));
+        assertEquals(3, histogram.getQuantileMicros(0.75));
+        assertEquals(4, histogram.getMaxMicros());
+    }
+}
@@ -0,0 +1,156 @@
+package com.olenick.selenium.pagesource;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PageSourceCaptureTest {
+    private static final String BASE = "<html><head><title>Page</title></head>"
+            + "<body><p>caf\u00e9 \ud83d\ude00</p><ul><li>1</li></ul></body></html>";
+    private static final String CHANGED = BASE.replace("<li>1</li>",
+            "<li>1</li><li>2</li>");
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("page-sources");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        File[] files = this.directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(this.directory);
+    }
+
+    @Test
+    public void rebuildsThePageFromADelta() throws IOException {
+        File base = this.write("base.gz", BASE);
+        File delta = this.write("delta.gz", delta(BASE, CHANGED));
+        File target = this.file("target.gz");
+        assertEquals(target, PageSourceCapture.applyDelta(base, delta, target));
+        assertEquals(CHANGED, read(target));
+    }
+
+    @Test
+    public void rebuildsLargePages() throws IOException {
+        StringBuilder page = new StringBuilder("<html><body>");
+        for (int row = 0; row < 20000; ++row) {
+            page.append("<div id=\"row").append(row).append("\">\u00e9</div>");
+        }
+        String base = page.append("</body></html>").toString();
+        String changed = base.replace("row10000\"", "row10000\" class=\"x\"");
+        File target = this.file("target.gz");
+        PageSourceCapture.applyDelta(this.write("base.gz", base),
+                this.write("delta.gz", delta(base, changed)), target);
+        assertEquals(changed, read(target));
+    }
+
+    @Test
+    public void copiesWholeCaptures() throws IOException {
+        File target = this.file("target.gz");
+        PageSourceCapture.applyDelta(this.write("base.gz", BASE),
+                this.write("whole.gz", CHANGED), target);
+        assertEquals(CHANGED, read(target));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsABaseOfAnotherLength() throws IOException {
+        PageSourceCapture.applyDelta(this.write("base.gz", BASE + " "),
+                this.write("delta.gz", delta(BASE, CHANGED)),
+                this.file("target.gz"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsAnotherBaseOfTheSameLength() throws IOException {
+        PageSourceCapture.applyDelta(
+                this.write("base.gz", BASE.replace("Page", "Gape")),
+                this.write("delta.gz", delta(BASE, CHANGED)),
+                this.file("target.gz"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsADeltaAsBase() throws IOException {
+        String delta = delta(BASE, CHANGED);
+        PageSourceCapture.applyDelta(this.write("base.gz", delta),
+                this.write("delta.gz", delta), this.file("target.gz"));
+    }
+
+    /**
+     * @return Delta of a page after another, as a capture writes it.
+     */
+    private static String delta(String base, String page) {
+        int limit = Math.min(base.length(), page.length());
+        int prefix = 0;
+        while (prefix < limit && base.charAt(prefix) == page.charAt(prefix)) {
+            ++prefix;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix
+                && base.charAt(base.length() - 1 - suffix) == page.charAt(page
+                        .length() - 1 - suffix)) {
+            ++suffix;
+        }
+        return String.format(
+                "<!-- page source delta: base=%d hash=%s prefix=%d suffix=%d -->\n",
+                base.length(), hash(base), prefix, suffix)
+                + page.substring(prefix, page.length() - suffix);
+    }
+
+    /**
+     * @return FNV-1a of the UTF-16 code units, as the capture script does.
+     */
+    private static String hash(String text) {
+        int hash = 0x811c9dc5;
+        for (int index = 0; index < text.length(); ++index) {
+            hash = (hash ^ text.charAt(index)) * 16777619;
+        }
+        return String.format("%08x", hash);
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = this.file(name);
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(
+                Files.newOutputStream(file.toPath())), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    private static String read(File file) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(file
+                .toPath()))) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                output.write(buffer, 0, read);
+            }
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private File file(String name) {
+        return this.directory.resolve(name).toFile();
+    }
+}
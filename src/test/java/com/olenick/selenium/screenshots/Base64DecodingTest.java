@@ -0,0 +1,83 @@
+package com.olenick.selenium.screenshots;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class Base64DecodingTest {
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+    @Test
+    public void decodesTheReferenceVectors() throws IOException {
+        String[][] vectors = { { "", "" }, { "Zg==", "f" }, { "Zm8=", "fo" },
+                { "Zm9v", "foo" }, { "Zm9vYg==", "foob" },
+                { "Zm9vYmE=", "fooba" }, { "Zm9vYmFy", "foobar" } };
+        for (String[] vector : vectors) {
+            byte[] expected = vector[1].getBytes(StandardCharsets.US_ASCII);
+            assertEquals(vector[0], expected.length,
+                    Base64Decoding.decodedLength(vector[0]));
+            assertArrayEquals(vector[0], expected, toChannel(vector[0]));
+            assertArrayEquals(vector[0], expected, toBuffer(vector[0]));
+        }
+    }
+
+    @Test
+    public void skipsLineBreaksAndPadding() throws IOException {
+        String base64 = "Zm9v\r\nYmFy\nZm9v\r\nYg==";
+        byte[] expected = "foobarfoob".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(expected.length, Base64Decoding.decodedLength(base64));
+        assertArrayEquals(expected, toChannel(base64));
+    }
+
+    @Test
+    public void decodesAcrossChunks() throws IOException {
+        // Larger than the decoding buffer, and not a multiple of 3 bytes
+        byte[] bytes = new byte[200 * 1024 + 1];
+        new Random(42).nextBytes(bytes);
+        String base64 = encode(bytes);
+        assertEquals(bytes.length, Base64Decoding.decodedLength(base64));
+        assertArrayEquals(bytes, toChannel(base64));
+        assertArrayEquals(bytes, toBuffer(base64));
+    }
+
+    private static byte[] toChannel(String base64) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Base64Decoding.decode(base64, Channels.newChannel(output));
+        return output.toByteArray();
+    }
+
+    private static byte[] toBuffer(String base64) {
+        ByteBuffer buffer = ByteBuffer.allocate(Base64Decoding
+                .decodedLength(base64));
+        Base64Decoding.decode(base64, buffer);
+        assertEquals(0, buffer.remaining());
+        return buffer.array();
+    }
+
+    static String encode(byte[] bytes) {
+        StringBuilder sb = new StringBuilder((bytes.length + 2) / 3 * 4);
+        for (int index = 0; index < bytes.length; index += 3) {
+            int remaining = Math.min(3, bytes.length - index);
+            int bits = (bytes[index] & 0xff) << 16;
+            if (remaining > 1) {
+                bits |= (bytes[index + 1] & 0xff) << 8;
+            }
+            if (remaining > 2) {
+                bits |= bytes[index + 2] & 0xff;
+            }
+            for (int sextet = 0; sextet < 4; ++sextet) {
+                sb.append(sextet <= remaining ? ALPHABET.charAt(bits >> 18
+                        - 6 * sextet & 0x3f) : '=');
+            }
+        }
+        return sb.toString();
+    }
+}
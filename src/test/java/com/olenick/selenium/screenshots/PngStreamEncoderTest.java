@@ -0,0 +1,89 @@
+package com.olenick.selenium.screenshots;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+public class PngStreamEncoderTest {
+    @Test
+    public void writesAnImageReadersDecode() throws IOException {
+        int width = 301;
+        int height = 257;
+        int[][] rows = new int[height][width];
+        Random random = new Random(7);
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                // Noise on the left, flat areas on the right
+                rows[y][x] = x < width / 2 ? random.nextInt() & 0xffffff
+                        : (y / 16) * 0x010203;
+            }
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PngStreamEncoder encoder = new PngStreamEncoder(
+                Channels.newChannel(output), width, height);
+        for (int[] row : rows) {
+            encoder.writeRow(row);
+        }
+        assertEquals(height, encoder.getRows());
+        encoder.finish();
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(output
+                .toByteArray()));
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                assertEquals(x + "," + y, rows[y][x],
+                        image.getRGB(x, y) & 0xffffff);
+            }
+        }
+    }
+
+    @Test
+    public void ignoresAlpha() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PngStreamEncoder encoder = new PngStreamEncoder(
+                Channels.newChannel(output), 2, 1);
+        encoder.writeRow(new int[] { 0x80123456, 0xff654321 });
+        encoder.finish();
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(output
+                .toByteArray()));
+        assertEquals(0x123456, image.getRGB(0, 0) & 0xffffff);
+        assertEquals(0x654321, image.getRGB(1, 0) & 0xffffff);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsMissingRows() throws IOException {
+        PngStreamEncoder encoder = new PngStreamEncoder(
+                Channels.newChannel(new ByteArrayOutputStream()), 1, 2);
+        encoder.writeRow(new int[] { 0 });
+        encoder.finish();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsExtraRows() throws IOException {
+        PngStreamEncoder encoder = new PngStreamEncoder(
+                Channels.newChannel(new ByteArrayOutputStream()), 1, 1);
+        try {
+            encoder.writeRow(new int[] { 0 });
+            encoder.writeRow(new int[] { 0 });
+        } finally {
+            encoder.abandon();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyImages() throws IOException {
+        new PngStreamEncoder(Channels.newChannel(new ByteArrayOutputStream()),
+                0, 10);
+    }
+}
@@ -0,0 +1,143 @@
+package com.olenick.selenium.screenshots;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScreenshotComparatorTest {
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 70;
+    private static final int DIFFERENT = 0xffff0000;
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() {
+        this.pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        this.pool.shutdown();
+    }
+
+    @Test
+    public void identicalImagesMatch() {
+        DecodedImage baseline = DecodedImage.of(image(WIDTH, HEIGHT));
+        ScreenshotComparison comparison = new ScreenshotComparator(this.pool)
+                .compare(baseline, DecodedImage.of(image(WIDTH, HEIGHT)));
+        assertTrue(comparison.isMatch());
+        assertEquals(0, comparison.getDifferentPixels());
+        assertEquals(0, comparison.getDifferentTiles());
+        assertEquals(WIDTH * HEIGHT, comparison.getTotalPixels());
+    }
+
+    @Test
+    public void countsTheDifferentPixelsAndTiles() {
+        BufferedImage actual = image(WIDTH, HEIGHT);
+        // 2 pixels in the first tile, 1 in the last one
+        actual.setRGB(0, 0, 0x000000);
+        actual.setRGB(31, 31, 0x000000);
+        actual.setRGB(WIDTH - 1, HEIGHT - 1, 0x000000);
+        ScreenshotComparison comparison = new ScreenshotComparator(this.pool)
+                .compare(DecodedImage.of(image(WIDTH, HEIGHT)),
+                        DecodedImage.of(actual));
+        assertFalse(comparison.isMatch());
+        assertEquals(3, comparison.getDifferentPixels());
+        assertEquals(2, comparison.getDifferentTiles());
+        assertEquals(3.0 / (WIDTH * HEIGHT), comparison.getScore(), 1e-12);
+    }
+
+    @Test
+    public void toleratesSmallChannelDifferences() {
+        BufferedImage actual = image(WIDTH, HEIGHT);
+        actual.setRGB(10, 10, actual.getRGB(10, 10) ^ 0x000003);
+        DecodedImage baseline = DecodedImage.of(image(WIDTH, HEIGHT));
+        assertEquals(1, new ScreenshotComparator(this.pool).tolerance(2)
+                .compare(baseline, DecodedImage.of(actual))
+                .getDifferentPixels());
+        assertEquals(0, new ScreenshotComparator(this.pool).tolerance(3)
+                .compare(baseline, DecodedImage.of(actual))
+                .getDifferentPixels());
+    }
+
+    @Test
+    public void ignoresRegions() {
+        BufferedImage actual = image(WIDTH, HEIGHT);
+        for (int x = 40; x < 60; ++x) {
+            actual.setRGB(x, 5, 0x000000);
+        }
+        ScreenshotComparison comparison = new ScreenshotComparator(this.pool)
+                .ignore(new Rectangle(40, 0, 15, 10)).compare(
+                        DecodedImage.of(image(WIDTH, HEIGHT)),
+                        DecodedImage.of(actual));
+        assertEquals(5, comparison.getDifferentPixels());
+    }
+
+    @Test
+    public void matchesWithinTheMaximumScore() {
+        BufferedImage actual = image(WIDTH, HEIGHT);
+        actual.setRGB(1, 1, 0x000000);
+        DecodedImage baseline = DecodedImage.of(image(WIDTH, HEIGHT));
+        assertTrue(new ScreenshotComparator(this.pool).maxScore(0.001)
+                .compare(baseline, DecodedImage.of(actual)).isMatch());
+        assertFalse(new ScreenshotComparator(this.pool).maxScore(0.0001)
+                .compare(baseline, DecodedImage.of(actual)).isMatch());
+    }
+
+    @Test
+    public void pixelsOfOnlyOneImageDiffer() {
+        ScreenshotComparison comparison = new ScreenshotComparator(this.pool)
+                .compare(DecodedImage.of(image(WIDTH, HEIGHT)),
+                        DecodedImage.of(image(WIDTH, HEIGHT + 10)));
+        assertEquals(WIDTH * (HEIGHT + 10), comparison.getTotalPixels());
+        assertEquals(WIDTH * 10, comparison.getDifferentPixels());
+        assertEquals(HEIGHT + 10, comparison.getHeight());
+    }
+
+    @Test
+    public void rendersTheDifferences() {
+        BufferedImage actual = image(WIDTH, HEIGHT);
+        actual.setRGB(20, 30, 0x000000);
+        BufferedImage diff = new ScreenshotComparator(this.pool).compare(
+                DecodedImage.of(image(WIDTH, HEIGHT)), DecodedImage.of(actual))
+                .getDiffImage();
+        assertEquals(DIFFERENT, diff.getRGB(20, 30));
+        assertTrue(diff.getRGB(21, 30) != DIFFERENT);
+    }
+
+    @Test
+    public void baselineHashesAreReused() {
+        DecodedImage baseline = DecodedImage.of(image(WIDTH, HEIGHT));
+        ScreenshotComparator comparator = new ScreenshotComparator(this.pool)
+                .tileSize(16);
+        BufferedImage actual = image(WIDTH, HEIGHT);
+        actual.setRGB(50, 50, 0x000000);
+        // Same results with the hashes computed, then cached
+        for (int pass = 0; pass < 2; ++pass) {
+            ScreenshotComparison comparison = comparator.compare(baseline,
+                    DecodedImage.of(actual));
+            assertEquals(1, comparison.getDifferentPixels());
+            assertEquals(1, comparison.getDifferentTiles());
+        }
+    }
+
+    private static BufferedImage image(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                image.setRGB(x, y, (x * 2) << 16 | (y * 3) << 8 | 0x40);
+            }
+        }
+        return image;
+    }
+}
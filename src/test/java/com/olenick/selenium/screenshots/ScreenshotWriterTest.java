@@ -0,0 +1,85 @@
+package com.olenick.selenium.screenshots;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScreenshotWriterTest {
+    private static final byte[] FIRST = { 1, 2, 3, 4, 5 };
+    private static final byte[] SECOND = { 6, 7, 8 };
+
+    private Path directory;
+    private ScreenshotWriter writer;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("screenshots");
+        this.writer = new ScreenshotWriter(1024);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.writer.close();
+        File[] files = this.directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(this.directory);
+    }
+
+    @Test
+    public void writesBytesAndBase64() throws Exception {
+        File bytes = this.writer.write(FIRST, this.file("bytes.png")).get();
+        File base64 = this.writer.writeBase64(
+                Base64DecodingTest.encode(SECOND), this.file("base64.png"))
+                .get();
+        assertArrayEquals(FIRST, Files.readAllBytes(bytes.toPath()));
+        assertArrayEquals(SECOND, Files.readAllBytes(base64.toPath()));
+        assertEquals(2, this.writer.getWritten());
+        assertEquals(0, this.writer.getInFlightBytes());
+    }
+
+    @Test
+    public void storesRepeatedScreenshotsOnce() throws Exception {
+        this.writer.write(FIRST, this.file("1.png")).get();
+        this.writer.write(FIRST.clone(), this.file("2.png")).get();
+        assertEquals(1, this.writer.getWritten());
+        assertArrayEquals(FIRST, Files.readAllBytes(this.file("2.png")
+                .toPath()));
+    }
+
+    @Test
+    public void overwritingALinkLeavesTheOtherFileAlone() throws Exception {
+        this.writer.write(FIRST, this.file("1.png")).get();
+        this.writer.write(FIRST, this.file("2.png")).get();
+        // 2.png may share its data with 1.png
+        this.writer.write(SECOND, this.file("2.png")).get();
+        assertArrayEquals(FIRST, Files.readAllBytes(this.file("1.png")
+                .toPath()));
+        assertArrayEquals(SECOND, Files.readAllBytes(this.file("2.png")
+                .toPath()));
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void reportsWriteFailures() throws Exception {
+        File notADirectory = this.file("file");
+        Files.write(notADirectory.toPath(), FIRST);
+        this.writer.write(SECOND, new File(notADirectory, "screenshot.png"))
+                .get();
+    }
+
+    private File file(String name) {
+        return this.directory.resolve(name).toFile();
+    }
+}
@@ -0,0 +1,182 @@
+package com.olenick.selenium.screenshots;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.RemoteWebElement;
+import org.openqa.selenium.remote.Response;
+
+import com.olenick.selenium.drivers.ExtendedRemoteWebDriver;
+import com.olenick.selenium.scripts.ScriptRegistry;
+
+public class StitchedScreenshotTest {
+    // CSS pixels, captured at twice their size
+    private static final int PAGE_WIDTH = 100;
+    private static final int PAGE_HEIGHT = 300;
+    private static final int VIEWPORT_HEIGHT = 100;
+    private static final int RATIO = 2;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        this.file = Files.createTempFile("stitched", ".png").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.file.toPath());
+    }
+
+    @Test
+    public void stitchesViewportScreenshots() throws IOException {
+        StubPage page = new StubPage(false);
+        StitchedScreenshot.captureElement(page.driver(),
+                new RemoteWebElement(), this.file);
+        this.checkRegion();
+        assertEquals(2, page.screenshots);
+    }
+
+    @Test
+    public void cropsFullPageScreenshots() throws IOException {
+        StubPage page = new StubPage(true);
+        StitchedScreenshot.captureElement(page.driver(),
+                new RemoteWebElement(), this.file);
+        this.checkRegion();
+        assertEquals(1, page.screenshots);
+    }
+
+    /**
+     * Checks that the file holds the region of the element: (10, 150) to
+     * (60, 270).
+     */
+    private void checkRegion() throws IOException {
+        BufferedImage image = ImageIO.read(this.file);
+        assertEquals(50 * RATIO, image.getWidth());
+        assertEquals(120 * RATIO, image.getHeight());
+        for (int y = 0; y < image.getHeight(); ++y) {
+            for (int x = 0; x < image.getWidth(); ++x) {
+                assertEquals(colorAt(10 * RATIO + x, 150 * RATIO + y),
+                        image.getRGB(x, y) & 0xffffff);
+            }
+        }
+    }
+
+    private static int colorAt(int x, int y) {
+        return y << 8 | x;
+    }
+
+    /**
+     * Page taller than the viewport, whose screenshots show either the
+     * viewport or the whole page.
+     */
+    private static class StubPage {
+        private final boolean fullPage;
+        private long scrollY = 0;
+        private int screenshots = 0;
+
+        private StubPage(boolean fullPage) {
+            this.fullPage = fullPage;
+        }
+
+        private ExtendedRemoteWebDriver driver() {
+            return new ExtendedRemoteWebDriver(new RemoteWebDriver(
+                    new CommandExecutor() {
+                        @Override
+                        public Response execute(Command command) {
+                            Response response = new Response(command
+                                    .getSessionId());
+                            response.setStatus(0);
+                            if (DriverCommand.NEW_SESSION.equals(command
+                                    .getName())) {
+                                response.setSessionId("session");
+                                response.setValue(new HashMap<String, Object>());
+                            }
+                            return response;
+                        }
+                    }, new DesiredCapabilities()) {
+                @Override
+                public Object executeScript(String script, Object... args) {
+                    // Helpers get the library version and their name first
+                    return StubPage.this.callHelper((String) args[1],
+                            Arrays.asList(args).subList(2, args.length));
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public <X> X getScreenshotAs(OutputType<X> target) {
+                    return (X) StubPage.this.screenshot();
+                }
+            });
+        }
+
+        private Object callHelper(String helper, List<Object> args) {
+            switch (helper) {
+            case ScriptRegistry.PAGE_GEOMETRY:
+                Map<String, Object> geometry = new HashMap<>();
+                geometry.put("pageWidth", (long) PAGE_WIDTH);
+                geometry.put("pageHeight", (long) PAGE_HEIGHT);
+                geometry.put("viewportWidth", (long) PAGE_WIDTH);
+                geometry.put("viewportHeight", (long) VIEWPORT_HEIGHT);
+                geometry.put("windowWidth", (long) PAGE_WIDTH);
+                geometry.put("scrollX", 0L);
+                geometry.put("scrollY", 0L);
+                Map<String, Object> region = new HashMap<>();
+                region.put("x", 10L);
+                region.put("y", 150L);
+                region.put("width", 50L);
+                region.put("height", 120L);
+                geometry.put("region", region);
+                return geometry;
+            case ScriptRegistry.SCROLL_TO:
+                this.scrollY = Math.min(PAGE_HEIGHT - VIEWPORT_HEIGHT,
+                        Math.round(((Number) args.get(1)).doubleValue()));
+                return Arrays.asList(0L, this.scrollY);
+            default:
+                return null;
+            }
+        }
+
+        private byte[] screenshot() {
+            ++this.screenshots;
+            int top = this.fullPage ? 0 : (int) this.scrollY * RATIO;
+            int height = (this.fullPage ? PAGE_HEIGHT : VIEWPORT_HEIGHT)
+                    * RATIO;
+            BufferedImage image = new BufferedImage(PAGE_WIDTH * RATIO,
+                    height, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < height; ++y) {
+                for (int x = 0; x < image.getWidth(); ++x) {
+                    image.setRGB(x, y, colorAt(x, top + y));
+                }
+            }
+            try {
+                ByteArrayOutputStream png = new ByteArrayOutputStream();
+                ImageIO.write(image, "png", png);
+                return png.toByteArray();
+            } catch (IOException exception) {
+                throw new WebDriverException(exception);
+            }
+        }
+    }
+}